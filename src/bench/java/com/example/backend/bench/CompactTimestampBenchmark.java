@@ -0,0 +1,84 @@
+package com.example.backend.bench;
+
+import com.example.backend.utils.CompactTimestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of yyMMddHHmmss values: DateTimeFormatter (the former FraudAlertRowMapper path) against
+ * CompactTimestamp, to LocalDateTime and to epoch seconds.
+ *
+ * Reported per value: the score is values/ms and, with the GC profiler, gc.alloc.rate.norm is the bytes
+ * allocated per value (expected 0 for epochSecond).
+ *
+ *   mvn -Pbenchmark test-compile exec:exec@run-benchmarks -Djmh.include=CompactTimestampBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@OperationsPerInvocation(CompactTimestampBenchmark.VALUES)
+public class CompactTimestampBenchmark {
+
+    static final int VALUES = 10_000;
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyMMddHHmmss");
+
+    private String[] values;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(46);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        values = new String[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = base.plusSeconds(random.nextInt(365 * 86_400)).format(FORMAT);
+        }
+    }
+
+    @Benchmark
+    public void formatterLocalDateTime(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(LocalDateTime.parse(value, FORMAT));
+        }
+    }
+
+    @Benchmark
+    public void formatterEpochSecond(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(LocalDateTime.parse(value, FORMAT).toEpochSecond(ZoneOffset.UTC));
+        }
+    }
+
+    @Benchmark
+    public void compactLocalDateTime(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(CompactTimestamp.toLocalDateTime(value));
+        }
+    }
+
+    @Benchmark
+    public void compactEpochSecond(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(CompactTimestamp.toEpochSecond(value));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.backend.bench;
+
+import java.io.OutputStream;
+
+/**
+ * Discards what is written and only counts the bytes, so a benchmark measures the writer, not a buffer
+ */
+final class CountingOutputStream extends OutputStream {
+
+    long count;
+
+    @Override
+    public void write(int b) {
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        count += len;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.backend.bench;
+
+import com.example.backend.conf.JacksonConfig;
+import com.example.backend.entities.dto.MsisdnDetectionDTO;
+import com.example.backend.entities.dto.RuleValidationResponseDTO;
+import com.example.backend.services.ValidationRowMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of a 100k-row RuleValidationResponseDTO in JSON, Smile and CBOR, with the
+ * mappers configured as JacksonConfig configures the HTTP converters.
+ *
+ * The score is ms per response; with the GC profiler, gc.alloc.rate.norm is the bytes allocated per
+ * response. The payloadBytes and responses secondary metrics add up the measured responses:
+ * payloadBytes / responses is the payload size of the encoding.
+ *
+ *   mvn -Pbenchmark test-compile exec:exec@run-benchmarks -Djmh.include=ResponseEncodingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ResponseEncodingBenchmark {
+
+    static final int ROWS = 100_000;
+
+    private RuleValidationResponseDTO response;
+    private ObjectWriter jsonWriter;
+    private ObjectWriter smileWriter;
+    private ObjectWriter cborWriter;
+
+    /**
+     * Encoded bytes and responses, reported as secondary metrics
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+        public long payloadBytes;
+        public long responses;
+    }
+
+    @Setup
+    public void setUp() {
+        response = validationResponse(ROWS);
+        jsonWriter = builder().build().writer();
+        smileWriter = JacksonConfig.smileMapper(builder()).writer();
+        cborWriter = JacksonConfig.cborMapper(builder()).writer();
+    }
+
+    @Benchmark
+    public long json(Payload payload) throws IOException {
+        return write(jsonWriter, payload);
+    }
+
+    @Benchmark
+    public long smile(Payload payload) throws IOException {
+        return write(smileWriter, payload);
+    }
+
+    @Benchmark
+    public long cbor(Payload payload) throws IOException {
+        return write(cborWriter, payload);
+    }
+
+    private long write(ObjectWriter writer, Payload payload) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writer.writeValue(out, response);
+        payload.payloadBytes += out.count;
+        payload.responses++;
+        return out.count;
+    }
+
+    /**
+     * Builder with the settings Spring Boot and JacksonConfig apply to the application's mappers
+     */
+    private static Jackson2ObjectMapperBuilder builder() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                        SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        new JacksonConfig().fieldSetFilterCustomizer().customize(builder);
+        return builder;
+    }
+
+    private static RuleValidationResponseDTO validationResponse(int rows) {
+        List<MsisdnDetectionDTO> detections = new ArrayList<>(rows);
+        Map<Integer, Long> alertsByRule = new HashMap<>();
+        long alerts = 0;
+        for (Object[] row : RowFixtures.validationRows(rows)) {
+            MsisdnDetectionDTO detection = ValidationRowMapper.toMsisdnDetection(row);
+            detections.add(detection);
+            alertsByRule.merge(detection.getRuleId(), (long) detection.getAlertCount(), Long::sum);
+            alerts += detection.getAlertCount();
+        }
+
+        return RuleValidationResponseDTO.builder()
+                .ruleIds(Arrays.asList(1, 2, 3, 4, 5))
+                .startDate(LocalDate.of(2024, 1, 1))
+                .endDate(LocalDate.of(2024, 1, 31))
+                .totalRulesAnalyzed(alertsByRule.size())
+                .totalMsisdnsDetected((long) rows)
+                .totalAlertsGenerated(alerts)
+                .detectedMsisdns(detections)
+                .ruleCredibilityAnalysis(new ArrayList<>())
+                .summary(RuleValidationResponseDTO.SummaryStatistics.builder()
+                        .totalUniquesMsisdns((long) rows)
+                        .alertDistributionByRule(alertsByRule)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.backend.bench;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic Object[] rows with the shapes and JDBC types Hibernate returns for the native queries
+ * on PostgreSQL (int4 ids as Integer, COUNT as BigInteger, SUM/AVG as BigDecimal, timestamps as Timestamp,
+ * yyMMddHHmmss dates as String). Seeded, so every fork maps the same rows.
+ */
+final class RowFixtures {
+
+    private static final DateTimeFormatter DATE_KEY = DateTimeFormatter.ofPattern("yyMMddHHmmss");
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final String[] RULES = {"Sim box", "Wangiri", "IRSF", "High volume international", "Night calls"};
+    private static final String[] CATEGORIES = {"Bypass", "Revenue share", "Usage"};
+
+    private RowFixtures() {
+    }
+
+    /**
+     * Rows of buildMsisdnGroupedValidationQuery, about a third with a decision
+     */
+    static Object[][] validationRows(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            int rule = random.nextInt(RULES.length);
+            Timestamp first = timestamp(random);
+            Timestamp last = new Timestamp(first.getTime() + random.nextInt(86_400) * 1000L);
+            boolean decided = random.nextInt(3) == 0;
+            int rulesTriggered = 1 + random.nextInt(3);
+
+            rows[i] = new Object[]{
+                    msisdn(i),
+                    rule + 1,
+                    RULES[rule],
+                    CATEGORIES[rule % CATEGORIES.length],
+                    "A",
+                    BigDecimal.valueOf(1 + random.nextInt(40)),
+                    first,
+                    last,
+                    decided ? "ALERT_AND_DECISION" : "ALERT_ONLY",
+                    decided ? (random.nextBoolean() ? "D" : "W") : null,
+                    decided ? new Timestamp(last.getTime() + 3_600_000L) : null,
+                    decided ? "analyst" : null,
+                    decided ? rule + 1 : null,
+                    decided ? RULES[rule] : null,
+                    "",
+                    BigInteger.valueOf(rulesTriggered),
+                    BigDecimal.valueOf(rulesTriggered * 7L),
+                    rulesTriggered > 1 ? RULES[rule] + ", " + RULES[(rule + 1) % RULES.length] : RULES[rule],
+                    CATEGORIES[rule % CATEGORIES.length],
+                    decided ? BigDecimal.valueOf(1.5) : null
+            };
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of FraudAlertRepository.getFraudAlerts
+     */
+    static Object[][] fraudAlertRows(int count) {
+        SplittableRandom random = new SplittableRandom(43);
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            Timestamp first = timestamp(random);
+            rows[i] = new Object[]{
+                    msisdn(i),
+                    BigInteger.valueOf(1 + random.nextInt(4)),
+                    BigDecimal.valueOf(2 + random.nextInt(100)),
+                    first,
+                    new Timestamp(first.getTime() + random.nextInt(86_400) * 1000L)
+            };
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of FraudAlertRepository.getWarnings / getWarningsV2 (first seven columns)
+     */
+    static Object[][] warningRows(int count) {
+        SplittableRandom random = new SplittableRandom(44);
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            int rule = random.nextInt(RULES.length);
+            Timestamp first = timestamp(random);
+            rows[i] = new Object[]{
+                    rule + 1,
+                    RULES[rule],
+                    CATEGORIES[rule % CATEGORIES.length],
+                    "MSC",
+                    first,
+                    new Timestamp(first.getTime() + random.nextInt(86_400) * 1000L),
+                    random.nextInt(4) == 0 ? null : timestamp(random)
+            };
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of FraudAlertRepository.getWarningParams, dates as yyMMddHHmmss strings
+     */
+    static Object[][] warningParamRows(int count) {
+        SplittableRandom random = new SplittableRandom(45);
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            LocalDateTime debut = BASE.plusSeconds(random.nextInt(30 * 86_400));
+            rows[i] = new Object[]{
+                    "Call count",
+                    msisdn(i),
+                    debut.format(DATE_KEY),
+                    debut.plusHours(1 + random.nextInt(24)).format(DATE_KEY),
+                    new BigDecimal("12.5000000000000000"),
+                    1 + random.nextInt(10),
+                    10 + random.nextInt(200),
+                    BigInteger.valueOf(3),
+                    1 + random.nextInt(RULES.length)
+            };
+        }
+        return rows;
+    }
+
+    private static String msisdn(int i) {
+        return "216" + (20_000_000 + i * 7);
+    }
+
+    private static Timestamp timestamp(SplittableRandom random) {
+        return Timestamp.valueOf(BASE.plusSeconds(random.nextInt(30 * 86_400)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.backend.bench;
+
+import com.example.backend.dao.FraudAlertRowMapper;
+import com.example.backend.services.ValidationRowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of the native query row mappers (ValidationRowMapper, FraudAlertRowMapper).
+ *
+ * Each invocation maps ROWS synthetic rows (RowFixtures) and is reported per row: the score is rows/ms and,
+ * with the GC profiler, gc.alloc.rate.norm is the bytes allocated per row.
+ *
+ *   mvn -Pbenchmark test-compile exec:exec@run-benchmarks
+ *
+ * writes target/jmh-result.json; compare it with the baseline in src/bench/baseline before merging a mapper change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@OperationsPerInvocation(RowMapperBenchmark.ROWS)
+public class RowMapperBenchmark {
+
+    static final int ROWS = 10_000;
+
+    private Object[][] validationRows;
+    private Object[][] fraudAlertRows;
+    private Object[][] warningRows;
+    private Object[][] warningParamRows;
+
+    @Setup
+    public void setUp() {
+        validationRows = RowFixtures.validationRows(ROWS);
+        fraudAlertRows = RowFixtures.fraudAlertRows(ROWS);
+        warningRows = RowFixtures.warningRows(ROWS);
+        warningParamRows = RowFixtures.warningParamRows(ROWS);
+    }
+
+    @Benchmark
+    public void msisdnDetection(Blackhole blackhole) {
+        for (Object[] row : validationRows) {
+            blackhole.consume(ValidationRowMapper.toMsisdnDetection(row));
+        }
+    }
+
+    @Benchmark
+    public void decisionReason(Blackhole blackhole) {
+        for (Object[] row : validationRows) {
+            blackhole.consume(ValidationRowMapper.buildDecisionReason(row));
+        }
+    }
+
+    @Benchmark
+    public void fraudAlert(Blackhole blackhole) {
+        for (Object[] row : fraudAlertRows) {
+            blackhole.consume(FraudAlertRowMapper.toFraudAlert(row));
+        }
+    }
+
+    @Benchmark
+    public void warning(Blackhole blackhole) {
+        for (Object[] row : warningRows) {
+            blackhole.consume(FraudAlertRowMapper.toWarning(row));
+        }
+    }
+
+    @Benchmark
+    public void warningParams(Blackhole blackhole) {
+        for (Object[] row : warningParamRows) {
+            blackhole.consume(FraudAlertRowMapper.toWarningParams(row));
+        }
+    }
+}
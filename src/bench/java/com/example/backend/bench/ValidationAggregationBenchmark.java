@@ -0,0 +1,110 @@
+package com.example.backend.bench;
+
+import com.example.backend.entities.dto.MsisdnDetectionDTO;
+import com.example.backend.services.ValidationAggregates;
+import com.example.backend.utils.MsisdnCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary aggregation of processValidationResults: the former String sets and boxed map
+ * against ValidationAggregates (MsisdnCodec keys in primitive open-addressing tables).
+ *
+ * Run with the GC profiler to compare allocation per call (gc.alloc.rate.norm):
+ *
+ *   mvn -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.cp
+ *   java -cp target/test-classes:target/classes:$(cat target/bench.cp) org.openjdk.jmh.Main \
+ *       ValidationAggregationBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ValidationAggregationBenchmark {
+
+    @Param({"100000", "500000"})
+    private int msisdns;
+
+    private List<MsisdnDetectionDTO> detections;
+    private MsisdnCodec codec;
+
+    @Setup
+    public void setUp() {
+        codec = new MsisdnCodec("216");
+        detections = new ArrayList<>(msisdns);
+        for (int i = 0; i < msisdns; i++) {
+            // Strings built per row, as when they come off the JDBC result set
+            detections.add(MsisdnDetectionDTO.builder()
+                    .msisdn("216" + (20000000 + i * 7))
+                    .ruleId(1 + i % 40)
+                    .alertCount(1 + i % 50)
+                    .decisionStatus(i % 10 == 0 ? "D" : i % 10 == 1 ? "W" : null)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void stringSets(Blackhole blackhole) {
+        Set<String> uniqueMsisdns = new HashSet<>();
+        Set<String> fraudulentMsisdns = new HashSet<>();
+        Set<String> whitelistedMsisdns = new HashSet<>();
+        Set<String> pendingMsisdns = new HashSet<>();
+        Map<Integer, Long> alertsByRule = new HashMap<>();
+        long totalAlerts = 0;
+
+        for (MsisdnDetectionDTO detection : detections) {
+            uniqueMsisdns.add(detection.getMsisdn());
+            totalAlerts += detection.getAlertCount();
+
+            if ("D".equals(detection.getDecisionStatus())) {
+                fraudulentMsisdns.add(detection.getMsisdn());
+            } else if ("W".equals(detection.getDecisionStatus())) {
+                whitelistedMsisdns.add(detection.getMsisdn());
+            } else {
+                pendingMsisdns.add(detection.getMsisdn());
+            }
+
+            if (detection.getRuleId() != null) {
+                alertsByRule.merge(detection.getRuleId(), (long) detection.getAlertCount(), Long::sum);
+            }
+        }
+
+        blackhole.consume(uniqueMsisdns.size() + fraudulentMsisdns.size()
+                + whitelistedMsisdns.size() + pendingMsisdns.size());
+        blackhole.consume(alertsByRule);
+        blackhole.consume(totalAlerts);
+    }
+
+    @Benchmark
+    public void primitiveAggregates(Blackhole blackhole) {
+        ValidationAggregates aggregates = new ValidationAggregates(codec, detections.size());
+        for (MsisdnDetectionDTO detection : detections) {
+            aggregates.add(detection);
+        }
+
+        blackhole.consume(aggregates.getUniqueMsisdns() + aggregates.getFraudulentMsisdns()
+                + aggregates.getWhitelistedMsisdns() + aggregates.getPendingMsisdns());
+        blackhole.consume(aggregates.getAlertsByRule());
+        blackhole.consume(aggregates.getTotalAlerts());
+    }
+}
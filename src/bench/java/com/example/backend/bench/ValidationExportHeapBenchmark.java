@@ -0,0 +1,171 @@
+package com.example.backend.bench;
+
+import com.example.backend.entities.dto.MsisdnDetectionDTO;
+import com.example.backend.utils.DetectionExportWriter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Peak heap of the /rule-validation/export writers for a synthetic result set.
+ *
+ * Modes:
+ * - sxssf  : streamed Excel export (DetectionExportWriter, SXSSF row window)
+ * - csv    : streamed CSV export (DetectionExportWriter)
+ * - legacy : former behaviour, all detections in a list, XSSFWorkbook, then a byte[]
+ *
+ * Every (mode, rows) runs in its own fork with a 512 MB heap, so peaks do not mix: one export to warm up,
+ * then one measured export starting after a GC. The score is ms per export; the peakHeapBytes and
+ * outputBytes secondary metrics are those of the measured export. legacy runs out of memory at 1M rows,
+ * JMH reports the failure and goes on with the next fork.
+ *
+ *   mvn -Pbenchmark test-compile exec:exec@run-benchmarks -Djmh.include=ValidationExportHeapBenchmark
+ *
+ * The output is discarded (only its size is counted), so the figures isolate the writer
+ * from the network. Rows are generated on the fly, the way they come off the JDBC cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+// Iterations of 1 ms: a single export each
+@Warmup(iterations = 1, time = 1, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 1, time = 1, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class ValidationExportHeapBenchmark {
+
+    @Param({"sxssf", "csv", "legacy"})
+    private String mode;
+
+    @Param({"20000", "1000000"})
+    private int rows;
+
+    @Param({"500"})
+    private int window;
+
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+
+    /**
+     * Figures of the last export, reported as secondary metrics
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Export {
+        // Sum of the peaks of the heap pools since the GC before the export
+        public long peakHeapBytes;
+        public long outputBytes;
+    }
+
+    @Setup
+    public void setUp() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void collect() {
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @Benchmark
+    public void export(Export export) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        if ("legacy".equals(mode)) {
+            writeLegacy(rows, out);
+        } else {
+            String format = "csv".equals(mode) ? "CSV" : "EXCEL";
+            try (DetectionExportWriter writer = DetectionExportWriter.forFormat(format, out, window)) {
+                for (int i = 0; i < rows; i++) {
+                    writer.write(detection(i));
+                }
+                writer.finish();
+            }
+        }
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        export.peakHeapBytes = peakHeap;
+        export.outputBytes = out.count;
+    }
+
+    private static void writeLegacy(int rows, OutputStream out) throws IOException {
+        List<MsisdnDetectionDTO> detections = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            detections.add(detection(i));
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("MSISDN Detections");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < DetectionExportWriter.COLUMNS.length; i++) {
+                header.createCell(i).setCellValue(DetectionExportWriter.COLUMNS[i]);
+            }
+
+            int rowNum = 1;
+            for (MsisdnDetectionDTO detection : detections) {
+                Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(detection.getMsisdn());
+                row.createCell(1).setCellValue(detection.getRuleName());
+                row.createCell(2).setCellValue(detection.getRuleCategory());
+                row.createCell(3).setCellValue(detection.getAlertCount());
+                row.createCell(4).setCellValue(detection.getTotalRulesTriggered());
+                row.createCell(5).setCellValue(detection.getFirstDetectionTime().toString());
+                row.createCell(6).setCellValue(detection.getLastDetectionTime().toString());
+                row.createCell(7).setCellValue(DetectionExportWriter.getDecisionLabel(detection.getDecisionStatus()));
+                row.createCell(8).setCellValue(detection.getDecisionTime() != null ? detection.getDecisionTime().toString() : "");
+                row.createCell(9).setCellValue(detection.getDecisionUser() != null ? detection.getDecisionUser() : "");
+            }
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            workbook.write(buffer);
+            out.write(buffer.toByteArray());
+        }
+    }
+
+    private static MsisdnDetectionDTO detection(int i) {
+        LocalDateTime last = LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i * 7L);
+        String decision = i % 3 == 0 ? "D" : i % 3 == 1 ? "W" : null;
+        return MsisdnDetectionDTO.builder()
+                .msisdn(String.valueOf(21620000000L + i))
+                .ruleId(i % 40)
+                .ruleName("Rule " + (i % 40))
+                .ruleCategory("Category " + (i % 8))
+                .alertCount(1 + i % 50)
+                .totalRulesTriggered(1 + i % 5)
+                .firstDetectionTime(last.minusHours(6))
+                .lastDetectionTime(last)
+                .decisionStatus(decision)
+                .decisionTime(decision != null ? last.plusHours(2) : null)
+                .decisionUser(decision != null ? "analyst" + (i % 10) : null)
+                .build();
+    }
+}
@@ -0,0 +1,246 @@
+-- Benchmark: MSISDN-grouped validation query, legacy correlated form vs single-pass ranked form
+--
+-- Run against a SCRATCH database only, the script creates the stat/tableref tables it needs:
+--   createdb fraude_bench
+--   psql -d fraude_bench -v ON_ERROR_STOP=1 -f src/bench/sql/msisdn_grouped_validation_bench.sql
+--
+-- Dataset: 10M alerts over 30 days, 40 rules, 500k MSISDNs, decisions for ~5% of the MSISDNs.
+-- Both queries are run with EXPLAIN (ANALYZE, BUFFERS) for the full 40-rule, 30-day window.
+
+\timing on
+
+CREATE SCHEMA IF NOT EXISTS stat;
+CREATE SCHEMA IF NOT EXISTS tableref;
+
+DROP TABLE IF EXISTS stat.alerte_fraude_seq;
+DROP TABLE IF EXISTS stat.decision_fraude;
+DROP TABLE IF EXISTS tableref.regles_fraudes;
+DROP TABLE IF EXISTS tableref.categories_fraudes;
+
+CREATE TABLE tableref.categories_fraudes (
+    id            INTEGER PRIMARY KEY,
+    nom_categorie VARCHAR(255)
+);
+
+CREATE TABLE tableref.regles_fraudes (
+    id           INTEGER PRIMARY KEY,
+    nom          VARCHAR(255),
+    type         VARCHAR(50),
+    etat         VARCHAR(1),
+    id_categorie INTEGER
+);
+
+CREATE TABLE stat.alerte_fraude_seq (
+    msisdn         VARCHAR(20),
+    id_regle       INTEGER,
+    date_detection TIMESTAMP,
+    date_debut     VARCHAR(12),
+    date_fin       VARCHAR(12)
+);
+
+CREATE TABLE stat.decision_fraude (
+    id              SERIAL PRIMARY KEY,
+    msisdn          VARCHAR(20),
+    decision        VARCHAR(1),
+    nom_utilisateur VARCHAR(255),
+    date_decision   TIMESTAMP,
+    id_regle        INTEGER
+);
+
+INSERT INTO tableref.categories_fraudes
+SELECT g, 'Category ' || g FROM generate_series(1, 8) g;
+
+INSERT INTO tableref.regles_fraudes
+SELECT g, 'Rule ' || g, CASE WHEN g % 3 = 0 THEN 'MANUAL' ELSE 'AUTO' END, 'A', 1 + g % 8
+FROM generate_series(1, 40) g;
+
+-- Skewed rule and MSISDN distribution so some subscribers trigger many rules
+INSERT INTO stat.alerte_fraude_seq (msisdn, id_regle, date_detection, date_debut, date_fin)
+SELECT '216' || lpad((floor(power(random(), 2) * 500000))::text, 8, '0'),
+       1 + floor(power(random(), 1.5) * 40)::int,
+       ts,
+       to_char(ts - interval '1 hour', 'YYMMDDHH24MISS'),
+       to_char(ts, 'YYMMDDHH24MISS')
+FROM (
+    SELECT timestamp '2024-01-01' + random() * interval '30 days' AS ts
+    FROM generate_series(1, 10000000)
+) s;
+
+INSERT INTO stat.decision_fraude (msisdn, decision, nom_utilisateur, date_decision, id_regle)
+SELECT msisdn,
+       CASE WHEN random() < 0.7 THEN 'D' ELSE 'W' END,
+       'analyst',
+       timestamp '2024-01-01' + random() * interval '30 days',
+       1 + floor(random() * 40)::int
+FROM (SELECT DISTINCT msisdn FROM stat.alerte_fraude_seq) m
+WHERE random() < 0.05;
+
+CREATE INDEX ON stat.alerte_fraude_seq (id_regle, date_detection);
+CREATE INDEX ON stat.alerte_fraude_seq (msisdn, id_regle, date_detection);
+CREATE INDEX ON stat.decision_fraude (date_decision);
+CREATE INDEX ON stat.decision_fraude (msisdn, date_decision);
+
+VACUUM ANALYZE stat.alerte_fraude_seq;
+VACUUM ANALYZE stat.decision_fraude;
+ANALYZE tableref.regles_fraudes;
+ANALYZE tableref.categories_fraudes;
+
+-- Same window for both queries: every rule, the full 30 days
+PREPARE validation_single_pass(int[], timestamp, timestamp) AS
+WITH rule_counts AS (
+    SELECT a.msisdn, a.id_regle, COUNT(*) as alert_count,
+           MIN(a.date_detection) as first_detection_time, MAX(a.date_detection) as last_detection_time
+    FROM stat.alerte_fraude_seq a
+    WHERE a.id_regle = ANY ($1) AND a.date_detection BETWEEN $2 AND $3
+    GROUP BY a.msisdn, a.id_regle
+),
+ranked_rules AS (
+    SELECT rc.*, r.nom as rule_name, r.type as rule_type,
+           COALESCE(c.nom_categorie, 'Uncategorized') as rule_category,
+           ROW_NUMBER() OVER (PARTITION BY rc.msisdn
+                              ORDER BY rc.alert_count DESC, rc.last_detection_time DESC, rc.id_regle) as rule_rank
+    FROM rule_counts rc
+    INNER JOIN tableref.regles_fraudes r ON rc.id_regle = r.id
+    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id
+),
+msisdn_alerts AS (
+    SELECT msisdn, COUNT(*) as total_rules_triggered, SUM(alert_count) as total_alert_count,
+           MIN(first_detection_time) as first_detection_time, MAX(last_detection_time) as last_detection_time,
+           STRING_AGG(DISTINCT rule_name, ', ' ORDER BY rule_name) as triggered_rule_names,
+           STRING_AGG(DISTINCT rule_category, ', ' ORDER BY rule_category) as rule_categories,
+           MAX(CASE WHEN rule_rank = 1 THEN id_regle END) as primary_rule_id,
+           MAX(CASE WHEN rule_rank = 1 THEN rule_name END) as primary_rule_name,
+           MAX(CASE WHEN rule_rank = 1 THEN rule_category END) as primary_rule_category,
+           MAX(CASE WHEN rule_rank = 1 THEN rule_type END) as primary_rule_type
+    FROM ranked_rules
+    GROUP BY msisdn
+),
+latest_decisions AS (
+    SELECT * FROM (
+        SELECT d.msisdn, d.decision, d.date_decision as decision_time, d.nom_utilisateur as decision_user,
+               d.id_regle as decision_rule_id, r.nom as decision_rule_name,
+               COALESCE(c.nom_categorie, 'Manual') as decision_rule_category, r.type as decision_rule_type,
+               ROW_NUMBER() OVER (PARTITION BY d.msisdn ORDER BY d.date_decision DESC) as rn
+        FROM stat.decision_fraude d
+        LEFT JOIN tableref.regles_fraudes r ON d.id_regle = r.id
+        LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id
+        WHERE d.date_decision BETWEEN $2 AND $3
+    ) x WHERE rn = 1
+)
+SELECT COALESCE(ma.msisdn, ld.msisdn) as msisdn,
+       COALESCE(ma.primary_rule_id, ld.decision_rule_id) as rule_id,
+       COALESCE(ma.primary_rule_name, ld.decision_rule_name, 'Multiple Rules') as rule_name,
+       COALESCE(ma.primary_rule_category, ld.decision_rule_category, 'Mixed') as rule_category,
+       COALESCE(ma.primary_rule_type, ld.decision_rule_type, 'Mixed') as rule_type,
+       COALESCE(ma.total_alert_count, 0) as alert_count,
+       ma.first_detection_time, ma.last_detection_time,
+       ld.decision as decision_status, ld.decision_time, ld.decision_user,
+       COALESCE(ma.total_rules_triggered, 0) as total_rules_triggered,
+       ma.triggered_rule_names, ma.rule_categories
+FROM msisdn_alerts ma
+FULL OUTER JOIN latest_decisions ld ON ma.msisdn = ld.msisdn
+ORDER BY COALESCE(ma.last_detection_time, ld.decision_time) DESC;
+
+-- Legacy form: one correlated subquery per primary attribute, four re-scans per MSISDN
+PREPARE validation_legacy(int[], timestamp, timestamp) AS
+WITH all_msisdns AS (
+    SELECT DISTINCT msisdn FROM (
+        SELECT DISTINCT msisdn FROM stat.alerte_fraude_seq
+        WHERE id_regle = ANY ($1) AND date_detection BETWEEN $2 AND $3
+        UNION
+        SELECT DISTINCT msisdn FROM stat.decision_fraude
+        WHERE date_decision BETWEEN $2 AND $3
+    ) combined
+),
+msisdn_alerts AS (
+    SELECT a.msisdn,
+           COUNT(DISTINCT a.id_regle) as total_rules_triggered,
+           COUNT(*) as total_alert_count,
+           MIN(a.date_detection) as first_detection_time,
+           MAX(a.date_detection) as last_detection_time,
+           STRING_AGG(DISTINCT r.nom, ', ' ORDER BY r.nom) as triggered_rule_names,
+           STRING_AGG(DISTINCT COALESCE(c.nom_categorie, 'Uncategorized'), ', '
+                      ORDER BY COALESCE(c.nom_categorie, 'Uncategorized')) as rule_categories,
+           (SELECT sub.id_regle FROM (
+                SELECT a2.id_regle, COUNT(*) as alert_count
+                FROM stat.alerte_fraude_seq a2
+                WHERE a2.msisdn = a.msisdn AND a2.id_regle = ANY ($1) AND a2.date_detection BETWEEN $2 AND $3
+                GROUP BY a2.id_regle
+                ORDER BY alert_count DESC, MAX(a2.date_detection) DESC LIMIT 1) sub) as primary_rule_id,
+           (SELECT sub.rule_name FROM (
+                SELECT a2.id_regle, r2.nom as rule_name, COUNT(*) as alert_count
+                FROM stat.alerte_fraude_seq a2
+                INNER JOIN tableref.regles_fraudes r2 ON a2.id_regle = r2.id
+                WHERE a2.msisdn = a.msisdn AND a2.id_regle = ANY ($1) AND a2.date_detection BETWEEN $2 AND $3
+                GROUP BY a2.id_regle, r2.nom
+                ORDER BY alert_count DESC, MAX(a2.date_detection) DESC LIMIT 1) sub) as primary_rule_name,
+           (SELECT sub.rule_category FROM (
+                SELECT a2.id_regle, COALESCE(c2.nom_categorie, 'Uncategorized') as rule_category, COUNT(*) as alert_count
+                FROM stat.alerte_fraude_seq a2
+                INNER JOIN tableref.regles_fraudes r2 ON a2.id_regle = r2.id
+                LEFT JOIN tableref.categories_fraudes c2 ON r2.id_categorie = c2.id
+                WHERE a2.msisdn = a.msisdn AND a2.id_regle = ANY ($1) AND a2.date_detection BETWEEN $2 AND $3
+                GROUP BY a2.id_regle, c2.nom_categorie
+                ORDER BY alert_count DESC, MAX(a2.date_detection) DESC LIMIT 1) sub) as primary_rule_category,
+           (SELECT sub.rule_type FROM (
+                SELECT a2.id_regle, r2.type as rule_type, COUNT(*) as alert_count
+                FROM stat.alerte_fraude_seq a2
+                INNER JOIN tableref.regles_fraudes r2 ON a2.id_regle = r2.id
+                WHERE a2.msisdn = a.msisdn AND a2.id_regle = ANY ($1) AND a2.date_detection BETWEEN $2 AND $3
+                GROUP BY a2.id_regle, r2.type
+                ORDER BY alert_count DESC, MAX(a2.date_detection) DESC LIMIT 1) sub) as primary_rule_type
+    FROM stat.alerte_fraude_seq a
+    INNER JOIN tableref.regles_fraudes r ON a.id_regle = r.id
+    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id
+    WHERE a.id_regle = ANY ($1) AND a.date_detection BETWEEN $2 AND $3
+    GROUP BY a.msisdn
+),
+latest_decisions AS (
+    SELECT * FROM (
+        SELECT d.msisdn, d.decision, d.date_decision as decision_time, d.nom_utilisateur as decision_user,
+               d.id_regle as decision_rule_id, r.nom as decision_rule_name,
+               COALESCE(c.nom_categorie, 'Manual') as decision_rule_category, r.type as decision_rule_type,
+               ROW_NUMBER() OVER (PARTITION BY d.msisdn ORDER BY d.date_decision DESC) as rn
+        FROM stat.decision_fraude d
+        LEFT JOIN tableref.regles_fraudes r ON d.id_regle = r.id
+        LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id
+        WHERE d.date_decision BETWEEN $2 AND $3
+    ) x WHERE rn = 1
+)
+SELECT m.msisdn,
+       COALESCE(ma.primary_rule_id, ld.decision_rule_id) as rule_id,
+       COALESCE(ma.primary_rule_name, ld.decision_rule_name, 'Multiple Rules') as rule_name,
+       COALESCE(ma.primary_rule_category, ld.decision_rule_category, 'Mixed') as rule_category,
+       COALESCE(ma.primary_rule_type, ld.decision_rule_type, 'Mixed') as rule_type,
+       COALESCE(ma.total_alert_count, 0) as alert_count,
+       ma.first_detection_time, ma.last_detection_time,
+       ld.decision as decision_status, ld.decision_time, ld.decision_user,
+       COALESCE(ma.total_rules_triggered, 0) as total_rules_triggered,
+       ma.triggered_rule_names, ma.rule_categories
+FROM all_msisdns m
+LEFT JOIN msisdn_alerts ma ON m.msisdn = ma.msisdn
+LEFT JOIN latest_decisions ld ON m.msisdn = ld.msisdn
+WHERE (ma.msisdn IS NOT NULL OR ld.msisdn IS NOT NULL)
+ORDER BY COALESCE(ma.last_detection_time, ld.decision_time) DESC;
+
+\echo '=== single-pass ranked query ==='
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+EXECUTE validation_single_pass(ARRAY(SELECT generate_series(1, 40)), '2024-01-01 00:00:00', '2024-01-30 23:59:59');
+
+\echo '=== legacy correlated query ==='
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+EXECUTE validation_legacy(ARRAY(SELECT generate_series(1, 40)), '2024-01-01 00:00:00', '2024-01-30 23:59:59');
+
+-- Both forms must return the same MSISDNs with the same counters; the primary rule may only
+-- differ on exact ties, where the legacy form has no tie-breaker
+CREATE TEMP TABLE single_pass_result AS
+EXECUTE validation_single_pass(ARRAY(SELECT generate_series(1, 40)), '2024-01-01 00:00:00', '2024-01-30 23:59:59');
+CREATE TEMP TABLE legacy_result AS
+EXECUTE validation_legacy(ARRAY(SELECT generate_series(1, 40)), '2024-01-01 00:00:00', '2024-01-30 23:59:59');
+
+\echo '=== rows differing on counters (expected: 0) ==='
+SELECT COUNT(*) FROM (
+    SELECT msisdn, alert_count, total_rules_triggered, decision_status FROM single_pass_result
+    EXCEPT
+    SELECT msisdn, alert_count, total_rules_triggered, decision_status FROM legacy_result
+) diff;
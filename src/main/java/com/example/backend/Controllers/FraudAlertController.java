@@ -1,22 +1,31 @@
 package com.example.backend.Controllers;
 
 import com.example.backend.entities.dto.*;
+import com.example.backend.services.AlertSketchService;
+import com.example.backend.services.FraudAlertExportJobService;
 import com.example.backend.services.FraudAlertExportService;
 import com.example.backend.services.FraudAlertService;
+import com.example.backend.services.FraudAlertStreamService;
 import com.opencsv.CSVWriter;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletResponse;
@@ -25,17 +34,28 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/fraud-alerts")
 public class FraudAlertController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     @Autowired
     private FraudAlertService fraudAlertService;
     @Autowired
     private FraudAlertExportService exportService;
+    @Autowired
+    private FraudAlertStreamService streamService;
+    @Autowired
+    private FraudAlertExportJobService exportJobService;
+    @Autowired
+    private AlertSketchService alertSketchService;
 
     @GetMapping
     public List<FraudAlertResponseDTO> getFraudAlerts(
@@ -44,6 +64,48 @@ public class FraudAlertController {
         return fraudAlertService.getFraudAlerts(startDate, endDate);
     }
 
+    /**
+     * Alerts detected from now on, as Server-Sent Events ("alert", plus "dropped" / "resync" when the
+     * client has to reload), optionally restricted to some rules or rule categories
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamFraudAlerts(
+            @RequestParam(required = false) Set<Integer> ruleIds,
+            @RequestParam(required = false) Set<Integer> categoryIds) {
+        try {
+            return ResponseEntity.ok()
+                    // Keep reverse proxies from buffering the events
+                    .header("X-Accel-Buffering", "no")
+                    .body(streamService.subscribe(ruleIds, categoryIds));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    // Dashboard widgets answered from the in-memory hourly sketches, 503 while they are disabled
+    @GetMapping("/top-offenders")
+    public ResponseEntity<TopOffendersDTO> getTopOffenders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer ruleId,
+            @RequestParam(defaultValue = "10") int k) {
+        if (!alertSketchService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(alertSketchService.getTopOffenders(from, to, ruleId, k));
+    }
+
+    @GetMapping("/top-rules")
+    public ResponseEntity<List<RuleAlertCountDTO>> getTopRules(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "10") int k) {
+        if (!alertSketchService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(alertSketchService.getTopRules(from, to, k));
+    }
+
     @GetMapping("/details")
     public List<FraudAlertDetailDTO> getFraudAlerts(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
@@ -62,6 +124,59 @@ public class FraudAlertController {
         return exportService.exportFraudAlerts(fileType, startDate, endDate, response);
     }
 
+    // Export spooled to disk by a job: poll its status, then download the file (Range requests resume it)
+    @PostMapping("/export-jobs")
+    public ResponseEntity<ExportJobDTO> submitExportJob(
+            @RequestParam String fileType,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String endDate) {
+        try {
+            ExportJobDTO job = exportJobService.submit(fileType, startDate, endDate);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/fraud-alerts/export-jobs/" + job.getJobId())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/export-jobs")
+    public List<ExportJobDTO> getExportJobs() {
+        return exportJobService.getJobs();
+    }
+
+    @GetMapping("/export-jobs/{jobId}")
+    public ExportJobDTO getExportJob(@PathVariable String jobId) {
+        return exportJobService.getJob(jobId);
+    }
+
+    @DeleteMapping("/export-jobs/{jobId}")
+    public ExportJobDTO cancelExportJob(@PathVariable String jobId) {
+        return exportJobService.cancel(jobId);
+    }
+
+    // A Resource body gets Accept-Ranges and 206 partial responses from Spring MVC; 409 until the job succeeded
+    @GetMapping("/export-jobs/{jobId}/file")
+    public ResponseEntity<Resource> getExportJobFile(@PathVariable String jobId) {
+        Resource file;
+        try {
+            file = exportJobService.getFile(jobId);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        ExportJobDTO job = exportJobService.getJob(jobId);
+        MediaType mediaType = "csv".equals(job.getFileType())
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getFileName() + "\"")
+                // The spooled file never changes, so its job id is a strong validator for If-Range
+                .eTag("\"" + jobId + "\"")
+                .body(file);
+    }
+
     @GetMapping("/warnings")
     public List<WarningResponseDTO> getWarnings(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String startDate,
@@ -69,15 +184,53 @@ public class FraudAlertController {
         return fraudAlertService.getWarnings(startDate, endDate);
     }
 
+    // Body stays the page content for existing clients, the total goes in X-Total-Count
     @GetMapping("/v2/warnings")
-    public ResponseEntity<?> getWarnings(
+    public ResponseEntity<List<WarningResponseDTO>> getWarnings(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String endDate,
             @RequestParam(defaultValue = "0") int page,  // Default to first page
             @RequestParam(defaultValue = "10") int size // Default 10 results per page
     ) {
         Page<WarningResponseDTO> warnings = fraudAlertService.getWarningsV2(startDate, endDate, page, size);
-        return ResponseEntity.ok(warnings.getContent());
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(warnings.getTotalElements()))
+                .body(warnings.getContent());
+    }
+
+    @GetMapping("/v2/warnings/seek")
+    public WarningCursorPageDTO getWarningsAfter(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String endDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterTime,
+            @RequestParam(required = false) Long afterRuleId,
+            @RequestParam(defaultValue = "10") int size) {
+        return fraudAlertService.getWarningsAfter(startDate, endDate, afterTime, afterRuleId, size);
+    }
+
+    // Distinct MSISDNs per rule; approximate merges the per-day HyperLogLog sketches instead of counting the alerts
+    @GetMapping("/v2/warnings/msisdn-counts")
+    public List<RuleDistinctMsisdnsDTO> getDistinctMsisdns(
+            @RequestParam List<Integer> ruleIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String endDate,
+            @RequestParam(defaultValue = "false") boolean approximate) {
+        return fraudAlertService.getDistinctMsisdns(ruleIds, startDate, endDate, approximate);
+    }
+
+    @GetMapping("/v2/warnings/{ruleId}/details")
+    public ResponseEntity<List<WarningDetailDTO>> getWarningsDetails(
+            @PathVariable Long ruleId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String endDate,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean approximate) { // X-Total-Count from the HyperLogLog sketches
+        Page<WarningDetailDTO> details = fraudAlertService.getWarningsDetails(
+                ruleId, startDate, endDate, page, size, approximate);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(details.getTotalElements()))
+                .body(details.getContent());
     }
 
     @GetMapping("/warnings/details")
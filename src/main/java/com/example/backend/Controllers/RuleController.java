@@ -4,9 +4,12 @@ import com.example.backend.entities.FiltresReglesFraude;
 import com.example.backend.entities.ParametresReglesFraude;
 import com.example.backend.entities.ReglesFraude;
 import com.example.backend.entities.dto.FilterDto;
+import com.example.backend.entities.dto.ParameterBacktestDTO;
+import com.example.backend.entities.dto.ParameterBacktestRequestDTO;
 import com.example.backend.entities.dto.ParameterDto;
 import com.example.backend.entities.dto.RuleDTO;
 import com.example.backend.entities.dto.UserDto;
+import com.example.backend.services.RuleBacktestService;
 import com.example.backend.services.RuleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -27,6 +30,9 @@ public class RuleController {
     @Autowired
     private RuleService ruleService;
 
+    @Autowired
+    private RuleBacktestService ruleBacktestService;
+
     @Operation(
             summary = "Get All Rules",
             description = "Get All Rules with it's params and filters."
@@ -159,6 +165,21 @@ public class RuleController {
         return ResponseEntity.ok(ruleService.editRuleParameter(dto));
     }
 
+    @Operation(
+            summary = "Backtest rule parameter thresholds",
+            description = "Counts, for each candidate vmin/vmax/vegal value, the MSISDNs whose recorded parameter values " +
+                    "in the period would have alerted, keeping the other bounds of the parameter unchanged."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Alert-count curve computed"),
+            @ApiResponse(responseCode = "400", description = "Invalid bound, period or thresholds"),
+            @ApiResponse(responseCode = "404", description = "Parameter not found")
+    })
+    @PostMapping("/parameter/backtest")
+    public ResponseEntity<ParameterBacktestDTO> backtestParameter(@RequestBody ParameterBacktestRequestDTO dto) {
+        return ResponseEntity.ok(ruleBacktestService.backtest(dto));
+    }
+
     @Operation(summary = "Update rule filter", description = "Update rule filter.")
     @PutMapping("filter")
     public ResponseEntity<FiltresReglesFraude> editFilter(@RequestBody FilterDto dto) {
@@ -1,7 +1,11 @@
 package com.example.backend.Controllers;
 
 import com.example.backend.entities.dto.*;
+import com.example.backend.services.RuleBitmapIndexService;
+import com.example.backend.services.RuleValidationResultCache;
 import com.example.backend.services.RuleValidationService;
+import com.example.backend.services.ValidationJobService;
+import com.example.backend.utils.FieldSet;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,18 +21,28 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.util.StreamUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Rule Validation Controller
@@ -46,6 +60,9 @@ import java.util.HashMap;
 public class RuleValidationController {
 
     private final RuleValidationService ruleValidationService;
+    private final RuleValidationResultCache resultCache;
+    private final ValidationJobService validationJobService;
+    private final RuleBitmapIndexService ruleBitmapIndexService;
 
     @Operation(
             summary = "Validate fraud detection rules",
@@ -62,8 +79,10 @@ public class RuleValidationController {
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/validate")
-    public ResponseEntity<RuleValidationResponseDTO> validateRules(
-            @Valid @RequestBody RuleValidationRequestDTO request) {
+    public ResponseEntity<MappingJacksonValue> validateRules(
+            @Valid @RequestBody RuleValidationRequestDTO request,
+            @Parameter(description = "Comma separated MsisdnDetectionDTO fields of the detected MSISDNs, all by default")
+            @RequestParam(required = false) String fields) {
         
         log.info("Rule validation request: {} rules, period: {} to {}", 
                 request.getRuleIds().size(), request.getStartDate(), request.getEndDate());
@@ -71,7 +90,8 @@ public class RuleValidationController {
         try {
             long startTime = System.currentTimeMillis();
             
-            RuleValidationResponseDTO response = ruleValidationService.validateRules(request);
+            FieldSet fieldSet = FieldSet.parse(fields, MsisdnDetectionDTO.class, "msisdn");
+            RuleValidationResponseDTO response = ruleValidationService.validateRules(request, fieldSet);
             
             long processingTime = System.currentTimeMillis() - startTime;
             log.info("Validation complete: {} MSISDNs detected, {} rules analyzed in {}ms", 
@@ -79,7 +99,7 @@ public class RuleValidationController {
                     response.getTotalRulesAnalyzed(),
                     processingTime);
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(filtered(response, fieldSet));
             
         } catch (IllegalArgumentException e) {
             log.error("Validation error: {}", e.getMessage());
@@ -90,12 +110,129 @@ public class RuleValidationController {
         }
     }
 
+    @Operation(
+            summary = "Validate fraud detection rules (streamed)",
+            description = "Same validation as /validate, streamed as NDJSON: one detected MSISDN per line, " +
+                         "followed by a trailer line (\"trailer\": true) holding the summary counters."
+    )
+    @PostMapping(value = "/validate/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamValidateRules(
+            @Valid @RequestBody RuleValidationRequestDTO request) {
+        
+        log.info("Streamed rule validation request: {} rules, period: {} to {}", 
+                request.getRuleIds().size(), request.getStartDate(), request.getEndDate());
+        
+        // Rejected here: once streaming starts the status can no longer change
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            log.error("Validation error: start date {} is after end date {}", 
+                    request.getStartDate(), request.getEndDate());
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = outputStream -> 
+                ruleValidationService.streamValidationResults(request, outputStream);
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Submit an asynchronous validation job",
+            description = "Queue a validation for long periods. Poll the job for progress and download " +
+                         "the result (NDJSON, same lines as /validate/stream) once it has succeeded. " +
+                         "An identical request whose result is still retained returns the finished job."
+    )
+    @PostMapping("/jobs")
+    public ResponseEntity<ValidationJobDTO> submitValidationJob(
+            @Valid @RequestBody RuleValidationRequestDTO request) {
+        
+        log.info("Validation job request: {} rules, period: {} to {}", 
+                request.getRuleIds().size(), request.getStartDate(), request.getEndDate());
+        
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            log.error("Validation error: start date {} is after end date {}", 
+                    request.getStartDate(), request.getEndDate());
+            return ResponseEntity.badRequest().build();
+        }
+        
+        try {
+            ValidationJobDTO job = validationJobService.submit(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/rule-validation/jobs/" + job.getJobId())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            log.warn("Validation job queue is full, request rejected");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @Operation(summary = "List validation jobs", description = "Queued, running and retained validation jobs, newest first.")
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ValidationJobDTO>> getValidationJobs() {
+        return ResponseEntity.ok(validationJobService.getJobs());
+    }
+
+    @Operation(summary = "Get validation job progress", description = "Status, phase and number of MSISDNs processed so far.")
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ValidationJobDTO> getValidationJob(
+            @Parameter(description = "Job ID", required = true)
+            @PathVariable String jobId) {
+        return ResponseEntity.ok(validationJobService.getJob(jobId));
+    }
+
+    @Operation(summary = "Cancel a validation job", description = "Cancels a queued job or the running query of a started one.")
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<ValidationJobDTO> cancelValidationJob(
+            @Parameter(description = "Job ID", required = true)
+            @PathVariable String jobId) {
+        return ResponseEntity.ok(validationJobService.cancel(jobId));
+    }
+
+    @Operation(
+            summary = "Download a validation job result",
+            description = "NDJSON result of a succeeded job, served from the stored copy. " +
+                         "Sent gzip-encoded when the client accepts it. 409 while the job has not succeeded."
+    )
+    @GetMapping(value = "/jobs/{jobId}/result", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> getValidationJobResult(
+            @Parameter(description = "Job ID", required = true)
+            @PathVariable String jobId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        
+        Path resultFile;
+        try {
+            resultFile = validationJobService.getResultFile(jobId);
+        } catch (IllegalStateException e) {
+            log.warn(e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream in = gzip 
+                    ? Files.newInputStream(resultFile) 
+                    : new GZIPInputStream(Files.newInputStream(resultFile), 64 * 1024)) {
+                StreamUtils.copy(in, outputStream);
+            }
+        };
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, 
+                        "attachment; filename=\"rule_validation_" + jobId + ".ndjson\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @Operation(
             summary = "Get detected MSISDNs with pagination",
             description = "Retrieve MSISDNs detected by specified rules with optional filtering by decision status."
     )
     @GetMapping("/detected-msisdns")
-    public ResponseEntity<Page<MsisdnDetectionDTO>> getDetectedMsisdns(
+    public ResponseEntity<MappingJacksonValue> getDetectedMsisdns(
             @Parameter(description = "List of rule IDs", required = true)
             @RequestParam @NotEmpty List<Integer> ruleIds,
             
@@ -108,22 +245,105 @@ public class RuleValidationController {
             @Parameter(description = "Filter by decision status (W/D/PENDING)")
             @RequestParam(required = false) String decisionStatus,
             
+            @Parameter(description = "Comma separated MsisdnDetectionDTO fields, all by default")
+            @RequestParam(required = false) String fields,
+            
             @PageableDefault(size = 50, sort = "lastDetectionTime,desc") Pageable pageable) {
         
         log.debug("Fetching detected MSISDNs: rules={}, period={} to {}, status={}", 
                 ruleIds, startDate, endDate, decisionStatus);
         
         try {
+            FieldSet fieldSet = FieldSet.parse(fields, MsisdnDetectionDTO.class, "msisdn");
             Page<MsisdnDetectionDTO> results = ruleValidationService.getDetectedMsisdns(
-                    ruleIds, startDate, endDate, decisionStatus, pageable);
+                    ruleIds, startDate, endDate, decisionStatus, pageable, fieldSet);
             
-            return ResponseEntity.ok(results);
+            return ResponseEntity.ok(filtered(results, fieldSet));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid detected MSISDNs request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error fetching detected MSISDNs", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @Operation(
+            summary = "Get detected MSISDNs with cursor pagination",
+            description = "Retrieve the page of detected MSISDNs after the given (afterTime, afterMsisdn) cursor, " +
+                         "ordered by last detection time. Omit the cursor for the first page; every page costs the same."
+    )
+    @GetMapping("/detected-msisdns/seek")
+    public ResponseEntity<MappingJacksonValue> getDetectedMsisdnsAfter(
+            @Parameter(description = "List of rule IDs", required = true)
+            @RequestParam @NotEmpty List<Integer> ruleIds,
+            
+            @Parameter(description = "Start date (YYYY-MM-DD)", required = true)
+            @RequestParam @NotNull @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            
+            @Parameter(description = "End date (YYYY-MM-DD)", required = true)
+            @RequestParam @NotNull @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            
+            @Parameter(description = "Filter by decision status (W/D/PENDING)")
+            @RequestParam(required = false) String decisionStatus,
+            
+            @Parameter(description = "Last detection time of the previous page's last row")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterTime,
+            
+            @Parameter(description = "MSISDN of the previous page's last row")
+            @RequestParam(required = false) String afterMsisdn,
+            
+            @Parameter(description = "Page size")
+            @RequestParam(defaultValue = "50") int size,
+            
+            @Parameter(description = "Comma separated MsisdnDetectionDTO fields, all by default")
+            @RequestParam(required = false) String fields) {
+        
+        log.debug("Seeking detected MSISDNs: rules={}, period={} to {}, status={}, after=({}, {})", 
+                ruleIds, startDate, endDate, decisionStatus, afterTime, afterMsisdn);
+        
+        try {
+            FieldSet fieldSet = FieldSet.parse(fields, MsisdnDetectionDTO.class, "msisdn");
+            return ResponseEntity.ok(filtered(ruleValidationService.getDetectedMsisdnsAfter(
+                    ruleIds, startDate, endDate, decisionStatus, afterTime, afterMsisdn, size, fieldSet), fieldSet));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid cursor request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error seeking detected MSISDNs", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @Operation(
+            summary = "Count detected MSISDNs",
+            description = "Count the MSISDNs detected by the specified rules, without building their details."
+    )
+    @GetMapping("/detected-msisdns/count")
+    public ResponseEntity<Map<String, Object>> countDetectedMsisdns(
+            @Parameter(description = "List of rule IDs", required = true)
+            @RequestParam @NotEmpty List<Integer> ruleIds,
+            
+            @Parameter(description = "Start date (YYYY-MM-DD)", required = true)
+            @RequestParam @NotNull @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            
+            @Parameter(description = "End date (YYYY-MM-DD)", required = true)
+            @RequestParam @NotNull @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            
+            @Parameter(description = "Filter by decision status (W/D/PENDING)")
+            @RequestParam(required = false) String decisionStatus) {
+        
+        try {
+            Map<String, Object> count = new HashMap<>();
+            count.put("totalElements", ruleValidationService.countDetectedMsisdns(
+                    ruleIds, startDate, endDate, decisionStatus));
+            return ResponseEntity.ok(count);
+        } catch (Exception e) {
+            log.error("Error counting detected MSISDNs", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @Operation(
             summary = "Get rule credibility analysis",
             description = "Calculate credibility metrics for specified rules. " +
@@ -153,13 +373,22 @@ public class RuleValidationController {
         }
     }
 
+    @Operation(
+            summary = "Get validation cache statistics",
+            description = "Hit, miss, coalescing, invalidation and eviction counters of the rule validation result cache."
+    )
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ValidationCacheStatsDTO> getCacheStats() {
+        return ResponseEntity.ok(resultCache.getStats());
+    }
+
     @Operation(
             summary = "Get MSISDN complete timeline",
             description = "Retrieve the complete chronological timeline for an MSISDN including " +
                          "all alerts from different rules and all decision changes."
     )
     @GetMapping("/msisdn/{msisdn}/timeline")
-    public ResponseEntity<List<MsisdnHistoryEventDTO>> getMsisdnTimeline(
+    public ResponseEntity<MappingJacksonValue> getMsisdnTimeline(
             @Parameter(description = "MSISDN to query", required = true)
             @PathVariable String msisdn,
             
@@ -167,21 +396,28 @@ public class RuleValidationController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             
             @Parameter(description = "End date (YYYY-MM-DD)")
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            
+            @Parameter(description = "Comma separated MsisdnHistoryEventDTO fields, all by default")
+            @RequestParam(required = false) String fields) {
         
         log.info("Fetching timeline for MSISDN: {}", msisdn);
         
         try {
+            FieldSet fieldSet = FieldSet.parse(fields, MsisdnHistoryEventDTO.class, "eventType", "eventTime");
             List<MsisdnHistoryEventDTO> timeline = ruleValidationService.getMsisdnCompleteHistory(
-                    msisdn, startDate, endDate);
+                    msisdn, startDate, endDate, fieldSet);
             
             if (timeline.isEmpty()) {
                 log.info("No timeline events found for MSISDN: {}", msisdn);
-                return ResponseEntity.ok(Collections.emptyList());
+                return ResponseEntity.ok(new MappingJacksonValue(Collections.emptyList()));
             }
             
             log.info("Found {} timeline events for MSISDN: {}", timeline.size(), msisdn);
-            return ResponseEntity.ok(timeline);
+            return ResponseEntity.ok(filtered(timeline, fieldSet));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid timeline request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error fetching MSISDN timeline: {}", msisdn, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -261,32 +497,34 @@ public class RuleValidationController {
             description = "Export rule validation results in CSV or Excel format."
     )
     @PostMapping("/export")
-    public ResponseEntity<byte[]> exportValidationResults(
+    public ResponseEntity<StreamingResponseBody> exportValidationResults(
             @Valid @RequestBody RuleValidationRequestDTO request,
             @Parameter(description = "Export format (CSV or EXCEL)")
             @RequestParam(defaultValue = "CSV") String format) {
         
         log.info("Exporting validation results in {} format", format);
         
-        try {
-            byte[] exportData = ruleValidationService.exportValidationResults(request, format.toUpperCase());
-            
-            String filename = String.format("rule_validation_%s.%s", 
-                    LocalDate.now(), format.toLowerCase());
-            
-            String contentType = format.equalsIgnoreCase("EXCEL") ? 
-                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" : 
-                    "text/csv";
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .header(HttpHeaders.CONTENT_TYPE, contentType)
-                    .body(exportData);
-                    
-        } catch (Exception e) {
-            log.error("Error exporting validation results", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        // Rejected here: once streaming starts the status can no longer change
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            log.error("Validation error: start date {} is after end date {}", 
+                    request.getStartDate(), request.getEndDate());
+            return ResponseEntity.badRequest().build();
         }
+        
+        String filename = String.format("rule_validation_%s.%s", 
+                LocalDate.now(), format.toLowerCase());
+        
+        String contentType = format.equalsIgnoreCase("EXCEL") ? 
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" : 
+                "text/csv";
+        
+        StreamingResponseBody body = outputStream -> 
+                ruleValidationService.exportValidationResults(request, format.toUpperCase(), outputStream);
+        
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .header(HttpHeaders.CONTENT_TYPE, contentType)
+                .body(body);
     }
 
     @Operation(
@@ -331,6 +569,54 @@ public class RuleValidationController {
         }
     }
 
+    @Operation(
+            summary = "Evaluate a rule set expression",
+            description = "MSISDNs matching an AND / OR / ANDNOT expression over rules and the whitelist / blacklist, " +
+                         "evaluated on the in-memory rule bitmaps (e.g. rule A and rule B but not whitelisted)."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Expression evaluated"),
+            @ApiResponse(responseCode = "400", description = "Malformed expression or period"),
+            @ApiResponse(responseCode = "503", description = "Rule bitmap index disabled")
+    })
+    @PostMapping("/bitmaps/query")
+    public ResponseEntity<BitmapQueryResultDTO> queryRuleBitmaps(@Valid @RequestBody BitmapQueryRequestDTO request) {
+        try {
+            return ResponseEntity.ok(ruleBitmapIndexService.evaluate(request.getExpression(),
+                    request.getStartDate(), request.getEndDate(),
+                    request.getLimit() != null ? request.getLimit() : 1000));
+        } catch (IllegalArgumentException e) {
+            log.error("Bitmap query error: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @Operation(
+            summary = "Get the rule overlap matrix",
+            description = "Detected MSISDNs per rule, pairwise intersections and Jaccard indexes, from the in-memory rule bitmaps."
+    )
+    @GetMapping("/bitmaps/overlap")
+    public ResponseEntity<RuleOverlapMatrixDTO> getRuleOverlap(
+            @Parameter(description = "List of rule IDs", required = true)
+            @RequestParam @NotEmpty List<Integer> ruleIds,
+
+            @Parameter(description = "Start date (YYYY-MM-DD)", required = true)
+            @RequestParam @NotNull @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+
+            @Parameter(description = "End date (YYYY-MM-DD)", required = true)
+            @RequestParam @NotNull @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(ruleBitmapIndexService.overlap(ruleIds, startDate, endDate));
+        } catch (IllegalArgumentException e) {
+            log.error("Rule overlap error: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @Operation(
             summary = "Get specific rule credibility",
             description = "Get credibility analysis for a single rule"
@@ -366,6 +652,15 @@ public class RuleValidationController {
         }
     }
 
+    /**
+     * Body written with only the requested fields of the DTOs annotated with @JsonFilter(FieldSet.FILTER_ID)
+     */
+    private static MappingJacksonValue filtered(Object body, FieldSet fieldSet) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(fieldSet.filterProvider());
+        return value;
+    }
+
     @Operation(
             summary = "Health check",
             description = "Check if the rule validation service is operational."
@@ -12,6 +12,8 @@ public class GlobalCorsConfiguration implements WebMvcConfigurer {
                 .allowedOriginPatterns("*")
                 .allowedMethods("*")
                 .allowedHeaders("*", "Username")
+                // Totals of the paginated list endpoints, file name and ranges of the export job downloads
+                .exposedHeaders("X-Total-Count", "Content-Disposition", "Accept-Ranges", "Content-Range", "ETag")
                 .allowCredentials(false);
     }
 }
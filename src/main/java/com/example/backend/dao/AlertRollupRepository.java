@@ -0,0 +1,223 @@
+package com.example.backend.dao;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Access to the daily alert rollup (stat.alerte_fraude_jour) and the SQL source the read paths
+ * aggregate alerts from.
+ *
+ * alertAggregates() yields one row per (msisdn, id_regle) over a date window with the columns
+ * msisdn, id_regle, nb_alertes, nb_detections, first_detection, last_detection, min_date_debut, max_date_fin.
+ * In raw mode it groups stat.alerte_fraude_seq; in rollup mode it sums the rolled-up days and
+ * only groups raw rows for the days after the high-water mark (the partial current day).
+ */
+@Repository
+public class AlertRollupRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${alert-rollup.read-mode:raw}")
+    private String readMode;
+
+    // Last day known to be rolled up, refreshed by AlertRollupService; null reads everything raw
+    private volatile LocalDate rolledThrough;
+
+    public boolean isRollupReadMode() {
+        return "rollup".equalsIgnoreCase(readMode);
+    }
+
+    public LocalDate getRolledThrough() {
+        return rolledThrough;
+    }
+
+    public void setRolledThrough(LocalDate rolledThrough) {
+        this.rolledThrough = rolledThrough;
+    }
+
+    /**
+     * Per (msisdn, id_regle) alert aggregates over the bound window, as a parenthesized subquery
+     *
+     * @param filter extra condition on msisdn / id_regle applied to both sources (e.g. "id_regle IN (:ruleIds)"), or null
+     * @param withDetections whether nb_detections (distinct date_detection) is needed; it is NULL otherwise
+     */
+    public String alertAggregates(String filter, boolean withDetections) {
+        String condition = filter != null ? " AND " + filter + " " : " ";
+
+        String raw =
+                "SELECT msisdn, id_regle, " +
+                "       COUNT(*) AS nb_alertes, " +
+                (withDetections
+                        ? "       COUNT(DISTINCT date_detection) AS nb_detections, "
+                        : "       CAST(NULL AS BIGINT) AS nb_detections, ") +
+                "       MIN(date_detection) AS first_detection, " +
+                "       MAX(date_detection) AS last_detection, " +
+                "       MIN(date_debut) AS min_date_debut, " +
+                "       MAX(date_fin) AS max_date_fin " +
+                "FROM stat.alerte_fraude_seq " +
+                "WHERE date_detection BETWEEN :rawStart AND :rawEnd" + condition +
+                "GROUP BY msisdn, id_regle";
+
+        if (!isRollupReadMode()) {
+            return "(" + raw + ")";
+        }
+
+        return "(SELECT msisdn, id_regle, " +
+                "        CAST(SUM(nb_alertes) AS BIGINT) AS nb_alertes, " +
+                "        CAST(SUM(nb_detections) AS BIGINT) AS nb_detections, " +
+                "        MIN(first_detection) AS first_detection, " +
+                "        MAX(last_detection) AS last_detection, " +
+                "        MIN(min_date_debut) AS min_date_debut, " +
+                "        MAX(max_date_fin) AS max_date_fin " +
+                " FROM ( " +
+                "     SELECT msisdn, id_regle, nb_alertes, nb_detections, first_detection, last_detection, " +
+                "            min_date_debut, max_date_fin " +
+                "     FROM stat.alerte_fraude_jour " +
+                "     WHERE jour BETWEEN :rollupStart AND :rollupEnd" + condition +
+                "     UNION ALL " +
+                raw +
+                " ) u " +
+                " GROUP BY msisdn, id_regle)";
+    }
+
+    /**
+     * Distinct MSISDNs alerted over the bound window, as a parenthesized subquery with a msisdn column.
+     * Same sources and window parameters as alertAggregates(), without the per-rule aggregates, for counts.
+     *
+     * @param filter extra condition on msisdn / id_regle applied to both sources, or null
+     */
+    public String alertMsisdns(String filter) {
+        String condition = filter != null ? " AND " + filter + " " : " ";
+
+        String raw =
+                "SELECT DISTINCT msisdn " +
+                "FROM stat.alerte_fraude_seq " +
+                "WHERE date_detection BETWEEN :rawStart AND :rawEnd" + condition;
+
+        if (!isRollupReadMode()) {
+            return "(" + raw + ")";
+        }
+
+        return "(SELECT msisdn " +
+                " FROM stat.alerte_fraude_jour " +
+                " WHERE jour BETWEEN :rollupStart AND :rollupEnd" + condition +
+                " UNION " +
+                raw + ")";
+    }
+
+    /**
+     * Bind the window parameters of alertAggregates() for the days [startDate, endDate]
+     */
+    public void bindWindow(Query query, LocalDate startDate, LocalDate endDate) {
+        Window window = resolveWindow(startDate, endDate);
+        if (isRollupReadMode()) {
+            query.setParameter("rollupStart", Date.valueOf(window.rollupStart));
+            query.setParameter("rollupEnd", Date.valueOf(window.rollupEnd));
+        }
+        query.setParameter("rawStart", Timestamp.valueOf(window.rawStart.atStartOfDay()));
+        query.setParameter("rawEnd", Timestamp.valueOf(endDate.atTime(23, 59, 59)));
+    }
+
+    /**
+     * Same as bindWindow, for JdbcTemplate queries
+     */
+    public MapSqlParameterSource addWindow(MapSqlParameterSource params, LocalDate startDate, LocalDate endDate) {
+        Window window = resolveWindow(startDate, endDate);
+        if (isRollupReadMode()) {
+            params.addValue("rollupStart", Date.valueOf(window.rollupStart));
+            params.addValue("rollupEnd", Date.valueOf(window.rollupEnd));
+        }
+        return params
+                .addValue("rawStart", Timestamp.valueOf(window.rawStart.atStartOfDay()))
+                .addValue("rawEnd", Timestamp.valueOf(endDate.atTime(23, 59, 59)));
+    }
+
+    private Window resolveWindow(LocalDate startDate, LocalDate endDate) {
+        LocalDate watermark = rolledThrough;
+        if (!isRollupReadMode() || watermark == null || watermark.isBefore(startDate)) {
+            // Empty rollup range, everything from the raw table
+            return new Window(startDate, startDate.minusDays(1), startDate);
+        }
+        LocalDate rollupEnd = watermark.isBefore(endDate) ? watermark : endDate;
+        return new Window(startDate, rollupEnd, rollupEnd.plusDays(1));
+    }
+
+    // Maintenance
+
+    public LocalDate loadWatermark() {
+        List<?> result = entityManager.createNativeQuery(
+                "SELECT rolled_through FROM stat.alerte_fraude_jour_watermark WHERE id = 1")
+                .getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return null;
+        }
+        return ((Date) result.get(0)).toLocalDate();
+    }
+
+    public LocalDate findFirstAlertDay() {
+        Object first = entityManager.createNativeQuery(
+                "SELECT MIN(date_detection) FROM stat.alerte_fraude_seq")
+                .getSingleResult();
+        return first != null ? ((Timestamp) first).toLocalDateTime().toLocalDate() : null;
+    }
+
+    /**
+     * Recompute one complete day from the raw table and advance the high-water mark, in one transaction.
+     * Re-rolling a day replaces it, so late alerts are picked up by rolling the day again.
+     */
+    @Transactional
+    public int rollDay(LocalDate day) {
+        entityManager.createNativeQuery("DELETE FROM stat.alerte_fraude_jour WHERE jour = :day")
+                .setParameter("day", Date.valueOf(day))
+                .executeUpdate();
+
+        int rows = entityManager.createNativeQuery(
+                "INSERT INTO stat.alerte_fraude_jour " +
+                "    (jour, msisdn, id_regle, nb_alertes, nb_detections, first_detection, last_detection, " +
+                "     min_date_debut, max_date_fin) " +
+                "SELECT :day, msisdn, id_regle, COUNT(*), COUNT(DISTINCT date_detection), " +
+                "       MIN(date_detection), MAX(date_detection), MIN(date_debut), MAX(date_fin) " +
+                "FROM stat.alerte_fraude_seq " +
+                "WHERE date_detection >= :dayStart AND date_detection < :nextDayStart " +
+                "  AND msisdn IS NOT NULL AND id_regle IS NOT NULL " +
+                "GROUP BY msisdn, id_regle")
+                .setParameter("day", Date.valueOf(day))
+                .setParameter("dayStart", Timestamp.valueOf(day.atStartOfDay()))
+                .setParameter("nextDayStart", Timestamp.valueOf(day.plusDays(1).atStartOfDay()))
+                .executeUpdate();
+
+        entityManager.createNativeQuery(
+                "INSERT INTO stat.alerte_fraude_jour_watermark (id, rolled_through, date_modif) " +
+                "VALUES (1, :day, now()) " +
+                "ON CONFLICT (id) DO UPDATE SET " +
+                "    rolled_through = GREATEST(stat.alerte_fraude_jour_watermark.rolled_through, EXCLUDED.rolled_through), " +
+                "    date_modif = now()")
+                .setParameter("day", Date.valueOf(day))
+                .executeUpdate();
+
+        return rows;
+    }
+
+    private static final class Window {
+        private final LocalDate rollupStart;
+        private final LocalDate rollupEnd;
+        private final LocalDate rawStart;
+
+        Window(LocalDate rollupStart, LocalDate rollupEnd, LocalDate rawStart) {
+            this.rollupStart = rollupStart;
+            this.rollupEnd = rollupEnd;
+            this.rawStart = rawStart;
+        }
+    }
+}
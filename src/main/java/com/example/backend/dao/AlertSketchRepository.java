@@ -0,0 +1,43 @@
+package com.example.backend.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+
+/**
+ * Source rows of the in-memory alert sketches (AlertSketchService): alert counts per
+ * (hour, msisdn, rule) of the stat.alerte_fraude_seq rows detected in a time range.
+ */
+@Repository
+public class AlertSketchRepository {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${alert-sketch.fetch-size:5000}")
+    private int fetchSize;
+
+    /**
+     * Rows detected in [from, until), ordered by hour: hour, msisdn, id_regle, nb_alertes
+     */
+    @Transactional(readOnly = true)
+    public void forEachHourlyCount(Timestamp from, Timestamp until, RowCallbackHandler handler) {
+        StreamingJdbc.named(dataSource, fetchSize).query(
+                "SELECT date_trunc('hour', date_detection) AS hour, msisdn, id_regle, COUNT(*) AS nb_alertes " +
+                "FROM stat.alerte_fraude_seq " +
+                "WHERE date_detection >= :from AND date_detection < :until " +
+                "  AND msisdn IS NOT NULL AND id_regle IS NOT NULL " +
+                "GROUP BY 1, msisdn, id_regle " +
+                "ORDER BY 1",
+                new MapSqlParameterSource()
+                        .addValue("from", from)
+                        .addValue("until", until),
+                handler);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.backend.dao;
+
+import com.example.backend.utils.HyperLogLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Access to stat.regle_msisdn_hll, the HyperLogLog sketches of the distinct MSISDNs per (rule, day).
+ *
+ * Sketching a day replaces its rows, so late alerts are picked up by sketching the day again. Reads
+ * merge the stored days of a window and sketch the raw rows of the days after the high-water mark.
+ */
+@Repository
+public class DistinctMsisdnSketchRepository {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${distinct-sketch.fetch-size:5000}")
+    private int fetchSize;
+
+    // Last day known to be sketched, refreshed by DistinctMsisdnSketchService; null reads everything raw
+    private volatile LocalDate sketchedThrough;
+
+    public LocalDate getSketchedThrough() {
+        return sketchedThrough;
+    }
+
+    public void setSketchedThrough(LocalDate sketchedThrough) {
+        this.sketchedThrough = sketchedThrough;
+    }
+
+    /**
+     * Merge the stored sketches of the rules over the days [startDay, endDay] into sketches
+     */
+    @Transactional(readOnly = true)
+    public void mergeStoredDays(Collection<Integer> ruleIds, LocalDate startDay, LocalDate endDay,
+                                Map<Integer, HyperLogLog> sketches) {
+        StreamingJdbc.named(dataSource, fetchSize).query(
+                "SELECT id_regle, registres FROM stat.regle_msisdn_hll " +
+                "WHERE id_regle IN (:ruleIds) AND jour BETWEEN :startDay AND :endDay",
+                new MapSqlParameterSource()
+                        .addValue("ruleIds", ruleIds)
+                        .addValue("startDay", Date.valueOf(startDay))
+                        .addValue("endDay", Date.valueOf(endDay)),
+                (RowCallbackHandler) rs -> {
+                    int ruleId = rs.getInt(1);
+                    HyperLogLog stored = HyperLogLog.fromBytes(rs.getBytes(2));
+                    HyperLogLog sketch = sketches.get(ruleId);
+                    // Days sketched before a precision change merge at the lower precision
+                    if (stored.getPrecision() < sketch.getPrecision()) {
+                        sketch = sketch.withPrecision(stored.getPrecision());
+                        sketches.put(ruleId, sketch);
+                    }
+                    sketch.merge(stored);
+                });
+    }
+
+    /**
+     * Add the MSISDNs alerted by the rules in [start, end] to sketches, from the raw table
+     */
+    @Transactional(readOnly = true)
+    public void addRawMsisdns(Collection<Integer> ruleIds, Timestamp start, Timestamp end,
+                              Map<Integer, HyperLogLog> sketches) {
+        StreamingJdbc.named(dataSource, fetchSize).query(
+                "SELECT DISTINCT id_regle, msisdn FROM stat.alerte_fraude_seq " +
+                "WHERE id_regle IN (:ruleIds) AND date_detection BETWEEN :start AND :end " +
+                "  AND msisdn IS NOT NULL",
+                new MapSqlParameterSource()
+                        .addValue("ruleIds", ruleIds)
+                        .addValue("start", start)
+                        .addValue("end", end),
+                (RowCallbackHandler) rs -> sketches.get(rs.getInt(1)).add(rs.getString(2)));
+    }
+
+    // Maintenance
+
+    public LocalDate loadWatermark() {
+        List<Date> result = new JdbcTemplate(dataSource).queryForList(
+                "SELECT sketched_through FROM stat.regle_msisdn_hll_watermark WHERE id = 1", Date.class);
+        if (result.isEmpty() || result.get(0) == null) {
+            return null;
+        }
+        return result.get(0).toLocalDate();
+    }
+
+    /**
+     * Sketch one complete day from the raw table and advance the high-water mark, in one transaction
+     *
+     * @return number of rules sketched
+     */
+    @Transactional
+    public int sketchDay(LocalDate day, int precision) {
+        Map<Integer, HyperLogLog> sketches = new HashMap<>();
+        Map<Integer, long[]> exactCounts = new HashMap<>();
+        JdbcTemplate jdbcTemplate = StreamingJdbc.template(dataSource, fetchSize);
+
+        // One row per distinct (rule, msisdn) of the day, only the sketches stay in memory
+        jdbcTemplate.query(
+                "SELECT DISTINCT id_regle, msisdn FROM stat.alerte_fraude_seq " +
+                "WHERE date_detection >= ? AND date_detection < ? " +
+                "  AND msisdn IS NOT NULL AND id_regle IS NOT NULL",
+                (RowCallbackHandler) rs -> {
+                    int ruleId = rs.getInt(1);
+                    HyperLogLog sketch = sketches.get(ruleId);
+                    if (sketch == null) {
+                        sketch = new HyperLogLog(precision);
+                        sketches.put(ruleId, sketch);
+                        exactCounts.put(ruleId, new long[1]);
+                    }
+                    sketch.add(rs.getString(2));
+                    exactCounts.get(ruleId)[0]++;
+                },
+                Timestamp.valueOf(day.atStartOfDay()),
+                Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+
+        jdbcTemplate.update("DELETE FROM stat.regle_msisdn_hll WHERE jour = ?", Date.valueOf(day));
+
+        List<Object[]> rows = new ArrayList<>(sketches.size());
+        for (Map.Entry<Integer, HyperLogLog> entry : sketches.entrySet()) {
+            rows.add(new Object[]{Date.valueOf(day), entry.getKey(), entry.getValue().toBytes(),
+                    exactCounts.get(entry.getKey())[0]});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stat.regle_msisdn_hll (jour, id_regle, registres, nb_msisdn) VALUES (?, ?, ?, ?)",
+                rows);
+
+        jdbcTemplate.update(
+                "INSERT INTO stat.regle_msisdn_hll_watermark (id, sketched_through, date_modif) " +
+                "VALUES (1, ?, now()) " +
+                "ON CONFLICT (id) DO UPDATE SET " +
+                "    sketched_through = GREATEST(stat.regle_msisdn_hll_watermark.sketched_through, EXCLUDED.sketched_through), " +
+                "    date_modif = now()",
+                Date.valueOf(day));
+
+        return rows.size();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.backend.dao;
+
+import com.example.backend.entities.dto.FraudAlertResponseDTO;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Builds the export alerts from the merged partitions of FraudAlertRepository.forEachAlertAggregate.
+ *
+ * Rows arrive in (msisdn, id_regle) order, one per partition holding the key: they are combined first
+ * (counts add up, a date_detection belongs to a single partition), then each MSISDN gets the summary
+ * and details forEachFraudAlertWithDetails computes in SQL, with the same filter (more than one detection)
+ * and only the rules still in tableref.regles_fraudes as details.
+ *
+ * Not thread-safe: fed by the merging thread, finish() once the merge is over.
+ */
+public final class FraudAlertAggregateAssembler implements Consumer<Object[]> {
+
+    private final Map<Long, String> ruleNames;
+    private final Consumer<FraudAlertResponseDTO> consumer;
+
+    // Aggregate of the current (msisdn, id_regle) key, and the keys of the current MSISDN
+    private Object[] pending;
+    private final List<Object[]> rules = new ArrayList<>();
+
+    public FraudAlertAggregateAssembler(Map<Long, String> ruleNames, Consumer<FraudAlertResponseDTO> consumer) {
+        this.ruleNames = ruleNames;
+        this.consumer = consumer;
+    }
+
+    // msisdn, id_regle, nb_alertes, nb_detections, first_detection, last_detection, min_date_debut, max_date_fin
+    @Override
+    public void accept(Object[] row) {
+        if (pending != null && Objects.equals(pending[0], row[0]) && Objects.equals(pending[1], row[1])) {
+            pending[2] = ((Number) pending[2]).longValue() + ((Number) row[2]).longValue();
+            pending[3] = ((Number) pending[3]).longValue() + ((Number) row[3]).longValue();
+            pending[4] = min((Timestamp) pending[4], (Timestamp) row[4]);
+            pending[5] = max((Timestamp) pending[5], (Timestamp) row[5]);
+            pending[6] = min((String) pending[6], (String) row[6]);
+            pending[7] = max((String) pending[7], (String) row[7]);
+            return;
+        }
+        if (pending != null) {
+            addRule(pending);
+        }
+        pending = row;
+    }
+
+    public void finish() {
+        if (pending != null) {
+            addRule(pending);
+            pending = null;
+        }
+        flushMsisdn();
+    }
+
+    private void addRule(Object[] aggregate) {
+        if (!rules.isEmpty() && !Objects.equals(rules.get(0)[0], aggregate[0])) {
+            flushMsisdn();
+        }
+        rules.add(aggregate);
+    }
+
+    private void flushMsisdn() {
+        if (rules.isEmpty()) {
+            return;
+        }
+
+        long totalAlerts = 0;
+        long detections = 0;
+        Timestamp first = null;
+        Timestamp last = null;
+        for (Object[] rule : rules) {
+            totalAlerts += ((Number) rule[2]).longValue();
+            detections += ((Number) rule[3]).longValue();
+            first = min(first, (Timestamp) rule[4]);
+            last = max(last, (Timestamp) rule[5]);
+        }
+
+        if (detections > 1) {
+            FraudAlertResponseDTO alert = null;
+            // Same 12 columns as the forEachFraudAlertWithDetails rows
+            Object[] row = new Object[12];
+            row[0] = rules.get(0)[0];
+            row[1] = (long) rules.size();
+            row[2] = totalAlerts;
+            row[3] = first;
+            row[4] = last;
+            for (Object[] rule : rules) {
+                long ruleId = ((Number) rule[1]).longValue();
+                String ruleName = ruleNames.get(ruleId);
+                if (ruleName == null) {
+                    continue;
+                }
+                row[5] = ruleName;
+                row[6] = ruleId;
+                row[7] = rule[6];
+                row[8] = rule[7];
+                row[9] = rule[5];
+                row[10] = rule[2];
+                row[11] = rule[6];
+                if (alert == null) {
+                    alert = FraudAlertRowMapper.toFraudAlert(row);
+                    alert.setDetails(new ArrayList<>());
+                }
+                alert.getDetails().add(FraudAlertRowMapper.toFraudAlertDetail(row, 5));
+            }
+            if (alert != null) {
+                consumer.accept(alert);
+            }
+        }
+        rules.clear();
+    }
+
+    private static <T extends Comparable<? super T>> T min(T a, T b) {
+        return a == null ? b : b == null ? a : a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static <T extends Comparable<? super T>> T max(T a, T b) {
+        return a == null ? b : b == null ? a : a.compareTo(b) >= 0 ? a : b;
+    }
+}
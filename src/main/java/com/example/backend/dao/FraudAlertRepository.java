@@ -1,19 +1,26 @@
 package com.example.backend.dao;
 
 import com.example.backend.entities.dto.*;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
-import java.math.BigDecimal;
+import javax.sql.DataSource;
 import java.math.BigInteger;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
@@ -22,36 +29,38 @@ public class FraudAlertRepository {
     @PersistenceContext
     private EntityManager entityManager;
 
-    DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyMMddHHmmss");
+    @Autowired
+    private AlertRollupRepository alertRollupRepository;
+
+    @Autowired
+    private ParameterMaxRepository parameterMaxRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${fraud-alert.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    // Sort key of the warnings pages: rules without detection in the window sort after every detected one
+    private static final String WARNING_SORT_TIME = "COALESCE(d.last_date_detection, TIMESTAMP '1970-01-01 00:00:00')";
+    private static final Timestamp NO_DETECTION = Timestamp.valueOf("1970-01-01 00:00:00");
 
 
     // Fetches fraud alerts summary with date filtering
     public List<FraudAlertResponseDTO> getFraudAlerts(String startDate, String endDate) {
-        String summaryQuery = "SELECT msisdn, COUNT(DISTINCT id_regle) AS unique_rules, SUM(nombre) AS total_alerts,\n" +
-                "                   MIN(date_detection) AS first_date_detection, MAX(date_detection) AS last_date_detection\n" +
-                "            FROM (\n" +
-                "                SELECT msisdn, id_regle, COUNT(*) AS nombre, date_detection\n" +
-                "                FROM stat.alerte_fraude_seq\n" +
-                "                WHERE date_detection BETWEEN :startDate AND :endDate\n" +
-                "                GROUP BY msisdn, id_regle, date_detection\n" +
-                "            ) a\n" +
+        // nb_detections counts distinct (rule, date_detection) pairs, the former HAVING COUNT(*) > 1 condition
+        String summaryQuery = "SELECT msisdn, COUNT(DISTINCT id_regle) AS unique_rules, SUM(nb_alertes) AS total_alerts,\n" +
+                "                   MIN(first_detection) AS first_date_detection, MAX(last_detection) AS last_date_detection\n" +
+                "            FROM " + alertRollupRepository.alertAggregates(null, true) + " a\n" +
                 "            GROUP BY msisdn\n" +
-                "            HAVING COUNT(*) > 1\n" +
+                "            HAVING SUM(nb_detections) > 1\n" +
                 "            ORDER BY last_date_detection DESC";
 
         Query query = entityManager.createNativeQuery(summaryQuery);
-        query.setParameter("startDate", Timestamp.valueOf(startDate + " 00:00:00"));
-        query.setParameter("endDate", Timestamp.valueOf(endDate + " 23:59:59"));
+        alertRollupRepository.bindWindow(query, LocalDate.parse(startDate), LocalDate.parse(endDate));
 
         List<Object[]> results = query.getResultList();
-        return results.stream().map(row -> new FraudAlertResponseDTO(
-                (String) row[0],
-                ((Number) row[1]).longValue(),
-                ((Number) row[2]).longValue(),
-                ((Timestamp) row[3]).toLocalDateTime(),
-                ((Timestamp) row[4]).toLocalDateTime(),
-                null
-        )).collect(Collectors.toList());
+        return results.stream().map(FraudAlertRowMapper::toFraudAlert).collect(Collectors.toList());
     }
 
     // Fetches fraud alert details for a given msisdn and date range
@@ -79,99 +88,233 @@ public class FraudAlertRepository {
 
         List<Object[]> results = query.getResultList();
 
-        return results.stream().map(row -> new FraudAlertDetailDTO(
-                (String) row[0],
-                ((Number) row[1]).longValue(),
-                (String) row[2],
-                (String) row[3],
-                ((Timestamp) row[4]).toLocalDateTime(),
-                ((Number) row[5]).longValue(),
-                (String) row[6]
-        )).collect(Collectors.toList());
+        return results.stream().map(FraudAlertRowMapper::toFraudAlertDetail).collect(Collectors.toList());
+    }
+
+    /**
+     * Fraud alerts of the window with their per-rule details, for the exports: one query read through
+     * a cursor instead of the summary query plus one detail query per MSISDN.
+     *
+     * Rows come ordered by MSISDN, so an alert is complete as soon as the next MSISDN starts and the
+     * consumer receives the alerts one at a time: memory does not grow with the number of MSISDNs.
+     * Summary and details match getFraudAlerts and getFraudAlertDetails over the same window.
+     *
+     * @param onStatement receives the statement before it runs (for cancellation), may be null
+     */
+    @Transactional(readOnly = true)
+    public void forEachFraudAlertWithDetails(String startDate, String endDate, Consumer<Statement> onStatement,
+                                             Consumer<FraudAlertResponseDTO> consumer) {
+        // Summary columns are window aggregates over the MSISDN's (msisdn, rule) rows, detail columns the row itself
+        String exportQuery = "SELECT a.msisdn, a.unique_rules, a.total_alerts, a.first_date_detection, a.last_date_detection,\n" +
+                "       r.nom, r.id, a.min_date_debut, a.max_date_fin, a.last_detection, a.nb_alertes, a.min_date_debut\n" +
+                "FROM (\n" +
+                "    SELECT msisdn, id_regle, nb_alertes, last_detection, min_date_debut, max_date_fin,\n" +
+                "           COUNT(*) OVER w AS unique_rules,\n" +
+                "           SUM(nb_alertes) OVER w AS total_alerts,\n" +
+                "           MIN(first_detection) OVER w AS first_date_detection,\n" +
+                "           MAX(last_detection) OVER w AS last_date_detection,\n" +
+                "           SUM(nb_detections) OVER w AS nb_detections\n" +
+                "    FROM " + alertRollupRepository.alertAggregates(null, true) + " g\n" +
+                "    WINDOW w AS (PARTITION BY msisdn)\n" +
+                ") a\n" +
+                "JOIN tableref.regles_fraudes r ON r.id = a.id_regle\n" +
+                "WHERE a.nb_detections > 1\n" +
+                "ORDER BY a.msisdn, r.id";
+
+        MapSqlParameterSource params = alertRollupRepository.addWindow(
+                new MapSqlParameterSource(), LocalDate.parse(startDate), LocalDate.parse(endDate));
+
+        FraudAlertResponseDTO[] current = new FraudAlertResponseDTO[1];
+        Object[] row = new Object[12];
+        StreamingJdbc.named(dataSource, exportFetchSize, onStatement).query(exportQuery, params, (RowCallbackHandler) rs -> {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+
+            FraudAlertResponseDTO alert = current[0];
+            // NULL msisdns sort last and form one alert, as in the summary query
+            if (alert == null || !Objects.equals(alert.getMsisdn(), row[0])) {
+                if (alert != null) {
+                    consumer.accept(alert);
+                }
+                alert = FraudAlertRowMapper.toFraudAlert(row);
+                alert.setDetails(new ArrayList<>());
+                current[0] = alert;
+            }
+            alert.getDetails().add(FraudAlertRowMapper.toFraudAlertDetail(row, 5));
+        });
+
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    /**
+     * Per (msisdn, id_regle) alert aggregates of one partition of a partitioned export, ordered by
+     * msisdn (byte order, as String.compareTo) then rule: msisdn, id_regle, nb_alertes, nb_detections,
+     * first_detection, last_detection, min_date_debut, max_date_fin. Every row is a new array, as the
+     * rows are handed over to the merging thread.
+     *
+     * @param onStatement receives the statement before it runs (for cancellation), may be null
+     */
+    @Transactional(readOnly = true)
+    public void forEachAlertAggregate(LocalDate startDate, LocalDate endDate, Consumer<Statement> onStatement,
+                                      Consumer<Object[]> consumer) {
+        String aggregateQuery = "SELECT msisdn, id_regle, nb_alertes, nb_detections, first_detection, last_detection, " +
+                "       min_date_debut, max_date_fin " +
+                "FROM " + alertRollupRepository.alertAggregates(null, true) + " g " +
+                "ORDER BY msisdn COLLATE \"C\", id_regle";
+
+        MapSqlParameterSource params = alertRollupRepository.addWindow(new MapSqlParameterSource(), startDate, endDate);
+
+        StreamingJdbc.named(dataSource, exportFetchSize, onStatement).query(aggregateQuery, params, (RowCallbackHandler) rs -> {
+            Object[] row = new Object[8];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            consumer.accept(row);
+        });
+    }
+
+    // Rule names by id, for the alerts assembled outside the database
+    public Map<Long, String> getRuleNames() {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("SELECT id, nom FROM tableref.regles_fraudes")
+                .getResultList();
+        Map<Long, String> names = new HashMap<>();
+        for (Object[] row : rows) {
+            names.put(((Number) row[0]).longValue(), (String) row[1]);
+        }
+        return names;
     }
 
 
     public List<WarningResponseDTO> getWarnings(String startDate, String endDate) {
-        String warningsQuery = "SELECT r.ID as rule_id, r.nom as rule_name, c.nom_categorie AS category, f.name AS flow, " +
+        Query query = entityManager.createNativeQuery(buildWarningsQuery("", "ORDER BY r.nom"));
+        alertRollupRepository.bindWindow(query, LocalDate.parse(startDate), LocalDate.parse(endDate));
+        List<Object[]> results = query.getResultList();
+        return results.stream().map(FraudAlertRowMapper::toWarning).collect(Collectors.toList());
+    }
+
+    /**
+     * One page of rule-level warnings (details not loaded), ordered by last detection then rule id, both
+     * descending; rules without detection in the window come last. With afterRuleId the page starts after
+     * that keyset cursor, afterTime null meaning the previous page ended among the rules without detection.
+     */
+    public List<WarningResponseDTO> getWarningsPage(String startDate, String endDate, LocalDateTime afterTime,
+                                                    Long afterRuleId, int limit, long offset) {
+        boolean seek = afterRuleId != null;
+        Query query = entityManager.createNativeQuery(buildWarningsQuery(
+                seek ? "AND (" + WARNING_SORT_TIME + ", r.ID) < (:afterTime, :afterRuleId) " : "",
+                "ORDER BY " + WARNING_SORT_TIME + " DESC, r.ID DESC LIMIT :limit OFFSET :offset"));
+        alertRollupRepository.bindWindow(query, LocalDate.parse(startDate), LocalDate.parse(endDate));
+        if (seek) {
+            query.setParameter("afterTime", afterTime != null ? Timestamp.valueOf(afterTime) : NO_DETECTION);
+            query.setParameter("afterRuleId", afterRuleId);
+        }
+        query.setParameter("limit", limit);
+        query.setParameter("offset", offset);
+
+        List<Object[]> results = query.getResultList();
+        return results.stream().map(FraudAlertRowMapper::toWarning).collect(Collectors.toList());
+    }
+
+    // Total of getWarningsPage: every active rule is listed, with or without detection
+    public long countWarnings() {
+        Object count = entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM tableref.regles_fraudes r WHERE r.ID <> 0 AND r.etat = 'A'")
+                .getSingleResult();
+        return ((Number) count).longValue();
+    }
+
+    // One row per active rule with its first/last detection in the window (NULL without alert)
+    private String buildWarningsQuery(String extraCondition, String orderBy) {
+        return "SELECT r.ID as rule_id, r.nom as rule_name, c.nom_categorie AS category, f.name AS flow, " +
                 "       d.first_date_detection, d.last_date_detection, r.date_modif AS createdAt " +
                 "FROM tableref.regles_fraudes r " +
                 "LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " +
                 "LEFT JOIN etl.etl_flows f ON r.id_flux = f.id " +
                 "LEFT JOIN ( " +
                 "    SELECT id_regle, " +
-                "           MIN(date_detection) AS first_date_detection, " +
-                "           MAX(date_detection) AS last_date_detection " +
-                "    FROM stat.alerte_fraude_seq " +
-                "    WHERE date_detection BETWEEN :startDate AND :endDate " +
+                "           MIN(first_detection) AS first_date_detection, " +
+                "           MAX(last_detection) AS last_date_detection " +
+                "    FROM " + alertRollupRepository.alertAggregates(null, false) + " a " +
                 "    GROUP BY id_regle " +
                 ") d ON r.ID = d.id_regle " +
                 "WHERE r.ID <> 0 AND r.etat = 'A' " +
-                "ORDER BY r.nom";
-
-        Query query = entityManager.createNativeQuery(warningsQuery);
-        query.setParameter("startDate", Timestamp.valueOf(startDate + " 00:00:00"));
-        query.setParameter("endDate", Timestamp.valueOf(endDate + " 23:59:59"));
-        List<Object[]> results = query.getResultList();
-        return results.stream().map(row -> new WarningResponseDTO(
-                ((Number) row[0]).longValue(), // rule_id
-                (String) row[1], // rule_name
-                (String) row[3], // Flow
-                (String) row[2], // Category
-                row[4] != null ? ((Timestamp) row[4]).toLocalDateTime() : null, // first_date_detection
-                row[5] != null ? ((Timestamp) row[5]).toLocalDateTime() : null, // last_date_detection
-                row[6] != null ? ((Timestamp) row[6]).toLocalDateTime() : null, // createdAt
-                //getWarningDetails(((Number) row[0]).longValue(), startDate, endDate) // Additional details7
-                new ArrayList<>()
-        )).collect(Collectors.toList());
+                extraCondition +
+                orderBy;
     }
 
     public List<WarningDetailDTO> getWarningDetails(Long ruleId, String startDate, String endDate) {
+        return getWarningDetails(ruleId, startDate, endDate, null, 0);
+    }
+
+    /**
+     * MSISDN details of one rule, one page at a time (limit null for all of them), ordered by
+     * last detection then MSISDN, both descending
+     */
+    public List<WarningDetailDTO> getWarningDetails(Long ruleId, String startDate, String endDate,
+                                                    Integer limit, long offset) {
         try {
-            String maxValueQuery = "SELECT max(valeur) FROM stat.regle_parametres_valeur_seq " +
-                    "WHERE id_regle = :ruleId GROUP BY id_parametre, id_regle";
-
-            List<Object[]> maxValueResult = entityManager.createNativeQuery(maxValueQuery)
-                    .setParameter("ruleId", ruleId)
-                    .getResultList();
-
-            boolean hasSingleMaxValue = (maxValueResult != null && maxValueResult.size() == 1);
-
-            String baseQuery = "SELECT " +
-                    "    a.msisdn, " +
-                    "    to_timestamp(min(substr(a.date_debut, 1, 8)), 'YYMMDDHH24MISS') AS start_date, " +
-                    "    to_timestamp(max(substr(a.date_fin, 1, 8)), 'YYMMDDHH24MISS') AS end_date, " +
-                    "    max(a.date_detection) AS date_detection, " +
-                    "    count(*) AS total_alerts ";
-
-            if (hasSingleMaxValue) {
-                baseQuery += ", (SELECT max(valeur) FROM stat.regle_parametres_valeur_seq as b " +
-                        "WHERE a.msisdn = b.msisdn AND id_regle = :ruleId " +
-                        "GROUP BY id_parametre, id_regle) AS max_value ";
+            boolean aggregate = parameterMaxRepository.isAggregateReadable();
+            boolean hasSingleMaxValue;
+            if (aggregate) {
+                hasSingleMaxValue = parameterMaxRepository.countParameters(ruleId) == 1;
             } else {
-                baseQuery += ", CAST(NULL AS DOUBLE PRECISION) AS max_value\n ";
+                List<?> maxValueResult = entityManager.createNativeQuery(
+                        "SELECT max(valeur) FROM stat.regle_parametres_valeur_seq " +
+                        "WHERE id_regle = :ruleId GROUP BY id_parametre, id_regle")
+                        .setParameter("ruleId", ruleId)
+                        .getResultList();
+                hasSingleMaxValue = (maxValueResult != null && maxValueResult.size() == 1);
             }
 
-            baseQuery += " FROM stat.alerte_fraude_seq a " +
-                    "WHERE id_regle = :ruleId " +
-                    "AND date_detection BETWEEN :startDate AND :endDate " +
-                    "GROUP BY a.msisdn " +
-                    "ORDER BY date_detection DESC";
+            // The page of MSISDNs is grouped and cut first, the max value is then looked up once per row
+            String maxValue;
+            String maxValueJoin = "";
+            if (!hasSingleMaxValue) {
+                maxValue = "CAST(NULL AS DOUBLE PRECISION)";
+            } else if (aggregate) {
+                maxValue = "m.max_valeur";
+                maxValueJoin = "LEFT JOIN stat.regle_parametres_max m ON m.id_regle = :ruleId AND m.msisdn = g.msisdn ";
+            } else {
+                maxValue = "(SELECT max(valeur) FROM stat.regle_parametres_valeur_seq b " +
+                        "WHERE b.msisdn = g.msisdn AND b.id_regle = :ruleId)";
+            }
+
+            String baseQuery = "SELECT g.msisdn, g.start_date, g.end_date, g.date_detection, g.total_alerts, " +
+                    maxValue + " AS max_value " +
+                    "FROM ( " +
+                    "    SELECT " +
+                    "        a.msisdn, " +
+                    // Raw yyMMddHHmmss strings, decoded by the row mapper
+                    "        min(a.date_debut) AS start_date, " +
+                    "        max(a.date_fin) AS end_date, " +
+                    "        max(a.date_detection) AS date_detection, " +
+                    "        count(*) AS total_alerts " +
+                    "    FROM stat.alerte_fraude_seq a " +
+                    "    WHERE id_regle = :ruleId " +
+                    "    AND date_detection BETWEEN :startDate AND :endDate " +
+                    "    GROUP BY a.msisdn " +
+                    "    ORDER BY date_detection DESC, a.msisdn DESC" +
+                    (limit != null ? " LIMIT :limit OFFSET :offset" : "") +
+                    ") g " +
+                    maxValueJoin +
+                    "ORDER BY g.date_detection DESC, g.msisdn DESC";
 
             Query query = entityManager.createNativeQuery(baseQuery);
             query.setParameter("ruleId", ruleId);
             query.setParameter("startDate", Timestamp.valueOf(startDate + " 00:00:00"));
             query.setParameter("endDate", Timestamp.valueOf(endDate + " 23:59:59"));
+            if (limit != null) {
+                query.setParameter("limit", limit);
+                query.setParameter("offset", offset);
+            }
 
             List<Object[]> results = query.getResultList();
 
-            return results.stream().map(row -> new WarningDetailDTO(
-                    (String) row[0], // msisdn
-                    ((Timestamp) row[1]).toLocalDateTime(),
-                    ((Timestamp) row[2]).toLocalDateTime(),
-                    ((Timestamp) row[3]).toLocalDateTime(),
-                    ((Number) row[4]).longValue(),
-                    row[5] != null ? ((Number) row[5]).doubleValue() : null
-            )).collect(Collectors.toList());
+            return results.stream().map(FraudAlertRowMapper::toWarningDetail).collect(Collectors.toList());
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -179,6 +322,73 @@ public class FraudAlertRepository {
         }
     }
 
+    // Total of getWarningDetails: MSISDNs alerted by the rule in the window
+    public long countWarningDetails(Long ruleId, String startDate, String endDate) {
+        Object count = entityManager.createNativeQuery(
+                "SELECT COUNT(DISTINCT msisdn) FROM stat.alerte_fraude_seq " +
+                "WHERE id_regle = :ruleId AND date_detection BETWEEN :startDate AND :endDate")
+                .setParameter("ruleId", ruleId)
+                .setParameter("startDate", Timestamp.valueOf(startDate + " 00:00:00"))
+                .setParameter("endDate", Timestamp.valueOf(endDate + " 23:59:59"))
+                .getSingleResult();
+        return ((Number) count).longValue();
+    }
+
+    // Exact distinct MSISDNs alerted by each rule in the window, rules without alert are left out
+    public Map<Integer, Long> countDistinctMsisdnsByRule(Collection<Integer> ruleIds, LocalDate startDate, LocalDate endDate) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(
+                "SELECT id_regle, COUNT(DISTINCT msisdn) FROM stat.alerte_fraude_seq " +
+                "WHERE id_regle IN (:ruleIds) AND date_detection BETWEEN :startDate AND :endDate " +
+                "GROUP BY id_regle")
+                .setParameter("ruleIds", ruleIds)
+                .setParameter("startDate", Timestamp.valueOf(startDate.atStartOfDay()))
+                .setParameter("endDate", Timestamp.valueOf(endDate.atTime(23, 59, 59)))
+                .getResultList();
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    // Live feed: latest date_detection, the starting point of a new high-water mark
+    public Timestamp findLastDetection() {
+        return (Timestamp) entityManager.createNativeQuery(
+                "SELECT MAX(date_detection) FROM stat.alerte_fraude_seq")
+                .getSingleResult();
+    }
+
+    /**
+     * Live feed: alerts detected at or after since and past the (floorDetection, floorId) row key,
+     * oldest first, at most limit rows. Rows of the same date_detection come in id order.
+     */
+    public List<AlertStreamEventDTO> getAlertsDetectedSince(Timestamp since, Timestamp floorDetection,
+                                                            long floorId, int limit) {
+        return new NamedParameterJdbcTemplate(dataSource).query(
+                "SELECT a.id, a.msisdn, a.id_regle, r.nom AS rule_name, r.id_categorie, c.nom_categorie, " +
+                "       a.date_detection, a.date_debut, a.date_fin " +
+                "FROM stat.alerte_fraude_seq a " +
+                "LEFT JOIN tableref.regles_fraudes r ON r.id = a.id_regle " +
+                "LEFT JOIN tableref.categories_fraudes c ON c.id = r.id_categorie " +
+                "WHERE a.date_detection >= :since " +
+                "  AND (a.date_detection, a.id) > (:floorDetection, :floorId) " +
+                "ORDER BY a.date_detection, a.id " +
+                "LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("since", since)
+                        .addValue("floorDetection", floorDetection)
+                        .addValue("floorId", floorId)
+                        .addValue("limit", limit),
+                (rs, rowNum) -> {
+                    Object[] row = new Object[9];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    return FraudAlertRowMapper.toAlertStreamEvent(row);
+                });
+    }
+
     public List<FraudAlertResponseDTO> getFraudAlertsWithDetails(String startDate, String endDate) {
         String queryStr = "SELECT a.msisdn, " +
                 "COUNT(DISTINCT a.id_regle) AS unique_rules, " +
@@ -245,55 +455,6 @@ public class FraudAlertRepository {
 
 
 
-    public List<WarningResponseDTO> getWarningsV2(String startDate, String endDate, Pageable pageable) {
-        String optimizedQuery = "WITH WarningDetails AS ( " +
-                "    SELECT a.id_regle, a.msisdn, " +
-                "           MIN(a.date_debut) AS start_date, " +
-                "           MAX(a.date_fin) AS end_date, " +
-                "           MAX(a.date_detection) AS date_detection" +
-                "    FROM stat.alerte_fraude_seq a " +
-                "    WHERE a.date_detection BETWEEN :startDate AND :endDate " +
-                "    GROUP BY a.id_regle, a.msisdn " +
-                ") " +
-                "SELECT r.ID AS rule_id, r.nom AS rule_name, c.nom_categorie AS category, f.name AS flow, " +
-                "       d.first_date_detection, d.last_date_detection, r.date_modif AS createdAt, " +
-                "       wd.msisdn, wd.start_date, wd.end_date, wd.date_detection " +
-                "FROM tableref.regles_fraudes r " +
-                "LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " +
-                "LEFT JOIN etl.etl_flows f ON r.id_flux = f.id " +
-                "LEFT JOIN ( " +
-                "    SELECT id_regle, " +
-                "           MIN(date_detection) AS first_date_detection, " +
-                "           MAX(date_detection) AS last_date_detection " +
-                "    FROM stat.alerte_fraude_seq " +
-                "    WHERE date_detection BETWEEN :startDate AND :endDate " +
-                "    GROUP BY id_regle " +
-                ") d ON r.ID = d.id_regle " +
-                "LEFT JOIN WarningDetails wd ON r.ID = wd.id_regle " +
-                "WHERE r.ID <> 0 AND r.etat = 'A' " +
-                "ORDER BY last_date_detection DESC " +
-                "LIMIT :size OFFSET :offset";
-
-        Query query = entityManager.createNativeQuery(optimizedQuery);
-        query.setParameter("size", pageable.getPageSize());
-        query.setParameter("offset", pageable.getOffset());
-        query.setParameter("startDate", Timestamp.valueOf(startDate + " 00:00:00"));
-        query.setParameter("endDate", Timestamp.valueOf(endDate + " 23:59:59"));
-
-        List<Object[]> results = query.getResultList();
-
-        return results.stream().map(row -> new WarningResponseDTO(
-                ((Number) row[0]).longValue(), // rule_id
-                (String) row[1],  // rule_name
-                (String) row[3],  // flow
-                (String) row[2],  // category
-                row[4] != null ? ((Timestamp) row[4]).toLocalDateTime() : null, // first_date_detection
-                row[5] != null ? ((Timestamp) row[5]).toLocalDateTime() : null, // last_date_detection
-                row[6] != null ? ((Timestamp) row[6]).toLocalDateTime() : null, // createdAt
-                new ArrayList<>()
-        )).collect(Collectors.toList());
-    }
-
     public List<WarningParamsDto> getWarningParams(String msisdn, Integer idRule) {
         String queryString =
                 " SELECT b.name AS name, "
@@ -317,45 +478,11 @@ public class FraudAlertRepository {
 
         List<Object[]> results = nativeQuery.getResultList();
 
-        List<WarningParamsDto> dtoList = new ArrayList<>();
-        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyMMddHHmmss");
+        List<WarningParamsDto> dtoList = new ArrayList<>(results.size());
         for (Object[] row : results) {
-            WarningParamsDto dto = new WarningParamsDto();
-            dto.setName((String) row[0]);
-            dto.setMsisdn((String) row[1]);
-            String debutStr = (String) row[2];
-            if (debutStr != null && !debutStr.isEmpty()) {
-                LocalDateTime localDateTime = LocalDateTime.parse(debutStr, dtf);
-                dto.setDebut(localDateTime);
-            }
-
-            String finStr = (String) row[3];
-            if (finStr != null && !finStr.isEmpty()) {
-                LocalDateTime localDateTime = LocalDateTime.parse(finStr, dtf);
-                dto.setFin(localDateTime);
-            }
-
-            dto.setAvgValeur(toBigDecimal(row[4]));
-            dto.setMinValeur(toLong(row[5]));
-            dto.setMaxValeur(toLong(row[6]));
-            dto.setId(toLong(row[7]));
-            dto.setIdRegle(toLong(row[8]));
-            dtoList.add(dto);
+            dtoList.add(FraudAlertRowMapper.toWarningParams(row));
         }
 
         return dtoList;
     }
-
-    private BigDecimal toBigDecimal(Object val) {
-        if (val == null) return null;
-        if (val instanceof BigDecimal) return (BigDecimal) val;
-        if (val instanceof Number) return BigDecimal.valueOf(((Number) val).doubleValue());
-        return null;
-    }
-
-    private Long toLong(Object val) {
-        if (val == null) return null;
-        if (val instanceof Number) return ((Number) val).longValue();
-        return null;
-    }
 }
@@ -0,0 +1,143 @@
+package com.example.backend.dao;
+
+import com.example.backend.entities.dto.AlertStreamEventDTO;
+import com.example.backend.entities.dto.FraudAlertDetailDTO;
+import com.example.backend.entities.dto.FraudAlertResponseDTO;
+import com.example.backend.entities.dto.WarningDetailDTO;
+import com.example.backend.entities.dto.WarningParamsDto;
+import com.example.backend.entities.dto.WarningResponseDTO;
+import com.example.backend.utils.CompactTimestamp;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Mapping of the FraudAlertRepository native query rows (Object[]) to DTOs.
+ * Kept apart from the queries so the row shapes are visible in one place and can be benchmarked (src/bench).
+ */
+@Slf4j
+public final class FraudAlertRowMapper {
+
+    private FraudAlertRowMapper() {
+    }
+
+    // msisdn, unique_rules, total_alerts, first_date_detection, last_date_detection
+    public static FraudAlertResponseDTO toFraudAlert(Object[] row) {
+        return new FraudAlertResponseDTO(
+                (String) row[0],
+                ((Number) row[1]).longValue(),
+                ((Number) row[2]).longValue(),
+                ((Timestamp) row[3]).toLocalDateTime(),
+                ((Timestamp) row[4]).toLocalDateTime(),
+                null
+        );
+    }
+
+    // nom, id, date_debut, date_fin, date_detection, nb_occurance, datee
+    public static FraudAlertDetailDTO toFraudAlertDetail(Object[] row) {
+        return toFraudAlertDetail(row, 0);
+    }
+
+    // Same columns starting at offset, for rows carrying the summary first
+    public static FraudAlertDetailDTO toFraudAlertDetail(Object[] row, int offset) {
+        return new FraudAlertDetailDTO(
+                (String) row[offset],
+                ((Number) row[offset + 1]).longValue(),
+                (String) row[offset + 2],
+                (String) row[offset + 3],
+                ((Timestamp) row[offset + 4]).toLocalDateTime(),
+                ((Number) row[offset + 5]).longValue(),
+                (String) row[offset + 6]
+        );
+    }
+
+    // rule_id, rule_name, category, flow, first_date_detection, last_date_detection, createdAt
+    public static WarningResponseDTO toWarning(Object[] row) {
+        return new WarningResponseDTO(
+                ((Number) row[0]).longValue(), // rule_id
+                (String) row[1], // rule_name
+                (String) row[3], // flow
+                (String) row[2], // category
+                row[4] != null ? ((Timestamp) row[4]).toLocalDateTime() : null, // first_date_detection
+                row[5] != null ? ((Timestamp) row[5]).toLocalDateTime() : null, // last_date_detection
+                row[6] != null ? ((Timestamp) row[6]).toLocalDateTime() : null, // createdAt
+                new ArrayList<>()
+        );
+    }
+
+    // id, msisdn, id_regle, rule_name, id_categorie, category_name, date_detection, date_debut, date_fin
+    public static AlertStreamEventDTO toAlertStreamEvent(Object[] row) {
+        return new AlertStreamEventDTO(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                row[2] != null ? ((Number) row[2]).intValue() : null,
+                (String) row[3],
+                row[4] != null ? ((Number) row[4]).intValue() : null,
+                (String) row[5],
+                ((Timestamp) row[6]).toLocalDateTime(),
+                (String) row[7],
+                (String) row[8]
+        );
+    }
+
+    // msisdn, start_date, end_date (yyMMddHHmmss strings, shown to the hour), date_detection, total_alerts, max_value
+    public static WarningDetailDTO toWarningDetail(Object[] row) {
+        return new WarningDetailDTO(
+                (String) row[0], // msisdn
+                toHour((String) row[1]),
+                toHour((String) row[2]),
+                ((Timestamp) row[3]).toLocalDateTime(),
+                ((Number) row[4]).longValue(),
+                row[5] != null ? ((Number) row[5]).doubleValue() : null
+        );
+    }
+
+    // name, msisdn, debut, fin (yyMMddHHmmss strings), avg, min, max, id_parametre, id_regle
+    public static WarningParamsDto toWarningParams(Object[] row) {
+        WarningParamsDto dto = new WarningParamsDto();
+        dto.setName((String) row[0]);
+        dto.setMsisdn((String) row[1]);
+        dto.setDebut(parseParamDate((String) row[2]));
+        dto.setFin(parseParamDate((String) row[3]));
+        dto.setAvgValeur(toBigDecimal(row[4]));
+        dto.setMinValeur(toLong(row[5]));
+        dto.setMaxValeur(toLong(row[6]));
+        dto.setId(toLong(row[7]));
+        dto.setIdRegle(toLong(row[8]));
+        return dto;
+    }
+
+    private static LocalDateTime parseParamDate(String value) {
+        return CompactTimestamp.toLocalDateTimeOrNull(value);
+    }
+
+    // Hour from the yyMMddHH prefix as the former substr(date, 1, 8) SQL, an unreadable value is left empty
+    private static LocalDateTime toHour(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return CompactTimestamp.fromEpochSecond(CompactTimestamp.toEpochHour(value));
+        } catch (DateTimeException e) {
+            log.debug("Unreadable yyMMddHHmmss value: {}", value);
+            return null;
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Object val) {
+        if (val == null) return null;
+        if (val instanceof BigDecimal) return (BigDecimal) val;
+        if (val instanceof Number) return BigDecimal.valueOf(((Number) val).doubleValue());
+        return null;
+    }
+
+    private static Long toLong(Object val) {
+        if (val == null) return null;
+        if (val instanceof Number) return ((Number) val).longValue();
+        return null;
+    }
+}
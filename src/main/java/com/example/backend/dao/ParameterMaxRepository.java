@@ -0,0 +1,113 @@
+package com.example.backend.dao;
+
+import com.example.backend.utils.CompactTimestamp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Access to stat.regle_parametres_max, the highest parameter value per (rule, msisdn, parameter).
+ *
+ * A maximum only grows, so the refresh upserts the maxima of one date_debut day with GREATEST:
+ * refreshing a day again (late values, the partial current day) never needs to delete anything.
+ */
+@Repository
+public class ParameterMaxRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${param-max.read-mode:raw}")
+    private String readMode;
+
+    // Last day known to be aggregated, refreshed by ParameterMaxService; null reads everything raw
+    private volatile LocalDate refreshedThrough;
+
+    /**
+     * Whether reads should use the aggregate: read-mode=aggregate and the backfill caught up with
+     * yesterday, otherwise the maxima would miss the days not folded yet
+     */
+    public boolean isAggregateReadable() {
+        LocalDate watermark = refreshedThrough;
+        return "aggregate".equalsIgnoreCase(readMode)
+                && watermark != null && !watermark.isBefore(LocalDate.now().minusDays(1));
+    }
+
+    /**
+     * Number of parameters with a value for the rule, from the aggregate
+     */
+    public int countParameters(Long ruleId) {
+        Object count = entityManager.createNativeQuery(
+                "SELECT COUNT(DISTINCT id_parametre) FROM stat.regle_parametres_max WHERE id_regle = :ruleId")
+                .setParameter("ruleId", ruleId)
+                .getSingleResult();
+        return ((Number) count).intValue();
+    }
+
+    public LocalDate getRefreshedThrough() {
+        return refreshedThrough;
+    }
+
+    public void setRefreshedThrough(LocalDate refreshedThrough) {
+        this.refreshedThrough = refreshedThrough;
+    }
+
+    // Maintenance
+
+    public LocalDate loadWatermark() {
+        List<?> result = entityManager.createNativeQuery(
+                "SELECT refreshed_through FROM stat.regle_parametres_max_watermark WHERE id = 1")
+                .getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return null;
+        }
+        return ((Date) result.get(0)).toLocalDate();
+    }
+
+    public LocalDate findFirstValueDay() {
+        Object first = entityManager.createNativeQuery(
+                "SELECT MIN(date_debut) FROM stat.regle_parametres_valeur_seq")
+                .getSingleResult();
+        return first != null ? CompactTimestamp.toLocalDate((String) first) : null;
+    }
+
+    /**
+     * Fold the values whose date_debut falls on the given day into the maxima, in one transaction.
+     * The high-water mark only moves for complete days (advanceWatermark false for the current day).
+     */
+    @Transactional
+    public int refreshDay(LocalDate day, boolean advanceWatermark) {
+        int rows = entityManager.createNativeQuery(
+                "INSERT INTO stat.regle_parametres_max (id_regle, msisdn, id_parametre, max_valeur) " +
+                "SELECT id_regle, msisdn, id_parametre, MAX(valeur) " +
+                "FROM stat.regle_parametres_valeur_seq " +
+                "WHERE date_debut >= :fromKey AND date_debut < :toKey " +
+                "  AND msisdn IS NOT NULL AND id_regle IS NOT NULL AND id_parametre IS NOT NULL " +
+                "  AND valeur IS NOT NULL " +
+                "GROUP BY id_regle, msisdn, id_parametre " +
+                "ON CONFLICT (id_regle, msisdn, id_parametre) DO UPDATE SET " +
+                "    max_valeur = GREATEST(stat.regle_parametres_max.max_valeur, EXCLUDED.max_valeur)")
+                .setParameter("fromKey", CompactTimestamp.lowerBound(day))
+                .setParameter("toKey", CompactTimestamp.upperBound(day))
+                .executeUpdate();
+
+        if (advanceWatermark) {
+            entityManager.createNativeQuery(
+                    "INSERT INTO stat.regle_parametres_max_watermark (id, refreshed_through, date_modif) " +
+                    "VALUES (1, :day, now()) " +
+                    "ON CONFLICT (id) DO UPDATE SET " +
+                    "    refreshed_through = GREATEST(stat.regle_parametres_max_watermark.refreshed_through, EXCLUDED.refreshed_through), " +
+                    "    date_modif = now()")
+                    .setParameter("day", Date.valueOf(day))
+                    .executeUpdate();
+        }
+
+        return rows;
+    }
+}
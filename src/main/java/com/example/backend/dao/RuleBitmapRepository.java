@@ -0,0 +1,95 @@
+package com.example.backend.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Source rows of the in-memory rule bitmaps (RuleBitmapIndexService): the distinct (rule, msisdn)
+ * pairs alerted on a day and the latest decision of the indexed MSISDNs.
+ */
+@Repository
+public class RuleBitmapRepository {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${rule-bitmap.fetch-size:5000}")
+    private int fetchSize;
+
+    /**
+     * Distinct (id_regle, msisdn) of the alerts detected on the day
+     */
+    @Transactional(readOnly = true)
+    public void forEachRuleMsisdn(LocalDate day, RowCallbackHandler handler) {
+        StreamingJdbc.template(dataSource, fetchSize).query(
+                "SELECT DISTINCT id_regle, msisdn FROM stat.alerte_fraude_seq " +
+                "WHERE date_detection >= ? AND date_detection < ? " +
+                "  AND msisdn IS NOT NULL AND id_regle IS NOT NULL",
+                handler,
+                Timestamp.valueOf(day.atStartOfDay()),
+                Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+    }
+
+    /**
+     * Latest decision (W / D) of each MSISDN, whatever the rule it was taken on: msisdn, decision
+     */
+    @Transactional(readOnly = true)
+    public void forEachLatestDecision(RowCallbackHandler handler) {
+        StreamingJdbc.template(dataSource, fetchSize).query(
+                "SELECT msisdn, decision FROM ( " +
+                "    SELECT DISTINCT ON (msisdn) msisdn, decision " +
+                "    FROM stat.decision_fraude " +
+                "    WHERE msisdn IS NOT NULL " +
+                "    ORDER BY msisdn, date_decision DESC NULLS LAST, id DESC " +
+                ") d " +
+                "WHERE decision IN ('W', 'D')",
+                handler);
+    }
+
+    /**
+     * Latest decision (W / D) of the given MSISDNs: msisdn, decision
+     */
+    @Transactional(readOnly = true)
+    public void forEachLatestDecision(Collection<String> msisdns, RowCallbackHandler handler) {
+        if (msisdns.isEmpty()) {
+            return;
+        }
+        StreamingJdbc.named(dataSource, fetchSize).query(
+                "SELECT msisdn, decision FROM ( " +
+                "    SELECT DISTINCT ON (msisdn) msisdn, decision " +
+                "    FROM stat.decision_fraude " +
+                "    WHERE msisdn IN (:msisdns) " +
+                "    ORDER BY msisdn, date_decision DESC NULLS LAST, id DESC " +
+                ") d " +
+                "WHERE decision IN ('W', 'D')",
+                new MapSqlParameterSource("msisdns", msisdns),
+                handler);
+    }
+
+    /**
+     * Latest decision of each MSISDN with a decision taken or edited since the given time, whatever the
+     * decision (a newer decision other than W / D takes the MSISDN off the lists): msisdn, decision
+     */
+    @Transactional(readOnly = true)
+    public void forEachDecisionChangedSince(Timestamp since, RowCallbackHandler handler) {
+        StreamingJdbc.template(dataSource, fetchSize).query(
+                "SELECT DISTINCT ON (d.msisdn) d.msisdn, d.decision " +
+                "FROM stat.decision_fraude d " +
+                "WHERE d.msisdn IN ( " +
+                "    SELECT msisdn FROM stat.decision_fraude " +
+                "    WHERE date_decision >= ? OR date_modif >= ? " +
+                ") " +
+                "ORDER BY d.msisdn, d.date_decision DESC NULLS LAST, d.id DESC",
+                handler,
+                since, since);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.backend.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+/**
+ * JdbcTemplates reading large results fetchSize rows at a time.
+ *
+ * The PostgreSQL driver only honours the fetch size with auto-commit off: the queries must run in a
+ * transaction (a @Transactional(readOnly = true) caller), otherwise the whole result is loaded before
+ * the first row is handed over. Inside one, the driver reads through a server-side cursor.
+ */
+public final class StreamingJdbc {
+
+    private StreamingJdbc() {
+    }
+
+    public static JdbcTemplate template(DataSource dataSource, int fetchSize) {
+        return template(dataSource, fetchSize, null);
+    }
+
+    /**
+     * @param onStatement receives every statement before it runs (for Statement.cancel()), may be null
+     */
+    public static JdbcTemplate template(DataSource dataSource, int fetchSize, Consumer<Statement> onStatement) {
+        JdbcTemplate jdbcTemplate = onStatement == null ? new JdbcTemplate(dataSource) : new JdbcTemplate(dataSource) {
+            @Override
+            protected void applyStatementSettings(Statement stmt) throws SQLException {
+                super.applyStatementSettings(stmt);
+                onStatement.accept(stmt);
+            }
+        };
+        jdbcTemplate.setFetchSize(fetchSize);
+        return jdbcTemplate;
+    }
+
+    public static NamedParameterJdbcTemplate named(DataSource dataSource, int fetchSize) {
+        return new NamedParameterJdbcTemplate(template(dataSource, fetchSize, null));
+    }
+
+    public static NamedParameterJdbcTemplate named(DataSource dataSource, int fetchSize, Consumer<Statement> onStatement) {
+        return new NamedParameterJdbcTemplate(template(dataSource, fetchSize, onStatement));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.backend.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * Daily rollup of stat.alerte_fraude_seq per (day, msisdn, rule), maintained by AlertRollupService.
+ * Only complete days are rolled up; the current day is always read from the raw table.
+ */
+@Entity
+@Table(
+        name = "alerte_fraude_jour",
+        schema = "stat",
+        indexes = @Index(name = "idx_alerte_fraude_jour_regle", columnList = "id_regle, jour")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlerteFraudeJour implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @EmbeddedId
+    private AlerteFraudeJourId id;
+
+    @Column(name = "nb_alertes")
+    private Long nbAlertes;
+
+    // Distinct date_detection values of the day, summed across days it equals the distinct count over the range
+    @Column(name = "nb_detections")
+    private Long nbDetections;
+
+    @Column(name = "first_detection")
+    private Timestamp firstDetection;
+
+    @Column(name = "last_detection")
+    private Timestamp lastDetection;
+
+    @Column(name = "min_date_debut")
+    private String minDateDebut;
+
+    @Column(name = "max_date_fin")
+    private String maxDateFin;
+}
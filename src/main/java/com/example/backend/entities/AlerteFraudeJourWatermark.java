@@ -0,0 +1,29 @@
+package com.example.backend.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * High-water mark of stat.alerte_fraude_jour: every day up to rolled_through is rolled up.
+ * Single row with id = 1.
+ */
+@Entity
+@Table(name = "alerte_fraude_jour_watermark", schema = "stat")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlerteFraudeJourWatermark {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "rolled_through")
+    private LocalDate rolledThrough;
+
+    @Column(name = "date_modif")
+    private Timestamp dateModif;
+}
@@ -0,0 +1,34 @@
+package com.example.backend.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * HyperLogLog sketch of the distinct MSISDNs alerted by a rule on a day (HyperLogLog.toBytes()),
+ * maintained by DistinctMsisdnSketchService. Sketches of a range of days merge into its distinct count.
+ */
+@Entity
+@Table(
+        name = "regle_msisdn_hll",
+        schema = "stat",
+        indexes = @Index(name = "idx_regle_msisdn_hll_regle", columnList = "id_regle, jour")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegleMsisdnHll implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @EmbeddedId
+    private RegleMsisdnHllId id;
+
+    @Column(name = "registres", nullable = false)
+    private byte[] registres;
+
+    // Exact distinct count of the day, kept for checking the estimates
+    @Column(name = "nb_msisdn")
+    private Long nbMsisdn;
+}
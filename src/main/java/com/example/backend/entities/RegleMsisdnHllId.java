@@ -0,0 +1,21 @@
+package com.example.backend.entities;
+
+import lombok.*;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class RegleMsisdnHllId implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private LocalDate jour;
+    @Column(name = "id_regle")
+    private Integer idRegle;
+}
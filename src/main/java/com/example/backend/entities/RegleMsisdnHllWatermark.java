@@ -0,0 +1,29 @@
+package com.example.backend.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * High-water mark of stat.regle_msisdn_hll: every day up to sketched_through is sketched.
+ * Single row with id = 1.
+ */
+@Entity
+@Table(name = "regle_msisdn_hll_watermark", schema = "stat")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegleMsisdnHllWatermark {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "sketched_through")
+    private LocalDate sketchedThrough;
+
+    @Column(name = "date_modif")
+    private Timestamp dateModif;
+}
@@ -0,0 +1,30 @@
+package com.example.backend.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Highest value of stat.regle_parametres_valeur_seq per (rule, msisdn, parameter), maintained
+ * incrementally by ParameterMaxService so warning details join it instead of scanning the value history.
+ */
+@Entity
+@Table(
+        name = "regle_parametres_max",
+        schema = "stat",
+        indexes = @Index(name = "idx_regle_parametres_max_regle", columnList = "id_regle, msisdn")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegleParametreMax implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @EmbeddedId
+    private RegleParametreMaxId id;
+
+    @Column(name = "max_valeur")
+    private Double maxValeur;
+}
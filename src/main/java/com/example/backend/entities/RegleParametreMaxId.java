@@ -0,0 +1,22 @@
+package com.example.backend.entities;
+
+import lombok.*;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class RegleParametreMaxId implements Serializable {
+    private static final long serialVersionUID = 1L;
+    @Column(name = "id_regle")
+    private Integer idRegle;
+    private String msisdn;
+    @Column(name = "id_parametre")
+    private Integer idParametre;
+}
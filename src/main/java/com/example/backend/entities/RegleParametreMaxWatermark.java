@@ -0,0 +1,29 @@
+package com.example.backend.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * High-water mark of stat.regle_parametres_max: the values of every date_debut day up to
+ * refreshed_through are aggregated. Single row with id = 1.
+ */
+@Entity
+@Table(name = "regle_parametres_max_watermark", schema = "stat")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegleParametreMaxWatermark {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "refreshed_through")
+    private LocalDate refreshedThrough;
+
+    @Column(name = "date_modif")
+    private Timestamp dateModif;
+}
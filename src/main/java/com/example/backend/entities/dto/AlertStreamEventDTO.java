@@ -0,0 +1,26 @@
+package com.example.backend.entities.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One stat.alerte_fraude_seq row pushed by /api/fraud-alerts/stream
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertStreamEventDTO {
+    // stat.alerte_fraude_seq.id, lets a client drop an alert it already received
+    private Long id;
+    private String msisdn;
+    private Integer ruleId;
+    private String ruleName;
+    private Integer categoryId;
+    private String categoryName;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime dateDetection;
+    private String dateDebut;
+    private String dateFin;
+}
@@ -0,0 +1,26 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Set expression over the rule bitmaps, e.g. rule 12 AND rule 15 ANDNOT whitelist:
+ * {"op": "ANDNOT", "operands": [{"op": "AND", "operands": [{"ruleId": 12}, {"ruleId": 15}]}, {"list": "WHITELIST"}]}
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BitmapExpressionDTO {
+    private String op; // AND, OR, ANDNOT (first operand minus the others); null for a leaf
+
+    // Leaves
+    private Integer ruleId; // MSISDNs alerted by the rule in the window
+    private String list; // WHITELIST or BLACKLIST: MSISDNs whose latest decision is W / D
+
+    private List<BitmapExpressionDTO> operands;
+}
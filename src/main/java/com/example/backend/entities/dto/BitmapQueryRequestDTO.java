@@ -0,0 +1,26 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BitmapQueryRequestDTO {
+    @NotNull(message = "Start date is required")
+    private LocalDate startDate;
+
+    @NotNull(message = "End date is required")
+    private LocalDate endDate;
+
+    @NotNull(message = "Expression is required")
+    private BitmapExpressionDTO expression;
+
+    private Integer limit = 1000; // MSISDNs listed, the count is always complete
+}
@@ -0,0 +1,26 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BitmapQueryResultDTO {
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    // Days of the window held by the index (retention, backfill progress)
+    private LocalDate coveredFrom;
+    private LocalDate coveredTo;
+
+    private Long count;
+    private List<String> msisdns;
+    private Boolean truncated; // more than limit MSISDNs matched
+}
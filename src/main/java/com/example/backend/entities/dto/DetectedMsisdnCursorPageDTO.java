@@ -0,0 +1,28 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One seek-paginated page of detected MSISDNs.
+ * The next page is requested with afterTime = nextAfterTime and afterMsisdn = nextAfterMsisdn.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DetectedMsisdnCursorPageDTO {
+    
+    private List<MsisdnDetectionDTO> content;
+    private Integer size;
+    private boolean hasNext;
+    
+    // Cursor of the last row of this page (null when there is no next page)
+    private LocalDateTime nextAfterTime;
+    private String nextAfterMsisdn;
+}
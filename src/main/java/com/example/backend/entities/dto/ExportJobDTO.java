@@ -0,0 +1,34 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of a fraud alert export job spooled to disk
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExportJobDTO {
+
+    private String jobId;
+    private String status; // QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    private String fileType; // csv, xlsx
+    private String startDate;
+    private String endDate;
+    private Long rowsWritten;
+
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime expiresAt; // When the spooled file is evicted at the latest
+
+    private String fileName;
+    private Long fileSizeBytes;
+    private String error;
+}
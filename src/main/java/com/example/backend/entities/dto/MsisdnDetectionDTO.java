@@ -1,5 +1,7 @@
 package com.example.backend.entities.dto;
 
+import com.example.backend.utils.FieldSet;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,6 +16,7 @@ import java.time.LocalDateTime;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonFilter(FieldSet.FILTER_ID)
 public class MsisdnDetectionDTO {
     
     // Basic detection info
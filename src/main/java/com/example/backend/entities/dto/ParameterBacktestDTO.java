@@ -0,0 +1,52 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Alert-count curve of a rule parameter: distinct MSISDNs that would have alerted for each candidate threshold
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ParameterBacktestDTO {
+
+    private Long parameterId;
+    private Integer ruleId;
+    private Long flowId;
+    private String bound;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    // Current thresholds of the parameter and the MSISDNs they match
+    private Integer vmin;
+    private Integer vmax;
+    private Integer vegal;
+    private Long currentAlertingMsisdns;
+
+    private Long valuesLoaded;
+    private Long distinctMsisdns;
+    private Double minValue;
+    private Double maxValue;
+
+    private List<ThresholdPoint> curve;
+
+    private Long loadMillis; // 0 when the values came from the backtest cache
+    private Long sweepMillis;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ThresholdPoint {
+        private Integer threshold;
+        private Long alertingMsisdns;
+        private Long deltaVsCurrent;
+    }
+}
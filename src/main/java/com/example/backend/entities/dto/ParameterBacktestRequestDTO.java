@@ -0,0 +1,32 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Threshold backtest of one rule parameter over the values recorded in a period
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ParameterBacktestRequestDTO {
+
+    private Long parameterId; // ParametresReglesFraude id
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate startDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDate;
+
+    private String bound; // VMIN, VMAX or VEGAL: the threshold being swept, the others keep their current value
+    private List<Integer> thresholds; // Candidate values, generated between the observed min and max when empty
+    private Integer steps; // Number of generated candidates
+}
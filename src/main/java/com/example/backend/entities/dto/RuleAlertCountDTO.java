@@ -0,0 +1,15 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Alerts raised by a rule over a window (most triggered rules)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleAlertCountDTO {
+    private Long ruleId;
+    private String ruleName;
+    private Long alerts;
+}
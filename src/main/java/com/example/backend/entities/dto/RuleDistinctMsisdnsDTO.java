@@ -0,0 +1,18 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Distinct MSISDNs alerted by a rule over a window, exact or estimated from the HyperLogLog sketches
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RuleDistinctMsisdnsDTO {
+    private Long ruleId;
+    private Long distinctMsisdns;
+    private Boolean approximate;
+    private Double relativeStandardError; // null for exact counts
+}
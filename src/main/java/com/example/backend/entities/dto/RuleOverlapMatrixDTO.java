@@ -0,0 +1,28 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * MSISDN overlap between rules over a window; matrix cells follow the order of ruleIds
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RuleOverlapMatrixDTO {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private LocalDate coveredFrom;
+    private LocalDate coveredTo;
+
+    private List<Integer> ruleIds;
+    private List<Long> msisdnCounts;
+    private long[][] intersections; // MSISDNs alerted by both rules
+    private double[][] jaccard; // intersection / union, 0 when both rules are empty
+}
@@ -0,0 +1,46 @@
+package com.example.backend.entities.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Approximate top MSISDNs by alert count over a window, from the hourly alert sketches
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TopOffendersDTO {
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime from;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime to;
+    private Integer ruleId; // null for all rules
+
+    // Part of the window held by the sketches (retention, ingestion lag)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime coveredFrom;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime coveredTo;
+
+    private Long maxUnlistedAlerts; // Any MSISDN not listed has at most this many alerts
+    private List<Offender> offenders;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Offender {
+        private String msisdn;
+        private Long alerts; // Upper bound
+        private Long minAlerts; // Lower bound
+        private Boolean guaranteed; // Certainly among the top k whatever the error
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of the rule validation result cache
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ValidationCacheStatsDTO {
+    
+    private Integer size;
+    private Integer maxEntries;
+    private Long ttlSeconds;
+    
+    private Long hits;
+    private Long misses;
+    // Requests that waited on an identical in-flight validation instead of running their own
+    private Long coalesced;
+    private Long invalidations;
+    private Long evictions;
+    
+    private Double hitRate; // Percentage of lookups served from the cache
+}
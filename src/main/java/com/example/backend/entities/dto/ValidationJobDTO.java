@@ -0,0 +1,37 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * State of an asynchronous rule validation job
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ValidationJobDTO {
+    
+    private String jobId;
+    private String status; // QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    private String phase; // QUEUED, QUERYING, STREAMING, CREDIBILITY, DONE
+    private Long rowsProcessed; // MSISDNs written so far
+    
+    private List<Integer> ruleIds;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime expiresAt; // When the stored result is evicted
+    
+    private Long resultSizeBytes; // Compressed size of the stored result
+    private String error;
+}
@@ -0,0 +1,30 @@
+package com.example.backend.entities.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One seek-paginated page of rule warnings, ordered by last detection then rule id, both descending.
+ * The next page is requested with afterTime = nextAfterTime and afterRuleId = nextAfterRuleId;
+ * nextAfterTime is null once the page reaches the rules without detection in the period.
+ * Warning details are not loaded, they are fetched per rule on demand.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WarningCursorPageDTO {
+
+    private List<WarningResponseDTO> content;
+    private Integer size;
+    private boolean hasNext;
+
+    // Cursor of the last row of this page (null when there is no next page)
+    private LocalDateTime nextAfterTime;
+    private Long nextAfterRuleId;
+}
@@ -0,0 +1,79 @@
+package com.example.backend.services;
+
+import com.example.backend.dao.AlertRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps stat.alerte_fraude_jour up to date from its high-water mark.
+ *
+ * Each run rolls the complete days after the watermark (at most max-days-per-run, so the initial
+ * backfill is spread over several runs) and re-rolls the last lookback-days already rolled to absorb
+ * late-arriving alerts. The current day is never rolled: read paths take it from the raw table.
+ */
+@Service
+@Slf4j
+public class AlertRollupService {
+
+    @Autowired
+    private AlertRollupRepository alertRollupRepository;
+
+    @Value("${alert-rollup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${alert-rollup.lookback-days:1}")
+    private int lookbackDays;
+
+    @Value("${alert-rollup.max-days-per-run:31}")
+    private int maxDaysPerRun;
+
+    @Scheduled(initialDelayString = "${alert-rollup.initial-delay-ms:60000}",
+               fixedDelayString = "${alert-rollup.interval-ms:900000}")
+    public void refresh() {
+        try {
+            LocalDate watermark = alertRollupRepository.loadWatermark();
+            if (enabled) {
+                watermark = rollPendingDays(watermark);
+            }
+            // Instances with the job disabled still follow the watermark written by the others
+            alertRollupRepository.setRolledThrough(watermark);
+        } catch (Exception e) {
+            log.warn("Alert rollup refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private LocalDate rollPendingDays(LocalDate watermark) {
+        LocalDate lastCompleteDay = LocalDate.now().minusDays(1);
+
+        LocalDate from = watermark != null
+                ? watermark.plusDays(1).minusDays(Math.max(lookbackDays, 0))
+                : alertRollupRepository.findFirstAlertDay();
+        if (from == null || from.isAfter(lastCompleteDay)) {
+            return watermark;
+        }
+
+        LocalDate to = from.plusDays(maxDaysPerRun - 1L);
+        if (to.isAfter(lastCompleteDay)) {
+            to = lastCompleteDay;
+        }
+
+        long startTime = System.currentTimeMillis();
+        LocalDate rolled = watermark;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            int rows = alertRollupRepository.rollDay(day);
+            log.debug("Rolled up {} alert groups for {}", rows, day);
+            if (rolled == null || day.isAfter(rolled)) {
+                rolled = day;
+            }
+        }
+
+        log.info("Alert rollup refreshed {} to {} in {}ms, rolled through {}",
+                from, to, System.currentTimeMillis() - startTime, rolled);
+        return rolled;
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.backend.services;
+
+import com.example.backend.dao.AlertSketchRepository;
+import com.example.backend.dao.FraudAlertRepository;
+import com.example.backend.entities.dto.RuleAlertCountDTO;
+import com.example.backend.entities.dto.TopOffendersDTO;
+import com.example.backend.utils.SpaceSavingSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory hourly sketches of stat.alerte_fraude_seq for the "top MSISDNs" and "most triggered rules"
+ * widgets, so they no longer group the raw table over the window.
+ *
+ * - Per hour: a Space-Saving summary of the MSISDNs over all rules and one per rule, plus the exact
+ *   alert count of each rule (rules are few)
+ * - A scheduled poller rebuilds whole hours from the raw table, at most one day per round trip: the
+ *   hours after the last one ingested and, for alerts committed late, the hours within lookback-minutes
+ *   of it. After a restart it backfills the retention window the same way, coverage tells how far it got
+ * - A window query merges the summaries of its hours, so its bounds must fall on the hour: the counts
+ *   are upper bounds with an error, and an MSISDN missing from the answer has at most maxUnlistedAlerts alerts
+ * - Hours older than retention-days are dropped
+ */
+@Service
+@Slf4j
+public class AlertSketchService {
+
+    @Autowired
+    private AlertSketchRepository alertSketchRepository;
+
+    @Autowired
+    private FraudAlertRepository fraudAlertRepository;
+
+    @Value("${alert-sketch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${alert-sketch.retention-days:31}")
+    private int retentionDays;
+
+    @Value("${alert-sketch.msisdn-capacity:256}")
+    private int msisdnCapacity;
+
+    @Value("${alert-sketch.rule-msisdn-capacity:64}")
+    private int ruleMsisdnCapacity;
+
+    @Value("${alert-sketch.max-days-per-run:7}")
+    private int maxDaysPerRun;
+
+    @Value("${alert-sketch.lookback-minutes:30}")
+    private long lookbackMinutes;
+
+    // Hour buckets, replaced (never mutated) when the hour is rebuilt
+    private final NavigableMap<LocalDateTime, HourSketch> hours = new ConcurrentSkipListMap<>();
+
+    // Alerts detected up to this time are in the sketches, null before the first poll
+    private volatile LocalDateTime ingestedThrough;
+    private volatile LocalDateTime retainedFrom;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(initialDelayString = "${alert-sketch.initial-delay-ms:30000}",
+               fixedDelayString = "${alert-sketch.poll-interval-ms:60000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime retentionStart = LocalDate.now().minusDays(retentionDays - 1L).atStartOfDay();
+            hours.headMap(retentionStart).clear();
+            retainedFrom = retentionStart;
+
+            Timestamp lastDetection = fraudAlertRepository.findLastDetection();
+            if (lastDetection == null) {
+                return;
+            }
+            LocalDateTime last = lastDetection.toLocalDateTime();
+
+            LocalDateTime from = ingestedThrough == null
+                    ? retentionStart
+                    : max(ingestedThrough.minusMinutes(lookbackMinutes).truncatedTo(ChronoUnit.HOURS), retentionStart);
+            // The hour of the last detection is rebuilt again by the next polls, until it is past the lookback
+            LocalDateTime end = last.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+
+            long startTime = System.currentTimeMillis();
+            for (int day = 0; day < maxDaysPerRun && from.isBefore(end); day++) {
+                LocalDateTime until = from.plusDays(1).isBefore(end) ? from.plusDays(1) : end;
+                ingest(from, until);
+                ingestedThrough = until.isBefore(last) ? until : last;
+                from = until;
+            }
+            if (ingestedThrough == null) {
+                // Nothing detected within the retention window
+                ingestedThrough = retentionStart;
+            }
+            log.debug("Alert sketches ingested through {} in {}ms, {} hours held",
+                    ingestedThrough, System.currentTimeMillis() - startTime, hours.size());
+        } catch (Exception e) {
+            log.warn("Alert sketch poll failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Approximate top k MSISDNs by alerts over the hours of [from, to), for one rule or all of them
+     *
+     * @throws IllegalArgumentException when from or to is not on the hour
+     */
+    public TopOffendersDTO getTopOffenders(LocalDateTime from, LocalDateTime to, Integer ruleId, int k) {
+        checkWindow(from, to, k);
+        int capacity = Math.max(k, ruleId == null ? msisdnCapacity : ruleMsisdnCapacity);
+
+        List<SpaceSavingSummary<String>> parts = new ArrayList<>();
+        for (HourSketch hour : window(from, to)) {
+            SpaceSavingSummary<String> part = ruleId == null ? hour.msisdns : hour.msisdnsByRule.get(ruleId);
+            if (part != null) {
+                parts.add(part);
+            }
+        }
+        SpaceSavingSummary<String> merged = parts.isEmpty()
+                ? SpaceSavingSummary.<String>empty()
+                : SpaceSavingSummary.merge(parts, capacity);
+
+        List<SpaceSavingSummary.Counter<String>> top = merged.top(k);
+        // An item is certainly in the top k when its lower bound beats every other candidate's upper bound
+        long threshold = merged.getCounters().size() > k
+                ? Math.max(merged.getCounters().get(k).getCount(), merged.getFloor())
+                : merged.getFloor();
+
+        List<TopOffendersDTO.Offender> offenders = new ArrayList<>(top.size());
+        for (SpaceSavingSummary.Counter<String> counter : top) {
+            offenders.add(TopOffendersDTO.Offender.builder()
+                    .msisdn(counter.getItem())
+                    .alerts(counter.getCount())
+                    .minAlerts(counter.getGuaranteedCount())
+                    .guaranteed(counter.getGuaranteedCount() >= threshold)
+                    .build());
+        }
+
+        return TopOffendersDTO.builder()
+                .from(from)
+                .to(to)
+                .ruleId(ruleId)
+                .coveredFrom(max(from, retainedFrom))
+                .coveredTo(min(to, ingestedThrough))
+                .maxUnlistedAlerts(threshold)
+                .offenders(offenders)
+                .build();
+    }
+
+    /**
+     * The k rules with the most alerts over the hours of [from, to), exact counts
+     *
+     * @throws IllegalArgumentException when from or to is not on the hour
+     */
+    public List<RuleAlertCountDTO> getTopRules(LocalDateTime from, LocalDateTime to, int k) {
+        checkWindow(from, to, k);
+        Map<Integer, Long> alertsByRule = new HashMap<>();
+        for (HourSketch hour : window(from, to)) {
+            hour.alertsByRule.forEach((rule, alerts) -> alertsByRule.merge(rule, alerts, Long::sum));
+        }
+
+        Map<Long, String> ruleNames = fraudAlertRepository.getRuleNames();
+        return alertsByRule.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+                .limit(k)
+                .map(e -> new RuleAlertCountDTO(e.getKey().longValue(),
+                        ruleNames.get(e.getKey().longValue()), e.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private Collection<HourSketch> window(LocalDateTime from, LocalDateTime to) {
+        return hours.subMap(from, true, to, false).values();
+    }
+
+    // Rebuild the hours of [from, until) from the raw table
+    private void ingest(LocalDateTime from, LocalDateTime until) {
+        Map<LocalDateTime, HourSketch> rebuilt = new HashMap<>();
+        HourBatch[] batch = new HourBatch[1];
+        alertSketchRepository.forEachHourlyCount(Timestamp.valueOf(from), Timestamp.valueOf(until),
+                (RowCallbackHandler) rs -> {
+                    LocalDateTime hour = rs.getTimestamp(1).toLocalDateTime();
+                    if (batch[0] == null || !batch[0].hour.equals(hour)) {
+                        if (batch[0] != null) {
+                            rebuilt.put(batch[0].hour, sketch(batch[0]));
+                        }
+                        batch[0] = new HourBatch(hour);
+                    }
+                    batch[0].add(rs.getString(2), rs.getInt(3), rs.getLong(4));
+                });
+        if (batch[0] != null) {
+            rebuilt.put(batch[0].hour, sketch(batch[0]));
+        }
+
+        // Hours are swapped one by one, a query sees each of them either before or after the rebuild
+        for (LocalDateTime hour = from; hour.isBefore(until); hour = hour.plusHours(1)) {
+            HourSketch sketch = rebuilt.get(hour);
+            if (sketch != null) {
+                hours.put(hour, sketch);
+            } else {
+                hours.remove(hour);
+            }
+        }
+    }
+
+    // Summaries of the exact counts of a whole hour
+    private HourSketch sketch(HourBatch batch) {
+        HourSketch sketch = new HourSketch();
+        sketch.msisdns = SpaceSavingSummary.of(batch.msisdns, msisdnCapacity);
+        Map<Integer, SpaceSavingSummary<String>> byRule = new HashMap<>();
+        batch.msisdnsByRule.forEach((rule, counts) ->
+                byRule.put(rule, SpaceSavingSummary.of(counts, ruleMsisdnCapacity)));
+        sketch.msisdnsByRule = byRule;
+        sketch.alertsByRule = batch.alertsByRule;
+        return sketch;
+    }
+
+    private static void checkWindow(LocalDateTime from, LocalDateTime to, int k) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        // The sketches hold whole hours, a partial hour would be counted in full
+        if (!from.equals(from.truncatedTo(ChronoUnit.HOURS)) || !to.equals(to.truncatedTo(ChronoUnit.HOURS))) {
+            throw new IllegalArgumentException("from and to must fall on the hour");
+        }
+        if (k < 1 || k > 1000) {
+            throw new IllegalArgumentException("k must be between 1 and 1000");
+        }
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static final class HourSketch {
+        private SpaceSavingSummary<String> msisdns;
+        private Map<Integer, SpaceSavingSummary<String>> msisdnsByRule;
+        private Map<Integer, Long> alertsByRule;
+    }
+
+    // Exact counts of one hour read from the database, before they are folded into the sketch
+    private static final class HourBatch {
+        private final LocalDateTime hour;
+        private final Map<String, Long> msisdns = new HashMap<>();
+        private final Map<Integer, Map<String, Long>> msisdnsByRule = new HashMap<>();
+        private final Map<Integer, Long> alertsByRule = new HashMap<>();
+
+        HourBatch(LocalDateTime hour) {
+            this.hour = hour;
+        }
+
+        void add(String msisdn, int rule, long alerts) {
+            msisdns.merge(msisdn, alerts, Long::sum);
+            msisdnsByRule.computeIfAbsent(rule, r -> new HashMap<>()).merge(msisdn, alerts, Long::sum);
+            alertsByRule.merge(rule, alerts, Long::sum);
+        }
+    }
+}
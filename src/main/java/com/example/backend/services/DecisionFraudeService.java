@@ -19,6 +19,10 @@ public class DecisionFraudeService {
     private DecisionFraudeRepository decisionFraudeRepository;
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
+    @Autowired
+    private RuleValidationResultCache ruleValidationResultCache;
+    @Autowired
+    private MsisdnHistoryCache msisdnHistoryCache;
 
     public DecisionFraudeService(DecisionFraudeRepository decisionFraudeRepository) {
         this.decisionFraudeRepository = decisionFraudeRepository;
@@ -42,6 +46,14 @@ public class DecisionFraudeService {
         existing.setNomUtilisateur(username);
         existing.setDecision(decisionFraude.getDecision());
         existing.setDateModif(new Timestamp(System.currentTimeMillis()));
-        return decisionFraudeRepository.save(existing);
+        DecisionFraude saved = decisionFraudeRepository.save(existing);
+
+        // Edits keep the decision id, so the cache poller cannot see them
+        if (saved.getDateDecision() != null) {
+            ruleValidationResultCache.invalidateWindow(saved.getDateDecision().toLocalDateTime(),
+                    saved.getDateDecision().toLocalDateTime());
+        }
+        msisdnHistoryCache.invalidate(saved.getMsisdn());
+        return saved;
     }
 }
@@ -0,0 +1,138 @@
+package com.example.backend.services;
+
+import com.example.backend.dao.AlertRollupRepository;
+import com.example.backend.dao.DistinctMsisdnSketchRepository;
+import com.example.backend.utils.HyperLogLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps stat.regle_msisdn_hll up to date from its high-water mark and answers approximate
+ * distinct-MSISDN counts per rule from it.
+ *
+ * Each run sketches the complete days after the watermark (at most max-days-per-run, so the initial
+ * backfill is spread over several runs) and the last lookback-days already sketched, for late alerts.
+ * A count merges one stored sketch per day of the window; the few days after the watermark (the current
+ * day once caught up) are sketched from the raw table at read time. A window with more than max-raw-days
+ * after the watermark (sketches disabled or still backfilling) is not estimated, the caller counts it exactly.
+ */
+@Service
+@Slf4j
+public class DistinctMsisdnSketchService {
+
+    @Autowired
+    private DistinctMsisdnSketchRepository sketchRepository;
+
+    @Autowired
+    private AlertRollupRepository alertRollupRepository;
+
+    @Value("${distinct-sketch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${distinct-sketch.precision:12}")
+    private int precision;
+
+    @Value("${distinct-sketch.lookback-days:1}")
+    private int lookbackDays;
+
+    @Value("${distinct-sketch.max-days-per-run:31}")
+    private int maxDaysPerRun;
+
+    @Value("${distinct-sketch.max-raw-days:2}")
+    private int maxRawDays;
+
+    @Scheduled(initialDelayString = "${distinct-sketch.initial-delay-ms:120000}",
+               fixedDelayString = "${distinct-sketch.interval-ms:900000}")
+    public void refresh() {
+        try {
+            LocalDate watermark = sketchRepository.loadWatermark();
+            if (enabled) {
+                watermark = sketchPendingDays(watermark);
+            }
+            // Instances with the job disabled still follow the watermark written by the others
+            sketchRepository.setSketchedThrough(watermark);
+        } catch (Exception e) {
+            log.warn("Distinct MSISDN sketch refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Approximate distinct MSISDNs alerted by each rule over the days [startDate, endDate]
+     *
+     * @return null when the stored sketches leave more than max-raw-days of the window uncovered
+     */
+    public Map<Integer, Long> estimateDistinctMsisdns(Collection<Integer> ruleIds,
+                                                      LocalDate startDate, LocalDate endDate) {
+        LocalDate watermark = sketchRepository.getSketchedThrough();
+        if (watermark == null) {
+            return null;
+        }
+        // Days after the watermark read from the raw table; days to come have no alerts yet
+        LocalDate rawStart = watermark.isBefore(startDate) ? startDate : watermark.plusDays(1);
+        LocalDate rawEnd = endDate.isAfter(LocalDate.now()) ? LocalDate.now() : endDate;
+        if (ChronoUnit.DAYS.between(rawStart, rawEnd) + 1 > maxRawDays) {
+            return null;
+        }
+
+        Map<Integer, HyperLogLog> sketches = new LinkedHashMap<>();
+        for (Integer ruleId : ruleIds) {
+            sketches.put(ruleId, new HyperLogLog(precision));
+        }
+        if (!watermark.isBefore(startDate)) {
+            sketchRepository.mergeStoredDays(ruleIds, startDate, watermark.isBefore(endDate) ? watermark : endDate,
+                    sketches);
+        }
+        if (!rawStart.isAfter(rawEnd)) {
+            sketchRepository.addRawMsisdns(ruleIds, Timestamp.valueOf(rawStart.atStartOfDay()),
+                    Timestamp.valueOf(rawEnd.atTime(23, 59, 59)), sketches);
+        }
+
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        sketches.forEach((ruleId, sketch) -> counts.put(ruleId, sketch.estimate()));
+        return counts;
+    }
+
+    public double getRelativeStandardError() {
+        return HyperLogLog.relativeStandardError(precision);
+    }
+
+    private LocalDate sketchPendingDays(LocalDate watermark) {
+        LocalDate lastCompleteDay = LocalDate.now().minusDays(1);
+
+        LocalDate from = watermark != null
+                ? watermark.plusDays(1).minusDays(Math.max(lookbackDays, 0))
+                : alertRollupRepository.findFirstAlertDay();
+        if (from == null || from.isAfter(lastCompleteDay)) {
+            return watermark;
+        }
+
+        LocalDate to = from.plusDays(maxDaysPerRun - 1L);
+        if (to.isAfter(lastCompleteDay)) {
+            to = lastCompleteDay;
+        }
+
+        long startTime = System.currentTimeMillis();
+        LocalDate sketched = watermark;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            int rules = sketchRepository.sketchDay(day, precision);
+            log.debug("Sketched distinct MSISDNs of {} rules for {}", rules, day);
+            if (sketched == null || day.isAfter(sketched)) {
+                sketched = day;
+            }
+        }
+
+        log.info("Distinct MSISDN sketches refreshed {} to {} in {}ms, sketched through {}",
+                from, to, System.currentTimeMillis() - startTime, sketched);
+        return sketched;
+    }
+}
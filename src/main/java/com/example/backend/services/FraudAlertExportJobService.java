@@ -0,0 +1,426 @@
+package com.example.backend.services;
+
+import com.example.backend.entities.ResourceNotFoundException;
+import com.example.backend.entities.dto.ExportJobDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Fraud alert exports run as jobs and spooled to disk, so a dropped download does not lose the work.
+ *
+ * - Jobs run on a bounded executor; a full queue rejects the submission
+ * - The file is written under spool-dir and served from there (with HTTP Range, so downloads resume)
+ *   until its TTL
+ * - An identical submission joins the queued or running job. It only gets a finished file when that
+ *   job started after the end of the window, otherwise alerts detected since could be missing
+ * - Past max-spool-mb of spooled files, the oldest finished jobs are evicted first. The newest finished job
+ *   is kept until its TTL even when its file alone is over the budget, and no job is evicted while its
+ *   file is being downloaded
+ */
+@Service
+@Slf4j
+public class FraudAlertExportJobService {
+
+    // Spool files of a job: <job id>.<file type>, or <job id>.part while written
+    private static final Pattern SPOOL_FILE = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.(csv|xlsx|part)");
+
+    @Autowired
+    private FraudAlertExportService fraudAlertExportService;
+
+    @Value("${fraud-alert.export.jobs.pool-size:2}")
+    private int poolSize;
+
+    @Value("${fraud-alert.export.jobs.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Value("${fraud-alert.export.jobs.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${fraud-alert.export.jobs.max-spool-mb:2048}")
+    private long maxSpoolMb;
+
+    @Value("${fraud-alert.export.jobs.spool-dir:${java.io.tmpdir}/fraud-alert-exports}")
+    private String spoolDir;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+    private Path spoolPath;
+
+    @PostConstruct
+    void start() throws IOException {
+        spoolPath = Paths.get(spoolDir);
+        Files.createDirectories(spoolPath);
+        // Files of a previous run are unreachable, their jobs only lived in memory
+        deleteSpoolFiles();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(
+                poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fraud-alert-export-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        jobExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() {
+        jobs.values().forEach(job -> job.control.cancel());
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue an export job, or return the job of an identical request that is still pending or covers the
+     * whole window
+     *
+     * @throws IllegalArgumentException for an unknown file type or an inverted date range
+     * @throws RejectedExecutionException when the job queue is full
+     */
+    public ExportJobDTO submit(String fileType, String startDate, String endDate) {
+        if (!FraudAlertExportService.isSupportedFileType(fileType)) {
+            throw new IllegalArgumentException("Invalid file type: " + fileType);
+        }
+        if (LocalDate.parse(startDate).isAfter(LocalDate.parse(endDate))) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+
+        String type = fileType.toLowerCase();
+        String requestKey = type + "|" + startDate + "|" + endDate;
+        for (ExportJob existing : jobs.values()) {
+            if (existing.requestKey.equals(requestKey) && existing.isReusable()) {
+                log.info("Export job {} reused for an identical request", existing.id);
+                return existing.toDTO(ttlMinutes);
+            }
+        }
+
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), type, startDate, endDate, requestKey);
+        jobs.put(job.id, job);
+        try {
+            job.future = jobExecutor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+
+        log.info("Export job {} queued: {} from {} to {}", job.id, type, startDate, endDate);
+        return job.toDTO(ttlMinutes);
+    }
+
+    public ExportJobDTO getJob(String jobId) {
+        return findJob(jobId).toDTO(ttlMinutes);
+    }
+
+    public List<ExportJobDTO> getJobs() {
+        return jobs.values().stream()
+                .sorted((a, b) -> b.submittedAt.compareTo(a.submittedAt))
+                .map(job -> job.toDTO(ttlMinutes))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cancel a queued or running job; finished jobs are left as they are
+     */
+    public ExportJobDTO cancel(String jobId) {
+        ExportJob job = findJob(jobId);
+        if (!job.status.isFinished()) {
+            job.control.cancel();
+            if (job.future != null && job.future.cancel(false)) {
+                // Still queued, it will never run
+                job.finish(JobStatus.CANCELLED, null);
+            }
+            log.info("Export job {} cancellation requested", jobId);
+        }
+        return job.toDTO(ttlMinutes);
+    }
+
+    /**
+     * Spooled file of a succeeded job. The job is not evicted while a stream of the file is open.
+     *
+     * @throws IllegalStateException when the job has not succeeded
+     */
+    public Resource getFile(String jobId) {
+        ExportJob job = findJob(jobId);
+        if (job.status != JobStatus.SUCCEEDED) {
+            throw new IllegalStateException("Export job " + jobId + " is " + job.status);
+        }
+        return new SpooledFile(job);
+    }
+
+    /**
+     * Evict the finished jobs past their TTL, then the oldest ones while the spool is over its size budget.
+     * The newest finished job only leaves at its TTL, and jobs being downloaded wait for the next run.
+     */
+    @Scheduled(fixedDelayString = "${fraud-alert.export.jobs.cleanup-interval-ms:60000}")
+    public synchronized void evictJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ttlMinutes);
+        List<ExportJob> finished = jobs.values().stream()
+                .filter(job -> job.status.isFinished() && job.finishedAt != null)
+                .sorted(Comparator.comparing(job -> job.finishedAt))
+                .collect(Collectors.toList());
+
+        long spooled = finished.stream()
+                .mapToLong(job -> job.fileSizeBytes != null ? job.fileSizeBytes : 0L)
+                .sum();
+        long budget = maxSpoolMb * 1024 * 1024;
+        ExportJob newest = finished.isEmpty() ? null : finished.get(finished.size() - 1);
+
+        for (ExportJob job : finished) {
+            boolean expired = job.finishedAt.isBefore(cutoff);
+            if (!expired && (spooled <= budget || job == newest)) {
+                continue;
+            }
+            if (!job.markEvicted()) {
+                continue;
+            }
+            jobs.remove(job.id);
+            deleteQuietly(job.file);
+            if (job.fileSizeBytes != null) {
+                spooled -= job.fileSizeBytes;
+            }
+            log.debug("Export job {} evicted ({})", job.id, expired ? "expired" : "spool over budget");
+        }
+    }
+
+    private void run(ExportJob job) {
+        if (job.control.isCancelled()) {
+            job.finish(JobStatus.CANCELLED, null);
+            return;
+        }
+
+        job.status = JobStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        Path partial = spoolPath.resolve(job.id + ".part");
+
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+                fraudAlertExportService.writeExport(job.fileType, job.startDate, job.endDate, out, job.control);
+            }
+            job.control.checkCancelled();
+
+            Path file = spoolPath.resolve(job.id + "." + job.fileType);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+            job.file = file;
+            job.fileSizeBytes = Files.size(file);
+            job.finish(JobStatus.SUCCEEDED, null);
+
+            log.info("Export job {} succeeded: {} rows, {} bytes spooled",
+                    job.id, job.control.getRowsProcessed(), job.fileSizeBytes);
+            if (job.fileSizeBytes > maxSpoolMb * 1024 * 1024) {
+                log.warn("Export job {} file is over the spool budget of {} MB on its own, kept until its TTL",
+                        job.id, maxSpoolMb);
+            }
+            evictJobs();
+        } catch (Exception e) {
+            deleteQuietly(partial);
+            if (job.control.isCancelled()) {
+                job.finish(JobStatus.CANCELLED, null);
+                log.info("Export job {} cancelled after {} rows", job.id, job.control.getRowsProcessed());
+            } else {
+                job.finish(JobStatus.FAILED, e.getMessage());
+                log.error("Export job {} failed", job.id, e);
+            }
+        }
+    }
+
+    private ExportJob findJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Export job not found or expired: " + jobId);
+        }
+        return job;
+    }
+
+    private void deleteSpoolFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolPath)) {
+            for (Path file : files) {
+                if (SPOOL_FILE.matcher(file.getFileName().toString()).matches()) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export job file {}: {}", file, e.getMessage());
+        }
+    }
+
+    // Counts the open streams of a job file, so eviction leaves it alone until they are closed
+    private static final class SpooledFile extends FileSystemResource {
+        private final ExportJob job;
+
+        SpooledFile(ExportJob job) {
+            super(job.file);
+            this.job = job;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (!job.acquireDownload()) {
+                throw new NoSuchFileException(getPath(), null, "export job " + job.id + " evicted");
+            }
+            InputStream in;
+            try {
+                in = super.getInputStream();
+            } catch (IOException | RuntimeException e) {
+                job.releaseDownload();
+                throw e;
+            }
+            return new FilterInputStream(in) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!closed) {
+                            closed = true;
+                            job.releaseDownload();
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    private enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private static final class ExportJob {
+        private final String id;
+        private final String fileType;
+        private final String startDate;
+        private final String endDate;
+        private final String requestKey;
+        // Row count and cooperative cancellation, checked after every exported row
+        private final JobControl control = new JobControl();
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+
+        private volatile Future<?> future;
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile Path file;
+        private volatile Long fileSizeBytes;
+        private volatile String error;
+        // Guarded by this
+        private int downloads;
+        private boolean evicted;
+
+        ExportJob(String id, String fileType, String startDate, String endDate, String requestKey) {
+            this.id = id;
+            this.fileType = fileType;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.requestKey = requestKey;
+        }
+
+        // Pending and not being cancelled, or succeeded with an export started once the window was over
+        boolean isReusable() {
+            if (!status.isFinished()) {
+                return !control.isCancelled();
+            }
+            return status == JobStatus.SUCCEEDED && startedAt != null
+                    && startedAt.isAfter(LocalDate.parse(endDate).plusDays(1).atStartOfDay());
+        }
+
+        synchronized boolean acquireDownload() {
+            if (evicted) {
+                return false;
+            }
+            downloads++;
+            return true;
+        }
+
+        synchronized void releaseDownload() {
+            downloads--;
+        }
+
+        // False while the file is being downloaded
+        synchronized boolean markEvicted() {
+            if (downloads > 0) {
+                return false;
+            }
+            evicted = true;
+            return true;
+        }
+
+        synchronized void finish(JobStatus finalStatus, String errorMessage) {
+            if (status.isFinished()) {
+                return;
+            }
+            error = errorMessage;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        ExportJobDTO toDTO(long ttlMinutes) {
+            return ExportJobDTO.builder()
+                    .jobId(id)
+                    .status(status.name())
+                    .fileType(fileType)
+                    .startDate(startDate)
+                    .endDate(endDate)
+                    .rowsWritten(control.getRowsProcessed())
+                    .submittedAt(submittedAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .expiresAt(finishedAt != null ? finishedAt.plusMinutes(ttlMinutes) : null)
+                    .fileName("fraud_alerts_" + startDate + "_" + endDate + "." + fileType)
+                    .fileSizeBytes(fileSizeBytes)
+                    .error(error)
+                    .build();
+        }
+    }
+}
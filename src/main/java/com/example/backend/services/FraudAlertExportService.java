@@ -1,29 +1,38 @@
 package com.example.backend.services;
 
 import com.example.backend.entities.dto.FraudAlertDetailDTO;
-import com.example.backend.entities.dto.FraudAlertResponseDTO;
+import com.example.backend.utils.XlsxStreamWriter;
 import com.opencsv.CSVWriter;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.time.LocalDate;
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Service
 public class FraudAlertExportService {
+    private static final String[] HEADERS = {"MSISDN", "Unique Rules", "Total Alerts", "First Detection",
+            "Last Detection", "Rule Name", "Rule ID", "Start Date", "End Date", "Detection Date", "Occurrences"};
+
     @Autowired
     private FraudAlertService fraudAlertService;
 
-    @Async
+    @Value("${fraud-alert.export.excel-window-size:500}")
+    private int excelWindowSize;
+
+    @Value("${fraud-alert.export.compress-temp-files:true}")
+    private boolean compressTempFiles;
+
+    public static boolean isSupportedFileType(String fileType) {
+        return "csv".equalsIgnoreCase(fileType) || "xlsx".equalsIgnoreCase(fileType);
+    }
+
+    // The body runs on the MVC async executor once the controller returns
     public CompletableFuture<StreamingResponseBody> exportFraudAlerts(
             String fileType, String startDate, String endDate, HttpServletResponse response) {
 
@@ -40,87 +49,86 @@ public class FraudAlertExportService {
         }
     }
 
+    /**
+     * Write the export to the output, counting rows and honouring cancellation through control when given
+     * (export jobs spooling to disk)
+     */
+    public void writeExport(String fileType, String startDate, String endDate, OutputStream out,
+                            JobControl control) throws IOException {
+        if ("csv".equalsIgnoreCase(fileType)) {
+            writeCsv(startDate, endDate, out, control);
+        } else if ("xlsx".equalsIgnoreCase(fileType)) {
+            writeXlsx(startDate, endDate, out, control);
+        } else {
+            throw new IllegalArgumentException("Invalid file type: " + fileType);
+        }
+    }
+
     private StreamingResponseBody exportCsv(String startDate, String endDate) {
-        return outputStream -> {
-            try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(outputStream))) {
-                // Write headers
-                writer.writeNext(new String[]{"MSISDN", "Unique Rules", "Total Alerts", "First Detection", "Last Detection",
-                        "Rule Name", "Rule ID", "Start Date", "End Date", "Detection Date", "Occurrences"});
-
-                List<FraudAlertResponseDTO> fraudAlerts = fraudAlertService.getFraudAlerts(startDate, endDate);
-                int totalRecords = fraudAlerts.size();
-                int processedRecords = 0;
-
-                for (FraudAlertResponseDTO alert : fraudAlerts) {
-                    List<FraudAlertDetailDTO> details = fraudAlertService.getFraudAlertsDetails(alert.getMsisdn(), LocalDate.parse(startDate), LocalDate.parse(startDate));
-                    alert.setDetails(details);
-
-                    for (FraudAlertDetailDTO detail : details) {
-                        writer.writeNext(new String[]{
-                                alert.getMsisdn(),
-                                alert.getUniqueRules().toString(),
-                                alert.getTotalAlerts().toString(),
-                                alert.getFirstDateDetection().toString(),
-                                alert.getLastDateDetection().toString(),
-                                detail.getRuleName(),
-                                detail.getRuleId().toString(),
-                                detail.getStartDate(),
-                                detail.getEndDate(),
-                                detail.getDetectionDate().toString(),
-                                detail.getOccurrences().toString()
-                        });
-                    }
-
-                    processedRecords++;
-                    outputStream.flush(); // Ensure real-time download progress
-                }
-            }
-        };
+        return outputStream -> writeCsv(startDate, endDate, outputStream, null);
     }
 
     private StreamingResponseBody exportXlsx(String startDate, String endDate) {
-        return outputStream -> {
-            try (Workbook workbook = new XSSFWorkbook()) {
-                Sheet sheet = workbook.createSheet("Fraud_Alerts");
-
-                Row headerRow = sheet.createRow(0);
-                String[] headers = {"MSISDN", "Unique Rules", "Total Alerts", "First Detection", "Last Detection",
-                        "Rule Name", "Rule ID", "Start Date", "End Date", "Detection Date", "Occurrences"};
+        return outputStream -> writeXlsx(startDate, endDate, outputStream, null);
+    }
 
-                for (int i = 0; i < headers.length; i++) {
-                    headerRow.createCell(i).setCellValue(headers[i]);
+    // One ordered query for summaries and details, each MSISDN written as soon as its rows are read
+    private void writeCsv(String startDate, String endDate, OutputStream outputStream,
+                          JobControl control) throws IOException {
+        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(outputStream))) {
+            // Write headers
+            writer.writeNext(HEADERS);
+
+            fraudAlertService.forEachFraudAlertWithDetails(startDate, endDate, control, alert -> {
+                for (FraudAlertDetailDTO detail : alert.getDetails()) {
+                    writer.writeNext(new String[]{
+                            alert.getMsisdn(),
+                            alert.getUniqueRules().toString(),
+                            alert.getTotalAlerts().toString(),
+                            alert.getFirstDateDetection().toString(),
+                            alert.getLastDateDetection().toString(),
+                            detail.getRuleName(),
+                            detail.getRuleId().toString(),
+                            detail.getStartDate(),
+                            detail.getEndDate(),
+                            detail.getDetectionDate().toString(),
+                            detail.getOccurrences().toString()
+                    });
+                    onRow(control);
                 }
+            });
+        }
+    }
 
-                List<FraudAlertResponseDTO> fraudAlerts = fraudAlertService.getFraudAlerts(startDate, endDate);
-                int rowNum = 1;
-                int processedRecords = 0;
-                int totalRecords = fraudAlerts.size();
-
-                for (FraudAlertResponseDTO alert : fraudAlerts) {
-                    List<FraudAlertDetailDTO> details = fraudAlertService.getFraudAlertsDetails(alert.getMsisdn(), LocalDate.parse(startDate), LocalDate.parse(endDate));
-                    alert.setDetails(details);
-
-                    for (FraudAlertDetailDTO detail : details) {
-                        Row row = sheet.createRow(rowNum++);
-                        row.createCell(0).setCellValue(alert.getMsisdn());
-                        row.createCell(1).setCellValue(alert.getUniqueRules());
-                        row.createCell(2).setCellValue(alert.getTotalAlerts());
-                        row.createCell(3).setCellValue(alert.getFirstDateDetection().toString());
-                        row.createCell(4).setCellValue(alert.getLastDateDetection().toString());
-                        row.createCell(5).setCellValue(detail.getRuleName());
-                        row.createCell(6).setCellValue(detail.getRuleId());
-                        row.createCell(7).setCellValue(detail.getStartDate());
-                        row.createCell(8).setCellValue(detail.getEndDate());
-                        row.createCell(9).setCellValue(detail.getDetectionDate().toString());
-                        row.createCell(10).setCellValue(detail.getOccurrences());
-                    }
-
-                    processedRecords++;
-                    outputStream.flush(); // Stream partial file data for download progress
+    // Only the SXSSF row window stays in memory, older rows go to a temp file until the workbook is written
+    private void writeXlsx(String startDate, String endDate, OutputStream outputStream,
+                           JobControl control) throws IOException {
+        try (XlsxStreamWriter writer = new XlsxStreamWriter(outputStream, "Fraud_Alerts", HEADERS,
+                excelWindowSize, compressTempFiles)) {
+            fraudAlertService.forEachFraudAlertWithDetails(startDate, endDate, control, alert -> {
+                for (FraudAlertDetailDTO detail : alert.getDetails()) {
+                    writer.startRow()
+                            .text(alert.getMsisdn())
+                            .number(alert.getUniqueRules())
+                            .number(alert.getTotalAlerts())
+                            .dateTime(alert.getFirstDateDetection())
+                            .dateTime(alert.getLastDateDetection())
+                            .text(detail.getRuleName())
+                            .number(detail.getRuleId())
+                            .text(detail.getStartDate())
+                            .text(detail.getEndDate())
+                            .dateTime(detail.getDetectionDate())
+                            .number(detail.getOccurrences());
+                    onRow(control);
                 }
+            });
+            writer.finish();
+        }
+    }
 
-                workbook.write(outputStream);
-            }
-        };
+    private static void onRow(JobControl control) {
+        if (control != null) {
+            control.onRow();
+        }
     }
 }
@@ -1,17 +1,24 @@
 package com.example.backend.services;
 
+import com.example.backend.dao.FraudAlertAggregateAssembler;
 import com.example.backend.dao.FraudAlertRepository;
 import com.example.backend.entities.dto.*;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.example.backend.utils.XlsxStreamWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class FraudAlertService {
@@ -19,6 +26,23 @@ public class FraudAlertService {
     @Autowired
     private FraudAlertRepository fraudAlertRepository;
 
+    @Autowired
+    private PartitionedExportService partitionedExportService;
+
+    @Autowired
+    private DistinctMsisdnSketchService distinctMsisdnSketchService;
+
+    // Order of the forEachAlertAggregate rows: msisdn (byte order, NULL last as in PostgreSQL), then rule
+    private static final Comparator<Object[]> ALERT_AGGREGATE_ORDER = Comparator
+            .comparing((Object[] row) -> (String) row[0], Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .thenComparingLong(row -> ((Number) row[1]).longValue());
+
+    @Value("${fraud-alert.export.excel-window-size:500}")
+    private int excelWindowSize;
+
+    @Value("${fraud-alert.export.compress-temp-files:true}")
+    private boolean compressTempFiles;
+
     public List<FraudAlertResponseDTO> getFraudAlerts(String startDate, String endDate) {
         return fraudAlertRepository.getFraudAlerts(startDate, endDate);
     }
@@ -27,6 +51,35 @@ public class FraudAlertService {
         return fraudAlertRepository.getFraudAlertDetails(startDate, endDate,msisdn);
     }
 
+    public void forEachFraudAlertWithDetails(String startDate, String endDate, Consumer<FraudAlertResponseDTO> consumer) {
+        forEachFraudAlertWithDetails(startDate, endDate, null, consumer);
+    }
+
+    /**
+     * Alerts with their details, one MSISDN at a time (exports). Long windows are queried as concurrent
+     * date partitions merged back in MSISDN order, shorter ones as a single ordered query.
+     *
+     * @param control cancels the queries of the export when the job is cancelled, may be null
+     */
+    public void forEachFraudAlertWithDetails(String startDate, String endDate, JobControl control,
+                                             Consumer<FraudAlertResponseDTO> consumer) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        if (!partitionedExportService.isPartitioned(start, end)) {
+            fraudAlertRepository.forEachFraudAlertWithDetails(startDate, endDate,
+                    control != null ? control::onStatement : null, consumer);
+            return;
+        }
+
+        FraudAlertAggregateAssembler assembler =
+                new FraudAlertAggregateAssembler(fraudAlertRepository.getRuleNames(), consumer);
+        partitionedExportService.<Object[]>forEachMerged(start, end,
+                (range, onStatement, rows) -> fraudAlertRepository.forEachAlertAggregate(
+                        range.getStart(), range.getEnd(), onStatement, rows),
+                ALERT_AGGREGATE_ORDER, () -> control != null && control.isCancelled(), assembler);
+        assembler.finish();
+    }
+
     public List<WarningResponseDTO> getWarnings(String startDate, String endDate) {
         List<WarningResponseDTO> warnings = fraudAlertRepository.getWarnings(startDate, endDate);
         return warnings;
@@ -38,15 +91,108 @@ public class FraudAlertService {
     }
 
 
+    // Rule-level page, the total is the (cheap) count of active rules; details are loaded per rule on demand
     public Page<WarningResponseDTO> getWarningsV2(String startDate, String endDate, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("last_date_detection").descending());
+        Pageable pageable = PageRequest.of(page, size);
+
+        List<WarningResponseDTO> warnings = fraudAlertRepository.getWarningsPage(
+                startDate, endDate, null, null, size, pageable.getOffset());
+
+        return new PageImpl<>(warnings, pageable, fraudAlertRepository.countWarnings());
+    }
+
+    // Keyset page after (afterTime, afterRuleId); one extra row tells whether another page exists
+    public WarningCursorPageDTO getWarningsAfter(String startDate, String endDate, LocalDateTime afterTime,
+                                                 Long afterRuleId, int size) {
+        if (afterTime != null && afterRuleId == null) {
+            throw new IllegalArgumentException("afterTime requires afterRuleId");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+
+        List<WarningResponseDTO> warnings = fraudAlertRepository.getWarningsPage(
+                startDate, endDate, afterTime, afterRuleId, size + 1, 0);
+        boolean hasNext = warnings.size() > size;
+        if (hasNext) {
+            warnings = warnings.subList(0, size);
+        }
 
-        List<WarningResponseDTO> warningsList = fraudAlertRepository.getWarningsV2(startDate, endDate, pageable);
+        WarningCursorPageDTO page = WarningCursorPageDTO.builder()
+                .content(warnings)
+                .size(size)
+                .hasNext(hasNext)
+                .build();
 
-        int start = Math.min((int) pageable.getOffset(), warningsList.size());
-        int end = Math.min(start + pageable.getPageSize(), warningsList.size());
+        if (hasNext) {
+            WarningResponseDTO last = warnings.get(warnings.size() - 1);
+            page.setNextAfterTime(last.getLastDateDetection());
+            page.setNextAfterRuleId(last.getRuleId());
+        }
+        return page;
+    }
 
-        return new PageImpl<>(warningsList.subList(start, end), pageable, warningsList.size());
+    public Page<WarningDetailDTO> getWarningsDetails(Long ruleId, String startDate, String endDate, int page, int size) {
+        return getWarningsDetails(ruleId, startDate, endDate, page, size, false);
+    }
+
+    /**
+     * @param approximate total estimated from the distinct MSISDN sketches instead of COUNT(DISTINCT msisdn),
+     *                    when they cover the window
+     */
+    public Page<WarningDetailDTO> getWarningsDetails(Long ruleId, String startDate, String endDate, int page, int size,
+                                                     boolean approximate) {
+        Pageable pageable = PageRequest.of(page, size);
+
+        List<WarningDetailDTO> details = fraudAlertRepository.getWarningDetails(
+                ruleId, startDate, endDate, size, pageable.getOffset());
+
+        Map<Integer, Long> estimate = approximate
+                ? distinctMsisdnSketchService.estimateDistinctMsisdns(Collections.singletonList(ruleId.intValue()),
+                        LocalDate.parse(startDate), LocalDate.parse(endDate))
+                : null;
+        // Windows the sketches do not cover are counted exactly
+        long total = estimate != null
+                ? estimate.get(ruleId.intValue())
+                : fraudAlertRepository.countWarningDetails(ruleId, startDate, endDate);
+        return new PageImpl<>(details, pageable, total);
+    }
+
+    /**
+     * Distinct MSISDNs alerted by each rule over the window, in the order of ruleIds
+     *
+     * @param approximate merge the per-day HyperLogLog sketches instead of COUNT(DISTINCT msisdn), when
+     *                    they cover the window
+     */
+    public List<RuleDistinctMsisdnsDTO> getDistinctMsisdns(List<Integer> ruleIds, String startDate, String endDate,
+                                                           boolean approximate) {
+        if (ruleIds == null || ruleIds.isEmpty()) {
+            throw new IllegalArgumentException("ruleIds must not be empty");
+        }
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+
+        Map<Integer, Long> estimate = approximate
+                ? distinctMsisdnSketchService.estimateDistinctMsisdns(ruleIds, start, end)
+                : null;
+        // Windows the sketches do not cover are counted exactly, and reported as such
+        boolean estimated = estimate != null;
+        Map<Integer, Long> counts = estimated
+                ? estimate
+                : fraudAlertRepository.countDistinctMsisdnsByRule(ruleIds, start, end);
+        Double error = estimated ? distinctMsisdnSketchService.getRelativeStandardError() : null;
+
+        return ruleIds.stream().distinct()
+                .map(ruleId -> RuleDistinctMsisdnsDTO.builder()
+                        .ruleId(ruleId.longValue())
+                        .distinctMsisdns(counts.getOrDefault(ruleId, 0L))
+                        .approximate(estimated)
+                        .relativeStandardError(error)
+                        .build())
+                .collect(Collectors.toList());
     }
 
     public List<WarningParamsDto> getWarningParams(String msisdn, Integer idRule){
@@ -87,63 +233,42 @@ public class FraudAlertService {
     }
 
     // ✅ Export to XLSX
+    // Rows go through the SXSSF window as the query is read, only the finished (zipped) document is held in memory
     public byte[] exportToXlsx(String startDate, String endDate) throws IOException {
-        List<FraudAlertResponseDTO> fraudAlerts = getFraudAlerts(startDate, endDate);
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Fraud Alerts");
-
-        // 🎨 Header Row
-        Row headerRow = sheet.createRow(0);
         String[] columns = {"MSISDN", "Unique Rules", "Total Alerts", "First Detection", "Last Detection",
                 "Rule Name", "Rule ID", "Start Date", "End Date", "Detection Date", "Occurrences", "Extra Date"};
 
-        // Style header
-        CellStyle headerStyle = getHeaderCellStyle(workbook);
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(columns[i]);
-            cell.setCellStyle(headerStyle);
-        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (XlsxStreamWriter writer = new XlsxStreamWriter(outputStream, "Fraud Alerts", columns,
+                excelWindowSize, compressTempFiles)) {
+            forEachFraudAlertWithDetails(startDate, endDate, alert -> {
+                boolean firstRow = true;
+                for (FraudAlertDetailDTO detail : alert.getDetails()) {
+                    writer.startRow();
 
-        // 📌 Fill Data
-        int rowIdx = 1;
-        for (FraudAlertResponseDTO alert : fraudAlerts) {
-            boolean firstRow = true;
-            for (FraudAlertDetailDTO detail : alert.getDetails()) {
-                Row row = sheet.createRow(rowIdx++);
-
-                if (firstRow) {
-                    row.createCell(0).setCellValue(alert.getMsisdn());
-                    row.createCell(1).setCellValue(alert.getUniqueRules());
-                    row.createCell(2).setCellValue(alert.getTotalAlerts());
-                    row.createCell(3).setCellValue(alert.getFirstDateDetection().toString());
-                    row.createCell(4).setCellValue(alert.getLastDateDetection().toString());
-                    firstRow = false;
-                }
+                    // 📌 Summary only on the first row of each MSISDN
+                    if (firstRow) {
+                        writer.text(alert.getMsisdn())
+                                .number(alert.getUniqueRules())
+                                .number(alert.getTotalAlerts())
+                                .dateTime(alert.getFirstDateDetection())
+                                .dateTime(alert.getLastDateDetection());
+                        firstRow = false;
+                    } else {
+                        writer.skip().skip().skip().skip().skip();
+                    }
 
-                row.createCell(5).setCellValue(detail.getRuleName());
-                row.createCell(6).setCellValue(detail.getRuleId());
-                row.createCell(7).setCellValue(detail.getStartDate());
-                row.createCell(8).setCellValue(detail.getEndDate());
-                row.createCell(9).setCellValue(detail.getDetectionDate().toString());
-                row.createCell(10).setCellValue(detail.getOccurrences());
-                row.createCell(11).setCellValue(detail.getDatee());
-            }
+                    writer.text(detail.getRuleName())
+                            .number(detail.getRuleId())
+                            .text(detail.getStartDate())
+                            .text(detail.getEndDate())
+                            .dateTime(detail.getDetectionDate())
+                            .number(detail.getOccurrences())
+                            .text(detail.getDatee());
+                }
+            });
+            writer.finish();
         }
-
-        // Convert to Byte Array
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
         return outputStream.toByteArray();
     }
-
-    // 🎨 Header Styling
-    private CellStyle getHeaderCellStyle(Workbook workbook) {
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        headerStyle.setFont(font);
-        return headerStyle;
-    }
 }
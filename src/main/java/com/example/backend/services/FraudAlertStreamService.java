@@ -0,0 +1,375 @@
+package com.example.backend.services;
+
+import com.example.backend.dao.FraudAlertRepository;
+import com.example.backend.entities.dto.AlertStreamEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live feed of the new stat.alerte_fraude_seq rows, pushed as Server-Sent Events.
+ *
+ * - One scheduled poller follows a (date_detection, id) cursor for every subscriber, and only queries
+ *   while somebody listens. The feed starts at the subscribe time of the oldest subscriber
+ * - Each poll reads again the last overlap-ms before the newest alert sent and skips the ids already
+ *   sent, so rows committed late (with an older date_detection) and rows sharing a date_detection
+ *   across polls are still delivered
+ * - A poll finding more than max-rows-per-poll rows does not push them: subscribers get a single
+ *   "resync" event with the window to reload instead
+ * - Each subscriber has a bounded buffer, filtered on its rule / category ids and drained by a small
+ *   sender pool, so a slow client never holds the poller. A full buffer drops its oldest alerts and
+ *   the loss is reported as one "dropped" event with the count
+ * - Comment heartbeats keep idle connections open through proxies and reveal closed clients
+ */
+@Service
+@Slf4j
+public class FraudAlertStreamService {
+
+    public static final String ALERT_EVENT = "alert";
+    public static final String DROPPED_EVENT = "dropped";
+    public static final String RESYNC_EVENT = "resync";
+
+    @Autowired
+    private FraudAlertRepository fraudAlertRepository;
+
+    @Value("${fraud-alert.stream.max-clients:200}")
+    private int maxClients;
+
+    @Value("${fraud-alert.stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${fraud-alert.stream.max-rows-per-poll:5000}")
+    private int maxRowsPerPoll;
+
+    @Value("${fraud-alert.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${fraud-alert.stream.heartbeat-ms:20000}")
+    private long heartbeatMs;
+
+    @Value("${fraud-alert.stream.sender-threads:2}")
+    private int senderThreads;
+
+    @Value("${fraud-alert.stream.overlap-ms:60000}")
+    private long overlapMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Position of the feed, only touched by the poller, null while nobody listens
+    private FeedCursor cursor;
+
+    private ThreadPoolExecutor sender;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // At most one drain task is queued per subscriber, so the queue is bounded by max-clients
+        sender = new ThreadPoolExecutor(
+                senderThreads, senderThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fraud-alert-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        sender.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        sender.shutdownNow();
+    }
+
+    /**
+     * Register a subscriber receiving the alerts detected from now on
+     *
+     * @param ruleIds rules to receive, empty for all of them
+     * @param categoryIds rule categories to receive, empty for all of them
+     * @throws RejectedExecutionException when max-clients subscribers are already connected
+     */
+    public SseEmitter subscribe(Set<Integer> ruleIds, Set<Integer> categoryIds) {
+        if (subscribers.size() >= maxClients) {
+            throw new RejectedExecutionException("Alert stream is full (" + maxClients + " subscribers)");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, ruleIds, categoryIds, bufferSize);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.add(subscriber);
+
+        // Sent as soon as the response starts, so the client sees the stream open before the first alert
+        subscriber.offerFirst(SseEmitter.event().comment("subscribed"));
+        schedule(subscriber);
+
+        log.debug("Alert stream subscriber added (rules {}, categories {}), {} connected",
+                ruleIds, categoryIds, subscribers.size());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedDelayString = "${fraud-alert.stream.poll-interval-ms:2000}")
+    public void poll() {
+        if (subscribers.isEmpty()) {
+            cursor = null;
+            return;
+        }
+
+        try {
+            if (cursor == null) {
+                cursor = new FeedCursor(oldestSubscription(), overlapMs);
+            }
+            publish(cursor);
+        } catch (Exception e) {
+            log.warn("Alert stream poll failed: {}", e.getMessage());
+        }
+
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatIfIdle(now, heartbeatMs);
+            schedule(subscriber);
+        }
+    }
+
+    private void publish(FeedCursor cursor) {
+        List<AlertStreamEventDTO> alerts = cursor.next(fraudAlertRepository, maxRowsPerPoll);
+        if (alerts.isEmpty()) {
+            return;
+        }
+
+        if (alerts.size() > maxRowsPerPoll) {
+            Timestamp last = fraudAlertRepository.findLastDetection();
+            Map<String, Object> window = new LinkedHashMap<>();
+            window.put("from", alerts.get(0).getDateDetection().toString());
+            window.put("to", last.toLocalDateTime().toString());
+            for (Subscriber subscriber : subscribers) {
+                subscriber.resync(SseEmitter.event().name(RESYNC_EVENT).data(window));
+            }
+            log.info("Alert stream: more than {} alerts since {}, subscribers asked to resync",
+                    maxRowsPerPoll, alerts.get(0).getDateDetection());
+            cursor.skipThrough(last);
+            return;
+        }
+
+        for (AlertStreamEventDTO alert : alerts) {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.accepts(alert)) {
+                    subscriber.offer(SseEmitter.event().name(ALERT_EVENT).data(alert));
+                }
+            }
+        }
+        cursor.markSent(alerts);
+    }
+
+    private Timestamp oldestSubscription() {
+        long oldest = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            oldest = Math.min(oldest, subscriber.subscribedAt);
+        }
+        return new Timestamp(oldest);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.hasPending() || !subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed && (event = subscriber.next()) != null) {
+                subscriber.emitter.send(event);
+                subscriber.lastSentAt = System.currentTimeMillis();
+            }
+        } catch (Exception e) {
+            // Client gone, the container reports the error to the emitter
+            log.debug("Alert stream subscriber dropped: {}", e.getMessage());
+            remove(subscriber);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // Events offered between the last next() and the flag reset
+        if (!subscriber.closed) {
+            schedule(subscriber);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.close();
+        if (subscribers.remove(subscriber)) {
+            log.debug("Alert stream subscriber removed, {} connected", subscribers.size());
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<Integer> ruleIds;
+        private final Set<Integer> categoryIds;
+        private final int capacity;
+        private final Deque<SseEmitter.SseEventBuilder> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private long dropped;
+        private volatile boolean closed;
+        private volatile long lastSentAt = System.currentTimeMillis();
+        private final long subscribedAt = System.currentTimeMillis();
+
+        Subscriber(SseEmitter emitter, Set<Integer> ruleIds, Set<Integer> categoryIds, int capacity) {
+            this.emitter = emitter;
+            this.ruleIds = ruleIds != null ? ruleIds : Collections.<Integer>emptySet();
+            this.categoryIds = categoryIds != null ? categoryIds : Collections.<Integer>emptySet();
+            this.capacity = capacity;
+        }
+
+        boolean accepts(AlertStreamEventDTO alert) {
+            return (ruleIds.isEmpty() || ruleIds.contains(alert.getRuleId()))
+                    && (categoryIds.isEmpty() || categoryIds.contains(alert.getCategoryId()));
+        }
+
+        synchronized void offer(SseEmitter.SseEventBuilder event) {
+            if (buffer.size() >= capacity) {
+                buffer.pollFirst();
+                dropped++;
+            }
+            buffer.addLast(event);
+        }
+
+        synchronized void offerFirst(SseEmitter.SseEventBuilder event) {
+            buffer.addFirst(event);
+        }
+
+        // The client reloads the window, whatever is still buffered is superseded
+        synchronized void resync(SseEmitter.SseEventBuilder event) {
+            buffer.clear();
+            dropped = 0;
+            buffer.addLast(event);
+        }
+
+        synchronized void heartbeatIfIdle(long now, long heartbeatMs) {
+            if (buffer.isEmpty() && now - lastSentAt >= heartbeatMs) {
+                buffer.addLast(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+
+        // The drop count goes out before the alerts that survived it
+        synchronized SseEmitter.SseEventBuilder next() {
+            if (dropped > 0) {
+                SseEmitter.SseEventBuilder event = SseEmitter.event().name(DROPPED_EVENT)
+                        .data(Collections.singletonMap("count", dropped));
+                dropped = 0;
+                return event;
+            }
+            return buffer.pollFirst();
+        }
+
+        synchronized boolean hasPending() {
+            return dropped > 0 || !buffer.isEmpty();
+        }
+
+        synchronized void close() {
+            closed = true;
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Position of the feed: the rows at or below the floor row key are never sent, the ids sent within
+     * overlap-ms of the newest date_detection sent are remembered to skip them when read again
+     */
+    static final class FeedCursor {
+        private final long overlapMs;
+        private final Map<Long, Timestamp> sent = new HashMap<>();
+        private Timestamp floorDetection;
+        private long floorId;
+        private Timestamp newest;
+
+        FeedCursor(Timestamp start, long overlapMs) {
+            this.overlapMs = overlapMs;
+            // Every row detected at or after start is above the floor
+            this.floorDetection = start;
+            this.floorId = Long.MIN_VALUE;
+            this.newest = start;
+        }
+
+        Timestamp since() {
+            Timestamp since = new Timestamp(newest.getTime() - overlapMs);
+            return since.before(floorDetection) ? floorDetection : since;
+        }
+
+        /**
+         * Alerts of the feed not sent yet, oldest first; more than maxRows of them means the feed fell
+         * behind (only maxRows + 1 are read)
+         */
+        List<AlertStreamEventDTO> next(FraudAlertRepository repository, int maxRows) {
+            // Every id already sent may come back from the overlap, on top of the new rows
+            List<AlertStreamEventDTO> rows = repository.getAlertsDetectedSince(
+                    since(), floorDetection, floorId, maxRows + 1 + sent.size());
+            List<AlertStreamEventDTO> unsent = new ArrayList<>(rows.size());
+            for (AlertStreamEventDTO row : rows) {
+                if (!sent.containsKey(row.getId())) {
+                    unsent.add(row);
+                }
+            }
+            return unsent;
+        }
+
+        void markSent(List<AlertStreamEventDTO> alerts) {
+            for (AlertStreamEventDTO alert : alerts) {
+                Timestamp detection = Timestamp.valueOf(alert.getDateDetection());
+                sent.put(alert.getId(), detection);
+                if (detection.after(newest)) {
+                    newest = detection;
+                }
+            }
+            Timestamp since = since();
+            sent.values().removeIf(detection -> detection.before(since));
+        }
+
+        // After a resync the clients reload everything up to last themselves
+        void skipThrough(Timestamp last) {
+            floorDetection = last;
+            floorId = Long.MAX_VALUE;
+            if (last.after(newest)) {
+                newest = last;
+            }
+            sent.clear();
+        }
+    }
+}
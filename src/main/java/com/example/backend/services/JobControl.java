@@ -0,0 +1,67 @@
+package com.example.backend.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and cancellation handle shared between a background job and the query it runs.
+ *
+ * The job registers every JDBC statement it executes, so cancel() can call Statement.cancel()
+ * and stop the query server-side instead of waiting for it to finish.
+ */
+@Slf4j
+public class JobControl {
+
+    private final AtomicLong rowsProcessed = new AtomicLong();
+
+    private volatile boolean cancelled;
+    private volatile Statement statement;
+
+    public void onStatement(Statement statement) {
+        this.statement = statement;
+        if (cancelled) {
+            cancelStatement();
+        }
+    }
+
+    public void onRow() {
+        rowsProcessed.incrementAndGet();
+        checkCancelled();
+    }
+
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Job cancelled");
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        cancelStatement();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed.get();
+    }
+
+    private void cancelStatement() {
+        Statement current = statement;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.cancel();
+        } catch (SQLException e) {
+            // Already closed or finished, nothing left to stop
+            log.debug("Statement cancel failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.backend.services;
+
+import com.example.backend.utils.CoalescingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived LRU of the merged event scan per (msisdn, start date, end date)
+ *
+ * The investigation screen opens the timeline, detections and decision timeline tabs of the same
+ * MSISDN together: the first tab runs the scan, the others are served from (or wait for) its result.
+ */
+@Component
+public class MsisdnHistoryCache {
+
+    @Value("${rule-validation.msisdn-history.cache-size:256}")
+    private int maxEntries;
+
+    @Value("${rule-validation.msisdn-history.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    // Keyed by (msisdn, start date, end date)
+    private CoalescingCache<List<Object>, List<MsisdnTimelineEvent>> entries;
+
+    @PostConstruct
+    void init() {
+        entries = new CoalescingCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    /**
+     * Return the events of the window, running the loader once for all concurrent callers
+     */
+    List<MsisdnTimelineEvent> get(String msisdn, LocalDate startDate, LocalDate endDate,
+                                  Supplier<List<MsisdnTimelineEvent>> loader) {
+        return entries.get(CoalescingCache.key(msisdn, startDate, endDate), loader);
+    }
+
+    /**
+     * Drop every window of the MSISDN, after one of its decisions was edited
+     */
+    public void invalidate(String msisdn) {
+        if (msisdn == null) {
+            return;
+        }
+        entries.invalidateIf(key -> msisdn.equals(key.get(0)));
+    }
+}
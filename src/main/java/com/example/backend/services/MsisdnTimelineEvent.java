@@ -0,0 +1,42 @@
+package com.example.backend.services;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the merged alert/decision scan of an MSISDN, in event time order.
+ *
+ * ALERT rows are the alerts of one rule at one detection time, DECISION rows one decision_fraude row.
+ * The running totals count every alert of the MSISDN up to the event time, including those before the window.
+ */
+@Value
+@Builder
+class MsisdnTimelineEvent {
+
+    static final String ALERT = "ALERT";
+    static final String DECISION = "DECISION";
+
+    String eventType;
+    LocalDateTime eventTime;
+    Integer ruleId;
+    String ruleName;
+    String ruleType;
+    String ruleCategory;
+    int alertCount;
+
+    // DECISION rows only
+    String decision;
+    String decisionUser;
+    String previousDecision;
+    LocalDateTime previousDecisionTime;
+    String previousDecisionRuleName;
+
+    int rulesTriggeredAtTime;
+    int alertsAtTime;
+
+    boolean isAlert() {
+        return ALERT.equals(eventType);
+    }
+}
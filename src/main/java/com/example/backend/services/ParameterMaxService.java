@@ -0,0 +1,80 @@
+package com.example.backend.services;
+
+import com.example.backend.dao.ParameterMaxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps stat.regle_parametres_max up to date from its high-water mark.
+ *
+ * Each run folds the complete days after the watermark (at most max-days-per-run, so the initial
+ * backfill is spread over several runs), the last lookback-days already folded, and the current day
+ * so far. Read paths see values at most one interval old.
+ */
+@Service
+@Slf4j
+public class ParameterMaxService {
+
+    @Autowired
+    private ParameterMaxRepository parameterMaxRepository;
+
+    @Value("${param-max.enabled:false}")
+    private boolean enabled;
+
+    @Value("${param-max.lookback-days:1}")
+    private int lookbackDays;
+
+    @Value("${param-max.max-days-per-run:31}")
+    private int maxDaysPerRun;
+
+    @Scheduled(initialDelayString = "${param-max.initial-delay-ms:90000}",
+               fixedDelayString = "${param-max.interval-ms:900000}")
+    public void refresh() {
+        try {
+            LocalDate watermark = parameterMaxRepository.loadWatermark();
+            if (enabled) {
+                watermark = refreshPendingDays(watermark);
+            }
+            // Instances with the job disabled still follow the watermark written by the others
+            parameterMaxRepository.setRefreshedThrough(watermark);
+        } catch (Exception e) {
+            log.warn("Parameter max refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private LocalDate refreshPendingDays(LocalDate watermark) {
+        LocalDate today = LocalDate.now();
+
+        LocalDate from = watermark != null
+                ? watermark.plusDays(1).minusDays(Math.max(lookbackDays, 0))
+                : parameterMaxRepository.findFirstValueDay();
+        if (from == null) {
+            return watermark;
+        }
+
+        LocalDate to = from.plusDays(maxDaysPerRun - 1L);
+        if (to.isAfter(today)) {
+            to = today;
+        }
+
+        long startTime = System.currentTimeMillis();
+        LocalDate refreshed = watermark;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            boolean complete = day.isBefore(today);
+            int rows = parameterMaxRepository.refreshDay(day, complete);
+            log.debug("Folded {} parameter maxima for {}", rows, day);
+            if (complete && (refreshed == null || day.isAfter(refreshed))) {
+                refreshed = day;
+            }
+        }
+
+        log.info("Parameter max refreshed {} to {} in {}ms, complete through {}",
+                from, to, System.currentTimeMillis() - startTime, refreshed);
+        return refreshed;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.backend.services;
+
+import com.example.backend.utils.ExportPartitionPlanner;
+import com.example.backend.utils.ExportPartitionPlanner.DateRange;
+import com.example.backend.utils.OrderedMerge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs an export query over date partitions of its window concurrently and merges them back in order.
+ *
+ * Each partition holds a database connection until its cursor is drained, so all exports share a
+ * budget of max-connections: an export takes one permit (waiting for it if needed) plus whatever is
+ * free up to the budget, and gets as many partitions as permits. Taking all its permits up front
+ * means an export never waits on a partition that cannot start, whatever else runs.
+ *
+ * Rule validation exports are not partitioned: their latest-decision and credibility columns are
+ * computed over the whole window and do not add up across date ranges.
+ */
+@Service
+@Slf4j
+public class PartitionedExportService {
+
+    @Value("${fraud-alert.export.partitions.max-connections:4}")
+    private int maxConnections;
+
+    @Value("${fraud-alert.export.partitions.min-days:7}")
+    private int minDays;
+
+    @Value("${fraud-alert.export.partitions.queue-capacity:2000}")
+    private int queueCapacity;
+
+    private Semaphore connections;
+
+    // Threads are bounded by the permits, one per running partition
+    private ExecutorService partitionExecutor;
+
+    @PostConstruct
+    void start() {
+        connections = new Semaphore(Math.max(1, maxConnections), true);
+        AtomicInteger threadCount = new AtomicInteger();
+        partitionExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "export-partition-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        partitionExecutor.shutdownNow();
+    }
+
+    // Windows shorter than min-days stay a single query
+    public boolean isPartitioned(LocalDate startDate, LocalDate endDate) {
+        return maxConnections > 1 && ChronoUnit.DAYS.between(startDate, endDate) + 1 >= minDays;
+    }
+
+    /**
+     * Run query over the partitions of [startDate, endDate] and pass the merged rows to the sink
+     *
+     * @param query     pushes the rows of one partition, in the given order, to the consumer it is handed
+     * @param cancelled true stops the export, the partition queries still running are cancelled
+     */
+    public <T> void forEachMerged(LocalDate startDate, LocalDate endDate, PartitionQuery<T> query,
+                                  Comparator<? super T> order, BooleanSupplier cancelled,
+                                  Consumer<? super T> sink) {
+        connections.acquireUninterruptibly();
+        int permits = 1;
+        while (permits < maxConnections && connections.tryAcquire()) {
+            permits++;
+        }
+
+        try {
+            List<DateRange> ranges = ExportPartitionPlanner.plan(startDate, endDate, permits);
+            List<OrderedMerge.Source<T>> sources = new ArrayList<>(ranges.size());
+            for (DateRange range : ranges) {
+                sources.add((onStatement, rows) -> query.run(range, onStatement, rows));
+            }
+
+            long startTime = System.currentTimeMillis();
+            OrderedMerge.merge(sources, order, partitionExecutor, queueCapacity, cancelled, sink);
+            log.info("Partitioned export {} to {} over {} partitions {} in {}ms",
+                    startDate, endDate, ranges.size(), ranges, System.currentTimeMillis() - startTime);
+        } finally {
+            connections.release(permits);
+        }
+    }
+
+    /**
+     * Query of one partition: registers its statement, then pushes its rows in order
+     */
+    @FunctionalInterface
+    public interface PartitionQuery<T> {
+        void run(DateRange range, Consumer<Statement> onStatement, Consumer<T> rows);
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.backend.services;
+
+import com.example.backend.dao.ParametresReglesFraudeRepository;
+import com.example.backend.dao.StreamingJdbc;
+import com.example.backend.entities.ParametresReglesFraude;
+import com.example.backend.entities.ResourceNotFoundException;
+import com.example.backend.entities.dto.ParameterBacktestDTO;
+import com.example.backend.entities.dto.ParameterBacktestRequestDTO;
+import com.example.backend.utils.CoalescingCache;
+import com.example.backend.utils.CompactTimestamp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Threshold backtesting of rule parameters (vmin / vmax / vegal)
+ *
+ * The values of stat.regle_parametres_valeur_seq for one (rule, parameter) and period are loaded once,
+ * ordered by MSISDN, into two primitive columns (MSISDN ordinal, value). Candidate thresholds are then
+ * evaluated in parallel on a fork/join pool, each one a linear scan of the columns, so a whole curve
+ * costs one query. A MSISDN counts as alerting when at least one of its values meets every set bound.
+ *
+ * Loaded columns (12 bytes a value) are cached up to cache-max-mb, least recently used first out, and
+ * concurrent backtests of the same (rule, parameter, period) share one load.
+ */
+@Service
+@Slf4j
+public class RuleBacktestService {
+
+    public static final String VMIN = "VMIN";
+    public static final String VMAX = "VMAX";
+    public static final String VEGAL = "VEGAL";
+
+    // Candidates per fork/join leaf, each one is a full scan of the columns
+    private static final int SWEEP_LEAF_SIZE = 2;
+
+    @Autowired
+    private ParametresReglesFraudeRepository parametresReglesFraudeRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${rule-backtest.parallelism:0}")
+    private int parallelism;
+
+    @Value("${rule-backtest.default-steps:50}")
+    private int defaultSteps;
+
+    @Value("${rule-backtest.max-thresholds:500}")
+    private int maxThresholds;
+
+    @Value("${rule-backtest.max-days:93}")
+    private int maxDays;
+
+    @Value("${rule-backtest.max-rows:2000000}")
+    private int maxRows;
+
+    @Value("${rule-backtest.fetch-size:10000}")
+    private int fetchSize;
+
+    @Value("${rule-backtest.cache-max-mb:64}")
+    private long cacheMaxMb;
+
+    @Value("${rule-backtest.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    private ForkJoinPool sweepPool;
+
+    // Only the column load runs in a transaction (the fetch size needs one): callers waiting on a shared
+    // load and the sweep hold no connection
+    private TransactionTemplate loadTransaction;
+
+    // Columns per (rule, flow, start date, end date), least recently used out first: analysts sweep the
+    // same period several times in a row
+    private CoalescingCache<List<Object>, ParameterColumns> columnsCache;
+
+    @PostConstruct
+    void init() {
+        sweepPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        loadTransaction = new TransactionTemplate(transactionManager);
+        loadTransaction.setReadOnly(true);
+        columnsCache = new CoalescingCache<>(Integer.MAX_VALUE, cacheMaxMb * 1024 * 1024,
+                ParameterColumns::sizeInBytes, cacheTtlSeconds * 1000);
+    }
+
+    @PreDestroy
+    void stopSweepPool() {
+        sweepPool.shutdownNow();
+    }
+
+    /**
+     * Alert-count curve of the parameter for the candidate thresholds of the requested bound
+     */
+    public ParameterBacktestDTO backtest(ParameterBacktestRequestDTO request) {
+        validateRequest(request);
+        String bound = request.getBound() != null ? request.getBound().trim().toUpperCase() : VMIN;
+        if (!VMIN.equals(bound) && !VMAX.equals(bound) && !VEGAL.equals(bound)) {
+            throw new IllegalArgumentException("Bound must be one of VMIN, VMAX, VEGAL");
+        }
+
+        ParametresReglesFraude parameter = parametresReglesFraudeRepository.findById(request.getParameterId())
+                .orElseThrow(() -> new ResourceNotFoundException("Parameter not found with id=" + request.getParameterId()));
+        if (parameter.getRegle() == null || parameter.getFlow() == null) {
+            throw new IllegalArgumentException("Parameter " + parameter.getId() + " is not linked to a rule and a flow");
+        }
+
+        Integer ruleId = parameter.getRegle().getId();
+        Long flowId = parameter.getFlow().getId();
+
+        long loadStarted = System.currentTimeMillis();
+        ParameterColumns columns = columnsCache.get(
+                CoalescingCache.key(ruleId, flowId, request.getStartDate(), request.getEndDate()),
+                () -> loadTransaction.execute(status ->
+                        loadColumns(ruleId, flowId, request.getStartDate(), request.getEndDate())));
+        long loadMillis = System.currentTimeMillis() - loadStarted;
+
+        int[] thresholds = resolveThresholds(request, columns);
+        Condition current = new Condition(parameter.getVmin(), parameter.getVmax(), parameter.getVegal());
+
+        long sweepStarted = System.currentTimeMillis();
+        long[] counts = new long[thresholds.length];
+        sweepPool.invoke(new SweepTask(columns, current, bound, thresholds, counts, 0, thresholds.length));
+        long currentCount = columns.countMatching(current);
+        long sweepMillis = System.currentTimeMillis() - sweepStarted;
+
+        List<ParameterBacktestDTO.ThresholdPoint> curve = new ArrayList<>(thresholds.length);
+        for (int i = 0; i < thresholds.length; i++) {
+            curve.add(ParameterBacktestDTO.ThresholdPoint.builder()
+                    .threshold(thresholds[i])
+                    .alertingMsisdns(counts[i])
+                    .deltaVsCurrent(counts[i] - currentCount)
+                    .build());
+        }
+
+        log.info("Backtest of parameter {} (rule {}, {}) over {} values: {} thresholds in {} ms (load {} ms)",
+                parameter.getId(), ruleId, bound, columns.size, thresholds.length, sweepMillis, loadMillis);
+
+        return ParameterBacktestDTO.builder()
+                .parameterId(parameter.getId())
+                .ruleId(ruleId)
+                .flowId(flowId)
+                .bound(bound)
+                .startDate(request.getStartDate())
+                .endDate(request.getEndDate())
+                .vmin(parameter.getVmin())
+                .vmax(parameter.getVmax())
+                .vegal(parameter.getVegal())
+                .currentAlertingMsisdns(currentCount)
+                .valuesLoaded((long) columns.size)
+                .distinctMsisdns((long) columns.msisdnCount)
+                .minValue(columns.size > 0 ? columns.minValue : null)
+                .maxValue(columns.size > 0 ? columns.maxValue : null)
+                .curve(curve)
+                .loadMillis(loadMillis)
+                .sweepMillis(sweepMillis)
+                .build();
+    }
+
+    private void validateRequest(ParameterBacktestRequestDTO request) {
+        if (request == null || request.getParameterId() == null) {
+            throw new IllegalArgumentException("Parameter id is required");
+        }
+        if (request.getStartDate() == null || request.getEndDate() == null) {
+            throw new IllegalArgumentException("Start date and end date are required");
+        }
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+        if (ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1 > maxDays) {
+            throw new IllegalArgumentException("Backtest period cannot exceed " + maxDays + " days");
+        }
+        if (request.getThresholds() != null && request.getThresholds().size() > maxThresholds) {
+            throw new IllegalArgumentException("At most " + maxThresholds + " thresholds per backtest");
+        }
+    }
+
+    private int[] resolveThresholds(ParameterBacktestRequestDTO request, ParameterColumns columns) {
+        TreeSet<Integer> candidates = new TreeSet<>();
+        if (request.getThresholds() != null && !request.getThresholds().isEmpty()) {
+            request.getThresholds().stream().filter(Objects::nonNull).forEach(candidates::add);
+        } else if (columns.size > 0) {
+            int steps = Math.max(2, Math.min(request.getSteps() != null ? request.getSteps() : defaultSteps, maxThresholds));
+            long low = (long) Math.floor(columns.minValue);
+            long high = (long) Math.ceil(columns.maxValue);
+            for (int i = 0; i < steps; i++) {
+                long candidate = low + Math.round((double) (high - low) * i / (steps - 1));
+                candidates.add((int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, candidate)));
+            }
+        }
+        return candidates.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Stream the values of the period into the columns, MSISDN ordinals assigned in MSISDN order
+     * (date_debut is a yyMMddHHmmss string, compared as such with the CompactTimestamp bounds)
+     */
+    private ParameterColumns loadColumns(Integer ruleId, Long flowId, LocalDate startDate, LocalDate endDate) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ruleId", ruleId)
+                .addValue("parameterId", flowId)
+                .addValue("fromKey", CompactTimestamp.lowerBound(startDate))
+                .addValue("toKey", CompactTimestamp.upperBound(endDate));
+
+        ColumnsBuilder builder = new ColumnsBuilder(maxRows);
+        StreamingJdbc.named(dataSource, fetchSize).query(
+                "SELECT msisdn, valeur " +
+                "FROM stat.regle_parametres_valeur_seq " +
+                "WHERE id_regle = :ruleId AND id_parametre = :parameterId " +
+                "AND date_debut >= :fromKey AND date_debut < :toKey " +
+                "AND valeur IS NOT NULL " +
+                "ORDER BY msisdn",
+                params,
+                (RowCallbackHandler) rs -> builder.add(rs.getString(1), rs.getDouble(2)));
+        return builder.build();
+    }
+
+    /**
+     * Bounds of a rule parameter, a null bound is not checked
+     */
+    private static final class Condition {
+        private final double low;
+        private final double high;
+        private final boolean hasEqual;
+        private final double equal;
+
+        Condition(Integer vmin, Integer vmax, Integer vegal) {
+            this.low = vmin != null ? vmin : Double.NEGATIVE_INFINITY;
+            this.high = vmax != null ? vmax : Double.POSITIVE_INFINITY;
+            this.hasEqual = vegal != null;
+            this.equal = vegal != null ? vegal : 0;
+        }
+
+        private Condition(double low, double high, boolean hasEqual, double equal) {
+            this.low = low;
+            this.high = high;
+            this.hasEqual = hasEqual;
+            this.equal = equal;
+        }
+
+        Condition with(String bound, int threshold) {
+            if (VMIN.equals(bound)) {
+                return new Condition(threshold, high, hasEqual, equal);
+            }
+            if (VMAX.equals(bound)) {
+                return new Condition(low, threshold, hasEqual, equal);
+            }
+            return new Condition(low, high, true, threshold);
+        }
+    }
+
+    /**
+     * Values of one (rule, parameter, period) as parallel primitive arrays, grouped by MSISDN
+     */
+    private static final class ParameterColumns {
+        private final int[] msisdnOrdinals;
+        private final double[] values;
+        private final int size;
+        private final int msisdnCount;
+        private final double minValue;
+        private final double maxValue;
+
+        ParameterColumns(int[] msisdnOrdinals, double[] values, int size, int msisdnCount,
+                         double minValue, double maxValue) {
+            this.msisdnOrdinals = msisdnOrdinals;
+            this.values = values;
+            this.size = size;
+            this.msisdnCount = msisdnCount;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        long sizeInBytes() {
+            return msisdnOrdinals.length * 4L + values.length * 8L;
+        }
+
+        /**
+         * Distinct MSISDNs with at least one matching value; rows of a MSISDN are contiguous so
+         * remembering the last counted ordinal is enough
+         */
+        long countMatching(Condition condition) {
+            long count = 0;
+            int lastCounted = -1;
+            for (int i = 0; i < size; i++) {
+                double value = values[i];
+                if (value >= condition.low && value <= condition.high
+                        && (!condition.hasEqual || value == condition.equal)) {
+                    int ordinal = msisdnOrdinals[i];
+                    if (ordinal != lastCounted) {
+                        lastCounted = ordinal;
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    private static final class ColumnsBuilder {
+        private final int maxRows;
+        private int[] msisdnOrdinals = new int[1024];
+        private double[] values = new double[1024];
+        private int size;
+        private int msisdnCount;
+        private String previousMsisdn;
+        private double minValue = Double.POSITIVE_INFINITY;
+        private double maxValue = Double.NEGATIVE_INFINITY;
+
+        ColumnsBuilder(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        void add(String msisdn, double value) {
+            if (size == maxRows) {
+                throw new IllegalArgumentException("More than " + maxRows + " parameter values in the period, narrow it");
+            }
+            if (size == values.length) {
+                int capacity = (int) Math.min((long) size * 2, maxRows);
+                msisdnOrdinals = Arrays.copyOf(msisdnOrdinals, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            if (previousMsisdn == null || !previousMsisdn.equals(msisdn)) {
+                previousMsisdn = msisdn;
+                msisdnCount++;
+            }
+            msisdnOrdinals[size] = msisdnCount - 1;
+            values[size] = value;
+            size++;
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+        }
+
+        // Arrays trimmed to the values read, the cache keeps them for cache-ttl-seconds
+        ParameterColumns build() {
+            return new ParameterColumns(Arrays.copyOf(msisdnOrdinals, size), Arrays.copyOf(values, size),
+                    size, msisdnCount, minValue, maxValue);
+        }
+    }
+
+    private static final class SweepTask extends RecursiveAction {
+        private final ParameterColumns columns;
+        private final Condition current;
+        private final String bound;
+        private final int[] thresholds;
+        private final long[] counts;
+        private final int from;
+        private final int to;
+
+        SweepTask(ParameterColumns columns, Condition current, String bound,
+                  int[] thresholds, long[] counts, int from, int to) {
+            this.columns = columns;
+            this.current = current;
+            this.bound = bound;
+            this.thresholds = thresholds;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SWEEP_LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    counts[i] = columns.countMatching(current.with(bound, thresholds[i]));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(columns, current, bound, thresholds, counts, from, middle),
+                    new SweepTask(columns, current, bound, thresholds, counts, middle, to));
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package com.example.backend.services;
+
+import com.example.backend.dao.RuleBitmapRepository;
+import com.example.backend.entities.dto.BitmapExpressionDTO;
+import com.example.backend.entities.dto.BitmapQueryResultDTO;
+import com.example.backend.entities.dto.RuleOverlapMatrixDTO;
+import com.example.backend.utils.CompressedBitmap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory bitmap index of the MSISDNs alerted per (rule, day), for set queries the rule validation
+ * cannot express without self-joins ("rule A and rule B but not whitelisted", rule overlap matrices).
+ *
+ * - MSISDNs get dense int ordinals in order of appearance, so the Roaring-style bitmaps stay compact
+ * - A scheduled refresh builds the days of the retention window not built yet (at most max-days-per-run
+ *   per run), rebuilds the last lookback-days for late alerts and the current day so far
+ * - The whitelist / blacklist bitmaps only hold indexed MSISDNs: the latest decision is looked up for the
+ *   MSISDNs new to the index, and the decisions taken since the previous refresh are applied
+ * - When days age out, the dictionary is rebuilt from the MSISDNs still indexed and the bitmaps renumbered
+ * - Each refresh publishes a new snapshot of the index, queries read one snapshot throughout
+ */
+@Service
+@Slf4j
+public class RuleBitmapIndexService {
+
+    public static final String WHITELIST = "WHITELIST";
+    public static final String BLACKLIST = "BLACKLIST";
+
+    private static final int MAX_EXPRESSION_DEPTH = 32;
+    private static final int MAX_OVERLAP_RULES = 100;
+
+    // New MSISDNs looked up per decision query; past NEW_MSISDNS_FULL_SCAN of them, one scan is cheaper
+    private static final int DECISION_LOOKUP_BATCH = 1000;
+    private static final int NEW_MSISDNS_FULL_SCAN = 50_000;
+    // Decisions re-read before the previous refresh, for transactions committed late
+    private static final long DECISION_OVERLAP_MINUTES = 60;
+
+    @Autowired
+    private RuleBitmapRepository ruleBitmapRepository;
+
+    @Value("${rule-bitmap.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rule-bitmap.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${rule-bitmap.lookback-days:1}")
+    private int lookbackDays;
+
+    @Value("${rule-bitmap.max-days-per-run:31}")
+    private int maxDaysPerRun;
+
+    // Published state, replaced as a whole by each refresh
+    private volatile Snapshot snapshot = new Snapshot(new TreeMap<>(), new MsisdnOrdinals(),
+            CompressedBitmap.empty(), CompressedBitmap.empty());
+
+    // Refresh state, only touched by the scheduler thread and replaced once a refresh succeeds
+    private Decisions decisions = new Decisions();
+    private LocalDateTime decisionsCheckedAt;
+
+    // Last complete day built, null before the first refresh
+    private volatile LocalDate builtThrough;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(initialDelayString = "${rule-bitmap.initial-delay-ms:60000}",
+               fixedDelayString = "${rule-bitmap.interval-ms:300000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime refreshStart = LocalDateTime.now();
+            LocalDate today = refreshStart.toLocalDate();
+            LocalDate retentionStart = today.minusDays(retentionDays - 1L);
+
+            Snapshot current = snapshot;
+            NavigableMap<LocalDate, Map<Integer, CompressedBitmap>> days = new TreeMap<>(current.days);
+            MsisdnOrdinals ordinals = current.ordinals;
+            Decisions next = decisions.copy();
+            if (!days.headMap(retentionStart).isEmpty()) {
+                days.headMap(retentionStart).clear();
+                ordinals = compact(days, ordinals, next);
+            }
+
+            LocalDate from = builtThrough != null
+                    ? builtThrough.plusDays(1).minusDays(Math.max(lookbackDays, 0))
+                    : retentionStart;
+            if (from.isBefore(retentionStart)) {
+                from = retentionStart;
+            }
+            LocalDate to = from.plusDays(maxDaysPerRun - 1L);
+            if (to.isAfter(today)) {
+                to = today;
+            }
+
+            long startTime = System.currentTimeMillis();
+            LocalDate built = builtThrough;
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                days.put(day, buildDay(day, ordinals));
+                if (day.isBefore(today) && (built == null || day.isAfter(built))) {
+                    built = day;
+                }
+            }
+            loadDecisions(ordinals, next);
+
+            snapshot = new Snapshot(days, ordinals, next.whitelist(), next.blacklist());
+            decisions = next;
+            decisionsCheckedAt = refreshStart;
+            builtThrough = built;
+
+            log.info("Rule bitmaps refreshed {} to {} in {}ms: {} days, {} MSISDN ordinals, ~{} KB",
+                    from, to, System.currentTimeMillis() - startTime, days.size(), ordinals.size(),
+                    snapshot.sizeInBytes() / 1024);
+        } catch (Exception e) {
+            log.warn("Rule bitmap refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Count and first limit MSISDNs (in ordinal order) of the expression over the days [startDate, endDate]
+     *
+     * @throws IllegalArgumentException for a malformed expression or window
+     */
+    public BitmapQueryResultDTO evaluate(BitmapExpressionDTO expression, LocalDate startDate, LocalDate endDate,
+                                         int limit) {
+        checkWindow(startDate, endDate);
+        if (limit < 0 || limit > 100_000) {
+            throw new IllegalArgumentException("limit must be between 0 and 100000");
+        }
+
+        Snapshot index = snapshot;
+        Map<Integer, CompressedBitmap> ruleBitmaps = new HashMap<>();
+        CompressedBitmap result = evaluate(index, expression, startDate, endDate, ruleBitmaps, 0);
+
+        int[] firstOrdinals = result.toArray(limit);
+        List<String> msisdns = new ArrayList<>(firstOrdinals.length);
+        for (int ordinal : firstOrdinals) {
+            msisdns.add(index.ordinals.msisdn(ordinal));
+        }
+
+        return BitmapQueryResultDTO.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .coveredFrom(index.coveredFrom(startDate))
+                .coveredTo(index.coveredTo(endDate))
+                .count(result.cardinality())
+                .msisdns(msisdns)
+                .truncated(result.cardinality() > firstOrdinals.length)
+                .build();
+    }
+
+    /**
+     * MSISDN counts, pairwise intersections and Jaccard indexes of the rules over the days [startDate, endDate]
+     */
+    public RuleOverlapMatrixDTO overlap(List<Integer> ruleIds, LocalDate startDate, LocalDate endDate) {
+        checkWindow(startDate, endDate);
+        if (ruleIds == null || ruleIds.isEmpty() || ruleIds.size() > MAX_OVERLAP_RULES) {
+            throw new IllegalArgumentException("ruleIds must list 1 to " + MAX_OVERLAP_RULES + " rules");
+        }
+
+        Snapshot index = snapshot;
+        int n = ruleIds.size();
+        List<CompressedBitmap> bitmaps = new ArrayList<>(n);
+        List<Long> counts = new ArrayList<>(n);
+        for (Integer ruleId : ruleIds) {
+            CompressedBitmap bitmap = index.ruleBitmap(ruleId, startDate, endDate);
+            bitmaps.add(bitmap);
+            counts.add(bitmap.cardinality());
+        }
+
+        long[][] intersections = new long[n][n];
+        double[][] jaccard = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                long both = i == j ? counts.get(i) : bitmaps.get(i).andCardinality(bitmaps.get(j));
+                long union = counts.get(i) + counts.get(j) - both;
+                intersections[i][j] = both;
+                intersections[j][i] = both;
+                jaccard[i][j] = union == 0 ? 0.0 : (double) both / union;
+                jaccard[j][i] = jaccard[i][j];
+            }
+        }
+
+        return RuleOverlapMatrixDTO.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .coveredFrom(index.coveredFrom(startDate))
+                .coveredTo(index.coveredTo(endDate))
+                .ruleIds(ruleIds)
+                .msisdnCounts(counts)
+                .intersections(intersections)
+                .jaccard(jaccard)
+                .build();
+    }
+
+    private CompressedBitmap evaluate(Snapshot index, BitmapExpressionDTO expression, LocalDate startDate, LocalDate endDate,
+                                      Map<Integer, CompressedBitmap> ruleBitmaps, int depth) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Missing expression operand");
+        }
+        if (depth > MAX_EXPRESSION_DEPTH) {
+            throw new IllegalArgumentException("Expression nested deeper than " + MAX_EXPRESSION_DEPTH + " levels");
+        }
+
+        if (expression.getOp() == null) {
+            if (expression.getRuleId() != null) {
+                return ruleBitmaps.computeIfAbsent(expression.getRuleId(),
+                        ruleId -> index.ruleBitmap(ruleId, startDate, endDate));
+            }
+            if (WHITELIST.equalsIgnoreCase(expression.getList())) {
+                return index.whitelist;
+            }
+            if (BLACKLIST.equalsIgnoreCase(expression.getList())) {
+                return index.blacklist;
+            }
+            throw new IllegalArgumentException("A leaf needs a ruleId or a list (WHITELIST, BLACKLIST)");
+        }
+
+        List<BitmapExpressionDTO> operands = expression.getOperands() != null
+                ? expression.getOperands() : Collections.<BitmapExpressionDTO>emptyList();
+        String op = expression.getOp().toUpperCase();
+        switch (op) {
+            case "AND":
+            case "OR": {
+                if (operands.isEmpty()) {
+                    throw new IllegalArgumentException(op + " needs at least one operand");
+                }
+                CompressedBitmap result = evaluate(index, operands.get(0), startDate, endDate, ruleBitmaps, depth + 1);
+                for (int i = 1; i < operands.size(); i++) {
+                    CompressedBitmap operand = evaluate(index, operands.get(i), startDate, endDate, ruleBitmaps, depth + 1);
+                    result = "AND".equals(op) ? result.and(operand) : result.or(operand);
+                }
+                return result;
+            }
+            case "ANDNOT": {
+                if (operands.size() < 2) {
+                    throw new IllegalArgumentException("ANDNOT needs at least two operands");
+                }
+                CompressedBitmap result = evaluate(index, operands.get(0), startDate, endDate, ruleBitmaps, depth + 1);
+                for (int i = 1; i < operands.size(); i++) {
+                    result = result.andNot(evaluate(index, operands.get(i), startDate, endDate, ruleBitmaps, depth + 1));
+                }
+                return result;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown operator: " + expression.getOp());
+        }
+    }
+
+    private Map<Integer, CompressedBitmap> buildDay(LocalDate day, MsisdnOrdinals ordinals) {
+        Map<Integer, CompressedBitmap.Builder> builders = new HashMap<>();
+        ruleBitmapRepository.forEachRuleMsisdn(day, (RowCallbackHandler) rs ->
+                builders.computeIfAbsent(rs.getInt(1), ruleId -> CompressedBitmap.builder())
+                        .add(ordinals.ordinal(rs.getString(2))));
+
+        Map<Integer, CompressedBitmap> bitmaps = new HashMap<>();
+        builders.forEach((ruleId, builder) -> bitmaps.put(ruleId, builder.build()));
+        return bitmaps;
+    }
+
+    // Latest decision of the MSISDNs new to the index, then the decisions changed since the last refresh
+    private void loadDecisions(MsisdnOrdinals ordinals, Decisions next) {
+        int firstNewOrdinal = next.loadedThrough;
+        RowCallbackHandler indexed = rs -> {
+            int ordinal = ordinals.find(rs.getString(1));
+            if (ordinal >= 0) {
+                next.set(ordinal, rs.getString(2));
+            }
+        };
+        if (ordinals.size() - firstNewOrdinal > NEW_MSISDNS_FULL_SCAN) {
+            ruleBitmapRepository.forEachLatestDecision(indexed);
+        } else {
+            for (int from = firstNewOrdinal; from < ordinals.size(); from += DECISION_LOOKUP_BATCH) {
+                ruleBitmapRepository.forEachLatestDecision(
+                        ordinals.msisdns(from, Math.min(from + DECISION_LOOKUP_BATCH, ordinals.size())), indexed);
+            }
+        }
+        next.loadedThrough = ordinals.size();
+
+        if (decisionsCheckedAt != null) {
+            ruleBitmapRepository.forEachDecisionChangedSince(
+                    Timestamp.valueOf(decisionsCheckedAt.minusMinutes(DECISION_OVERLAP_MINUTES)), indexed);
+        }
+    }
+
+    // New dictionary of the MSISDNs still indexed, in their previous order, and the bitmaps renumbered to it.
+    // The previous dictionary is left as is for the queries still reading the previous snapshot.
+    private MsisdnOrdinals compact(NavigableMap<LocalDate, Map<Integer, CompressedBitmap>> days,
+                                   MsisdnOrdinals ordinals, Decisions next) {
+        List<CompressedBitmap> all = new ArrayList<>();
+        for (Map<Integer, CompressedBitmap> day : days.values()) {
+            all.addAll(day.values());
+        }
+
+        MsisdnOrdinals compacted = new MsisdnOrdinals();
+        int[] renumbered = new int[ordinals.size()];
+        Arrays.fill(renumbered, -1);
+        CompressedBitmap.orAll(all).forEach(ordinal -> renumbered[ordinal] = compacted.ordinal(ordinals.msisdn(ordinal)));
+
+        for (Map.Entry<LocalDate, Map<Integer, CompressedBitmap>> day : days.entrySet()) {
+            Map<Integer, CompressedBitmap> bitmaps = new HashMap<>();
+            day.getValue().forEach((ruleId, bitmap) -> {
+                CompressedBitmap.Builder builder = CompressedBitmap.builder();
+                bitmap.forEach(ordinal -> builder.add(renumbered[ordinal]));
+                bitmaps.put(ruleId, builder.build());
+            });
+            day.setValue(bitmaps);
+        }
+        next.renumber(renumbered);
+
+        log.info("Rule bitmap dictionary compacted from {} to {} MSISDNs", ordinals.size(), compacted.size());
+        return compacted;
+    }
+
+    private void checkWindow(LocalDate startDate, LocalDate endDate) {
+        if (!enabled) {
+            throw new IllegalStateException("Rule bitmap index is disabled");
+        }
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+    }
+
+    // Whitelisted / blacklisted ordinals, and how many of the first ordinals had their decision loaded
+    private static final class Decisions {
+        private BitSet whitelisted = new BitSet();
+        private BitSet blocked = new BitSet();
+        private int loadedThrough;
+
+        Decisions copy() {
+            Decisions copy = new Decisions();
+            copy.whitelisted = (BitSet) whitelisted.clone();
+            copy.blocked = (BitSet) blocked.clone();
+            copy.loadedThrough = loadedThrough;
+            return copy;
+        }
+
+        void set(int ordinal, String decision) {
+            whitelisted.set(ordinal, "W".equals(decision));
+            blocked.set(ordinal, "D".equals(decision));
+        }
+
+        // Ordinals dropped from the dictionary (-1) lose their decision, the others move to their new ordinal
+        void renumber(int[] renumbered) {
+            whitelisted = renumber(whitelisted, renumbered);
+            blocked = renumber(blocked, renumbered);
+            int loaded = 0;
+            for (int ordinal = 0; ordinal < loadedThrough && ordinal < renumbered.length; ordinal++) {
+                if (renumbered[ordinal] >= 0) {
+                    loaded++;
+                }
+            }
+            loadedThrough = loaded;
+        }
+
+        private static BitSet renumber(BitSet bits, int[] renumbered) {
+            BitSet kept = new BitSet();
+            for (int ordinal = bits.nextSetBit(0); ordinal >= 0 && ordinal < renumbered.length;
+                 ordinal = bits.nextSetBit(ordinal + 1)) {
+                if (renumbered[ordinal] >= 0) {
+                    kept.set(renumbered[ordinal]);
+                }
+            }
+            return kept;
+        }
+
+        CompressedBitmap whitelist() {
+            return toBitmap(whitelisted);
+        }
+
+        CompressedBitmap blacklist() {
+            return toBitmap(blocked);
+        }
+
+        private static CompressedBitmap toBitmap(BitSet bits) {
+            CompressedBitmap.Builder builder = CompressedBitmap.builder();
+            bits.stream().forEach(builder::add);
+            return builder.build();
+        }
+    }
+
+    // One consistent state of the index: days, the dictionary their ordinals refer to, and the lists
+    private static final class Snapshot {
+        private final NavigableMap<LocalDate, Map<Integer, CompressedBitmap>> days;
+        private final MsisdnOrdinals ordinals;
+        private final CompressedBitmap whitelist;
+        private final CompressedBitmap blacklist;
+
+        Snapshot(NavigableMap<LocalDate, Map<Integer, CompressedBitmap>> days, MsisdnOrdinals ordinals,
+                 CompressedBitmap whitelist, CompressedBitmap blacklist) {
+            this.days = days;
+            this.ordinals = ordinals;
+            this.whitelist = whitelist;
+            this.blacklist = blacklist;
+        }
+
+        // MSISDNs alerted by the rule on any day of the window
+        CompressedBitmap ruleBitmap(Integer ruleId, LocalDate startDate, LocalDate endDate) {
+            List<CompressedBitmap> perDay = new ArrayList<>();
+            for (Map<Integer, CompressedBitmap> day : days.subMap(startDate, true, endDate, true).values()) {
+                CompressedBitmap bitmap = day.get(ruleId);
+                if (bitmap != null) {
+                    perDay.add(bitmap);
+                }
+            }
+            return CompressedBitmap.orAll(perDay);
+        }
+
+        LocalDate coveredFrom(LocalDate startDate) {
+            LocalDate first = days.isEmpty() ? null : days.firstKey();
+            return first == null || startDate.isAfter(first) ? startDate : first;
+        }
+
+        LocalDate coveredTo(LocalDate endDate) {
+            LocalDate last = days.isEmpty() ? null : days.lastKey();
+            return last == null || endDate.isBefore(last) ? endDate : last;
+        }
+
+        long sizeInBytes() {
+            long bytes = whitelist.sizeInBytes() + blacklist.sizeInBytes();
+            for (Map<Integer, CompressedBitmap> day : days.values()) {
+                for (CompressedBitmap bitmap : day.values()) {
+                    bytes += bitmap.sizeInBytes();
+                }
+            }
+            return bytes;
+        }
+    }
+
+    // Dense ordinals of the MSISDNs, in order of first appearance. Only the refresh adds ordinals,
+    // queries read the ones of their snapshot.
+    private static final class MsisdnOrdinals {
+        private final Map<String, Integer> byMsisdn = new HashMap<>();
+        private final List<String> msisdns = new ArrayList<>();
+
+        synchronized int ordinal(String msisdn) {
+            Integer ordinal = byMsisdn.get(msisdn);
+            if (ordinal == null) {
+                ordinal = msisdns.size();
+                byMsisdn.put(msisdn, ordinal);
+                msisdns.add(msisdn);
+            }
+            return ordinal;
+        }
+
+        // -1 for an MSISDN not indexed
+        synchronized int find(String msisdn) {
+            Integer ordinal = byMsisdn.get(msisdn);
+            return ordinal != null ? ordinal : -1;
+        }
+
+        synchronized String msisdn(int ordinal) {
+            return msisdns.get(ordinal);
+        }
+
+        synchronized List<String> msisdns(int from, int to) {
+            return new ArrayList<>(msisdns.subList(from, to));
+        }
+
+        synchronized int size() {
+            return msisdns.size();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.backend.services;
+
+import com.example.backend.entities.dto.RuleValidationResponseDTO;
+import com.example.backend.entities.dto.ValidationCacheStatsDTO;
+import com.example.backend.utils.CoalescingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of rule validation results keyed by (sorted rule ids, start date, end date, variant)
+ *
+ * - The variant tells full results ("*") from the projected ones of a sparse fieldset (FieldSet.key())
+ * - Identical concurrent requests are coalesced: only the first one runs the validation,
+ *   the others wait for its result
+ * - A scheduled poller follows the high-water marks of stat.alerte_fraude_seq (date_detection)
+ *   and stat.decision_fraude (id) and drops the entries whose window covers the new rows
+ * - Entries also expire after a TTL, which bounds staleness for late-arriving alerts
+ * - Past max-entries, the least recently used results are evicted first
+ * - Totals of the paged detection queries are kept the same way, under their own variants
+ */
+@Component
+@Slf4j
+public class RuleValidationResultCache {
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Value("${rule-validation.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${rule-validation.cache.max-entries:100}")
+    private int maxEntries;
+
+    // Variant of the complete results, see FieldSet.key()
+    static final String FULL = "*";
+
+    private CoalescingCache<List<Object>, RuleValidationResponseDTO> results;
+
+    // Totals of the detected MSISDN pages, not in the statistics
+    private CoalescingCache<List<Object>, Long> counts;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // High-water marks of the source tables, null until the first poll
+    private volatile Timestamp lastAlertDetection;
+    private volatile Long lastDecisionId;
+
+    @PostConstruct
+    void init() {
+        results = new CoalescingCache<>(maxEntries, ttlSeconds * 1000);
+        counts = new CoalescingCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    /**
+     * Return the cached result for the window, or run the loader once for all concurrent callers
+     */
+    public RuleValidationResponseDTO get(List<Integer> ruleIds, LocalDate startDate, LocalDate endDate,
+                                         Supplier<RuleValidationResponseDTO> loader) {
+        return get(ruleIds, startDate, endDate, FULL, loader);
+    }
+
+    /**
+     * Same as {@link #get(List, LocalDate, LocalDate, Supplier)} for a projected variant of the result
+     */
+    public RuleValidationResponseDTO get(List<Integer> ruleIds, LocalDate startDate, LocalDate endDate,
+                                         String variant, Supplier<RuleValidationResponseDTO> loader) {
+        return results.get(key(ruleIds, startDate, endDate, variant), loader);
+    }
+
+    /**
+     * Return the cached full result for the window if it is already computed, without loading it.
+     * Not counted in the hit / miss statistics: a peek that finds nothing is followed by a get().
+     */
+    public RuleValidationResponseDTO peek(List<Integer> ruleIds, LocalDate startDate, LocalDate endDate) {
+        return results.peek(key(ruleIds, startDate, endDate, FULL));
+    }
+
+    /**
+     * Return the cached total for the window and variant, or compute and keep it
+     */
+    public long count(List<Integer> ruleIds, LocalDate startDate, LocalDate endDate, String variant,
+                      Supplier<Long> loader) {
+        return counts.get(key(ruleIds, startDate, endDate, variant), loader);
+    }
+
+    /**
+     * Drop every entry whose [startDate, endDate] window overlaps [from, to]
+     */
+    public void invalidateWindow(LocalDateTime from, LocalDateTime to) {
+        LocalDate fromDate = from.toLocalDate();
+        LocalDate toDate = to.toLocalDate();
+        Predicate<List<Object>> overlaps = key ->
+                !((LocalDate) key.get(1)).isAfter(toDate) && !((LocalDate) key.get(2)).isBefore(fromDate);
+
+        int stale = results.invalidateIf(overlaps);
+        counts.invalidateIf(overlaps);
+        invalidations.addAndGet(stale);
+
+        if (stale > 0) {
+            log.debug("Invalidated {} validation cache entries for changes between {} and {}",
+                    stale, from, to);
+        }
+    }
+
+    public void clear() {
+        invalidations.addAndGet(results.clear());
+        counts.clear();
+    }
+
+    public ValidationCacheStatsDTO getStats() {
+        long hitCount = results.getHits();
+        long missCount = results.getMisses();
+        long lookups = hitCount + missCount;
+
+        return ValidationCacheStatsDTO.builder()
+                .size(results.size())
+                .maxEntries(maxEntries)
+                .ttlSeconds(ttlSeconds)
+                .hits(hitCount)
+                .misses(missCount)
+                .coalesced(results.getCoalesced())
+                .invalidations(invalidations.get())
+                .evictions(results.getEvictions())
+                .hitRate(lookups == 0 ? 0.0 : (double) hitCount / lookups * 100)
+                .build();
+    }
+
+    /**
+     * Follow the high-water marks of the alert and decision tables and invalidate
+     * the entries covering the rows that landed since the previous poll
+     */
+    @Scheduled(fixedDelayString = "${rule-validation.cache.poll-interval-ms:30000}")
+    public void pollForChanges() {
+        try {
+            pollAlerts();
+            pollDecisions();
+        } catch (Exception e) {
+            log.warn("Validation cache change poll failed: {}", e.getMessage());
+        }
+    }
+
+    private void pollAlerts() {
+        Timestamp maxDetection = namedParameterJdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT MAX(date_detection) FROM stat.alerte_fraude_seq", Timestamp.class);
+
+        if (lastAlertDetection != null && maxDetection != null && maxDetection.after(lastAlertDetection)) {
+            invalidateWindow(lastAlertDetection.toLocalDateTime(), maxDetection.toLocalDateTime());
+        }
+        if (maxDetection != null) {
+            lastAlertDetection = maxDetection;
+        }
+    }
+
+    private void pollDecisions() {
+        if (lastDecisionId == null) {
+            lastDecisionId = namedParameterJdbcTemplate.getJdbcTemplate().queryForObject(
+                    "SELECT COALESCE(MAX(id), 0) FROM stat.decision_fraude", Long.class);
+            return;
+        }
+
+        Map<String, Object> newDecisions = namedParameterJdbcTemplate.queryForMap(
+                "SELECT MAX(id) AS max_id, MIN(date_decision) AS min_date, MAX(date_decision) AS max_date " +
+                "FROM stat.decision_fraude WHERE id > :lastId",
+                new MapSqlParameterSource("lastId", lastDecisionId));
+
+        Number maxId = (Number) newDecisions.get("max_id");
+        if (maxId == null) {
+            return;
+        }
+
+        Timestamp minDate = (Timestamp) newDecisions.get("min_date");
+        Timestamp maxDate = (Timestamp) newDecisions.get("max_date");
+        if (minDate != null && maxDate != null) {
+            invalidateWindow(minDate.toLocalDateTime(), maxDate.toLocalDateTime());
+        }
+        lastDecisionId = maxId.longValue();
+    }
+
+    // (sorted distinct rule ids, start date, end date, variant)
+    private static List<Object> key(List<Integer> ruleIds, LocalDate startDate, LocalDate endDate, String variant) {
+        return CoalescingCache.key(ruleIds.stream().distinct().sorted().collect(Collectors.toList()),
+                startDate, endDate, variant);
+    }
+}
@@ -1,10 +1,14 @@
 package com.example.backend.services;
 
 import com.example.backend.entities.dto.*;
+import com.example.backend.utils.FieldSet;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -21,6 +25,28 @@ public interface RuleValidationService {
      */
     RuleValidationResponseDTO validateRules(RuleValidationRequestDTO request);
 
+    /**
+     * {@link #validateRules(RuleValidationRequestDTO)} computing only the requested detection fields
+     * (the summary counters stay complete)
+     */
+    RuleValidationResponseDTO validateRules(RuleValidationRequestDTO request, FieldSet fields);
+
+    /**
+     * Streaming variant of {@link #validateRules}: writes each detected MSISDN as one
+     * NDJSON line, then a trailer line with the summary counters
+     * 
+     * @param request Rule validation request containing rule IDs and date range
+     * @param outputStream Destination of the NDJSON lines (not closed)
+     */
+    void streamValidationResults(RuleValidationRequestDTO request, OutputStream outputStream) throws IOException;
+
+    /**
+     * Streamed validation run as a background job: progress is reported to the control,
+     * which can also cancel the running statements
+     */
+    void streamValidationResults(RuleValidationRequestDTO request, OutputStream outputStream,
+                                 ValidationJobControl control) throws IOException;
+
     /**
      * Get paginated list of detected MSISDNs for specified rules
      * 
@@ -37,6 +63,64 @@ public interface RuleValidationService {
                                                 String decisionStatus,
                                                 Pageable pageable);
 
+    /**
+     * {@link #getDetectedMsisdns(List, LocalDate, LocalDate, String, Pageable)} selecting only the requested fields
+     */
+    Page<MsisdnDetectionDTO> getDetectedMsisdns(List<Integer> ruleIds,
+                                                LocalDate startDate,
+                                                LocalDate endDate,
+                                                String decisionStatus,
+                                                Pageable pageable,
+                                                FieldSet fields);
+
+    /**
+     * Get the page of detected MSISDNs that follows a seek cursor, ordered by
+     * last detection time then MSISDN, both descending. Unlike offset pagination,
+     * every page costs the same whatever its depth.
+     * 
+     * @param ruleIds List of rule IDs to query
+     * @param startDate Start date for the analysis period
+     * @param endDate End date for the analysis period
+     * @param decisionStatus Optional filter by decision status (W/D/PENDING)
+     * @param afterTime Last detection time of the previous page's last row, null for the first page
+     * @param afterMsisdn MSISDN of the previous page's last row, null for the first page
+     * @param size Page size
+     * @return Page of detected MSISDNs with the cursor of the next page
+     */
+    DetectedMsisdnCursorPageDTO getDetectedMsisdnsAfter(List<Integer> ruleIds,
+                                                        LocalDate startDate,
+                                                        LocalDate endDate,
+                                                        String decisionStatus,
+                                                        LocalDateTime afterTime,
+                                                        String afterMsisdn,
+                                                        int size);
+
+    /**
+     * Seek page of detected MSISDNs selecting only the requested fields
+     */
+    DetectedMsisdnCursorPageDTO getDetectedMsisdnsAfter(List<Integer> ruleIds,
+                                                        LocalDate startDate,
+                                                        LocalDate endDate,
+                                                        String decisionStatus,
+                                                        LocalDateTime afterTime,
+                                                        String afterMsisdn,
+                                                        int size,
+                                                        FieldSet fields);
+
+    /**
+     * Count the detected MSISDNs matching the filters without building their details
+     * 
+     * @param ruleIds List of rule IDs to query
+     * @param startDate Start date for the analysis period
+     * @param endDate End date for the analysis period
+     * @param decisionStatus Optional filter by decision status (W/D/PENDING)
+     * @return Number of distinct detected MSISDNs
+     */
+    long countDetectedMsisdns(List<Integer> ruleIds,
+                              LocalDate startDate,
+                              LocalDate endDate,
+                              String decisionStatus);
+
     /**
      * Analyze rule credibility based on simple fraudulent/total ratio
      * Credibility = (MSISDNs blocked) / (Total MSISDNs detected)
@@ -71,6 +155,17 @@ public interface RuleValidationService {
      */
     byte[] exportValidationResults(RuleValidationRequestDTO request, String format);
 
+    /**
+     * Export validation results in specified format (CSV or Excel) straight to the output,
+     * reading the detections through a database cursor
+     * 
+     * @param request Rule validation request
+     * @param format Export format (CSV or EXCEL)
+     * @param outputStream Destination of the exported document, left open
+     */
+    void exportValidationResults(RuleValidationRequestDTO request, String format, OutputStream outputStream)
+            throws IOException;
+
     /**
      * Get rule validation data with alert information and decision status
      * (Legacy method for backward compatibility)
@@ -124,4 +219,12 @@ public interface RuleValidationService {
     List<MsisdnHistoryEventDTO> getMsisdnCompleteHistory(String msisdn,
                                                         LocalDate startDate,
                                                         LocalDate endDate);
+
+    /**
+     * Complete history of an MSISDN building only the requested event fields
+     */
+    List<MsisdnHistoryEventDTO> getMsisdnCompleteHistory(String msisdn,
+                                                        LocalDate startDate,
+                                                        LocalDate endDate,
+                                                        FieldSet fields);
 }
\ No newline at end of file
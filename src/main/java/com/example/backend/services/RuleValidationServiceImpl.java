@@ -1,28 +1,58 @@
 package com.example.backend.services;
 
+import com.example.backend.dao.AlertRollupRepository;
+import com.example.backend.dao.StreamingJdbc;
 import com.example.backend.entities.dto.*;
+import com.example.backend.utils.DetectionExportWriter;
+import com.example.backend.utils.FieldSet;
+import com.example.backend.utils.IntLongOpenHashMap;
+import com.example.backend.utils.MsisdnCodec;
+import com.example.backend.utils.OperatorUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.context.annotation.Primary;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.sql.DataSource;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -44,53 +74,110 @@ public class RuleValidationServiceImpl implements RuleValidationService {
     @PersistenceContext
     private EntityManager entityManager;
     
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private RuleValidationResultCache resultCache;
+    
+    @Autowired
+    private AlertRollupRepository alertRollupRepository;
+    
+    @Autowired
+    private OperatorUtil operatorUtil;
+    
+    @Autowired
+    private MsisdnHistoryCache msisdnHistoryCache;
+    
+    @Value("${rule-validation.stream.fetch-size:1000}")
+    private int streamFetchSize;
+    
+    @Value("${rule-validation.export.excel-window-size:500}")
+    private int excelWindowSize;
+    
+    @Value("${rule-validation.query.pool-size:4}")
+    private int queryPoolSize;
+    
+    @Value("${rule-validation.query.queue-capacity:16}")
+    private int queryQueueCapacity;
+    
+    @Value("${rule-validation.query.timeout-seconds:120}")
+    private int queryTimeoutSeconds;
+    
+    // Runs the independent validation sub-queries side by side, each on its own pooled connection
+    private ThreadPoolExecutor validationQueryExecutor;
+    
+    private MsisdnCodec msisdnCodec;
+    
+    // Fields read by ValidationAggregates, selected whatever the requested fieldset
+    private static final String[] DETECTION_SUMMARY_FIELDS = {"msisdn", "ruleId", "alertCount", "decisionStatus"};
+    
+    @PostConstruct
+    void init() {
+        msisdnCodec = new MsisdnCodec(operatorUtil.getCountryPrefix(operatorUtil.getCurrentOperator()));
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        validationQueryExecutor = new ThreadPoolExecutor(
+            queryPoolSize, queryPoolSize, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queryQueueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "rule-validation-query-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            // When saturated the request thread runs the sub-query itself (sequential fallback)
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        validationQueryExecutor.allowCoreThreadTimeOut(true);
+    }
+    
+    @PreDestroy
+    void stopValidationQueryExecutor() {
+        validationQueryExecutor.shutdownNow();
+    }
+    
     /**
      * Main validation method that fetches MSISDNs grouped by MSISDN (NO DUPLICATES)
      * Each MSISDN shows aggregated information across all triggered rules
      */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public RuleValidationResponseDTO validateRules(RuleValidationRequestDTO request) {
+        return validateRules(request, FieldSet.all());
+    }
+    
+    /**
+     * Runs outside a transaction: the two sub-queries take their own connections, so holding a third one
+     * on the request thread would only shrink the pool (and with CallerRunsPolicy the request thread may
+     * need a connection of its own while waiting for the other)
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RuleValidationResponseDTO validateRules(RuleValidationRequestDTO request, FieldSet fields) {
         log.info("=== Starting FINAL rule validation (grouped by MSISDN) ===");
         log.info("Rules: {}, Period: {} to {}", 
                 request.getRuleIds(), request.getStartDate(), request.getEndDate());
         
-        long startTime = System.currentTimeMillis();
-        
         try {
             validateRequest(request);
             
-            // Convert dates
-            Timestamp startTimestamp = Timestamp.valueOf(request.getStartDate().atStartOfDay());
-            Timestamp endTimestamp = Timestamp.valueOf(request.getEndDate().atTime(23, 59, 59));
-            String ruleIdsList = request.getRuleIds().stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
-            
-            // Execute the FIXED query that groups by MSISDN
-            String query = buildMsisdnGroupedValidationQuery(ruleIdsList, startTimestamp, endTimestamp);
-            Query nativeQuery = entityManager.createNativeQuery(query);
-            
-            @SuppressWarnings("unchecked")
-            List<Object[]> results = nativeQuery.getResultList();
-            
-            log.info("Raw query returned {} rows", results.size());
-            
-            // Process results - now each row represents one MSISDN (NO DUPLICATES)
-            ProcessedValidationData processedData = processValidationResults(results);
-            
-            // Get rule credibility analysis
-            List<RuleCredibilityAnalysisDTO> credibilityAnalysis = 
-                buildRuleCredibilityAnalysis(request.getRuleIds(), request.getStartDate(), request.getEndDate());
-            
-            // Build final response
-            RuleValidationResponseDTO response = buildValidationResponse(
-                request, processedData, credibilityAnalysis, System.currentTimeMillis() - startTime);
+            if (!fields.isAll()) {
+                // A complete result already computed serves any projection, the response filter trims it
+                RuleValidationResponseDTO complete = resultCache.peek(
+                    request.getRuleIds(), request.getStartDate(), request.getEndDate());
+                if (complete != null) {
+                    return complete;
+                }
+            }
             
-            log.info("Validation complete: {} unique MSISDNs, {} rules analyzed in {}ms",
-                processedData.uniqueMsisdns.size(), credibilityAnalysis.size(), 
-                System.currentTimeMillis() - startTime);
+            // The summary counters always need these fields
+            FieldSet projection = fields.with(DETECTION_SUMMARY_FIELDS);
             
-            return response;
+            // Identical windows are served from the cache, concurrent duplicates share one computation
+            return resultCache.get(request.getRuleIds(), request.getStartDate(), request.getEndDate(),
+                    projection.key(), () -> computeValidation(request, projection));
                 
         } catch (IllegalArgumentException e) {
             log.error("Validation error: {}", e.getMessage());
@@ -101,94 +188,317 @@ public class RuleValidationServiceImpl implements RuleValidationService {
         }
     }
     
+    private RuleValidationResponseDTO computeValidation(RuleValidationRequestDTO request, FieldSet fields) {
+        long startTime = System.currentTimeMillis();
+        
+        List<Integer> ruleIds = request.getRuleIds();
+        LocalDate startDate = request.getStartDate();
+        LocalDate endDate = request.getEndDate();
+        
+        // The grouped MSISDN query and the credibility query share no data: run them concurrently
+        // so the latency is the slower of the two instead of their sum
+        Future<List<Object[]>> groupedRows = validationQueryExecutor.submit(
+            () -> fetchValidationRows(buildMsisdnGroupedValidationQuery(false, fields), ruleIds, startDate, endDate));
+        Future<List<Object[]>> credibilityRows = validationQueryExecutor.submit(
+            () -> fetchValidationRows(buildRuleCredibilityQuery(), ruleIds, startDate, endDate));
+        
+        List<Object[]> results;
+        List<Object[]> credibilityResults;
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(queryTimeoutSeconds);
+            results = awaitSubQuery(groupedRows, deadline, "grouped MSISDN");
+            credibilityResults = awaitSubQuery(credibilityRows, deadline, "rule credibility");
+        } finally {
+            // No-op when both completed; otherwise interrupts the sibling still running
+            groupedRows.cancel(true);
+            credibilityRows.cancel(true);
+        }
+        
+        log.info("Raw query returned {} rows", results.size());
+        
+        // Process results - now each row represents one MSISDN (NO DUPLICATES)
+        ProcessedValidationData processedData = processValidationResults(results, fields);
+        
+        // Get rule credibility analysis
+        List<RuleCredibilityAnalysisDTO> credibilityAnalysis = 
+            mapRuleCredibilityRows(credibilityResults, startDate, endDate);
+        
+        // Build final response
+        RuleValidationResponseDTO response = buildValidationResponse(
+            request, processedData, credibilityAnalysis, System.currentTimeMillis() - startTime);
+        
+        log.info("Validation complete: {} unique MSISDNs, {} rules analyzed in {}ms",
+            processedData.aggregates.getUniqueMsisdns(), credibilityAnalysis.size(), 
+            System.currentTimeMillis() - startTime);
+        
+        return response;
+    }
+    
+    /**
+     * Streaming variant of validateRules: writes one NDJSON line per MsisdnDetectionDTO
+     * followed by a trailer line holding the summary counters.
+     * 
+     * Rows are read through a server-side cursor (bounded fetch size inside the read-only
+     * transaction) and written as they arrive, so heap use does not grow with the result.
+     * The grouped query yields one row per MSISDN, so plain counters replace the MSISDN sets.
+     */
+    @Override
+    public void streamValidationResults(RuleValidationRequestDTO request, OutputStream outputStream) throws IOException {
+        streamValidationResults(request, outputStream, null);
+    }
+    
+    /**
+     * Same as streamValidationResults, reporting progress to the job control and letting it cancel the queries
+     */
+    @Override
+    public void streamValidationResults(RuleValidationRequestDTO request, OutputStream outputStream,
+                                        ValidationJobControl control) throws IOException {
+        log.info("=== Starting STREAMED rule validation (grouped by MSISDN) ===");
+        log.info("Rules: {}, Period: {} to {}, fetch size: {}", 
+                request.getRuleIds(), request.getStartDate(), request.getEndDate(), streamFetchSize);
+        
+        long startTime = System.currentTimeMillis();
+        validateRequest(request);
+        
+        StreamedValidationCounters counters = new StreamedValidationCounters();
+        ObjectWriter detectionWriter = objectMapper.writerFor(MsisdnDetectionDTO.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            
+            forEachDetection(request, control, detection -> {
+                counters.add(detection);
+                detectionWriter.writeValue(generator, detection);
+                generator.writeRaw('\n');
+            });
+            
+            if (control != null) {
+                control.checkCancelled();
+                control.setPhase("CREDIBILITY");
+            }
+            List<RuleCredibilityAnalysisDTO> credibilityAnalysis = buildRuleCredibilityAnalysis(request, control);
+            
+            // Trailer record with the same counters as the non-streamed response
+            generator.writeStartObject();
+            generator.writeBooleanField("trailer", true);
+            generator.writeNumberField("totalRulesAnalyzed", credibilityAnalysis.size());
+            generator.writeNumberField("totalMsisdnsDetected", counters.uniqueMsisdns);
+            generator.writeNumberField("totalAlertsGenerated", counters.totalAlerts);
+            generator.writeObjectField("summary", buildSummaryStatistics(
+                counters.uniqueMsisdns,
+                counters.fraudulentMsisdns,
+                counters.whitelistedMsisdns,
+                counters.pendingMsisdns,
+                counters.alertsByRule.toMap(),
+                credibilityAnalysis));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            generator.flush();
+        }
+        
+        log.info("Streamed validation complete: {} unique MSISDNs in {}ms",
+            counters.uniqueMsisdns, System.currentTimeMillis() - startTime);
+    }
+    
+    /**
+     * Run the grouped validation query through a cursor and hand each detection to the sink as it is read
+     */
+    private void forEachDetection(RuleValidationRequestDTO request, DetectionSink sink) throws IOException {
+        forEachDetection(request, null, sink);
+    }
+    
+    private void forEachDetection(RuleValidationRequestDTO request, ValidationJobControl control,
+                                  DetectionSink sink) throws IOException {
+        NamedParameterJdbcTemplate jdbcTemplate = streamingJdbcTemplate(control);
+        if (control != null) {
+            if (control.getStatementTimeoutSeconds() > 0) {
+                // Transaction-scoped, the server aborts the job's queries past this limit
+                jdbcTemplate.getJdbcOperations().execute(
+                    "SET LOCAL statement_timeout = '" + control.getStatementTimeoutSeconds() + "s'");
+            }
+            control.setPhase("QUERYING");
+        }
+        
+        try {
+            jdbcTemplate.query(
+                buildMsisdnGroupedValidationQuery(),
+                validationParameterSource(request.getRuleIds(), request.getStartDate(), request.getEndDate()),
+                (RowCallbackHandler) rs -> {
+                    if (control != null) {
+                        control.setPhase("STREAMING");
+                        control.onRow();
+                    }
+                    try {
+                        sink.accept(ValidationRowMapper.toMsisdnDetection(readRow(rs)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        } catch (UncheckedIOException e) {
+            // Client went away or the socket failed, stop reading the cursor
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Streaming template whose statements are handed to the job control, so they can be cancelled
+     */
+    private NamedParameterJdbcTemplate streamingJdbcTemplate(ValidationJobControl control) {
+        return StreamingJdbc.named(dataSource, streamFetchSize, control != null ? control::onStatement : null);
+    }
+    
+    /**
+     * Credibility analysis of the streamed validation, on the transaction of the detections (so under the
+     * same statement_timeout) and cancellable through the job control
+     */
+    private List<RuleCredibilityAnalysisDTO> buildRuleCredibilityAnalysis(RuleValidationRequestDTO request,
+                                                                          ValidationJobControl control) {
+        List<Object[]> results = streamingJdbcTemplate(control).query(buildRuleCredibilityQuery(),
+            validationParameterSource(request.getRuleIds(), request.getStartDate(), request.getEndDate()),
+            (rs, rowNum) -> readRow(rs));
+        return mapRuleCredibilityRows(results, request.getStartDate(), request.getEndDate());
+    }
+    
+    /**
+     * Same bind parameters as bindValidationParameters, for JdbcTemplate queries
+     */
+    private MapSqlParameterSource validationParameterSource(List<Integer> ruleIds,
+                                                            LocalDate startDate, LocalDate endDate) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("ruleIds", ruleIds)
+            .addValue("startDate", Timestamp.valueOf(startDate.atStartOfDay()))
+            .addValue("endDate", Timestamp.valueOf(endDate.atTime(23, 59, 59)));
+        return alertRollupRepository.addWindow(params, startDate, endDate);
+    }
+    
     /**
-     * FIXED SQL query that groups MSISDNs to avoid duplicates
-     * Returns one row per MSISDN with aggregated data across all rules
+     * Run one validation sub-query outside the caller's transaction, on its own pooled
+     * connection, with the statement cancelled server-side after queryTimeoutSeconds
      */
-    private String buildMsisdnGroupedValidationQuery(String ruleIdsList, 
-                                                    Timestamp startTimestamp, 
-                                                    Timestamp endTimestamp) {
-        String startDateStr = "'" + startTimestamp.toString() + "'";
-        String endDateStr = "'" + endTimestamp.toString() + "'";
+    private List<Object[]> fetchValidationRows(String sql, List<Integer> ruleIds,
+                                               LocalDate startDate, LocalDate endDate) {
+        JdbcTemplate jdbcTemplate = StreamingJdbc.template(dataSource, streamFetchSize);
+        jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+        
+        return new NamedParameterJdbcTemplate(jdbcTemplate).query(
+            sql, validationParameterSource(ruleIds, startDate, endDate), (rs, rowNum) -> readRow(rs));
+    }
+    
+    private List<Object[]> awaitSubQuery(Future<List<Object[]>> future, long deadlineNanos, String name) {
+        try {
+            return future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(
+                "The " + name + " query did not complete within " + queryTimeoutSeconds + "s", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + name + " query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("The " + name + " query failed", e.getCause());
+        }
+    }
+    
+    /**
+     * Copy the current JDBC row into the Object[] shape returned by native queries
+     */
+    private Object[] readRow(ResultSet rs) throws SQLException {
+        int columnCount = rs.getMetaData().getColumnCount();
+        Object[] row = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return row;
+    }
+    
+    /**
+     * Single-pass SQL query that groups MSISDNs to avoid duplicates
+     * Returns one row per MSISDN with aggregated data across all rules.
+     * 
+     * Alerts are counted once per (msisdn, rule) and ranked with a window function,
+     * so the primary rule id, name, category and type all come from the same ranked
+     * set instead of four correlated subqueries re-scanning stat.alerte_fraude_seq.
+     * Expects the :ruleIds, :startDate and :endDate bind parameters.
+     */
+    private String buildMsisdnGroupedValidationQuery() {
+        return buildMsisdnGroupedValidationQuery(false, FieldSet.all());
+    }
+    
+    /**
+     * @param restrictToMsisdns when true the query only aggregates the MSISDNs bound to :msisdns
+     *                          (used to load the details of one page of keys)
+     * @param fields requested MsisdnDetectionDTO fields: the rule name/category/type columns, their joins
+     *               and the rule name aggregation behind the decision reason are only computed when asked for,
+     *               other columns are selected as NULL so the row shape (ValidationRowMapper) stays the same
+     */
+    private String buildMsisdnGroupedValidationQuery(boolean restrictToMsisdns, FieldSet fields) {
+        String alertFilter = restrictToMsisdns 
+            ? "id_regle IN (:ruleIds) AND msisdn IN (:msisdns)" 
+            : "id_regle IN (:ruleIds)";
+        String decisionMsisdnFilter = restrictToMsisdns ? "    AND d.msisdn IN (:msisdns) " : "";
+        
+        boolean ruleName = fields.includes("ruleName");
+        boolean ruleCategory = fields.includes("ruleCategory");
+        boolean ruleType = fields.includes("ruleType");
+        boolean decisionReason = fields.includes("decisionReason");
+        boolean decisionRule = ruleName || ruleCategory || ruleType || decisionReason;
         
         return 
             "WITH " +
-            // All MSISDNs from both alerts and decisions
-            "all_msisdns AS ( " +
-            "    SELECT DISTINCT msisdn FROM ( " +
-            "        SELECT DISTINCT msisdn FROM stat.alerte_fraude_seq " +
-            "        WHERE id_regle IN (" + ruleIdsList + ") " +
-            "        AND date_detection BETWEEN " + startDateStr + " AND " + endDateStr + " " +
-            "        UNION " +
-            "        SELECT DISTINCT msisdn FROM stat.decision_fraude " +
-            "        WHERE date_decision BETWEEN " + startDateStr + " AND " + endDateStr + " " +
-            "    ) combined " +
+            // Alert counts per (MSISDN, rule), computed once
+            "rule_counts AS ( " +
+            "    SELECT " +
+            "        a.msisdn, " +
+            "        a.id_regle, " +
+            "        a.nb_alertes as alert_count, " +
+            "        a.first_detection as first_detection_time, " +
+            "        a.last_detection as last_detection_time " +
+            "    FROM " + alertRollupRepository.alertAggregates(alertFilter, false) + " a " +
+            "), " +
+            
+            // Rank rules per MSISDN: most alerts first, most recent alert breaks ties
+            "ranked_rules AS ( " +
+            "    SELECT " +
+            "        rc.*, " +
+            "        r.nom as rule_name, " +
+            "        r.type as rule_type, " +
+            (ruleCategory
+                ? "        COALESCE(c.nom_categorie, 'Uncategorized') as rule_category, "
+                : "        CAST(NULL AS VARCHAR) as rule_category, ") +
+            "        ROW_NUMBER() OVER (PARTITION BY rc.msisdn " +
+            "                           ORDER BY rc.alert_count DESC, rc.last_detection_time DESC, rc.id_regle) as rule_rank " +
+            "    FROM rule_counts rc " +
+            "    INNER JOIN tableref.regles_fraudes r ON rc.id_regle = r.id " +
+            (ruleCategory ? "    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " : "") +
             "), " +
             
             // Alert aggregation per MSISDN across all rules
             "msisdn_alerts AS ( " +
             "    SELECT " +
-            "        a.msisdn, " +
-            "        COUNT(DISTINCT a.id_regle) as total_rules_triggered, " +
-            "        COUNT(*) as total_alert_count, " +
-            "        MIN(a.date_detection) as first_detection_time, " +
-            "        MAX(a.date_detection) as last_detection_time, " +
-            "        STRING_AGG(DISTINCT r.nom, ', ' ORDER BY r.nom) as triggered_rule_names, " +
-            "        STRING_AGG(DISTINCT COALESCE(c.nom_categorie, 'Uncategorized'), ', ' ORDER BY COALESCE(c.nom_categorie, 'Uncategorized')) as rule_categories, " +
-            "        (SELECT sub.id_regle " +
-            "         FROM ( " +
-            "             SELECT a2.id_regle, COUNT(*) as alert_count " +
-            "             FROM stat.alerte_fraude_seq a2 " +
-            "             WHERE a2.msisdn = a.msisdn " +
-            "             AND a2.id_regle IN (" + ruleIdsList + ") " +
-            "             AND a2.date_detection BETWEEN " + startDateStr + " AND " + endDateStr + " " +
-            "             GROUP BY a2.id_regle " +
-            "             ORDER BY alert_count DESC, MAX(a2.date_detection) DESC " +
-            "             LIMIT 1 " +
-            "         ) sub) as primary_rule_id, " +
-            "        (SELECT sub.rule_name " +
-            "         FROM ( " +
-            "             SELECT a2.id_regle, r2.nom as rule_name, COUNT(*) as alert_count " +
-            "             FROM stat.alerte_fraude_seq a2 " +
-            "             INNER JOIN tableref.regles_fraudes r2 ON a2.id_regle = r2.id " +
-            "             WHERE a2.msisdn = a.msisdn " +
-            "             AND a2.id_regle IN (" + ruleIdsList + ") " +
-            "             AND a2.date_detection BETWEEN " + startDateStr + " AND " + endDateStr + " " +
-            "             GROUP BY a2.id_regle, r2.nom " +
-            "             ORDER BY alert_count DESC, MAX(a2.date_detection) DESC " +
-            "             LIMIT 1 " +
-            "         ) sub) as primary_rule_name, " +
-            "        (SELECT sub.rule_category " +
-            "         FROM ( " +
-            "             SELECT a2.id_regle, COALESCE(c2.nom_categorie, 'Uncategorized') as rule_category, COUNT(*) as alert_count " +
-            "             FROM stat.alerte_fraude_seq a2 " +
-            "             INNER JOIN tableref.regles_fraudes r2 ON a2.id_regle = r2.id " +
-            "             LEFT JOIN tableref.categories_fraudes c2 ON r2.id_categorie = c2.id " +
-            "             WHERE a2.msisdn = a.msisdn " +
-            "             AND a2.id_regle IN (" + ruleIdsList + ") " +
-            "             AND a2.date_detection BETWEEN " + startDateStr + " AND " + endDateStr + " " +
-            "             GROUP BY a2.id_regle, c2.nom_categorie " +
-            "             ORDER BY alert_count DESC, MAX(a2.date_detection) DESC " +
-            "             LIMIT 1 " +
-            "         ) sub) as primary_rule_category, " +
-            "        (SELECT sub.rule_type " +
-            "         FROM ( " +
-            "             SELECT a2.id_regle, r2.type as rule_type, COUNT(*) as alert_count " +
-            "             FROM stat.alerte_fraude_seq a2 " +
-            "             INNER JOIN tableref.regles_fraudes r2 ON a2.id_regle = r2.id " +
-            "             WHERE a2.msisdn = a.msisdn " +
-            "             AND a2.id_regle IN (" + ruleIdsList + ") " +
-            "             AND a2.date_detection BETWEEN " + startDateStr + " AND " + endDateStr + " " +
-            "             GROUP BY a2.id_regle, r2.type " +
-            "             ORDER BY alert_count DESC, MAX(a2.date_detection) DESC " +
-            "             LIMIT 1 " +
-            "         ) sub) as primary_rule_type " +
-            "    FROM stat.alerte_fraude_seq a " +
-            "    INNER JOIN tableref.regles_fraudes r ON a.id_regle = r.id " +
-            "    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " +
-            "    WHERE a.id_regle IN (" + ruleIdsList + ") " +
-            "    AND a.date_detection BETWEEN " + startDateStr + " AND " + endDateStr + " " +
-            "    GROUP BY a.msisdn " +
+            "        msisdn, " +
+            "        COUNT(*) as total_rules_triggered, " +
+            "        SUM(alert_count) as total_alert_count, " +
+            "        MIN(first_detection_time) as first_detection_time, " +
+            "        MAX(last_detection_time) as last_detection_time, " +
+            (decisionReason
+                ? "        STRING_AGG(DISTINCT rule_name, ', ' ORDER BY rule_name) as triggered_rule_names, "
+                : "        CAST(NULL AS TEXT) as triggered_rule_names, ") +
+            "        MAX(CASE WHEN rule_rank = 1 THEN id_regle END) as primary_rule_id, " +
+            (ruleName
+                ? "        MAX(CASE WHEN rule_rank = 1 THEN rule_name END) as primary_rule_name, "
+                : "        CAST(NULL AS VARCHAR) as primary_rule_name, ") +
+            (ruleCategory
+                ? "        MAX(CASE WHEN rule_rank = 1 THEN rule_category END) as primary_rule_category, "
+                : "        CAST(NULL AS VARCHAR) as primary_rule_category, ") +
+            (ruleType
+                ? "        MAX(CASE WHEN rule_rank = 1 THEN rule_type END) as primary_rule_type "
+                : "        CAST(NULL AS VARCHAR) as primary_rule_type ") +
+            "    FROM ranked_rules " +
+            "    GROUP BY msisdn " +
             "), " +
             
             // Latest decision per MSISDN
@@ -199,15 +509,22 @@ public class RuleValidationServiceImpl implements RuleValidationService {
             "        d.date_decision as decision_time, " +
             "        d.nom_utilisateur as decision_user, " +
             "        d.id_regle as decision_rule_id, " +
-            "        r.nom as decision_rule_name, " +
-            "        COALESCE(c.nom_categorie, 'Manual') as decision_rule_category, " +
-            "        r.type as decision_rule_type, " +
+            (decisionRule
+                ? "        r.nom as decision_rule_name, "
+                : "        CAST(NULL AS VARCHAR) as decision_rule_name, ") +
+            (ruleCategory
+                ? "        COALESCE(c.nom_categorie, 'Manual') as decision_rule_category, "
+                : "        CAST(NULL AS VARCHAR) as decision_rule_category, ") +
+            (decisionRule
+                ? "        r.type as decision_rule_type, "
+                : "        CAST(NULL AS VARCHAR) as decision_rule_type, ") +
             "        CAST(NULL AS VARCHAR(255)) as decision_reason, " +
             "        ROW_NUMBER() OVER (PARTITION BY d.msisdn ORDER BY d.date_decision DESC) as rn " +
             "    FROM stat.decision_fraude d " +
-            "    LEFT JOIN tableref.regles_fraudes r ON d.id_regle = r.id " +
-            "    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " +
-            "    WHERE d.date_decision BETWEEN " + startDateStr + " AND " + endDateStr + " " +
+            (decisionRule ? "    LEFT JOIN tableref.regles_fraudes r ON d.id_regle = r.id " : "") +
+            (ruleCategory ? "    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " : "") +
+            "    WHERE d.date_decision BETWEEN :startDate AND :endDate " +
+            decisionMsisdnFilter +
             "), " +
             
             "latest_decisions AS ( " +
@@ -216,11 +533,17 @@ public class RuleValidationServiceImpl implements RuleValidationService {
             
             // Final SELECT: One row per MSISDN (NO DUPLICATES)
             "SELECT " +
-            "    m.msisdn, " +
+            "    COALESCE(ma.msisdn, ld.msisdn) as msisdn, " +
             "    COALESCE(ma.primary_rule_id, ld.decision_rule_id) as rule_id, " +
-            "    COALESCE(ma.primary_rule_name, ld.decision_rule_name, 'Multiple Rules') as rule_name, " +
-            "    COALESCE(ma.primary_rule_category, ld.decision_rule_category, 'Mixed') as rule_category, " +
-            "    COALESCE(ma.primary_rule_type, ld.decision_rule_type, 'Mixed') as rule_type, " +
+            (ruleName
+                ? "    COALESCE(ma.primary_rule_name, ld.decision_rule_name, 'Multiple Rules') as rule_name, "
+                : "    CAST(NULL AS VARCHAR) as rule_name, ") +
+            (ruleCategory
+                ? "    COALESCE(ma.primary_rule_category, ld.decision_rule_category, 'Mixed') as rule_category, "
+                : "    CAST(NULL AS VARCHAR) as rule_category, ") +
+            (ruleType
+                ? "    COALESCE(ma.primary_rule_type, ld.decision_rule_type, 'Mixed') as rule_type, "
+                : "    CAST(NULL AS VARCHAR) as rule_type, ") +
             "    COALESCE(ma.total_alert_count, 0) as alert_count, " +
             "    ma.first_detection_time, " +
             "    ma.last_detection_time, " +
@@ -239,260 +562,378 @@ public class RuleValidationServiceImpl implements RuleValidationService {
             "    COALESCE(ma.total_rules_triggered, 0) as total_rules_triggered, " +
             "    COALESCE(ma.total_alert_count, 0) as total_alerts_all_rules, " +
             "    ma.triggered_rule_names, " +
-            "    ma.rule_categories, " +
-            "    CASE " +
-            "        WHEN ld.decision_time IS NOT NULL AND ma.last_detection_time IS NOT NULL THEN " +
-            "            EXTRACT(EPOCH FROM (ld.decision_time - ma.last_detection_time)) / 3600 " +
-            "        ELSE NULL " +
-            "    END as hours_to_decision " +
-            "FROM all_msisdns m " +
-            "LEFT JOIN msisdn_alerts ma ON m.msisdn = ma.msisdn " +
-            "LEFT JOIN latest_decisions ld ON m.msisdn = ld.msisdn " +
-            "WHERE (ma.msisdn IS NOT NULL OR ld.msisdn IS NOT NULL) " +
-            "ORDER BY COALESCE(ma.last_detection_time, ld.decision_time) DESC";
+            // rule_categories and hours_to_decision are not mapped to the DTO, kept as NULL for the row shape
+            "    CAST(NULL AS TEXT) as rule_categories, " +
+            "    CAST(NULL AS NUMERIC) as hours_to_decision " +
+            "FROM msisdn_alerts ma " +
+            "FULL OUTER JOIN latest_decisions ld ON ma.msisdn = ld.msisdn " +
+            "ORDER BY COALESCE(ma.last_detection_time, ld.decision_time) DESC, COALESCE(ma.msisdn, ld.msisdn) DESC";
+    }
+    
+    /**
+     * Lightweight key query for the detected MSISDNs: one row per MSISDN with only the
+     * sort key (last detection, or latest decision when there is no alert) and no rule
+     * ranking or string aggregation. The decision filter and the seek predicate are applied
+     * here, before ORDER BY/LIMIT, so only one page of MSISDNs is ever detailed.
+     * 
+     * @param decisionFilter SQL condition on decision_status, or empty
+     * @param seek whether to keep only keys strictly after (:afterTime, :afterMsisdn)
+     */
+    private String buildDetectedMsisdnKeysQuery(String decisionFilter, boolean seek) {
+        String keys = 
+            "WITH " +
+            "alert_keys AS ( " +
+            "    SELECT a.msisdn, MAX(a.last_detection) as last_detection_time " +
+            "    FROM " + alertRollupRepository.alertAggregates("id_regle IN (:ruleIds)", false) + " a " +
+            "    INNER JOIN tableref.regles_fraudes r ON a.id_regle = r.id " +
+            "    GROUP BY a.msisdn " +
+            "), " +
+            "latest_decisions AS ( " +
+            "    SELECT DISTINCT ON (d.msisdn) d.msisdn, d.decision, d.date_decision " +
+            "    FROM stat.decision_fraude d " +
+            "    WHERE d.date_decision BETWEEN :startDate AND :endDate " +
+            "    ORDER BY d.msisdn, d.date_decision DESC " +
+            "), " +
+            "detected_keys AS ( " +
+            "    SELECT " +
+            "        COALESCE(ak.msisdn, ld.msisdn) as msisdn, " +
+            "        COALESCE(ak.last_detection_time, ld.date_decision) as sort_time, " +
+            "        ld.decision as decision_status " +
+            "    FROM alert_keys ak " +
+            "    FULL OUTER JOIN latest_decisions ld ON ak.msisdn = ld.msisdn " +
+            ") ";
+        
+        return keys +
+            "SELECT msisdn, sort_time FROM detected_keys " +
+            "WHERE 1 = 1 " + decisionFilter +
+            (seek ? "AND (sort_time, msisdn) < (:afterTime, :afterMsisdn) " : "") +
+            "ORDER BY sort_time DESC, msisdn DESC " +
+            "LIMIT :limit OFFSET :offset";
+    }
+    
+    /**
+     * Number of rows of the detected MSISDN keys query, without its sort keys nor the join of the alerts
+     * with the decisions: alerted MSISDNs united with the decided ones, and latest decisions only when
+     * the status is filtered (every MSISDN with a decision is in the union).
+     */
+    private String buildDetectedMsisdnCountQuery(String decisionStatus) {
+        String latestDecisions =
+            "WITH latest_decisions AS ( " +
+            "    SELECT DISTINCT ON (d.msisdn) d.msisdn, d.decision " +
+            "    FROM stat.decision_fraude d " +
+            "    WHERE d.date_decision BETWEEN :startDate AND :endDate " +
+            "    ORDER BY d.msisdn, d.date_decision DESC " +
+            ") ";
+        String detected =
+            "SELECT COUNT(*) FROM ( " +
+            "    SELECT msisdn FROM " + alertRollupRepository.alertMsisdns(
+                    "id_regle IN (:ruleIds) AND id_regle IN (SELECT id FROM tableref.regles_fraudes)") + " a " +
+            "    UNION " +
+            "    SELECT d.msisdn FROM stat.decision_fraude d " +
+            "    WHERE d.date_decision BETWEEN :startDate AND :endDate " +
+            ") k";
+        
+        if (decisionStatus == null || "ALL".equals(decisionStatus)) {
+            return detected;
+        }
+        if ("PENDING".equals(decisionStatus)) {
+            return latestDecisions +
+                "SELECT (" + detected + ") - " +
+                "(SELECT COUNT(*) FROM latest_decisions WHERE decision IS NOT NULL)";
+        }
+        return latestDecisions + "SELECT COUNT(*) FROM latest_decisions WHERE decision = :decisionStatus";
+    }
+    
+    /**
+     * SQL condition for the decision status filter of the detected MSISDN queries.
+     * null or ALL means no filter, PENDING means no decision yet, anything else is bound to :decisionStatus.
+     */
+    private String buildDecisionStatusFilter(String decisionStatus) {
+        if (decisionStatus == null || "ALL".equals(decisionStatus)) {
+            return "";
+        }
+        if ("PENDING".equals(decisionStatus)) {
+            return "AND decision_status IS NULL ";
+        }
+        return "AND decision_status = :decisionStatus ";
+    }
+    
+    private void bindDecisionStatus(Query query, String decisionStatus) {
+        if (decisionStatus != null && !"ALL".equals(decisionStatus) && !"PENDING".equals(decisionStatus)) {
+            query.setParameter("decisionStatus", decisionStatus);
+        }
+    }
+    
+    /**
+     * Fetch one page of (msisdn, sort_time) keys, either by offset or after a seek cursor
+     */
+    private List<Object[]> fetchDetectedMsisdnKeys(List<Integer> ruleIds, LocalDate startDate, LocalDate endDate,
+                                                   String decisionStatus, LocalDateTime afterTime, String afterMsisdn,
+                                                   int limit, long offset) {
+        boolean seek = afterTime != null;
+        Query keysQuery = entityManager.createNativeQuery(
+            buildDetectedMsisdnKeysQuery(buildDecisionStatusFilter(decisionStatus), seek));
+        bindValidationParameters(keysQuery, ruleIds, startDate, endDate);
+        bindDecisionStatus(keysQuery, decisionStatus);
+        if (seek) {
+            keysQuery.setParameter("afterTime", Timestamp.valueOf(afterTime));
+            keysQuery.setParameter("afterMsisdn", afterMsisdn);
+        }
+        keysQuery.setParameter("limit", limit);
+        keysQuery.setParameter("offset", offset);
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> keys = keysQuery.getResultList();
+        return keys;
+    }
+    
+    /**
+     * Load the full detection rows for one page of keys, in key order
+     */
+    private List<MsisdnDetectionDTO> fetchDetectionsForKeys(List<Integer> ruleIds, LocalDate startDate,
+                                                            LocalDate endDate, List<Object[]> keys,
+                                                            FieldSet fields) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        List<String> msisdns = keys.stream()
+            .map(key -> (String) key[0])
+            .collect(Collectors.toList());
+        
+        Query detailQuery = entityManager.createNativeQuery(buildMsisdnGroupedValidationQuery(true, fields));
+        bindValidationParameters(detailQuery, ruleIds, startDate, endDate);
+        detailQuery.setParameter("msisdns", msisdns);
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = detailQuery.getResultList();
+        
+        return results.stream()
+            .map(row -> ValidationRowMapper.toMsisdnDetection(row, fields))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Bind the rule ids and the inclusive day range shared by the validation queries
+     */
+    private void bindValidationParameters(Query query, List<Integer> ruleIds,
+                                          LocalDate startDate, LocalDate endDate) {
+        query.setParameter("ruleIds", ruleIds);
+        query.setParameter("startDate", Timestamp.valueOf(startDate.atStartOfDay()));
+        query.setParameter("endDate", Timestamp.valueOf(endDate.atTime(23, 59, 59)));
+        alertRollupRepository.bindWindow(query, startDate, endDate);
     }
     
     /**
      * Process validation results into structured data
      */
-    private ProcessedValidationData processValidationResults(List<Object[]> results) {
-        ProcessedValidationData data = new ProcessedValidationData();
+    private ProcessedValidationData processValidationResults(List<Object[]> results, FieldSet fields) {
+        ProcessedValidationData data = new ProcessedValidationData(
+            new ValidationAggregates(msisdnCodec, results.size()), results.size());
         
         for (Object[] row : results) {
-            MsisdnDetectionDTO detection = buildMsisdnDetection(row);
+            MsisdnDetectionDTO detection = ValidationRowMapper.toMsisdnDetection(row, fields);
             data.detections.add(detection);
-            
-            // Track unique MSISDNs
-            data.uniqueMsisdns.add(detection.getMsisdn());
-            data.totalAlerts += detection.getAlertCount();
-            
-            // Categorize by decision status
-            if ("D".equals(detection.getDecisionStatus())) {
-                data.fraudulentMsisdns.add(detection.getMsisdn());
-            } else if ("W".equals(detection.getDecisionStatus())) {
-                data.whitelistedMsisdns.add(detection.getMsisdn());
-            } else {
-                data.pendingMsisdns.add(detection.getMsisdn());
-            }
-            
-            // Update alert distribution by rule
-            if (detection.getRuleId() != null) {
-                data.alertsByRule.merge(detection.getRuleId(), (long) detection.getAlertCount(), Long::sum);
-            }
+            data.aggregates.add(detection);
         }
         
         return data;
     }
     
     /**
-     * Build MsisdnDetectionDTO from query result row
+     * Enhanced Complete History for MSISDN
+     * Includes ALL information from alerte_fraude_seq & decision_fraude
      */
-    private MsisdnDetectionDTO buildMsisdnDetection(Object[] row) {
-        String decisionReason = buildEnhancedDecisionReason(row);
-        
-        return MsisdnDetectionDTO.builder()
-            .msisdn((String) row[0])
-            .ruleId(row[1] != null ? ((Number) row[1]).intValue() : null)
-            .ruleName((String) row[2])
-            .ruleCategory((String) row[3])
-            .ruleType((String) row[4])
-            .alertCount(((Number) row[5]).intValue())
-            .firstDetectionTime(row[6] != null ? ((Timestamp) row[6]).toLocalDateTime() : null)
-            .lastDetectionTime(row[7] != null ? ((Timestamp) row[7]).toLocalDateTime() : null)
-            .detectionSource((String) row[8])
-            .decisionStatus((String) row[9])
-            .decisionTime(row[10] != null ? ((Timestamp) row[10]).toLocalDateTime() : null)
-            .decisionUser((String) row[11])
-            .decisionRuleId(row[12] != null ? ((Number) row[12]).intValue() : null)
-            .totalRulesTriggered(((Number) row[15]).intValue())
-            .totalAlertsAllRules(((Number) row[16]).intValue())
-            .decisionReason(decisionReason)
-            .build();
+    @Override
+    public List<MsisdnHistoryEventDTO> getMsisdnCompleteHistory(String msisdn,
+                                                               LocalDate startDate,
+                                                               LocalDate endDate) {
+        return getMsisdnCompleteHistory(msisdn, startDate, endDate, FieldSet.all());
     }
     
     /**
-     * Enhanced Complete History for MSISDN
-     * Includes ALL information from alerte_fraude_seq & decision_fraude
+     * The merged scan is shared through the history cache whatever the fields, so the projection
+     * only skips the description, icon and severity strings nobody asked for
      */
     @Override
     public List<MsisdnHistoryEventDTO> getMsisdnCompleteHistory(String msisdn,
                                                                LocalDate startDate,
-                                                               LocalDate endDate) {
+                                                               LocalDate endDate,
+                                                               FieldSet fields) {
         log.info("Fetching COMPLETE history for MSISDN: {} (including all alerts & decisions)", msisdn);
         
-        if (msisdn == null || msisdn.trim().isEmpty()) {
-            throw new IllegalArgumentException("MSISDN cannot be null or empty");
-        }
+        List<MsisdnTimelineEvent> timeline = loadMsisdnTimeline(msisdn, startDate, endDate);
+        List<MsisdnHistoryEventDTO> events = new ArrayList<>(timeline.size());
         
-        try {
-            String query = buildCompleteHistoryQuery(startDate != null, endDate != null);
-            
-            Query nativeQuery = entityManager.createNativeQuery(query);
-            int paramIndex = 1;
-            
-            // Set MSISDN parameters (always present)
-            nativeQuery.setParameter(paramIndex++, msisdn);
-            
-            // Set date parameters only if dates are provided
-            if (startDate != null) {
-                nativeQuery.setParameter(paramIndex++, Timestamp.valueOf(startDate.atStartOfDay()));
-            }
-            if (endDate != null) {
-                nativeQuery.setParameter(paramIndex++, Timestamp.valueOf(endDate.atTime(23, 59, 59)));
-            }
-            
-            // Set MSISDN parameter for decision events
-            nativeQuery.setParameter(paramIndex++, msisdn);
+        for (MsisdnTimelineEvent row : timeline) {
+            MsisdnHistoryEventDTO event = MsisdnHistoryEventDTO.builder()
+                .eventType(row.getEventType())
+                .eventTime(row.getEventTime())
+                .msisdn(msisdn)
+                .ruleId(row.getRuleId())
+                .ruleName(row.getRuleName())
+                .ruleType(row.getRuleType())
+                .ruleCategory(row.getRuleCategory())
+                .totalRulesTriggeredAtTime(row.getRulesTriggeredAtTime())
+                .totalAlertsAllRulesAtTime(row.getAlertsAtTime())
+                .build();
             
-            // Set date parameters for decision events only if dates are provided
-            if (startDate != null) {
-                nativeQuery.setParameter(paramIndex++, Timestamp.valueOf(startDate.atStartOfDay()));
-            }
-            if (endDate != null) {
-                nativeQuery.setParameter(paramIndex++, Timestamp.valueOf(endDate.atTime(23, 59, 59)));
+            if (row.isAlert()) {
+                event.setAlertCount(row.getAlertCount());
+                event.setFirstAlertTime(row.getEventTime());
+                event.setLastAlertTime(row.getEventTime());
+            } else {
+                event.setDecision(row.getDecision());
+                event.setPreviousDecision(row.getPreviousDecision());
+                event.setDecisionUser(row.getDecisionUser());
             }
             
-            @SuppressWarnings("unchecked")
-            List<Object[]> results = nativeQuery.getResultList();
-            
-            List<MsisdnHistoryEventDTO> events = new ArrayList<>();
-            
-            for (Object[] row : results) {
-                MsisdnHistoryEventDTO event = MsisdnHistoryEventDTO.builder()
-                    .eventType((String) row[0])
-                    .eventTime(((Timestamp) row[1]).toLocalDateTime())
-                    .msisdn(msisdn)
-                    .ruleId(((Number) row[3]).intValue())
-                    .ruleName((String) row[4])
-                    .ruleType((String) row[5])
-                    .ruleCategory((String) row[6])
-                    .build();
-                
-                if ("ALERT".equals(event.getEventType())) {
-                    event.setAlertCount(((Number) row[7]).intValue());
-                    if (row[8] != null) {
-                        event.setFirstAlertTime(((Timestamp) row[8]).toLocalDateTime());
-                    }
-                    if (row[9] != null) {
-                        event.setLastAlertTime(((Timestamp) row[9]).toLocalDateTime());
-                    }
-                } else if ("DECISION".equals(event.getEventType())) {
-                    event.setDecision((String) row[10]);
-                    event.setPreviousDecision((String) row[11]);
-                    event.setDecisionUser((String) row[12]);
-                }
-                
-                if (row[13] != null) {
-                    event.setTotalRulesTriggeredAtTime(((Number) row[13]).intValue());
-                }
-                if (row[14] != null) {
-                    event.setTotalAlertsAllRulesAtTime(((Number) row[14]).intValue());
-                }
-                
+            if (fields.includes("eventDescription")) {
                 event.setEventDescription(buildEventDescription(event));
+            }
+            if (fields.includes("eventIcon")) {
                 event.setEventIcon(getEventIcon(event));
+            }
+            if (fields.includes("eventSeverity")) {
                 event.setEventSeverity(getEventSeverity(event));
-                
-                events.add(event);
             }
             
-            log.info("Found {} history events for MSISDN {}", events.size(), msisdn);
-            return events;
-            
-        } catch (Exception e) {
-            log.error("Error fetching complete history for MSISDN {}: {}", msisdn, e.getMessage());
-            throw new RuntimeException("Failed to fetch MSISDN history", e);
+            events.add(event);
         }
+        
+        log.info("Found {} history events for MSISDN {}", events.size(), msisdn);
+        return events;
     }
     
     /**
-     * Enhanced complete history query that includes ALL info from both tables
-     * @param hasStartDate whether start date filter should be applied
-     * @param hasEndDate whether end date filter should be applied
+     * Events of the MSISDN in the window, from the per-MSISDN cache or one merged scan
      */
-    private String buildCompleteHistoryQuery(boolean hasStartDate, boolean hasEndDate) {
-        // Build date filter conditions
-        String alertDateFilter = "a.msisdn = ?";
-        String decisionDateFilter = "d.msisdn = ?";
-        
-        if (hasStartDate && hasEndDate) {
-            alertDateFilter += " AND a.date_detection BETWEEN ? AND ?";
-            decisionDateFilter += " AND d.date_decision BETWEEN ? AND ?";
-        } else if (hasStartDate) {
-            alertDateFilter += " AND a.date_detection >= ?";
-            decisionDateFilter += " AND d.date_decision >= ?";
-        } else if (hasEndDate) {
-            alertDateFilter += " AND a.date_detection <= ?";
-            decisionDateFilter += " AND d.date_decision <= ?";
+    private List<MsisdnTimelineEvent> loadMsisdnTimeline(String msisdn, LocalDate startDate, LocalDate endDate) {
+        if (msisdn == null || msisdn.trim().isEmpty()) {
+            throw new IllegalArgumentException("MSISDN cannot be null or empty");
+        }
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
         }
         
-        return 
+        String key = msisdn.trim();
+        return msisdnHistoryCache.get(key, startDate, endDate, () -> {
+            try {
+                return fetchMsisdnTimeline(key, startDate, endDate);
+            } catch (RuntimeException e) {
+                log.error("Error fetching complete history for MSISDN {}: {}", key, e.getMessage());
+                throw new RuntimeException("Failed to fetch MSISDN history", e);
+            }
+        });
+    }
+    
+    private List<MsisdnTimelineEvent> fetchMsisdnTimeline(String msisdn, LocalDate startDate, LocalDate endDate) {
+        // Open bounds become sentinels so the statement (and its plan) is the same for every call
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("msisdn", msisdn)
+            .addValue("startDate", Timestamp.valueOf((startDate != null ? startDate : LocalDate.of(1970, 1, 1)).atStartOfDay()))
+            .addValue("endDate", Timestamp.valueOf((endDate != null ? endDate : LocalDate.of(9999, 12, 31)).atTime(23, 59, 59)));
+        
+        long started = System.currentTimeMillis();
+        List<MsisdnTimelineEvent> events = new NamedParameterJdbcTemplate(dataSource)
+            .query(buildMsisdnTimelineQuery(), params, (rs, rowNum) -> mapTimelineEvent(rs));
+        log.debug("Merged timeline scan for MSISDN {} returned {} events in {} ms",
+            msisdn, events.size(), System.currentTimeMillis() - started);
+        return Collections.unmodifiableList(events);
+    }
+    
+    private MsisdnTimelineEvent mapTimelineEvent(ResultSet rs) throws SQLException {
+        boolean alert = MsisdnTimelineEvent.ALERT.equals(rs.getString("event_type"));
+        Timestamp previousDecisionTime = rs.getTimestamp("prev_decision_time");
+        Number ruleId = (Number) rs.getObject("rule_id");
+        
+        return MsisdnTimelineEvent.builder()
+            .eventType(rs.getString("event_type"))
+            .eventTime(rs.getTimestamp("event_time").toLocalDateTime())
+            .ruleId(ruleId != null ? ruleId.intValue() : (alert ? null : 0))
+            .ruleName(alert ? rs.getString("rule_name") : defaultIfNull(rs.getString("rule_name"), "Manual Decision"))
+            .ruleType(alert ? rs.getString("rule_type") : defaultIfNull(rs.getString("rule_type"), "MANUAL"))
+            .ruleCategory(defaultIfNull(rs.getString("rule_category"), alert ? "Uncategorized" : "Manual"))
+            .alertCount(rs.getInt("alert_count"))
+            .decision(rs.getString("decision"))
+            .decisionUser(rs.getString("decision_user"))
+            .previousDecision(rs.getString("prev_decision"))
+            .previousDecisionTime(previousDecisionTime != null ? previousDecisionTime.toLocalDateTime() : null)
+            .previousDecisionRuleName(rs.getString("prev_decision_rule_name"))
+            .rulesTriggeredAtTime(rs.getInt("rules_triggered_count"))
+            .alertsAtTime(rs.getInt("total_alerts_count"))
+            .build();
+    }
+    
+    private static String defaultIfNull(String value, String defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+    
+    /**
+     * Single scan of the MSISDN: its alerts and decisions up to the end date (index on msisdn + date)
+     * are merged and ordered by time in the database.
+     *
+     * - Alerts before the start date are still read so the running totals count the whole history,
+     *   only events inside the window are returned
+     * - Running totals are window sums over the merged events (RANGE keeps same-time events together),
+     *   distinct rules are counted on the first detection of each rule
+     * - Previous decision, its time and rule come from LAG over all decisions up to the end date
+     * - At equal times alerts come before decisions
+     */
+    private String buildMsisdnTimelineQuery() {
+        return
             "WITH " +
-            "alert_events AS ( " +
-            "    SELECT " +
-            "        'ALERT' as event_type, " +
-            "        a.date_detection as event_time, " +
-            "        a.msisdn, " +
-            "        a.id_regle as rule_id, " +
-            "        r.nom as rule_name, " +
-            "        r.type as rule_type, " +
-            "        COALESCE(c.nom_categorie, 'Uncategorized') as rule_category, " +
-            "        COUNT(*) as alert_count, " +
-            "        MIN(a.date_detection) as first_alert_time, " +
-            "        MAX(a.date_detection) as last_alert_time, " +
-            "        CAST(NULL AS VARCHAR(10)) as decision, " +
-            "        CAST(NULL AS VARCHAR(10)) as prev_decision, " +
-            "        CAST(NULL AS VARCHAR(255)) as decision_user " +
+            "alert_groups AS ( " +
+            "    SELECT a.id_regle, a.date_detection, COUNT(*) AS alert_count, " +
+            "           CASE WHEN ROW_NUMBER() OVER (PARTITION BY a.id_regle ORDER BY a.date_detection) = 1 " +
+            "                THEN 1 ELSE 0 END AS first_for_rule " +
             "    FROM stat.alerte_fraude_seq a " +
-            "    LEFT JOIN tableref.regles_fraudes r ON a.id_regle = r.id " +
-            "    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " +
-            "    WHERE " + alertDateFilter + " " +
-            "    GROUP BY a.msisdn, a.id_regle, r.nom, r.type, c.nom_categorie, a.date_detection " +
+            "    WHERE a.msisdn = :msisdn AND a.date_detection <= :endDate " +
+            "    GROUP BY a.id_regle, a.date_detection " +
             "), " +
-            "decision_events AS ( " +
-            "    SELECT " +
-            "        'DECISION' as event_type, " +
-            "        d.date_decision as event_time, " +
-            "        d.msisdn, " +
-            "        COALESCE(d.id_regle, 0) as rule_id, " +
-            "        COALESCE(r.nom, 'Manual Decision') as rule_name, " +
-            "        COALESCE(r.type, 'MANUAL') as rule_type, " +
-            "        COALESCE(c.nom_categorie, 'Manual') as rule_category, " +
-            "        0 as alert_count, " +
-            "        CAST(NULL AS TIMESTAMP) as first_alert_time, " +
-            "        CAST(NULL AS TIMESTAMP) as last_alert_time, " +
-            "        d.decision, " +
-            "        LAG(d.decision) OVER (PARTITION BY d.msisdn ORDER BY d.date_decision) as prev_decision, " +
-            "        d.nom_utilisateur as decision_user " +
+            "decisions AS ( " +
+            "    SELECT d.id_regle, d.date_decision, d.decision, d.nom_utilisateur, " +
+            "           LAG(d.decision) OVER w AS prev_decision, " +
+            "           LAG(d.date_decision) OVER w AS prev_decision_time, " +
+            "           LAG(d.id_regle) OVER w AS prev_rule_id " +
             "    FROM stat.decision_fraude d " +
-            "    LEFT JOIN tableref.regles_fraudes r ON d.id_regle = r.id " +
-            "    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " +
-            "    WHERE " + decisionDateFilter + " " +
+            "    WHERE d.msisdn = :msisdn AND d.date_decision <= :endDate " +
+            "    WINDOW w AS (ORDER BY d.date_decision, d.id) " +
             "), " +
-            "combined_events AS ( " +
-            "    SELECT * FROM alert_events " +
+            "merged_events AS ( " +
+            "    SELECT 'ALERT' AS event_type, 0 AS type_order, g.date_detection AS event_time, g.id_regle AS rule_id, " +
+            "           g.alert_count, g.first_for_rule, " +
+            "           CAST(NULL AS VARCHAR(10)) AS decision, CAST(NULL AS VARCHAR(10)) AS prev_decision, " +
+            "           CAST(NULL AS TIMESTAMP) AS prev_decision_time, CAST(NULL AS INTEGER) AS prev_rule_id, " +
+            "           CAST(NULL AS VARCHAR(255)) AS decision_user " +
+            "    FROM alert_groups g " +
             "    UNION ALL " +
-            "    SELECT * FROM decision_events " +
+            "    SELECT 'DECISION', 1, dc.date_decision, dc.id_regle, " +
+            "           0, 0, " +
+            "           dc.decision, dc.prev_decision, " +
+            "           dc.prev_decision_time, dc.prev_rule_id, " +
+            "           dc.nom_utilisateur " +
+            "    FROM decisions dc " +
             "), " +
-            "final_events AS ( " +
-            "    SELECT " +
-            "        ce.*, " +
-            "        (SELECT COUNT(DISTINCT a.id_regle) " +
-            "         FROM stat.alerte_fraude_seq a " +
-            "         WHERE a.msisdn = ce.msisdn " +
-            "         AND a.date_detection <= ce.event_time) as rules_triggered_count, " +
-            "        (SELECT COUNT(*) " +
-            "         FROM stat.alerte_fraude_seq a " +
-            "         WHERE a.msisdn = ce.msisdn " +
-            "         AND a.date_detection <= ce.event_time) as total_alerts_count " +
-            "    FROM combined_events ce " +
+            "running_events AS ( " +
+            "    SELECT e.*, " +
+            "           SUM(e.first_for_rule) OVER t AS rules_triggered_count, " +
+            "           SUM(e.alert_count) OVER t AS total_alerts_count " +
+            "    FROM merged_events e " +
+            "    WINDOW t AS (ORDER BY e.event_time RANGE BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) " +
             ") " +
             "SELECT " +
-            "    event_type, event_time, msisdn, rule_id, rule_name, rule_type, " +
-            "    rule_category, alert_count, first_alert_time, last_alert_time, " +
-            "    decision, prev_decision, decision_user, rules_triggered_count, total_alerts_count " +
-            "FROM final_events " +
-            "ORDER BY event_time ASC";
+            "    re.event_type, re.event_time, re.rule_id, " +
+            "    r.nom AS rule_name, r.type AS rule_type, c.nom_categorie AS rule_category, " +
+            "    re.alert_count, re.decision, re.prev_decision, re.prev_decision_time, " +
+            "    pr.nom AS prev_decision_rule_name, re.decision_user, " +
+            "    re.rules_triggered_count, re.total_alerts_count " +
+            "FROM running_events re " +
+            "LEFT JOIN tableref.regles_fraudes r ON re.rule_id = r.id " +
+            "LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " +
+            "LEFT JOIN tableref.regles_fraudes pr ON re.prev_rule_id = pr.id " +
+            "WHERE re.event_time >= :startDate " +
+            "ORDER BY re.event_time ASC, re.type_order ASC, re.rule_id ASC";
     }
     
     /**
@@ -501,16 +942,18 @@ public class RuleValidationServiceImpl implements RuleValidationService {
     private List<RuleCredibilityAnalysisDTO> buildRuleCredibilityAnalysis(
             List<Integer> ruleIds, LocalDate startDate, LocalDate endDate) {
         
-        String ruleIdsList = ruleIds.stream().map(String::valueOf).collect(Collectors.joining(","));
-        String query = buildRuleCredibilityQuery(ruleIdsList);
-        
-        Query nativeQuery = entityManager.createNativeQuery(query);
-        nativeQuery.setParameter("startDate", Timestamp.valueOf(startDate.atStartOfDay()));
-        nativeQuery.setParameter("endDate", Timestamp.valueOf(endDate.atTime(23, 59, 59)));
+        Query nativeQuery = entityManager.createNativeQuery(buildRuleCredibilityQuery());
+        bindValidationParameters(nativeQuery, ruleIds, startDate, endDate);
         
         @SuppressWarnings("unchecked")
         List<Object[]> results = nativeQuery.getResultList();
         
+        return mapRuleCredibilityRows(results, startDate, endDate);
+    }
+    
+    private List<RuleCredibilityAnalysisDTO> mapRuleCredibilityRows(
+            List<Object[]> results, LocalDate startDate, LocalDate endDate) {
+        
         List<RuleCredibilityAnalysisDTO> analyses = new ArrayList<>();
         
         for (Object[] row : results) {
@@ -573,22 +1016,23 @@ public class RuleValidationServiceImpl implements RuleValidationService {
     /**
      * Rule credibility analysis query
      */
-    private String buildRuleCredibilityQuery(String ruleIdsList) {
+    private String buildRuleCredibilityQuery() {
         return 
-            "WITH rule_stats AS ( " +
+            "WITH alert_aggregates AS " + 
+            alertRollupRepository.alertAggregates("id_regle IN (:ruleIds)", false) + ", " +
+            "rule_stats AS ( " +
             "    SELECT " +
             "        r.id as rule_id, " +
             "        r.nom as rule_name, " +
             "        COALESCE(c.nom_categorie, 'Uncategorized') as rule_category, " +
             "        COUNT(DISTINCT a.msisdn) as total_msisdns_detected, " +
-            "        COUNT(*) as total_alerts, " +
-            "        MIN(a.date_detection) as first_alert, " +
-            "        MAX(a.date_detection) as last_alert " +
+            "        COALESCE(SUM(a.nb_alertes), 0) as total_alerts, " +
+            "        MIN(a.first_detection) as first_alert, " +
+            "        MAX(a.last_detection) as last_alert " +
             "    FROM tableref.regles_fraudes r " +
             "    LEFT JOIN tableref.categories_fraudes c ON r.id_categorie = c.id " +
-            "    LEFT JOIN stat.alerte_fraude_seq a ON r.id = a.id_regle " +
-            "        AND a.date_detection BETWEEN :startDate AND :endDate " +
-            "    WHERE r.id IN (" + ruleIdsList + ") " +
+            "    LEFT JOIN alert_aggregates a ON r.id = a.id_regle " +
+            "    WHERE r.id IN (:ruleIds) " +
             "    GROUP BY r.id, r.nom, c.nom_categorie " +
             "), " +
             "decision_stats AS ( " +
@@ -598,8 +1042,7 @@ public class RuleValidationServiceImpl implements RuleValidationService {
             "        COUNT(DISTINCT CASE WHEN d.decision = 'D' THEN d.msisdn END) as fraudulent_msisdns, " +
             "        COUNT(DISTINCT CASE WHEN d.decision = 'W' THEN d.msisdn END) as whitelisted_msisdns " +
             "    FROM rule_stats rs " +
-            "    LEFT JOIN stat.alerte_fraude_seq a ON rs.rule_id = a.id_regle " +
-            "        AND a.date_detection BETWEEN :startDate AND :endDate " +
+            "    LEFT JOIN alert_aggregates a ON rs.rule_id = a.id_regle " +
             "    LEFT JOIN stat.decision_fraude d ON a.msisdn = d.msisdn " +
             "        AND d.date_decision BETWEEN :startDate AND :endDate " +
             "    GROUP BY rs.rule_id " +
@@ -626,34 +1069,20 @@ public class RuleValidationServiceImpl implements RuleValidationService {
     @Override
     public Page<MsisdnDetectionDTO> getDetectedMsisdns(List<Integer> ruleIds, LocalDate startDate, 
                                                        LocalDate endDate, String decisionStatus, Pageable pageable) {
+        return getDetectedMsisdns(ruleIds, startDate, endDate, decisionStatus, pageable, FieldSet.all());
+    }
+    
+    @Override
+    public Page<MsisdnDetectionDTO> getDetectedMsisdns(List<Integer> ruleIds, LocalDate startDate,
+                                                       LocalDate endDate, String decisionStatus, Pageable pageable,
+                                                       FieldSet fields) {
         try {
-            String baseQuery = buildMsisdnGroupedValidationQuery(
-                ruleIds.stream().map(String::valueOf).collect(Collectors.joining(",")),
-                Timestamp.valueOf(startDate.atStartOfDay()),
-                Timestamp.valueOf(endDate.atTime(23, 59, 59))
-            );
-            
-            // Add decision status filter if specified
-            if (decisionStatus != null && !"ALL".equals(decisionStatus)) {
-                if ("PENDING".equals(decisionStatus)) {
-                    baseQuery += " AND decision_status IS NULL";
-                } else {
-                    baseQuery += " AND decision_status = '" + decisionStatus + "'";
-                }
-            }
+            List<Object[]> keys = fetchDetectedMsisdnKeys(ruleIds, startDate, endDate, decisionStatus,
+                null, null, pageable.getPageSize(), pageable.getOffset());
+            List<MsisdnDetectionDTO> detections = fetchDetectionsForKeys(ruleIds, startDate, endDate, keys, fields);
             
-            // Add pagination
-            baseQuery += " LIMIT " + pageable.getPageSize() + " OFFSET " + pageable.getOffset();
-            
-            Query nativeQuery = entityManager.createNativeQuery(baseQuery);
-            @SuppressWarnings("unchecked")
-            List<Object[]> results = nativeQuery.getResultList();
-            
-            List<MsisdnDetectionDTO> detections = results.stream()
-                .map(this::buildMsisdnDetection)
-                .collect(Collectors.toList());
-            
-            return new PageImpl<>(detections, pageable, detections.size());
+            return new PageImpl<>(detections, pageable, 
+                countDetectedMsisdns(ruleIds, startDate, endDate, decisionStatus));
             
         } catch (Exception e) {
             log.error("Error getting detected MSISDNs: {}", e.getMessage());
@@ -661,39 +1090,209 @@ public class RuleValidationServiceImpl implements RuleValidationService {
         }
     }
     
+    @Override
+    public DetectedMsisdnCursorPageDTO getDetectedMsisdnsAfter(List<Integer> ruleIds, LocalDate startDate,
+                                                               LocalDate endDate, String decisionStatus,
+                                                               LocalDateTime afterTime, String afterMsisdn,
+                                                               int size) {
+        return getDetectedMsisdnsAfter(ruleIds, startDate, endDate, decisionStatus, afterTime, afterMsisdn, size,
+            FieldSet.all());
+    }
+    
+    @Override
+    public DetectedMsisdnCursorPageDTO getDetectedMsisdnsAfter(List<Integer> ruleIds, LocalDate startDate,
+                                                               LocalDate endDate, String decisionStatus,
+                                                               LocalDateTime afterTime, String afterMsisdn,
+                                                               int size, FieldSet fields) {
+        if ((afterTime == null) != (afterMsisdn == null)) {
+            throw new IllegalArgumentException("afterTime and afterMsisdn must be provided together");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        
+        // One extra key tells whether another page exists without a count query
+        List<Object[]> keys = fetchDetectedMsisdnKeys(ruleIds, startDate, endDate, decisionStatus,
+            afterTime, afterMsisdn, size + 1, 0);
+        boolean hasNext = keys.size() > size;
+        if (hasNext) {
+            keys = keys.subList(0, size);
+        }
+        
+        List<MsisdnDetectionDTO> detections = fetchDetectionsForKeys(ruleIds, startDate, endDate, keys, fields);
+        
+        DetectedMsisdnCursorPageDTO page = DetectedMsisdnCursorPageDTO.builder()
+            .content(detections)
+            .size(size)
+            .hasNext(hasNext)
+            .build();
+        
+        if (hasNext) {
+            Object[] lastKey = keys.get(keys.size() - 1);
+            page.setNextAfterMsisdn((String) lastKey[0]);
+            page.setNextAfterTime(((Timestamp) lastKey[1]).toLocalDateTime());
+        }
+        
+        return page;
+    }
+    
+    /**
+     * Total of the detected MSISDN pages, computed once per window and decision status and kept in the
+     * result cache (dropped with the validation results of the window when alerts or decisions land)
+     */
+    @Override
+    public long countDetectedMsisdns(List<Integer> ruleIds, LocalDate startDate,
+                                     LocalDate endDate, String decisionStatus) {
+        String variant = "count:" + (decisionStatus != null ? decisionStatus : "ALL");
+        return resultCache.count(ruleIds, startDate, endDate, variant, () -> {
+            Query countQuery = entityManager.createNativeQuery(buildDetectedMsisdnCountQuery(decisionStatus));
+            if (buildDecisionStatusFilter(decisionStatus).contains(":decisionStatus")) {
+                // Only the latest decisions are read
+                countQuery.setParameter("startDate", Timestamp.valueOf(startDate.atStartOfDay()));
+                countQuery.setParameter("endDate", Timestamp.valueOf(endDate.atTime(23, 59, 59)));
+            } else {
+                bindValidationParameters(countQuery, ruleIds, startDate, endDate);
+            }
+            bindDecisionStatus(countQuery, decisionStatus);
+            return ((Number) countQuery.getSingleResult()).longValue();
+        });
+    }
+    
     @Override
     public List<RuleCredibilityAnalysisDTO> analyzeRuleCredibility(List<Integer> ruleIds, LocalDate startDate, LocalDate endDate) {
+        // Reuse the analysis of a cached full validation over the same window
+        RuleValidationResponseDTO cached = resultCache.peek(ruleIds, startDate, endDate);
+        if (cached != null && cached.getRuleCredibilityAnalysis() != null) {
+            return cached.getRuleCredibilityAnalysis();
+        }
         return buildRuleCredibilityAnalysis(ruleIds, startDate, endDate);
     }
     
+    /**
+     * Detections of the MSISDN per rule in the window, with its latest decision in the window
+     */
     @Override
     public List<MsisdnDetectionDTO> getMsisdnHistory(String msisdn, LocalDate startDate, LocalDate endDate) {
-        // Implementation for MSISDN detection history
-        return new ArrayList<>();
+        List<MsisdnTimelineEvent> timeline = loadMsisdnTimeline(msisdn, startDate, endDate);
+        
+        Map<Integer, MsisdnDetectionDTO> byRule = new LinkedHashMap<>();
+        MsisdnTimelineEvent latestDecision = null;
+        int totalAlerts = 0;
+        
+        // Events are in time order: the first row of a rule is its first detection, the last one its last
+        for (MsisdnTimelineEvent event : timeline) {
+            if (!event.isAlert()) {
+                latestDecision = event;
+                continue;
+            }
+            totalAlerts += event.getAlertCount();
+            MsisdnDetectionDTO detection = byRule.get(event.getRuleId());
+            if (detection == null) {
+                detection = MsisdnDetectionDTO.builder()
+                    .msisdn(msisdn.trim())
+                    .ruleId(event.getRuleId())
+                    .ruleName(event.getRuleName())
+                    .ruleCategory(event.getRuleCategory())
+                    .ruleType(event.getRuleType())
+                    .firstDetectionTime(event.getEventTime())
+                    .alertCount(0)
+                    .detectionSource("ALERT")
+                    .build();
+                byRule.put(event.getRuleId(), detection);
+            }
+            detection.setLastDetectionTime(event.getEventTime());
+            detection.setAlertCount(detection.getAlertCount() + event.getAlertCount());
+        }
+        
+        List<MsisdnDetectionDTO> detections = new ArrayList<>(byRule.values());
+        for (MsisdnDetectionDTO detection : detections) {
+            detection.setTotalRulesTriggered(detections.size());
+            detection.setTotalAlertsAllRules(totalAlerts);
+            if (latestDecision != null) {
+                detection.setDecisionStatus(latestDecision.getDecision());
+                detection.setDecisionTime(latestDecision.getEventTime());
+                detection.setDecisionUser(latestDecision.getDecisionUser());
+                detection.setDecisionRuleId(latestDecision.getRuleId());
+            }
+        }
+        
+        detections.sort(Comparator.comparing(MsisdnDetectionDTO::getLastDetectionTime).reversed());
+        return detections;
     }
     
+    /**
+     * Decisions of the MSISDN in the window, oldest first, with the alert context at each decision
+     */
     @Override
     public List<DecisionTimelineDTO> getMsisdnDecisionTimeline(String msisdn, LocalDate startDate, LocalDate endDate) {
-        // Implementation for decision timeline
-        return new ArrayList<>();
+        List<MsisdnTimelineEvent> timeline = loadMsisdnTimeline(msisdn, startDate, endDate);
+        List<DecisionTimelineDTO> decisions = new ArrayList<>();
+        
+        for (MsisdnTimelineEvent event : timeline) {
+            if (event.isAlert()) {
+                continue;
+            }
+            boolean initial = event.getPreviousDecision() == null;
+            boolean changed = !initial && !event.getPreviousDecision().equals(event.getDecision());
+            
+            DecisionTimelineDTO decision = DecisionTimelineDTO.builder()
+                .msisdn(msisdn.trim())
+                .decision(event.getDecision())
+                .decisionTime(event.getEventTime())
+                .decisionUser(event.getDecisionUser())
+                .decisionRuleId(event.getRuleId())
+                .decisionRuleName(event.getRuleName())
+                .totalAlertsAtDecision(event.getAlertsAtTime())
+                .totalRulesTriggeredAtDecision(event.getRulesTriggeredAtTime())
+                .previousDecision(event.getPreviousDecision())
+                .previousDecisionTime(event.getPreviousDecisionTime())
+                .previousDecisionRuleName(event.getPreviousDecisionRuleName())
+                .isInitialDecision(initial)
+                .isDecisionChange(changed)
+                .build();
+            decision.setChangeReason(decision.getDecisionChangeDescription());
+            decisions.add(decision);
+        }
+        return decisions;
     }
     
     @Override
     public byte[] exportValidationResults(RuleValidationRequestDTO request, String format) {
         try {
-            RuleValidationResponseDTO response = validateRules(request);
-            
-            if ("EXCEL".equalsIgnoreCase(format)) {
-                return exportToExcel(response);
-            } else {
-                return exportToCsv(response);
-            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            exportValidationResults(request, format, outputStream);
+            return outputStream.toByteArray();
         } catch (Exception e) {
             log.error("Error exporting validation results: {}", e.getMessage());
             return new byte[0];
         }
     }
     
+    /**
+     * Streamed export: detections go from the cursor to the writer one by one, so memory stays
+     * bounded by the fetch size and the SXSSF row window whatever the number of MSISDNs
+     */
+    @Override
+    public void exportValidationResults(RuleValidationRequestDTO request, String format, OutputStream outputStream)
+            throws IOException {
+        log.info("Streaming {} export for rules {}, period {} to {}", 
+                format, request.getRuleIds(), request.getStartDate(), request.getEndDate());
+        
+        long startTime = System.currentTimeMillis();
+        validateRequest(request);
+        
+        long[] rowCount = {0};
+        try (DetectionExportWriter writer = DetectionExportWriter.forFormat(format, outputStream, excelWindowSize)) {
+            forEachDetection(request, detection -> {
+                writer.write(detection);
+                rowCount[0]++;
+            });
+            writer.finish();
+        }
+        
+        log.info("Export complete: {} rows in {}ms", rowCount[0], System.currentTimeMillis() - startTime);
+    }
+    
     @Override
     public Page<RuleValidationDTO> getRuleValidationData(RuleValidationRequestDTO request) {
         // Implementation for rule validation data
@@ -738,47 +1337,6 @@ public class RuleValidationServiceImpl implements RuleValidationService {
         }
     }
     
-    private String buildEnhancedDecisionReason(Object[] row) {
-        StringBuilder reason = new StringBuilder();
-        
-        String decision = (String) row[9];
-        String decisionUser = (String) row[11];
-        String decisionRuleName = (String) row[13];
-        String decisionReasonRaw = (String) row[14];
-        Integer totalRulesTriggered = ((Number) row[15]).intValue();
-        Integer totalAlerts = ((Number) row[16]).intValue();
-        String triggeredRuleNames = (String) row[17];
-        
-        if (decision != null) {
-            String decisionText = "D".equals(decision) ? "Blocked" : "Whitelisted";
-            reason.append(decisionText);
-            
-            if (decisionRuleName != null) {
-                reason.append(" by rule '").append(decisionRuleName).append("'");
-            } else if (decisionUser != null) {
-                reason.append(" by ").append(decisionUser);
-            }
-            
-            reason.append(" after ").append(totalRulesTriggered).append(" rule(s) triggered ");
-            reason.append(totalAlerts).append(" alert(s)");
-            
-            if (decisionReasonRaw != null && !decisionReasonRaw.trim().isEmpty()) {
-                reason.append(". Reason: ").append(decisionReasonRaw);
-            }
-            
-        } else {
-            reason.append("Pending decision. Triggered by ")
-                  .append(totalRulesTriggered).append(" rule(s) with ")
-                  .append(totalAlerts).append(" alert(s)");
-                  
-            if (triggeredRuleNames != null && !triggeredRuleNames.trim().isEmpty()) {
-                reason.append(" [").append(triggeredRuleNames).append("]");
-            }
-        }
-        
-        return reason.toString();
-    }
-    
     private RuleValidationResponseDTO buildValidationResponse(
             RuleValidationRequestDTO request,
             ProcessedValidationData data,
@@ -786,39 +1344,52 @@ public class RuleValidationServiceImpl implements RuleValidationService {
             long processingTime) {
         
         // Build summary statistics
-        RuleValidationResponseDTO.SummaryStatistics summary = 
-            RuleValidationResponseDTO.SummaryStatistics.builder()
-                .totalUniquesMsisdns((long) data.uniqueMsisdns.size())
-                .totalFraudulentMsisdns((long) data.fraudulentMsisdns.size())
-                .totalWhitelistedMsisdns((long) data.whitelistedMsisdns.size())
-                .totalPendingMsisdns((long) data.pendingMsisdns.size())
-                .overallDecisionRate(calculateRate(
-                    data.fraudulentMsisdns.size() + data.whitelistedMsisdns.size(),
-                    data.uniqueMsisdns.size()))
-                .overallFraudRate(calculateRate(
-                    data.fraudulentMsisdns.size(),
-                    data.uniqueMsisdns.size()))
-                .averageRuleCredibility(calculateAverageCredibility(credibilityAnalysis))
-                .alertDistributionByRule(data.alertsByRule)
-                .build();
+        ValidationAggregates aggregates = data.aggregates;
+        RuleValidationResponseDTO.SummaryStatistics summary = buildSummaryStatistics(
+            aggregates.getUniqueMsisdns(),
+            aggregates.getFraudulentMsisdns(),
+            aggregates.getWhitelistedMsisdns(),
+            aggregates.getPendingMsisdns(),
+            aggregates.getAlertsByRule(),
+            credibilityAnalysis);
         
         log.info("Response built with {} unique MSISDNs, {} rules analyzed in {}ms",
-            data.uniqueMsisdns.size(), credibilityAnalysis.size(), processingTime);
+            aggregates.getUniqueMsisdns(), credibilityAnalysis.size(), processingTime);
         
         return RuleValidationResponseDTO.builder()
             .ruleIds(request.getRuleIds())
             .startDate(request.getStartDate())
             .endDate(request.getEndDate())
             .totalRulesAnalyzed(credibilityAnalysis.size())
-            .totalMsisdnsDetected((long) data.uniqueMsisdns.size())
-            .totalAlertsGenerated(data.totalAlerts)
+            .totalMsisdnsDetected(aggregates.getUniqueMsisdns())
+            .totalAlertsGenerated(aggregates.getTotalAlerts())
             .detectedMsisdns(data.detections)
             .ruleCredibilityAnalysis(credibilityAnalysis)
             .summary(summary)
             .build();
     }
     
-    private double calculateRate(int numerator, int denominator) {
+    private RuleValidationResponseDTO.SummaryStatistics buildSummaryStatistics(
+            long uniqueMsisdns,
+            long fraudulentMsisdns,
+            long whitelistedMsisdns,
+            long pendingMsisdns,
+            Map<Integer, Long> alertsByRule,
+            List<RuleCredibilityAnalysisDTO> credibilityAnalysis) {
+        
+        return RuleValidationResponseDTO.SummaryStatistics.builder()
+            .totalUniquesMsisdns(uniqueMsisdns)
+            .totalFraudulentMsisdns(fraudulentMsisdns)
+            .totalWhitelistedMsisdns(whitelistedMsisdns)
+            .totalPendingMsisdns(pendingMsisdns)
+            .overallDecisionRate(calculateRate(fraudulentMsisdns + whitelistedMsisdns, uniqueMsisdns))
+            .overallFraudRate(calculateRate(fraudulentMsisdns, uniqueMsisdns))
+            .averageRuleCredibility(calculateAverageCredibility(credibilityAnalysis))
+            .alertDistributionByRule(alertsByRule)
+            .build();
+    }
+    
+    private double calculateRate(long numerator, long denominator) {
         return denominator == 0 ? 0.0 : (double) numerator / denominator * 100;
     }
     
@@ -874,78 +1445,6 @@ public class RuleValidationServiceImpl implements RuleValidationService {
         return "info";
     }
     
-    private byte[] exportToExcel(RuleValidationResponseDTO response) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("MSISDN Detections");
-        
-        // Create header row
-        Row header = sheet.createRow(0);
-        String[] columns = {"MSISDN", "Rule", "Category", "Total Alerts", "Rules Triggered", 
-                           "First Detection", "Last Detection", "Decision", "Decision Time", "Decided By"};
-        
-        for (int i = 0; i < columns.length; i++) {
-            Cell cell = header.createCell(i);
-            cell.setCellValue(columns[i]);
-        }
-        
-        // Fill data rows
-        int rowNum = 1;
-        for (MsisdnDetectionDTO detection : response.getDetectedMsisdns()) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(detection.getMsisdn());
-            row.createCell(1).setCellValue(detection.getRuleName());
-            row.createCell(2).setCellValue(detection.getRuleCategory());
-            row.createCell(3).setCellValue(detection.getAlertCount());
-            row.createCell(4).setCellValue(detection.getTotalRulesTriggered());
-            row.createCell(5).setCellValue(detection.getFirstDetectionTime() != null ? 
-                detection.getFirstDetectionTime().toString() : "");
-            row.createCell(6).setCellValue(detection.getLastDetectionTime() != null ? 
-                detection.getLastDetectionTime().toString() : "");
-            row.createCell(7).setCellValue(getDecisionLabel(detection.getDecisionStatus()));
-            row.createCell(8).setCellValue(detection.getDecisionTime() != null ? 
-                detection.getDecisionTime().toString() : "");
-            row.createCell(9).setCellValue(detection.getDecisionUser() != null ? 
-                detection.getDecisionUser() : "");
-        }
-        
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        workbook.write(outputStream);
-        workbook.close();
-        
-        return outputStream.toByteArray();
-    }
-    
-    private byte[] exportToCsv(RuleValidationResponseDTO response) {
-        StringBuilder csv = new StringBuilder();
-        
-        // Header
-        csv.append("MSISDN,Rule,Category,Total Alerts,Rules Triggered,First Detection,Last Detection,Decision,Decision Time,Decided By\n");
-        
-        // Data
-        for (MsisdnDetectionDTO detection : response.getDetectedMsisdns()) {
-            csv.append(detection.getMsisdn()).append(",")
-               .append(detection.getRuleName()).append(",")
-               .append(detection.getRuleCategory()).append(",")
-               .append(detection.getAlertCount()).append(",")
-               .append(detection.getTotalRulesTriggered()).append(",")
-               .append(detection.getFirstDetectionTime() != null ? detection.getFirstDetectionTime().toString() : "").append(",")
-               .append(detection.getLastDetectionTime() != null ? detection.getLastDetectionTime().toString() : "").append(",")
-               .append(getDecisionLabel(detection.getDecisionStatus())).append(",")
-               .append(detection.getDecisionTime() != null ? detection.getDecisionTime().toString() : "").append(",")
-               .append(detection.getDecisionUser() != null ? detection.getDecisionUser() : "").append("\n");
-        }
-        
-        return csv.toString().getBytes();
-    }
-    
-    private String getDecisionLabel(String status) {
-        switch (status) {
-            case "D": return "Blocked";
-            case "W": return "Whitelisted";
-            default: return "Pending";
-        }
-    }
-    
     private RuleCredibilityDTO convertToLegacyCredibility(RuleCredibilityAnalysisDTO analysis) {
         RuleCredibilityDTO legacy = new RuleCredibilityDTO();
         // Map fields from analysis to legacy format
@@ -954,13 +1453,44 @@ public class RuleValidationServiceImpl implements RuleValidationService {
     }
     
     // Data structures for processing
-    private static class ProcessedValidationData {
-        List<MsisdnDetectionDTO> detections = new ArrayList<>();
-        Set<String> uniqueMsisdns = new HashSet<>();
-        Set<String> fraudulentMsisdns = new HashSet<>();
-        Set<String> whitelistedMsisdns = new HashSet<>();
-        Set<String> pendingMsisdns = new HashSet<>();
-        Map<Integer, Long> alertsByRule = new HashMap<>();
+    
+    @FunctionalInterface
+    private interface DetectionSink {
+        void accept(MsisdnDetectionDTO detection) throws IOException;
+    }
+    private static class StreamedValidationCounters {
+        long uniqueMsisdns = 0;
+        long fraudulentMsisdns = 0;
+        long whitelistedMsisdns = 0;
+        long pendingMsisdns = 0;
         long totalAlerts = 0;
+        IntLongOpenHashMap alertsByRule = new IntLongOpenHashMap(64);
+        
+        void add(MsisdnDetectionDTO detection) {
+            uniqueMsisdns++;
+            totalAlerts += detection.getAlertCount();
+            
+            if ("D".equals(detection.getDecisionStatus())) {
+                fraudulentMsisdns++;
+            } else if ("W".equals(detection.getDecisionStatus())) {
+                whitelistedMsisdns++;
+            } else {
+                pendingMsisdns++;
+            }
+            
+            if (detection.getRuleId() != null) {
+                alertsByRule.addTo(detection.getRuleId(), detection.getAlertCount());
+            }
+        }
+    }
+    
+    private static class ProcessedValidationData {
+        final List<MsisdnDetectionDTO> detections;
+        final ValidationAggregates aggregates;
+        
+        ProcessedValidationData(ValidationAggregates aggregates, int expectedRows) {
+            this.detections = new ArrayList<>(expectedRows);
+            this.aggregates = aggregates;
+        }
     }
 }
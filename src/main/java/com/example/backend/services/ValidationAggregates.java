@@ -0,0 +1,107 @@
+package com.example.backend.services;
+
+import com.example.backend.entities.dto.MsisdnDetectionDTO;
+import com.example.backend.utils.IntLongOpenHashMap;
+import com.example.backend.utils.LongOpenHashSet;
+import com.example.backend.utils.MsisdnCodec;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summary counters of a validation run: distinct MSISDNs per decision status and alerts per rule.
+ *
+ * MSISDNs are kept as MsisdnCodec longs in primitive open-addressing sets and alerts per rule in an
+ * int to long map, so aggregating a few hundred thousand detections allocates a handful of arrays
+ * instead of one String key and hash node per MSISDN and set.
+ */
+public class ValidationAggregates {
+
+    private final MsisdnCodec codec;
+
+    private final MsisdnSet unique;
+    private final MsisdnSet fraudulent;
+    private final MsisdnSet whitelisted;
+    private final MsisdnSet pending;
+    private final IntLongOpenHashMap alertsByRule = new IntLongOpenHashMap(64);
+    private long totalAlerts;
+
+    public ValidationAggregates(MsisdnCodec codec, int expectedMsisdns) {
+        this.codec = codec;
+        this.unique = new MsisdnSet(expectedMsisdns);
+        this.fraudulent = new MsisdnSet(16);
+        this.whitelisted = new MsisdnSet(16);
+        this.pending = new MsisdnSet(expectedMsisdns);
+    }
+
+    public void add(MsisdnDetectionDTO detection) {
+        long code = codec.encode(detection.getMsisdn());
+        String msisdn = detection.getMsisdn();
+
+        unique.add(code, msisdn);
+        totalAlerts += detection.getAlertCount();
+
+        // Categorize by decision status
+        if ("D".equals(detection.getDecisionStatus())) {
+            fraudulent.add(code, msisdn);
+        } else if ("W".equals(detection.getDecisionStatus())) {
+            whitelisted.add(code, msisdn);
+        } else {
+            pending.add(code, msisdn);
+        }
+
+        if (detection.getRuleId() != null) {
+            alertsByRule.addTo(detection.getRuleId(), detection.getAlertCount());
+        }
+    }
+
+    public long getUniqueMsisdns() {
+        return unique.size();
+    }
+
+    public long getFraudulentMsisdns() {
+        return fraudulent.size();
+    }
+
+    public long getWhitelistedMsisdns() {
+        return whitelisted.size();
+    }
+
+    public long getPendingMsisdns() {
+        return pending.size();
+    }
+
+    public long getTotalAlerts() {
+        return totalAlerts;
+    }
+
+    public Map<Integer, Long> getAlertsByRule() {
+        return alertsByRule.toMap();
+    }
+
+    // Encodable MSISDNs go to the primitive set, anything else (null, non-digits, too long) to a String set
+    private static final class MsisdnSet {
+        private final LongOpenHashSet codes;
+        private Set<String> others;
+
+        MsisdnSet(int expectedSize) {
+            this.codes = new LongOpenHashSet(expectedSize);
+        }
+
+        void add(long code, String msisdn) {
+            if (code != MsisdnCodec.NOT_ENCODABLE) {
+                codes.add(code);
+                return;
+            }
+            if (others == null) {
+                others = new HashSet<>();
+            }
+            others.add(msisdn);
+        }
+
+        int size() {
+            return codes.size() + (others != null ? others.size() : 0);
+        }
+    }
+}
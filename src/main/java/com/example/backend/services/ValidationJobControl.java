@@ -0,0 +1,27 @@
+package com.example.backend.services;
+
+/**
+ * Job control of a rule validation: the statement timeout of its queries and the phase it is in.
+ */
+public class ValidationJobControl extends JobControl {
+
+    private final int statementTimeoutSeconds;
+
+    private volatile String phase = "QUEUED";
+
+    public ValidationJobControl(int statementTimeoutSeconds) {
+        this.statementTimeoutSeconds = statementTimeoutSeconds;
+    }
+
+    public int getStatementTimeoutSeconds() {
+        return statementTimeoutSeconds;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.backend.services;
+
+import com.example.backend.entities.ResourceNotFoundException;
+import com.example.backend.entities.dto.RuleValidationRequestDTO;
+import com.example.backend.entities.dto.ValidationJobDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Asynchronous rule validation jobs for windows too long for a synchronous request.
+ *
+ * - Jobs run the streamed validation on a bounded executor; a full queue rejects the submission
+ * - Cancelling a job cancels its running statement (Statement.cancel), statement_timeout bounds it
+ * - The NDJSON result is stored gzip-compressed under result-dir and served from there until its TTL,
+ *   an identical submission within the TTL returns the finished job instead of recomputing
+ */
+@Service
+@Slf4j
+public class ValidationJobService {
+
+    public static final String RESULT_SUFFIX = ".ndjson.gz";
+
+    @Autowired
+    private RuleValidationService ruleValidationService;
+
+    @Value("${rule-validation.jobs.pool-size:2}")
+    private int poolSize;
+
+    @Value("${rule-validation.jobs.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${rule-validation.jobs.statement-timeout-seconds:1800}")
+    private int statementTimeoutSeconds;
+
+    @Value("${rule-validation.jobs.result-ttl-minutes:60}")
+    private long resultTtlMinutes;
+
+    @Value("${rule-validation.jobs.result-dir:${java.io.tmpdir}/rule-validation-jobs}")
+    private String resultDir;
+
+    private final Map<String, ValidationJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+    private Path resultPath;
+
+    @PostConstruct
+    void start() throws IOException {
+        resultPath = Paths.get(resultDir);
+        Files.createDirectories(resultPath);
+        // Results of a previous run are unreachable, their jobs only lived in memory
+        deleteResultFiles();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(
+                poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "rule-validation-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        jobExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() {
+        jobs.values().forEach(job -> job.control.cancel());
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue a validation job, or return the finished job of an identical request still retained
+     *
+     * @throws RejectedExecutionException when the job queue is full
+     */
+    public ValidationJobDTO submit(RuleValidationRequestDTO request) {
+        String requestKey = requestKey(request);
+        for (ValidationJob existing : jobs.values()) {
+            if (existing.requestKey.equals(requestKey) && existing.status == JobStatus.SUCCEEDED) {
+                log.info("Validation job {} reused for an identical request", existing.id);
+                return existing.toDTO(resultTtlMinutes);
+            }
+        }
+
+        ValidationJob job = new ValidationJob(UUID.randomUUID().toString(), request, requestKey,
+                new ValidationJobControl(statementTimeoutSeconds));
+        jobs.put(job.id, job);
+        try {
+            job.future = jobExecutor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+
+        log.info("Validation job {} queued: rules {}, period {} to {}",
+                job.id, request.getRuleIds(), request.getStartDate(), request.getEndDate());
+        return job.toDTO(resultTtlMinutes);
+    }
+
+    public ValidationJobDTO getJob(String jobId) {
+        return findJob(jobId).toDTO(resultTtlMinutes);
+    }
+
+    public List<ValidationJobDTO> getJobs() {
+        return jobs.values().stream()
+                .sorted((a, b) -> b.submittedAt.compareTo(a.submittedAt))
+                .map(job -> job.toDTO(resultTtlMinutes))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cancel a queued or running job; finished jobs are left as they are
+     */
+    public ValidationJobDTO cancel(String jobId) {
+        ValidationJob job = findJob(jobId);
+        if (!job.status.isFinished()) {
+            job.control.cancel();
+            if (job.future != null && job.future.cancel(false)) {
+                // Still queued, it will never run
+                job.finish(JobStatus.CANCELLED, null);
+            }
+            log.info("Validation job {} cancellation requested", jobId);
+        }
+        return job.toDTO(resultTtlMinutes);
+    }
+
+    /**
+     * Path of the gzip-compressed NDJSON result of a succeeded job
+     *
+     * @throws IllegalStateException when the job has not succeeded
+     */
+    public Path getResultFile(String jobId) {
+        ValidationJob job = findJob(jobId);
+        if (job.status != JobStatus.SUCCEEDED) {
+            throw new IllegalStateException("Validation job " + jobId + " is " + job.status);
+        }
+        return job.resultFile;
+    }
+
+    /**
+     * Evict finished jobs and their stored results once their TTL has elapsed
+     */
+    @Scheduled(fixedDelayString = "${rule-validation.jobs.cleanup-interval-ms:60000}")
+    public void evictExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(resultTtlMinutes);
+        for (ValidationJob job : new ArrayList<>(jobs.values())) {
+            if (job.status.isFinished() && job.finishedAt != null && job.finishedAt.isBefore(cutoff)) {
+                jobs.remove(job.id);
+                deleteQuietly(job.resultFile);
+                log.debug("Validation job {} evicted", job.id);
+            }
+        }
+    }
+
+    private void run(ValidationJob job) {
+        if (job.control.isCancelled()) {
+            job.finish(JobStatus.CANCELLED, null);
+            return;
+        }
+
+        job.status = JobStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        Path partial = resultPath.resolve(job.id + ".part");
+
+        try {
+            try (OutputStream out = new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partial)), 64 * 1024)) {
+                ruleValidationService.streamValidationResults(job.request, out, job.control);
+            }
+            job.control.checkCancelled();
+
+            Path resultFile = resultPath.resolve(job.id + RESULT_SUFFIX);
+            Files.move(partial, resultFile, StandardCopyOption.REPLACE_EXISTING);
+            job.resultFile = resultFile;
+            job.resultSizeBytes = Files.size(resultFile);
+            job.control.setPhase("DONE");
+            job.finish(JobStatus.SUCCEEDED, null);
+
+            log.info("Validation job {} succeeded: {} MSISDNs, {} bytes stored",
+                    job.id, job.control.getRowsProcessed(), job.resultSizeBytes);
+        } catch (Exception e) {
+            deleteQuietly(partial);
+            if (job.control.isCancelled()) {
+                job.finish(JobStatus.CANCELLED, null);
+                log.info("Validation job {} cancelled after {} MSISDNs", job.id, job.control.getRowsProcessed());
+            } else {
+                job.finish(JobStatus.FAILED, e.getMessage());
+                log.error("Validation job {} failed", job.id, e);
+            }
+        }
+    }
+
+    private ValidationJob findJob(String jobId) {
+        ValidationJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Validation job not found or expired: " + jobId);
+        }
+        return job;
+    }
+
+    private static String requestKey(RuleValidationRequestDTO request) {
+        return request.getRuleIds().stream().distinct().sorted().collect(Collectors.toList())
+                + "|" + request.getStartDate() + "|" + request.getEndDate();
+    }
+
+    private void deleteResultFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(resultPath)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(RESULT_SUFFIX) || name.endsWith(".part")) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete validation job file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private static final class ValidationJob {
+        private final String id;
+        private final RuleValidationRequestDTO request;
+        private final String requestKey;
+        private final ValidationJobControl control;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+
+        private volatile Future<?> future;
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile Path resultFile;
+        private volatile Long resultSizeBytes;
+        private volatile String error;
+
+        ValidationJob(String id, RuleValidationRequestDTO request, String requestKey, ValidationJobControl control) {
+            this.id = id;
+            this.request = request;
+            this.requestKey = requestKey;
+            this.control = control;
+        }
+
+        synchronized void finish(JobStatus finalStatus, String errorMessage) {
+            if (status.isFinished()) {
+                return;
+            }
+            error = errorMessage;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        ValidationJobDTO toDTO(long ttlMinutes) {
+            return ValidationJobDTO.builder()
+                    .jobId(id)
+                    .status(status.name())
+                    .phase(control.getPhase())
+                    .rowsProcessed(control.getRowsProcessed())
+                    .ruleIds(request.getRuleIds())
+                    .startDate(request.getStartDate())
+                    .endDate(request.getEndDate())
+                    .submittedAt(submittedAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .expiresAt(finishedAt != null ? finishedAt.plusMinutes(ttlMinutes) : null)
+                    .resultSizeBytes(resultSizeBytes)
+                    .error(error)
+                    .build();
+        }
+    }
+}
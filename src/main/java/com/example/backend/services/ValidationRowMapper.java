@@ -0,0 +1,98 @@
+package com.example.backend.services;
+
+import com.example.backend.entities.dto.MsisdnDetectionDTO;
+import com.example.backend.utils.FieldSet;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Mapping of the MSISDN-grouped validation query rows (Object[], see buildMsisdnGroupedValidationQuery) to DTOs.
+ *
+ * Row shape: msisdn, rule_id, rule_name, rule_category, rule_type, alert_count, first_detection_time,
+ * last_detection_time, detection_source, decision_status, decision_time, decision_user, decision_rule_id,
+ * decision_rule_name, decision_reason_raw, total_rules_triggered, total_alerts_all_rules, triggered_rule_names,
+ * rule_categories, hours_to_decision
+ */
+public final class ValidationRowMapper {
+
+    private ValidationRowMapper() {
+    }
+
+    public static MsisdnDetectionDTO toMsisdnDetection(Object[] row) {
+        return toMsisdnDetection(row, FieldSet.all());
+    }
+
+    /**
+     * Map only the requested fields; the decision reason text and the timestamp conversions
+     * are skipped when not asked for
+     */
+    public static MsisdnDetectionDTO toMsisdnDetection(Object[] row, FieldSet fields) {
+        return MsisdnDetectionDTO.builder()
+            .msisdn((String) row[0])
+            .ruleId(row[1] != null ? ((Number) row[1]).intValue() : null)
+            .ruleName((String) row[2])
+            .ruleCategory((String) row[3])
+            .ruleType((String) row[4])
+            .alertCount(((Number) row[5]).intValue())
+            .firstDetectionTime(fields.includes("firstDetectionTime") ? toLocalDateTime(row[6]) : null)
+            .lastDetectionTime(fields.includes("lastDetectionTime") ? toLocalDateTime(row[7]) : null)
+            .detectionSource((String) row[8])
+            .decisionStatus((String) row[9])
+            .decisionTime(fields.includes("decisionTime") ? toLocalDateTime(row[10]) : null)
+            .decisionUser((String) row[11])
+            .decisionRuleId(row[12] != null ? ((Number) row[12]).intValue() : null)
+            .totalRulesTriggered(((Number) row[15]).intValue())
+            .totalAlertsAllRules(((Number) row[16]).intValue())
+            .decisionReason(fields.includes("decisionReason") ? buildDecisionReason(row) : null)
+            .build();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value != null ? ((Timestamp) value).toLocalDateTime() : null;
+    }
+
+    /**
+     * Human readable decision reason, or the pending summary when the MSISDN has no decision
+     */
+    public static String buildDecisionReason(Object[] row) {
+        StringBuilder reason = new StringBuilder();
+        
+        String decision = (String) row[9];
+        String decisionUser = (String) row[11];
+        String decisionRuleName = (String) row[13];
+        String decisionReasonRaw = (String) row[14];
+        Integer totalRulesTriggered = ((Number) row[15]).intValue();
+        Integer totalAlerts = ((Number) row[16]).intValue();
+        String triggeredRuleNames = (String) row[17];
+        
+        if (decision != null) {
+            String decisionText = "D".equals(decision) ? "Blocked" : "Whitelisted";
+            reason.append(decisionText);
+            
+            if (decisionRuleName != null) {
+                reason.append(" by rule '").append(decisionRuleName).append("'");
+            } else if (decisionUser != null) {
+                reason.append(" by ").append(decisionUser);
+            }
+            
+            reason.append(" after ").append(totalRulesTriggered).append(" rule(s) triggered ");
+            reason.append(totalAlerts).append(" alert(s)");
+            
+            if (decisionReasonRaw != null && !decisionReasonRaw.trim().isEmpty()) {
+                reason.append(". Reason: ").append(decisionReasonRaw);
+            }
+            
+        } else {
+            reason.append("Pending decision. Triggered by ")
+                  .append(totalRulesTriggered).append(" rule(s) with ")
+                  .append(totalAlerts).append(" alert(s)");
+                  
+            if (triggeredRuleNames != null && !triggeredRuleNames.trim().isEmpty()) {
+                reason.append(" [").append(triggeredRuleNames).append("]");
+            }
+        }
+        
+        return reason.toString();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.backend.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of loaded values where concurrent requests of a key share one load.
+ *
+ * - The first caller of a missing or expired key runs the loader, the others wait for its result
+ * - A failed load is not cached: its waiters get the failure, the next caller loads again
+ * - Values expire ttlMillis after they were loaded; a load in flight never expires
+ * - Past maxEntries entries or maxWeight (sum of the weigher over loaded values), the least recently
+ *   used loaded values are evicted first
+ * - peek() does not count in the statistics
+ *
+ * Keys need equals/hashCode; key(...) builds one from its parts.
+ */
+public final class CoalescingCache<K, V> {
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private final long ttlMillis;
+
+    // Access-ordered, so the eldest entry is the least recently used one; guarded by this
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CoalescingCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, Long.MAX_VALUE, value -> 0, ttlMillis);
+    }
+
+    public CoalescingCache(int maxEntries, long maxWeight, ToLongFunction<? super V> weigher, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Key made of the parts, equal to any key of equal parts
+     */
+    public static List<Object> key(Object... parts) {
+        return Arrays.asList(parts);
+    }
+
+    /**
+     * Cached value of the key, or the value of the loader, run once for all concurrent callers
+     */
+    public V get(K key, Supplier<V> loader) {
+        Entry<V> entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null || entry.isExpired(ttlMillis)) {
+                Entry<V> expired = entries.put(key, entry = new Entry<>());
+                if (expired != null) {
+                    weight -= expired.weight;
+                }
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            (entry.value.isDone() ? hits : coalesced).incrementAndGet();
+            return await(entry);
+        }
+
+        misses.incrementAndGet();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.value.completeExceptionally(e);
+            throw e;
+        }
+
+        synchronized (this) {
+            entry.loadedAt = System.currentTimeMillis();
+            entry.value.complete(value);
+            // Invalidated while loading: handed to the callers, not cached
+            if (entries.get(key) == entry) {
+                entry.weight = weigher.applyAsLong(value);
+                weight += entry.weight;
+            }
+            evict();
+        }
+        return value;
+    }
+
+    /**
+     * Loaded and unexpired value of the key, or null; never loads
+     */
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || !entry.value.isDone() || entry.value.isCompletedExceptionally()
+                || entry.isExpired(ttlMillis)) {
+            return null;
+        }
+        return entry.value.join();
+    }
+
+    /**
+     * Drop the entries of the matching keys, loads in flight included
+     *
+     * @return the number of entries dropped
+     */
+    public synchronized int invalidateIf(Predicate<? super K> stale) {
+        int removed = 0;
+        for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<K, Entry<V>> entry = it.next();
+            if (stale.test(entry.getKey())) {
+                weight -= entry.getValue().weight;
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return the number of entries dropped
+     */
+    public synchronized int clear() {
+        int removed = entries.size();
+        entries.clear();
+        weight = 0;
+        return removed;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    // Loads in flight stay, their waiters would otherwise start a second load
+    private void evict() {
+        Iterator<Entry<V>> eldestFirst = entries.values().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldestFirst.hasNext()) {
+            Entry<V> entry = eldestFirst.next();
+            if (entry.value.isDone()) {
+                weight -= entry.weight;
+                eldestFirst.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static <V> V await(Entry<V> entry) {
+        try {
+            return entry.value.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("In-flight load failed", e.getCause());
+        }
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+        private volatile long loadedAt;
+        private long weight;
+
+        boolean isExpired(long ttlMillis) {
+            return value.isDone() && System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
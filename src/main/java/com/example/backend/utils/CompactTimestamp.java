@@ -0,0 +1,188 @@
+package com.example.backend.utils;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Codec of the yyMMddHHmmss strings of the date_debut / date_fin columns (stat.alerte_fraude_seq,
+ * stat.regle_parametres_valeur_seq), years 2000 to 2099 as DateTimeFormatter's "yy".
+ *
+ * - toEpochSecond() and toEpochHour() read the digits in place: no formatter, no parsed-field map,
+ *   nothing allocated
+ * - The bounds helpers turn a date window into strings compared with the column as is
+ *   (date_debut >= :from AND date_debut < :to), which an index on the column can serve, unlike
+ *   to_timestamp(date_debut) or substr(date_debut) conditions
+ *
+ * Malformed values throw DateTimeException, as DateTimeFormatter parsing did.
+ */
+public final class CompactTimestamp {
+
+    public static final int LENGTH = 12;
+
+    private static final int BASE_YEAR = 2000;
+    private static final long SECONDS_PER_DAY = 86_400L;
+    // Days from 0000-03-01 to 1970-01-01 in the proleptic Gregorian calendar
+    private static final long DAYS_0000_TO_1970 = 719_468L;
+
+    private CompactTimestamp() {
+    }
+
+    /**
+     * Seconds from 1970-01-01T00:00:00 to the local date-time of the value, counted as if it were UTC
+     */
+    public static long toEpochSecond(CharSequence value) {
+        checkLength(value, LENGTH);
+        int year = BASE_YEAR + digits(value, 0);
+        int month = digits(value, 2);
+        int day = digits(value, 4);
+        int hour = digits(value, 6);
+        int minute = digits(value, 8);
+        int second = digits(value, 10);
+        checkFields(value, year, month, day, hour, minute, second);
+        return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * Seconds from 1970-01-01T00:00:00 to the start of the hour of a value, from its yyMMddHH prefix
+     * only: longer or shorter tails are not checked, as the former substr(value, 1, 8) SQL did not
+     */
+    public static long toEpochHour(CharSequence value) {
+        checkLength(value, 8);
+        int year = BASE_YEAR + digits(value, 0);
+        int month = digits(value, 2);
+        int day = digits(value, 4);
+        int hour = digits(value, 6);
+        checkFields(value, year, month, day, hour, 0, 0);
+        return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600;
+    }
+
+    public static LocalDateTime toLocalDateTime(CharSequence value) {
+        checkLength(value, LENGTH);
+        int year = BASE_YEAR + digits(value, 0);
+        int month = digits(value, 2);
+        int day = digits(value, 4);
+        int hour = digits(value, 6);
+        int minute = digits(value, 8);
+        int second = digits(value, 10);
+        checkFields(value, year, month, day, hour, minute, second);
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    // Null or empty values are absent dates
+    public static LocalDateTime toLocalDateTimeOrNull(CharSequence value) {
+        return value == null || value.length() == 0 ? null : toLocalDateTime(value);
+    }
+
+    public static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Day of a value, from its yyMMdd prefix only
+     */
+    public static LocalDate toLocalDate(CharSequence value) {
+        checkLength(value, 6);
+        int year = BASE_YEAR + digits(value, 0);
+        int month = digits(value, 2);
+        int day = digits(value, 4);
+        checkFields(value, year, month, day, 0, 0, 0);
+        return LocalDate.of(year, month, day);
+    }
+
+    public static String format(LocalDateTime dateTime) {
+        char[] chars = new char[LENGTH];
+        writeDay(chars, dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        write(chars, 6, dateTime.getHour());
+        write(chars, 8, dateTime.getMinute());
+        write(chars, 10, dateTime.getSecond());
+        return new String(chars);
+    }
+
+    // yyMMdd
+    public static String dayKey(LocalDate day) {
+        char[] chars = new char[6];
+        writeDay(chars, day.getYear(), day.getMonthValue(), day.getDayOfMonth());
+        return new String(chars);
+    }
+
+    /**
+     * Inclusive lower bound of the values of the day: date_debut >= lowerBound(startDate)
+     */
+    public static String lowerBound(LocalDate day) {
+        return dayKey(day) + "000000";
+    }
+
+    /**
+     * Exclusive upper bound of the values up to the end of the day: date_debut < upperBound(endDate)
+     */
+    public static String upperBound(LocalDate lastDay) {
+        return lowerBound(lastDay.plusDays(1));
+    }
+
+    private static void writeDay(char[] chars, int year, int month, int day) {
+        if (year < BASE_YEAR || year >= BASE_YEAR + 100) {
+            throw new DateTimeException("Year " + year + " out of the yy range");
+        }
+        write(chars, 0, year - BASE_YEAR);
+        write(chars, 2, month);
+        write(chars, 4, day);
+    }
+
+    private static void write(char[] chars, int offset, int value) {
+        chars[offset] = (char) ('0' + value / 10);
+        chars[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static int digits(CharSequence value, int offset) {
+        int tens = value.charAt(offset) - '0';
+        int units = value.charAt(offset + 1) - '0';
+        if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+            throw invalid(value);
+        }
+        return tens * 10 + units;
+    }
+
+    private static void checkLength(CharSequence value, int length) {
+        if (value == null || value.length() < length || (length == LENGTH && value.length() != LENGTH)) {
+            throw new DateTimeException("Not a yyMMddHHmmss value: " + value);
+        }
+    }
+
+    private static void checkFields(CharSequence value, int year, int month, int day,
+                                    int hour, int minute, int second) {
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            throw invalid(value);
+        }
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Days from 1970-01-01, civil calendar arithmetic on March-based years
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = y / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    private static DateTimeException invalid(CharSequence value) {
+        return new DateTimeException("Not a yyMMddHHmmss value: " + value);
+    }
+}
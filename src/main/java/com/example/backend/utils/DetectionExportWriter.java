@@ -0,0 +1,142 @@
+package com.example.backend.utils;
+
+import com.example.backend.entities.dto.MsisdnDetectionDTO;
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Row-by-row writer of validation detections, so exports never hold the whole result in memory.
+ *
+ * - EXCEL: XlsxStreamWriter (SXSSF window of windowSize rows, compressed temp file, a new sheet
+ *   past the row limit of a sheet)
+ * - CSV: opencsv over a buffered writer, rows go to the output as they are written
+ */
+public abstract class DetectionExportWriter implements Closeable {
+
+    public static final String[] COLUMNS = {"MSISDN", "Rule", "Category", "Total Alerts", "Rules Triggered",
+            "First Detection", "Last Detection", "Decision", "Decision Time", "Decided By"};
+
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+
+    public static DetectionExportWriter forFormat(String format, OutputStream out, int excelWindowSize) {
+        if ("EXCEL".equalsIgnoreCase(format)) {
+            return new Excel(out, excelWindowSize);
+        }
+        return new Csv(out);
+    }
+
+    public abstract void write(MsisdnDetectionDTO detection) throws IOException;
+
+    /**
+     * Complete the document on the output; the output stream itself is left open
+     */
+    public abstract void finish() throws IOException;
+
+    protected static String[] toValues(MsisdnDetectionDTO detection) {
+        return new String[]{
+                detection.getMsisdn(),
+                detection.getRuleName(),
+                detection.getRuleCategory(),
+                String.valueOf(detection.getAlertCount()),
+                String.valueOf(detection.getTotalRulesTriggered()),
+                detection.getFirstDetectionTime() != null ? detection.getFirstDetectionTime().toString() : "",
+                detection.getLastDetectionTime() != null ? detection.getLastDetectionTime().toString() : "",
+                getDecisionLabel(detection.getDecisionStatus()),
+                detection.getDecisionTime() != null ? detection.getDecisionTime().toString() : "",
+                detection.getDecisionUser() != null ? detection.getDecisionUser() : ""
+        };
+    }
+
+    public static String getDecisionLabel(String status) {
+        if ("D".equals(status)) {
+            return "Blocked";
+        }
+        if ("W".equals(status)) {
+            return "Whitelisted";
+        }
+        return "Pending";
+    }
+
+    private static final class Excel extends DetectionExportWriter {
+        private final XlsxStreamWriter writer;
+
+        Excel(OutputStream out, int windowSize) {
+            this.writer = new XlsxStreamWriter(out, "MSISDN Detections", COLUMNS, windowSize, true);
+        }
+
+        @Override
+        public void write(MsisdnDetectionDTO detection) {
+            String[] values = toValues(detection);
+            writer.startRow();
+            for (int i = 0; i < values.length; i++) {
+                // Counts stay numeric cells, as in the former XSSF export
+                if (i == 3 && detection.getAlertCount() != null) {
+                    writer.number(detection.getAlertCount());
+                } else if (i == 4 && detection.getTotalRulesTriggered() != null) {
+                    writer.number(detection.getTotalRulesTriggered());
+                } else {
+                    writer.text(values[i]);
+                }
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.finish();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private static final class Csv extends DetectionExportWriter {
+        private final CSVWriter writer;
+
+        Csv(OutputStream out) {
+            this.writer = new CSVWriter(new BufferedWriter(
+                    new OutputStreamWriter(new NonClosingOutputStream(out), StandardCharsets.UTF_8), CSV_BUFFER_SIZE));
+            writer.writeNext(COLUMNS);
+        }
+
+        @Override
+        public void write(MsisdnDetectionDTO detection) {
+            writer.writeNext(toValues(detection));
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    // The servlet output stream belongs to the container, closing the CSV writer must not close it
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
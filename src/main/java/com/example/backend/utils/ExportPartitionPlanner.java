@@ -0,0 +1,61 @@
+package com.example.backend.utils;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an export window into contiguous date ranges queried concurrently.
+ *
+ * There are never more than maxPartitions ranges and their lengths differ by at most one day,
+ * the longer ones first, so no partition holds up the merge by running much longer than the others.
+ */
+public final class ExportPartitionPlanner {
+
+    private ExportPartitionPlanner() {
+    }
+
+    public static List<DateRange> plan(LocalDate startDate, LocalDate endDate, int maxPartitions) {
+        List<DateRange> ranges = new ArrayList<>();
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (days <= 0) {
+            return ranges;
+        }
+
+        int partitions = (int) Math.max(1, Math.min(maxPartitions, days));
+        long baseDays = days / partitions;
+        long longer = days % partitions;
+
+        LocalDate start = startDate;
+        for (int i = 0; i < partitions; i++) {
+            LocalDate end = start.plusDays(baseDays + (i < longer ? 1 : 0) - 1);
+            ranges.add(new DateRange(start, end));
+            start = end.plusDays(1);
+        }
+        return ranges;
+    }
+
+    public static final class DateRange {
+        private final LocalDate start;
+        private final LocalDate end;
+
+        public DateRange(LocalDate start, LocalDate end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public LocalDate getStart() {
+            return start;
+        }
+
+        public LocalDate getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return start + ".." + end;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.backend.utils;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Sparse fieldset requested with a fields=a,b,c parameter.
+ *
+ * Services use includes() to skip the columns and the derived strings nobody asked for, and controllers
+ * pass filterProvider() to Jackson so only the requested properties of the DTOs annotated with
+ * {@code @JsonFilter(FieldSet.FILTER_ID)} are written. Without a fields parameter everything is included.
+ */
+public final class FieldSet {
+
+    public static final String FILTER_ID = "fieldSet";
+
+    private static final FieldSet ALL = new FieldSet(null);
+
+    // null means every field
+    private final Set<String> fields;
+
+    private FieldSet(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldSet all() {
+        return ALL;
+    }
+
+    /**
+     * @param spec comma separated field names of the DTO, null or blank for all fields
+     * @param type DTO the names are checked against
+     * @param alwaysIncluded fields kept even when not requested (identifiers)
+     * @throws IllegalArgumentException on a name that is not a field of the DTO
+     */
+    public static FieldSet parse(String spec, Class<?> type, String... alwaysIncluded) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return ALL;
+        }
+
+        Set<String> known = fieldNames(type);
+        Set<String> fields = new TreeSet<>();
+        for (String name : spec.split(",")) {
+            String field = name.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!known.contains(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "' for " + type.getSimpleName()
+                        + ", expected one of " + known);
+            }
+            fields.add(field);
+        }
+        Collections.addAll(fields, alwaysIncluded);
+        return new FieldSet(Collections.unmodifiableSet(fields));
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    public boolean includesAny(String... names) {
+        for (String name : names) {
+            if (includes(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This set plus the given fields, e.g. what a service needs internally on top of the request
+     */
+    public FieldSet with(String... extra) {
+        if (fields == null) {
+            return this;
+        }
+        Set<String> merged = new TreeSet<>(fields);
+        Collections.addAll(merged, extra);
+        return new FieldSet(Collections.unmodifiableSet(merged));
+    }
+
+    /**
+     * Stable key of the set, for caches holding projected results
+     */
+    public String key() {
+        return fields == null ? "*" : String.join(",", fields);
+    }
+
+    /**
+     * Jackson filters writing only the requested properties of the filtered DTOs
+     */
+    public FilterProvider filterProvider() {
+        SimpleBeanPropertyFilter filter = fields == null
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(fields);
+        return new SimpleFilterProvider().addFilter(FILTER_ID, filter).setFailOnUnknownId(false);
+    }
+
+    private static Set<String> fieldNames(Class<?> type) {
+        Set<String> names = new LinkedHashSet<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    names.add(field.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return key();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.backend.utils;
+
+/**
+ * Bit mixers spreading keys over the slots of the open-addressing tables and the HyperLogLog
+ * registers (MurmurHash3 finalizers)
+ */
+final class HashMixer {
+
+    private HashMixer() {
+    }
+
+    static int mix(long key) {
+        return (int) mix64(key);
+    }
+
+    static long mix64(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    static int mix(int key) {
+        key ^= key >>> 16;
+        key *= 0x85ebca6b;
+        key ^= key >>> 13;
+        key *= 0xc2b2ae35;
+        key ^= key >>> 16;
+        return key;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.backend.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog distinct counter over 2^precision one-byte registers, relative standard error
+ * 1.04 / sqrt(2^precision) (precision 12: 4096 registers, about 1.6 %).
+ *
+ * - Sketches of disjoint or overlapping sets merge register by register into the sketch of their union,
+ *   so per-day sketches answer any range of days
+ * - toBytes() stores only the non-zero registers while that is smaller (a quiet rule on a quiet day
+ *   takes a few bytes), fromBytes() reads both layouts
+ * - Sketches of different precisions merge at the lower one
+ *
+ * Not thread-safe.
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    private static final int HEADER_LENGTH = 3;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between "
+                    + MIN_PRECISION + " and " + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public static double relativeStandardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    public void add(String value) {
+        if (value != null) {
+            addHash(hash(value));
+        }
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Position of the first 1 bit after the index bits; the sentinel bit caps it at 64 - precision + 1
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Fold other into this sketch (union of the sets)
+     *
+     * @throws IllegalArgumentException when other has a lower precision; merge into withPrecision() of it
+     */
+    public void merge(HyperLogLog other) {
+        HyperLogLog source = other.precision > precision ? other.withPrecision(precision) : other;
+        if (source.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge a precision " + other.precision
+                    + " sketch into a precision " + precision + " one");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (source.registers[i] > registers[i]) {
+                registers[i] = source.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Same sketch at a lower (or the same) precision, as if the values had been added to it directly
+     */
+    public HyperLogLog withPrecision(int lowerPrecision) {
+        if (lowerPrecision > precision) {
+            throw new IllegalArgumentException("Cannot raise the precision of a sketch from "
+                    + precision + " to " + lowerPrecision);
+        }
+        HyperLogLog reduced = new HyperLogLog(lowerPrecision);
+        int shift = precision - lowerPrecision;
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) {
+                continue;
+            }
+            // The dropped index bits come first in the hash remainder of the lower precision
+            int dropped = i & ((1 << shift) - 1);
+            int rank = dropped != 0
+                    ? Integer.numberOfLeadingZeros(dropped) - (32 - shift) + 1
+                    : registers[i] + shift;
+            int index = i >>> shift;
+            if (rank > reduced.registers[index]) {
+                reduced.registers[index] = (byte) rank;
+            }
+        }
+        return reduced;
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Small range: linear counting on the empty registers is more accurate
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Header (version, precision, layout) then either every register or (index, register) pairs of the
+     * non-zero ones, whichever is smaller
+     */
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+
+        if (nonZero * 3 >= registers.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + registers.length);
+            buffer.put(FORMAT_VERSION).put((byte) precision).put(DENSE).put(registers);
+            return buffer.array();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + nonZero * 3);
+        buffer.put(FORMAT_VERSION).put((byte) precision).put(SPARSE);
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] != 0) {
+                buffer.putShort((short) i).put(registers[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException for bytes not written by toBytes()
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a serialized HyperLogLog sketch");
+        }
+        HyperLogLog sketch = new HyperLogLog(bytes[1]);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+
+        if (bytes[2] == DENSE) {
+            if (buffer.remaining() != sketch.registers.length) {
+                throw new IllegalArgumentException("Truncated HyperLogLog sketch");
+            }
+            buffer.get(sketch.registers);
+        } else if (bytes[2] == SPARSE) {
+            if (buffer.remaining() % 3 != 0) {
+                throw new IllegalArgumentException("Truncated HyperLogLog sketch");
+            }
+            while (buffer.hasRemaining()) {
+                int index = buffer.getShort() & 0xFFFF;
+                byte register = buffer.get();
+                if (index >= sketch.registers.length) {
+                    throw new IllegalArgumentException("HyperLogLog register out of range: " + index);
+                }
+                sketch.registers[index] = register;
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown HyperLogLog layout: " + bytes[2]);
+        }
+        return sketch;
+    }
+
+    // 64-bit FNV-1a over the chars, then mixed so every bit depends on the whole value
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return HashMixer.mix64(hash);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.backend.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * int to long map with open addressing (linear probing) over parallel primitive arrays.
+ * 0 marks a free slot, the key 0 itself is kept in a separate field.
+ */
+public class IntLongOpenHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    private boolean containsZero;
+    private long zeroValue;
+
+    public IntLongOpenHashMap() {
+        this(16);
+    }
+
+    public IntLongOpenHashMap(int expectedSize) {
+        allocate(LongOpenHashSet.tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR)));
+    }
+
+    /**
+     * Add delta to the value of key, starting from 0 when absent
+     */
+    public void addTo(int key, long delta) {
+        if (key == 0) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue += delta;
+            return;
+        }
+
+        int slot = HashMixer.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    public long get(int key, long defaultValue) {
+        if (key == 0) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+        int slot = HashMixer.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Boxed copy, for DTOs and JSON
+     */
+    public Map<Integer, Long> toMap() {
+        Map<Integer, Long> map = new HashMap<>(size * 2);
+        if (containsZero) {
+            map.put(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                map.put(keys[i], values[i]);
+            }
+        }
+        return map;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = HashMixer.mix(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.backend.utils;
+
+/**
+ * Reversible encoding of an MSISDN into a long, for primitive sets and maps.
+ *
+ * Layout: bit 62 = the number started with the operator country prefix (stripped),
+ * bits 57-61 = digit count of the remaining number (keeps leading zeros), bits 0-56 = its value.
+ * Different strings always give different codes, so counts match a Set&lt;String&gt;.
+ * Numbers that are not 1-17 digits return NOT_ENCODABLE and must be kept as strings by the caller.
+ */
+public final class MsisdnCodec {
+
+    public static final long NOT_ENCODABLE = -1L;
+
+    private static final int MAX_DIGITS = 17;
+    private static final int LENGTH_SHIFT = 57;
+    private static final long PREFIXED_FLAG = 1L << 62;
+    private static final long VALUE_MASK = (1L << LENGTH_SHIFT) - 1;
+
+    private final String countryPrefix;
+
+    /**
+     * @param countryPrefix country code of the operator (OperatorUtil.getCountryPrefix), may be empty
+     */
+    public MsisdnCodec(String countryPrefix) {
+        this.countryPrefix = countryPrefix != null ? countryPrefix : "";
+    }
+
+    public long encode(String msisdn) {
+        if (msisdn == null) {
+            return NOT_ENCODABLE;
+        }
+
+        int start = 0;
+        long flag = 0;
+        int prefixLength = countryPrefix.length();
+        if (prefixLength > 0 && msisdn.length() > prefixLength && msisdn.startsWith(countryPrefix)) {
+            start = prefixLength;
+            flag = PREFIXED_FLAG;
+        }
+
+        int digits = msisdn.length() - start;
+        if (digits == 0 || digits > MAX_DIGITS) {
+            return NOT_ENCODABLE;
+        }
+
+        long value = 0;
+        for (int i = start; i < msisdn.length(); i++) {
+            char c = msisdn.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_ENCODABLE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return flag | ((long) digits << LENGTH_SHIFT) | value;
+    }
+
+    public String decode(long code) {
+        if (code < 0) {
+            throw new IllegalArgumentException("Not an encoded MSISDN: " + code);
+        }
+        int digits = (int) ((code >>> LENGTH_SHIFT) & 0x1F);
+        String number = Long.toString(code & VALUE_MASK);
+
+        StringBuilder msisdn = new StringBuilder(countryPrefix.length() + digits);
+        if ((code & PREFIXED_FLAG) != 0) {
+            msisdn.append(countryPrefix);
+        }
+        for (int i = number.length(); i < digits; i++) {
+            msisdn.append('0');
+        }
+        return msisdn.append(number).toString();
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.backend.utils;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * K-way merge of sorted row streams produced concurrently.
+ *
+ * - Each source runs on the executor and hands its rows over a bounded queue, so memory is
+ *   queueCapacity rows per source whatever the stream sizes
+ * - The calling thread merges the queue heads in order (ties keep the source order) and feeds the sink
+ * - A failure on either side, or the caller cancelling while the merge waits for rows, stops every
+ *   source: the statements they registered are cancelled, so a source still waiting on its query
+ *   stops too. merge() returns only once all of them are done, so no source still holds a
+ *   connection afterwards
+ */
+public final class OrderedMerge {
+
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    private OrderedMerge() {
+    }
+
+    /**
+     * @param sources   each one pushes its rows, already in the given order, to the consumer it is handed
+     * @param cancelled polled while the merge waits for rows, true stops the merge with a CancellationException
+     */
+    public static <T> void merge(List<Source<T>> sources, Comparator<? super T> order, Executor executor,
+                                 int queueCapacity, BooleanSupplier cancelled, Consumer<? super T> sink) {
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReferenceArray<Statement> statements = new AtomicReferenceArray<>(sources.size());
+        CountDownLatch done = new CountDownLatch(sources.size());
+        List<BlockingQueue<Object>> queues = new ArrayList<>(sources.size());
+
+        for (int i = 0; i < sources.size(); i++) {
+            Source<T> source = sources.get(i);
+            int index = i;
+            BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            try {
+                executor.execute(() -> {
+                    try {
+                        source.run(statement -> {
+                            statements.set(index, statement);
+                            if (aborted.get()) {
+                                cancelQuietly(statement);
+                            }
+                        }, row -> put(queue, row, aborted));
+                        put(queue, END, aborted);
+                    } catch (Throwable t) {
+                        if (!aborted.get()) {
+                            failure.compareAndSet(null, t);
+                            aborted.set(true);
+                        }
+                    } finally {
+                        statements.set(index, null);
+                        done.countDown();
+                    }
+                });
+            } catch (RuntimeException e) {
+                aborted.set(true);
+                done.countDown();
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        boolean merged = false;
+        try {
+            PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> {
+                int c = order.compare(a.row, b.row);
+                return c != 0 ? c : Integer.compare(a.source, b.source);
+            });
+            for (int i = 0; i < queues.size(); i++) {
+                Head<T> head = new Head<>(i);
+                if (head.advance(queues.get(i), failure, cancelled)) {
+                    heads.add(head);
+                }
+            }
+            while (!heads.isEmpty()) {
+                Head<T> head = heads.poll();
+                sink.accept(head.row);
+                if (head.advance(queues.get(head.source), failure, cancelled)) {
+                    heads.add(head);
+                }
+            }
+            rethrow(failure.get());
+            merged = true;
+        } finally {
+            aborted.set(true);
+            if (!merged) {
+                // Sources still running their query only see the abort once it returns a row
+                for (int i = 0; i < statements.length(); i++) {
+                    cancelQuietly(statements.get(i));
+                }
+            }
+            awaitQuietly(done);
+        }
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.cancel();
+        } catch (SQLException | RuntimeException e) {
+            // Already closed or finished, nothing left to stop
+        }
+    }
+
+    private static void put(BlockingQueue<Object> queue, Object row, AtomicBoolean aborted) {
+        try {
+            while (!queue.offer(row, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (aborted.get()) {
+                    throw new CancellationException("Merge aborted");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch done) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void rethrow(Throwable t) {
+        if (t == null) {
+            return;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IllegalStateException("Merge source failed", t);
+    }
+
+    /**
+     * One sorted row stream: registers the statements it runs (for cancellation), then pushes its rows
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+        void run(Consumer<Statement> onStatement, Consumer<T> rows);
+    }
+
+    private static final class Head<T> {
+        private final int source;
+        private T row;
+
+        Head(int source) {
+            this.source = source;
+        }
+
+        // Next row of the source, false at its end; fails as soon as any source failed or the merge is cancelled
+        @SuppressWarnings("unchecked")
+        boolean advance(BlockingQueue<Object> queue, AtomicReference<Throwable> failure, BooleanSupplier cancelled) {
+            try {
+                while (true) {
+                    rethrow(failure.get());
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("Merge cancelled");
+                    }
+                    Object next = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (next == END) {
+                        return false;
+                    }
+                    if (next != null) {
+                        row = (T) next;
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted");
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.backend.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable Space-Saving summary of the heaviest items of a stream, in its mergeable form: at most
+ * capacity counters, each with an upper bound (count) and an error (count - error <= true count <= count).
+ * Any item without a counter has a true count of at most getFloor().
+ *
+ * Summaries are built from exact counts (of(), e.g. one GROUP BY batch) and combined with merge(), which
+ * keeps the bounds: the counts of the parts add up, an item missing from a part counts that part's floor.
+ */
+public final class SpaceSavingSummary<T> {
+
+    private final List<Counter<T>> counters;
+    private final long floor;
+
+    private SpaceSavingSummary(List<Counter<T>> counters, long floor) {
+        this.counters = counters;
+        this.floor = floor;
+    }
+
+    public static <T> SpaceSavingSummary<T> empty() {
+        return new SpaceSavingSummary<>(Collections.<Counter<T>>emptyList(), 0);
+    }
+
+    /**
+     * Summary of exact counts: the capacity largest are kept, with no error
+     */
+    public static <T> SpaceSavingSummary<T> of(Map<T, Long> counts, int capacity) {
+        List<Counter<T>> all = new ArrayList<>(counts.size());
+        for (Map.Entry<T, Long> entry : counts.entrySet()) {
+            all.add(new Counter<>(entry.getKey(), entry.getValue(), 0));
+        }
+        return truncate(all, 0, capacity);
+    }
+
+    public static <T> SpaceSavingSummary<T> merge(Collection<SpaceSavingSummary<T>> parts, int capacity) {
+        if (parts.size() == 1 && parts.iterator().next().counters.size() <= capacity) {
+            return parts.iterator().next();
+        }
+
+        // Accumulate (count - floor) per part, the floors of all parts are added back once at the end
+        long floorSum = 0;
+        Map<T, long[]> accumulated = new HashMap<>();
+        for (SpaceSavingSummary<T> part : parts) {
+            floorSum += part.floor;
+            for (Counter<T> counter : part.counters) {
+                long[] sums = accumulated.get(counter.item);
+                if (sums == null) {
+                    sums = new long[2];
+                    accumulated.put(counter.item, sums);
+                }
+                sums[0] += counter.count - part.floor;
+                sums[1] += counter.error - part.floor;
+            }
+        }
+
+        List<Counter<T>> all = new ArrayList<>(accumulated.size());
+        for (Map.Entry<T, long[]> entry : accumulated.entrySet()) {
+            long[] sums = entry.getValue();
+            all.add(new Counter<>(entry.getKey(), sums[0] + floorSum, sums[1] + floorSum));
+        }
+        return truncate(all, floorSum, capacity);
+    }
+
+    /**
+     * The k items with the largest upper bounds, largest first
+     */
+    public List<Counter<T>> top(int k) {
+        return counters.subList(0, Math.min(k, counters.size()));
+    }
+
+    public List<Counter<T>> getCounters() {
+        return counters;
+    }
+
+    public long getFloor() {
+        return floor;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    private static <T> SpaceSavingSummary<T> truncate(List<Counter<T>> all, long floor, int capacity) {
+        all.sort((a, b) -> Long.compare(b.count, a.count));
+        if (all.size() <= capacity) {
+            return new SpaceSavingSummary<>(Collections.unmodifiableList(all), floor);
+        }
+        // A dropped item counts at most as much as the largest dropped counter
+        long dropped = all.get(capacity).count;
+        List<Counter<T>> kept = new ArrayList<>(all.subList(0, capacity));
+        return new SpaceSavingSummary<>(Collections.unmodifiableList(kept), Math.max(floor, dropped));
+    }
+
+    public static final class Counter<T> {
+        private final T item;
+        private final long count;
+        private final long error;
+
+        Counter(T item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        // Upper bound of the true count
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        // Lower bound of the true count
+        public long getGuaranteedCount() {
+            return count - error;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.backend.utils;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * Row-by-row XLSX writer for large exports.
+ *
+ * - SXSSF workbook keeping only the last windowSize rows in memory, older rows are flushed to a temp
+ *   file (gzip-compressed when asked) and the document is copied to the output on finish()
+ * - The header and date-time cell styles are created once and shared by every cell
+ * - Past the 1,048,576 rows of a sheet the rows continue on a new sheet with the same header
+ *
+ * Usage: startRow() then one text/number/dateTime/skip call per column, finish(), close().
+ */
+public final class XlsxStreamWriter implements Closeable {
+
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook;
+    private final String sheetName;
+    private final String[] header;
+    private final CellStyle headerStyle;
+    private final CellStyle dateTimeStyle;
+
+    private SXSSFSheet sheet;
+    private Row row;
+    private int rowNum;
+    private int column;
+    private long rowCount;
+
+    public XlsxStreamWriter(OutputStream out, String sheetName, String[] header,
+                            int windowSize, boolean compressTempFiles) {
+        this.out = out;
+        this.workbook = new SXSSFWorkbook(null, windowSize, compressTempFiles);
+        this.sheetName = sheetName;
+        this.header = header;
+
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        this.headerStyle = workbook.createCellStyle();
+        this.headerStyle.setFont(bold);
+
+        this.dateTimeStyle = workbook.createCellStyle();
+        this.dateTimeStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+
+        newSheet();
+    }
+
+    public XlsxStreamWriter startRow() {
+        if (rowNum == MAX_ROWS) {
+            newSheet();
+        }
+        row = sheet.createRow(rowNum++);
+        column = 0;
+        rowCount++;
+        return this;
+    }
+
+    public XlsxStreamWriter text(String value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value);
+        }
+        column++;
+        return this;
+    }
+
+    public XlsxStreamWriter number(Number value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value.doubleValue());
+        }
+        column++;
+        return this;
+    }
+
+    public XlsxStreamWriter dateTime(LocalDateTime value) {
+        if (value != null) {
+            Cell cell = row.createCell(column);
+            cell.setCellValue(value);
+            cell.setCellStyle(dateTimeStyle);
+        }
+        column++;
+        return this;
+    }
+
+    // Leave the current column empty
+    public XlsxStreamWriter skip() {
+        column++;
+        return this;
+    }
+
+    /**
+     * Data rows written so far, headers excluded
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Complete the document on the output; the output stream itself is left open
+     */
+    public void finish() throws IOException {
+        workbook.write(out);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Deletes the temp files backing the flushed rows
+        workbook.dispose();
+        workbook.close();
+    }
+
+    private void newSheet() {
+        int index = workbook.getNumberOfSheets();
+        sheet = workbook.createSheet(index == 0 ? sheetName : sheetName + " (" + (index + 1) + ")");
+        rowNum = 0;
+
+        Row headerRow = sheet.createRow(rowNum++);
+        for (int i = 0; i < header.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(header[i]);
+            cell.setCellStyle(headerStyle);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.backend.dao;
+
+import com.example.backend.entities.dto.FraudAlertResponseDTO;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The alerts assembled from partition aggregates must be those of the single export query
+ * (forEachFraudAlertWithDetails) over the whole window.
+ */
+class FraudAlertAggregateAssemblerTest {
+
+    private static final Map<Long, String> RULE_NAMES = new HashMap<>();
+
+    // Rule 6 has aggregates but no longer exists in tableref.regles_fraudes
+    private static final long DELETED_RULE = 6L;
+
+    static {
+        for (long ruleId = 1; ruleId < DELETED_RULE; ruleId++) {
+            RULE_NAMES.put(ruleId, "Rule " + ruleId);
+        }
+    }
+
+    @Test
+    void appliesTheDetectionFilterAfterCombiningThePartitions() {
+        // One detection in each of two partitions: two detections over the window
+        List<List<Object[]>> keys = Arrays.asList(
+                partitions(
+                        aggregate("21600000001", 1, 3, 1, "2024-03-01 10:00:00", "2024-03-01 10:00:00", "240301090000", "240301100000"),
+                        aggregate("21600000001", 1, 2, 1, "2024-03-20 08:00:00", "2024-03-20 08:00:00", "240320070000", "240320080000")),
+                // A single detection over the window
+                partitions(
+                        aggregate("21600000002", 1, 5, 1, "2024-03-02 10:00:00", "2024-03-02 10:00:00", "240302090000", "240302100000")));
+
+        List<FraudAlertResponseDTO> alerts = assemble(keys);
+
+        assertEquals(singleQuery(keys), alerts);
+        assertEquals(1, alerts.size());
+        FraudAlertResponseDTO alert = alerts.get(0);
+        assertEquals("21600000001", alert.getMsisdn());
+        assertEquals(1L, (long) alert.getUniqueRules());
+        assertEquals(5L, (long) alert.getTotalAlerts());
+        assertEquals(Timestamp.valueOf("2024-03-01 10:00:00").toLocalDateTime(), alert.getFirstDateDetection());
+        assertEquals(Timestamp.valueOf("2024-03-20 08:00:00").toLocalDateTime(), alert.getLastDateDetection());
+        assertEquals("240301090000", alert.getDetails().get(0).getStartDate());
+        assertEquals("240320080000", alert.getDetails().get(0).getEndDate());
+        assertEquals(5L, (long) alert.getDetails().get(0).getOccurrences());
+    }
+
+    @Test
+    void dropsTheRulesNoLongerDefinedFromTheDetailsOnly() {
+        List<List<Object[]>> keys = Arrays.asList(
+                partitions(aggregate("21600000001", 2, 1, 1, "2024-03-01 10:00:00", "2024-03-01 10:00:00", "240301090000", "240301100000")),
+                partitions(aggregate("21600000001", DELETED_RULE, 4, 1, "2024-03-03 10:00:00", "2024-03-03 10:00:00", "240303090000", "240303100000")),
+                // Only a deleted rule: no alert
+                partitions(aggregate("21600000002", DELETED_RULE, 4, 2, "2024-03-03 10:00:00", "2024-03-04 10:00:00", "240303090000", "240304100000")));
+
+        List<FraudAlertResponseDTO> alerts = assemble(keys);
+
+        assertEquals(singleQuery(keys), alerts);
+        assertEquals(1, alerts.size());
+        // The summary still counts the deleted rule, as the window aggregates run before the rule join
+        assertEquals(2L, (long) alerts.get(0).getUniqueRules());
+        assertEquals(5L, (long) alerts.get(0).getTotalAlerts());
+        assertEquals(1, alerts.get(0).getDetails().size());
+        assertEquals(2L, (long) alerts.get(0).getDetails().get(0).getRuleId());
+    }
+
+    @Test
+    void matchesTheSingleQueryOnRandomSplits() {
+        Random random = new Random(42);
+        List<List<Object[]>> keys = new ArrayList<>();
+        for (int m = 0; m < 500; m++) {
+            String msisdn = String.format("216%08d", m);
+            addRandomKeys(random, msisdn, keys);
+        }
+        // NULL msisdns sort last and form a single alert
+        addRandomKeys(random, null, keys);
+
+        List<FraudAlertResponseDTO> alerts = assemble(keys);
+
+        assertEquals(singleQuery(keys), alerts);
+        assertTrue(alerts.size() > 100, "alerts: " + alerts.size());
+        assertTrue(alerts.size() < 501, "alerts: " + alerts.size());
+    }
+
+    private static void addRandomKeys(Random random, String msisdn, List<List<Object[]>> keys) {
+        int rules = 1 + random.nextInt(3);
+        long ruleId = 0;
+        for (int r = 0; r < rules; r++) {
+            ruleId += 1 + random.nextInt(2);
+            List<Object[]> partitions = new ArrayList<>();
+            int partitionCount = 1 + random.nextInt(3);
+            for (int p = 0; p < partitionCount; p++) {
+                int day = 1 + p * 10 + random.nextInt(10);
+                int firstHour = random.nextInt(12);
+                int lastHour = firstHour + random.nextInt(12);
+                partitions.add(aggregate(msisdn, ruleId, 1 + random.nextInt(20), 1 + random.nextInt(2),
+                        String.format("2024-03-%02d %02d:00:00", day, firstHour),
+                        String.format("2024-03-%02d %02d:00:00", day, lastHour),
+                        String.format("2403%02d%02d0000", day, Math.max(0, firstHour - 1)),
+                        String.format("2403%02d%02d0000", day, lastHour)));
+            }
+            keys.add(partitions);
+        }
+    }
+
+    // Rows of one (msisdn, id_regle) key, one per partition holding it
+    private static List<Object[]> partitions(Object[]... rows) {
+        return Arrays.asList(rows);
+    }
+
+    // msisdn, id_regle, nb_alertes, nb_detections, first_detection, last_detection, min_date_debut, max_date_fin
+    private static Object[] aggregate(String msisdn, long ruleId, long alerts, long detections, String first,
+                                      String last, String minDateDebut, String maxDateFin) {
+        return new Object[]{msisdn, ruleId, alerts, detections, Timestamp.valueOf(first), Timestamp.valueOf(last),
+                minDateDebut, maxDateFin};
+    }
+
+    // Partition rows in merge order: (msisdn, id_regle), then partition order on ties
+    private static List<FraudAlertResponseDTO> assemble(List<List<Object[]>> keys) {
+        List<FraudAlertResponseDTO> alerts = new ArrayList<>();
+        FraudAlertAggregateAssembler assembler = new FraudAlertAggregateAssembler(RULE_NAMES, alerts::add);
+        for (List<Object[]> partitions : keys) {
+            for (Object[] row : partitions) {
+                assembler.accept(row.clone());
+            }
+        }
+        assembler.finish();
+        return alerts;
+    }
+
+    /**
+     * What forEachFraudAlertWithDetails returns for the same data: aggregates of the whole window per
+     * (msisdn, id_regle), summary over the MSISDN's keys, more than one detection, details joined with the rules
+     */
+    private static List<FraudAlertResponseDTO> singleQuery(List<List<Object[]>> keys) {
+        List<Object[]> window = new ArrayList<>();
+        for (List<Object[]> partitions : keys) {
+            Object[] key = partitions.get(0).clone();
+            for (Object[] row : partitions.subList(1, partitions.size())) {
+                key[2] = (long) key[2] + (long) row[2];
+                key[3] = (long) key[3] + (long) row[3];
+                key[4] = ((Timestamp) row[4]).before((Timestamp) key[4]) ? row[4] : key[4];
+                key[5] = ((Timestamp) row[5]).after((Timestamp) key[5]) ? row[5] : key[5];
+                key[6] = ((String) row[6]).compareTo((String) key[6]) < 0 ? row[6] : key[6];
+                key[7] = ((String) row[7]).compareTo((String) key[7]) > 0 ? row[7] : key[7];
+            }
+            window.add(key);
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int from = 0; from < window.size(); ) {
+            int to = from;
+            while (to < window.size() && Objects.equals(window.get(to)[0], window.get(from)[0])) {
+                to++;
+            }
+            List<Object[]> msisdnKeys = window.subList(from, to);
+            long totalAlerts = 0;
+            long detections = 0;
+            Timestamp first = null;
+            Timestamp last = null;
+            for (Object[] key : msisdnKeys) {
+                totalAlerts += (long) key[2];
+                detections += (long) key[3];
+                first = first == null || ((Timestamp) key[4]).before(first) ? (Timestamp) key[4] : first;
+                last = last == null || ((Timestamp) key[5]).after(last) ? (Timestamp) key[5] : last;
+            }
+            for (Object[] key : msisdnKeys) {
+                String ruleName = RULE_NAMES.get((Long) key[1]);
+                if (detections > 1 && ruleName != null) {
+                    rows.add(new Object[]{key[0], (long) msisdnKeys.size(), totalAlerts, first, last,
+                            ruleName, key[1], key[6], key[7], key[5], key[2], key[6]});
+                }
+            }
+            from = to;
+        }
+
+        // Grouped by MSISDN as forEachFraudAlertWithDetails does
+        List<FraudAlertResponseDTO> alerts = new ArrayList<>();
+        FraudAlertResponseDTO alert = null;
+        for (Object[] row : rows) {
+            if (alert == null || !Objects.equals(alert.getMsisdn(), row[0])) {
+                alert = FraudAlertRowMapper.toFraudAlert(row);
+                alert.setDetails(new ArrayList<>());
+                alerts.add(alert);
+            }
+            alert.getDetails().add(FraudAlertRowMapper.toFraudAlertDetail(row, 5));
+        }
+        return alerts;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.backend.services;
+
+import com.example.backend.dao.FraudAlertRepository;
+import com.example.backend.entities.dto.AlertStreamEventDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The alert stream cursor against a real PostgreSQL: rows committed late and rows sharing a
+ * date_detection must each be delivered exactly once.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class FraudAlertStreamFeedTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:13-alpine");
+
+    private static final Timestamp START = Timestamp.valueOf("2024-03-01 10:00:00");
+    private static final long OVERLAP_MS = 60000L;
+    private static final int MAX_ROWS = 100;
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static FraudAlertRepository repository;
+
+    @BeforeAll
+    static void createTables() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SCHEMA stat");
+        jdbcTemplate.execute("CREATE SCHEMA tableref");
+        jdbcTemplate.execute("CREATE TABLE tableref.categories_fraudes (id INTEGER PRIMARY KEY, nom_categorie VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE tableref.regles_fraudes (id INTEGER PRIMARY KEY, nom VARCHAR(255), " +
+                "type VARCHAR(50), etat VARCHAR(1), id_categorie INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE stat.alerte_fraude_seq (id BIGSERIAL PRIMARY KEY, msisdn VARCHAR(20), " +
+                "id_regle INTEGER, date_detection TIMESTAMP, date_debut VARCHAR(12), date_fin VARCHAR(12))");
+        jdbcTemplate.update("INSERT INTO tableref.categories_fraudes VALUES (1, 'Category 1')");
+        jdbcTemplate.update("INSERT INTO tableref.regles_fraudes VALUES (1, 'Rule 1', 'AUTO', 'A', 1)");
+
+        repository = new FraudAlertRepository();
+        ReflectionTestUtils.setField(repository, "dataSource", dataSource);
+    }
+
+    @BeforeEach
+    void clearAlerts() {
+        jdbcTemplate.execute("TRUNCATE stat.alerte_fraude_seq");
+    }
+
+    @Test
+    void startsAtTheSubscribeTime() {
+        insert("21600000001", "2024-03-01 09:59:59");
+        insert("21600000002", "2024-03-01 10:00:00");
+        insert("21600000003", "2024-03-01 10:00:05");
+
+        FraudAlertStreamService.FeedCursor cursor = new FraudAlertStreamService.FeedCursor(START, OVERLAP_MS);
+
+        assertEquals(Arrays.asList("21600000002", "21600000003"), msisdns(poll(cursor)));
+        assertTrue(poll(cursor).isEmpty());
+    }
+
+    @Test
+    void deliversRowsSharingADetectionTimeAcrossPolls() {
+        FraudAlertStreamService.FeedCursor cursor = new FraudAlertStreamService.FeedCursor(START, OVERLAP_MS);
+        insert("21600000001", "2024-03-01 10:01:00");
+        insert("21600000002", "2024-03-01 10:01:00");
+        assertEquals(Arrays.asList("21600000001", "21600000002"), msisdns(poll(cursor)));
+
+        // Same date_detection as the newest alert already sent
+        insert("21600000003", "2024-03-01 10:01:00");
+        insert("21600000004", "2024-03-01 10:01:00");
+        assertEquals(Arrays.asList("21600000003", "21600000004"), msisdns(poll(cursor)));
+        assertTrue(poll(cursor).isEmpty());
+    }
+
+    @Test
+    void deliversRowsCommittedLate() throws Exception {
+        FraudAlertStreamService.FeedCursor cursor = new FraudAlertStreamService.FeedCursor(START, OVERLAP_MS);
+
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            try (PreparedStatement insert = slow.prepareStatement(
+                    "INSERT INTO stat.alerte_fraude_seq (msisdn, id_regle, date_detection) VALUES (?, 1, ?)")) {
+                insert.setString(1, "21600000001");
+                insert.setTimestamp(2, Timestamp.valueOf("2024-03-01 10:02:00"));
+                insert.executeUpdate();
+            }
+
+            // A later detection commits first and is sent while the first insert is still open
+            insert("21600000002", "2024-03-01 10:02:30");
+            assertEquals(Arrays.asList("21600000002"), msisdns(poll(cursor)));
+
+            slow.commit();
+        }
+
+        assertEquals(Arrays.asList("21600000001"), msisdns(poll(cursor)));
+        assertTrue(poll(cursor).isEmpty());
+    }
+
+    @Test
+    void skipsTheResyncedWindow() {
+        FraudAlertStreamService.FeedCursor cursor = new FraudAlertStreamService.FeedCursor(START, OVERLAP_MS);
+        for (int i = 0; i <= MAX_ROWS; i++) {
+            insert(String.format("216%08d", i), "2024-03-01 10:03:00");
+        }
+
+        List<AlertStreamEventDTO> behind = cursor.next(repository, MAX_ROWS);
+        assertEquals(MAX_ROWS + 1, behind.size());
+        cursor.skipThrough(Timestamp.valueOf("2024-03-01 10:03:00"));
+
+        insert("21699999999", "2024-03-01 10:03:01");
+        assertEquals(Arrays.asList("21699999999"), msisdns(poll(cursor)));
+    }
+
+    private static List<AlertStreamEventDTO> poll(FraudAlertStreamService.FeedCursor cursor) {
+        List<AlertStreamEventDTO> alerts = cursor.next(repository, MAX_ROWS);
+        cursor.markSent(alerts);
+        return alerts;
+    }
+
+    private static void insert(String msisdn, String dateDetection) {
+        jdbcTemplate.update("INSERT INTO stat.alerte_fraude_seq (msisdn, id_regle, date_detection) VALUES (?, 1, ?)",
+                msisdn, Timestamp.valueOf(dateDetection));
+    }
+
+    private static List<String> msisdns(List<AlertStreamEventDTO> alerts) {
+        List<String> msisdns = new ArrayList<>();
+        for (AlertStreamEventDTO alert : alerts) {
+            msisdns.add(alert.getMsisdn());
+        }
+        return msisdns;
+    }
+}
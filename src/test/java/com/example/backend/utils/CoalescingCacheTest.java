@@ -0,0 +1,134 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingCacheTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> owner = executor.submit(() -> cache.get("k", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "v";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            List<Future<String>> waiters = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                waiters.add(executor.submit(() -> cache.get("k", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (cache.getCoalesced() < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("v", owner.get(5, TimeUnit.SECONDS));
+            for (Future<String> waiter : waiters) {
+                assertEquals("v", waiter.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals("v", cache.get("k", () -> "other"));
+        assertEquals(1, cache.getMisses());
+        assertEquals(3, cache.getCoalesced());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void doesNotCacheFailures() {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(10, 60_000);
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> cache.get("k", () -> {
+            throw failure;
+        })));
+        assertEquals(0, cache.size());
+        assertEquals("v", cache.get("k", () -> "v"));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedPastTheWeight() {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(Integer.MAX_VALUE, 10, String::length, 60_000);
+        cache.get("a", () -> "aaaa");
+        cache.get("b", () -> "bbbb");
+        cache.get("a", () -> "reloaded");
+
+        cache.get("c", () -> "cccc");
+
+        assertEquals("aaaa", cache.peek("a"));
+        assertNull(cache.peek("b"));
+        assertEquals("cccc", cache.peek("c"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void evictsPastTheEntryCount() {
+        CoalescingCache<Integer, Integer> cache = new CoalescingCache<>(3, 60_000);
+        for (int i = 0; i < 5; i++) {
+            int value = i;
+            cache.get(i, () -> value);
+        }
+        assertEquals(3, cache.size());
+        assertNull(cache.peek(0));
+        assertNull(cache.peek(1));
+        assertEquals(4, (int) cache.peek(4));
+    }
+
+    @Test
+    void expiresAndInvalidates() throws InterruptedException {
+        CoalescingCache<List<Object>, String> cache = new CoalescingCache<>(10, 20);
+        cache.get(CoalescingCache.key("216", 1), () -> "first");
+        Thread.sleep(40);
+        assertNull(cache.peek(CoalescingCache.key("216", 1)));
+        assertEquals("second", cache.get(CoalescingCache.key("216", 1), () -> "second"));
+
+        CoalescingCache<List<Object>, String> longLived = new CoalescingCache<>(10, 60_000);
+        longLived.get(CoalescingCache.key("216", 1), () -> "a");
+        longLived.get(CoalescingCache.key("216", 2), () -> "b");
+        longLived.get(CoalescingCache.key("217", 1), () -> "c");
+
+        assertEquals(2, longLived.invalidateIf(key -> "216".equals(key.get(0))));
+        assertEquals("c", longLived.peek(CoalescingCache.key("217", 1)));
+        assertEquals(1, longLived.size());
+        // peek is not a lookup
+        assertEquals(0, longLived.getHits());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
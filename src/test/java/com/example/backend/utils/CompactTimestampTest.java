@@ -0,0 +1,91 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTimestampTest {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyMMddHHmmss");
+
+    @Test
+    void matchesDateTimeFormatterOverTheWholeRange() {
+        // Every hour from 2000 to 2099, with minutes and seconds varying along the way
+        LocalDateTime end = LocalDateTime.of(2100, 1, 1, 0, 0);
+        int checked = 0;
+        for (LocalDateTime hour = LocalDateTime.of(2000, 1, 1, 0, 0); hour.isBefore(end); hour = hour.plusHours(1)) {
+            LocalDateTime dateTime = hour.plusMinutes(checked % 60).plusSeconds((checked * 7) % 60);
+            String value = dateTime.format(FORMAT);
+
+            assertEquals(value, CompactTimestamp.format(dateTime));
+            assertEquals(LocalDateTime.parse(value, FORMAT), CompactTimestamp.toLocalDateTime(value));
+            assertEquals(dateTime.toEpochSecond(ZoneOffset.UTC), CompactTimestamp.toEpochSecond(value));
+            assertEquals(hour.toEpochSecond(ZoneOffset.UTC), CompactTimestamp.toEpochHour(value));
+            assertEquals(dateTime, CompactTimestamp.fromEpochSecond(CompactTimestamp.toEpochSecond(value)));
+            checked++;
+        }
+        assertEquals(ChronoUnit.HOURS.between(LocalDateTime.of(2000, 1, 1, 0, 0), end), checked);
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        String[] malformed = {"", "24010112000", "2401011200000", "240101 20000", "241301120000",
+                "240230120000", "230229120000", "240101240000", "240101126000", "240101120060"};
+        for (String value : malformed) {
+            assertThrows(DateTimeException.class, () -> CompactTimestamp.toLocalDateTime(value));
+            assertThrows(DateTimeException.class, () -> CompactTimestamp.toEpochSecond(value));
+        }
+        assertThrows(DateTimeException.class, () -> CompactTimestamp.toLocalDateTime(null));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 23, 59, 59), CompactTimestamp.toLocalDateTime("240229235959"));
+    }
+
+    @Test
+    void epochHourOnlyReadsTheHourPrefix() {
+        long expected = LocalDateTime.of(2024, 3, 1, 10, 0).toEpochSecond(ZoneOffset.UTC);
+        assertEquals(expected, CompactTimestamp.toEpochHour("24030110"));
+        assertEquals(expected, CompactTimestamp.toEpochHour("240301105959"));
+        assertEquals(expected, CompactTimestamp.toEpochHour("2403011059"));
+        assertEquals(expected, CompactTimestamp.toEpochHour("24030110xx"));
+        assertThrows(DateTimeException.class, () -> CompactTimestamp.toEpochHour("2403011"));
+        assertThrows(DateTimeException.class, () -> CompactTimestamp.toEpochHour("24030125"));
+    }
+
+    @Test
+    void absentValues() {
+        assertNull(CompactTimestamp.toLocalDateTimeOrNull(null));
+        assertNull(CompactTimestamp.toLocalDateTimeOrNull(""));
+    }
+
+    @Test
+    void dayBoundsEncloseTheValuesOfTheDays() {
+        LocalDate first = LocalDate.of(2024, 12, 31);
+        LocalDate last = LocalDate.of(2025, 1, 1);
+        String lower = CompactTimestamp.lowerBound(first);
+        String upper = CompactTimestamp.upperBound(last);
+
+        assertEquals("241231000000", lower);
+        assertEquals("250102000000", upper);
+        assertTrue("241231000000".compareTo(lower) >= 0);
+        assertTrue("250101235959".compareTo(upper) < 0);
+        assertTrue("241230235959".compareTo(lower) < 0);
+        assertTrue("250102000000".compareTo(upper) >= 0);
+        assertEquals(first, CompactTimestamp.toLocalDate("241231"));
+        assertEquals(first, CompactTimestamp.toLocalDate("241231120000"));
+    }
+
+    @Test
+    void rejectsYearsOutOfTheTwoDigitRange() {
+        assertThrows(DateTimeException.class, () -> CompactTimestamp.format(LocalDateTime.of(1999, 12, 31, 0, 0)));
+        assertThrows(DateTimeException.class, () -> CompactTimestamp.dayKey(LocalDate.of(2100, 1, 1)));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedBitmapTest {
+
+    @Test
+    void setOperationsMatchBitSets() {
+        Random random = new Random(11);
+        for (int round = 0; round < 30; round++) {
+            BitSet left = randomBits(random);
+            BitSet right = randomBits(random);
+            CompressedBitmap a = bitmap(left);
+            CompressedBitmap b = bitmap(right);
+
+            BitSet and = (BitSet) left.clone();
+            and.and(right);
+            BitSet or = (BitSet) left.clone();
+            or.or(right);
+            BitSet andNot = (BitSet) left.clone();
+            andNot.andNot(right);
+
+            assertBits(left, a);
+            assertBits(and, a.and(b));
+            assertBits(or, a.or(b));
+            assertBits(andNot, a.andNot(b));
+            assertEquals(and.cardinality(), a.andCardinality(b));
+            assertEquals(and.cardinality(), b.andCardinality(a));
+        }
+    }
+
+    @Test
+    void operationsLeaveTheirInputsUnchanged() {
+        CompressedBitmap a = bitmap(0, 1, 70_000, 70_001);
+        CompressedBitmap b = bitmap(1, 70_001, 200_000);
+        a.and(b);
+        a.or(b);
+        a.andNot(b);
+        b.andNot(a);
+
+        assertArrayEquals(new int[]{0, 1, 70_000, 70_001}, a.toArray(10));
+        assertArrayEquals(new int[]{1, 70_001, 200_000}, b.toArray(10));
+    }
+
+    @Test
+    void switchesBetweenArrayAndBitmapChunks() {
+        // 4096 values fit an array chunk, one more turns it into a bitmap, removing them turns it back
+        CompressedBitmap.Builder builder = CompressedBitmap.builder();
+        for (int i = 0; i < 4097; i++) {
+            builder.add(i * 3);
+        }
+        CompressedBitmap dense = builder.build();
+        CompressedBitmap sparse = dense.andNot(bitmap(0, 3, 6));
+
+        assertEquals(4097, dense.cardinality());
+        assertEquals(4094, sparse.cardinality());
+        assertTrue(dense.contains(3 * 4096));
+        assertTrue(!sparse.contains(3));
+        assertTrue(sparse.contains(9));
+        assertTrue(dense.sizeInBytes() >= 8192);
+        assertTrue(sparse.sizeInBytes() < 8192);
+    }
+
+    @Test
+    void buildsFromValuesInAnyOrderWithDuplicates() {
+        int[] values = {65_536 * 5 + 1, 7, 65_536, 7, 3, 65_536 * 5 + 1, 0, Integer.MAX_VALUE};
+        CompressedBitmap.Builder builder = CompressedBitmap.builder();
+        for (int value : values) {
+            builder.add(value);
+        }
+        CompressedBitmap bitmap = builder.build();
+
+        int[] expected = {0, 3, 7, 65_536, 65_536 * 5 + 1, Integer.MAX_VALUE};
+        assertArrayEquals(expected, bitmap.toArray(100));
+        assertArrayEquals(Arrays.copyOf(expected, 3), bitmap.toArray(3));
+        assertEquals(6, bitmap.cardinality());
+
+        List<Integer> iterated = new ArrayList<>();
+        bitmap.forEach(iterated::add);
+        assertEquals(Arrays.asList(0, 3, 7, 65_536, 65_536 * 5 + 1, Integer.MAX_VALUE), iterated);
+    }
+
+    @Test
+    void orAllIsTheUnion() {
+        CompressedBitmap union = CompressedBitmap.orAll(Arrays.asList(bitmap(1, 2), bitmap(2, 100_000), bitmap(3)));
+        assertArrayEquals(new int[]{1, 2, 3, 100_000}, union.toArray(10));
+        assertSame(CompressedBitmap.empty(), CompressedBitmap.orAll(new ArrayList<>()));
+    }
+
+    @Test
+    void emptyAndInvalid() {
+        CompressedBitmap empty = CompressedBitmap.empty();
+        assertTrue(empty.isEmpty());
+        assertEquals(0, empty.toArray(10).length);
+        assertTrue(bitmap(1, 2).and(bitmap(3)).isEmpty());
+        assertTrue(bitmap(1, 2).andNot(bitmap(1, 2)).isEmpty());
+        assertTrue(!empty.contains(0));
+
+        assertThrows(IllegalArgumentException.class, () -> CompressedBitmap.builder().add(-1));
+        CompressedBitmap.Builder builder = CompressedBitmap.builder();
+        builder.build();
+        assertThrows(IllegalStateException.class, () -> builder.add(1));
+    }
+
+    // Mixes sparse chunks, dense chunks and absent chunks over the first 8 chunks
+    private static BitSet randomBits(Random random) {
+        BitSet bits = new BitSet();
+        for (int chunk = 0; chunk < 8; chunk++) {
+            int kind = random.nextInt(3);
+            int count = kind == 0 ? 0 : kind == 1 ? random.nextInt(200) : 4000 + random.nextInt(30_000);
+            for (int i = 0; i < count; i++) {
+                bits.set(chunk * 65_536 + random.nextInt(65_536));
+            }
+        }
+        return bits;
+    }
+
+    private static CompressedBitmap bitmap(BitSet bits) {
+        CompressedBitmap.Builder builder = CompressedBitmap.builder();
+        bits.stream().forEach(builder::add);
+        return builder.build();
+    }
+
+    private static CompressedBitmap bitmap(int... values) {
+        CompressedBitmap.Builder builder = CompressedBitmap.builder();
+        for (int value : values) {
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    private static void assertBits(BitSet expected, CompressedBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertArrayEquals(expected.stream().toArray(), actual.toArray(Integer.MAX_VALUE));
+        for (int probe = 0; probe < 8 * 65_536; probe += 997) {
+            assertEquals(expected.get(probe), actual.contains(probe));
+        }
+    }
+}
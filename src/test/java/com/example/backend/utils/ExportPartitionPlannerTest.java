@@ -0,0 +1,53 @@
+package com.example.backend.utils;
+
+import com.example.backend.utils.ExportPartitionPlanner.DateRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportPartitionPlannerTest {
+
+    @Test
+    void spreadsTheDaysEvenly() {
+        List<DateRange> ranges = ExportPartitionPlanner.plan(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 4);
+
+        assertEquals("[2024-03-01..2024-03-08, 2024-03-09..2024-03-16, 2024-03-17..2024-03-24, 2024-03-25..2024-03-31]",
+                ranges.toString());
+    }
+
+    @Test
+    void coversTheWindowWithBalancedContiguousRanges() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int days = 1; days <= 120; days++) {
+            for (int maxPartitions = 1; maxPartitions <= 10; maxPartitions++) {
+                LocalDate end = start.plusDays(days - 1);
+                List<DateRange> ranges = ExportPartitionPlanner.plan(start, end, maxPartitions);
+
+                assertEquals(Math.min(days, maxPartitions), ranges.size());
+                assertEquals(start, ranges.get(0).getStart());
+                assertEquals(end, ranges.get(ranges.size() - 1).getEnd());
+                long shortest = Long.MAX_VALUE;
+                long longest = 0;
+                for (int i = 0; i < ranges.size(); i++) {
+                    if (i > 0) {
+                        assertEquals(ranges.get(i - 1).getEnd().plusDays(1), ranges.get(i).getStart());
+                    }
+                    long length = ChronoUnit.DAYS.between(ranges.get(i).getStart(), ranges.get(i).getEnd()) + 1;
+                    shortest = Math.min(shortest, length);
+                    longest = Math.max(longest, length);
+                }
+                assertTrue(longest - shortest <= 1, days + " days over " + maxPartitions + ": " + ranges);
+            }
+        }
+    }
+
+    @Test
+    void emptyForAnInvertedWindow() {
+        assertTrue(ExportPartitionPlanner.plan(LocalDate.of(2024, 3, 2), LocalDate.of(2024, 3, 1), 4).isEmpty());
+    }
+}
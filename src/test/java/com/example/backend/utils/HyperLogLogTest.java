@@ -0,0 +1,105 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesWithinFourStandardErrors() {
+        for (int precision : new int[]{10, 12, 14}) {
+            double tolerance = 4 * HyperLogLog.relativeStandardError(precision);
+            for (int distinct : new int[]{10, 1000, 50_000, 1_000_000}) {
+                HyperLogLog sketch = new HyperLogLog(precision);
+                for (int i = 0; i < distinct; i++) {
+                    String msisdn = "2169" + (10_000_000 + i);
+                    sketch.add(msisdn);
+                    sketch.add(msisdn);
+                }
+                double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+                assertTrue(error <= tolerance,
+                        "precision " + precision + ", " + distinct + " values: estimate " + sketch.estimate());
+            }
+        }
+    }
+
+    @Test
+    void mergeIsTheSketchOfTheUnion() {
+        HyperLogLog monday = new HyperLogLog(12);
+        HyperLogLog tuesday = new HyperLogLog(12);
+        HyperLogLog both = new HyperLogLog(12);
+        for (int i = 0; i < 30_000; i++) {
+            monday.add("m" + i);
+            both.add("m" + i);
+        }
+        for (int i = 20_000; i < 60_000; i++) {
+            tuesday.add("m" + i);
+            both.add("m" + i);
+        }
+
+        monday.merge(tuesday);
+        assertArrayEquals(both.toBytes(), monday.toBytes());
+    }
+
+    @Test
+    void lowerPrecisionMatchesASketchBuiltAtThatPrecision() {
+        HyperLogLog high = new HyperLogLog(14);
+        HyperLogLog low = new HyperLogLog(10);
+        for (int i = 0; i < 200_000; i++) {
+            high.add("v" + i);
+            low.add("v" + i);
+        }
+        assertArrayEquals(low.toBytes(), high.withPrecision(10).toBytes());
+
+        // Merging a finer sketch reduces it first, the other way round is refused
+        HyperLogLog merged = new HyperLogLog(10);
+        merged.merge(high);
+        assertArrayEquals(low.toBytes(), merged.toBytes());
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(14).merge(low));
+        assertThrows(IllegalArgumentException.class, () -> low.withPrecision(12));
+    }
+
+    @Test
+    void serializesSparseAndDense() {
+        HyperLogLog empty = new HyperLogLog(12);
+        assertTrue(empty.isEmpty());
+        assertEquals(3, empty.toBytes().length);
+        assertEquals(0, HyperLogLog.fromBytes(empty.toBytes()).estimate());
+
+        HyperLogLog sparse = new HyperLogLog(12);
+        for (int i = 0; i < 20; i++) {
+            sparse.add("s" + i);
+        }
+        byte[] sparseBytes = sparse.toBytes();
+        assertTrue(sparseBytes.length < 100, "sparse layout expected: " + sparseBytes.length);
+        assertArrayEquals(sparseBytes, HyperLogLog.fromBytes(sparseBytes).toBytes());
+        assertEquals(sparse.estimate(), HyperLogLog.fromBytes(sparseBytes).estimate());
+
+        HyperLogLog dense = new HyperLogLog(12);
+        for (int i = 0; i < 100_000; i++) {
+            dense.add("d" + i);
+        }
+        byte[] denseBytes = dense.toBytes();
+        assertEquals(3 + 4096, denseBytes.length);
+        assertEquals(dense.estimate(), HyperLogLog.fromBytes(denseBytes).estimate());
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(HyperLogLog.MIN_PRECISION - 1));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(null));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{9, 12, 0}));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{1, 12, 0, 1, 2}));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{1, 12, 1, 0x7F, 0x7F, 1}));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{1, 12, 5}));
+
+        HyperLogLog sketch = new HyperLogLog(12);
+        sketch.add(null);
+        assertTrue(sketch.isEmpty());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntLongOpenHashMapTest {
+
+    @Test
+    void matchesHashMapOnRandomUpdates() {
+        Random random = new Random(42);
+        // Small expected size: the table rehashes several times along the way
+        IntLongOpenHashMap map = new IntLongOpenHashMap(4);
+        Map<Integer, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            int key = randomKey(random);
+            long delta = random.nextInt(1000) - 100;
+            map.addTo(key, delta);
+            expected.merge(key, delta, Long::sum);
+            assertEquals(expected.size(), map.size());
+
+            int probe = randomKey(random);
+            assertEquals(expected.getOrDefault(probe, -1L).longValue(), map.get(probe, -1L), "get " + probe);
+        }
+        assertEquals(expected, map.toMap());
+    }
+
+    @Test
+    void keepsEveryValueAcrossTheRehashThresholds() {
+        IntLongOpenHashMap map = new IntLongOpenHashMap(4);
+        // Same low bits before mixing, added one by one past several doublings
+        for (int i = 1; i <= 4096; i++) {
+            map.addTo(i << 16, i);
+            map.addTo(i << 16, i);
+            for (int j = 1; j <= i; j += Math.max(1, i / 64)) {
+                assertEquals(2L * j, map.get(j << 16, -1L), "lost " + j + " after " + i + " keys");
+            }
+            assertEquals(-1L, map.get((i + 1) << 16, -1L));
+        }
+        assertEquals(4096, map.size());
+    }
+
+    @Test
+    void keepsZeroApartFromTheFreeSlots() {
+        IntLongOpenHashMap map = new IntLongOpenHashMap();
+        assertEquals(-1L, map.get(0, -1L));
+
+        // A zero total is still an entry
+        map.addTo(0, 5);
+        map.addTo(0, -5);
+        assertEquals(0L, map.get(0, -1L));
+        assertEquals(1, map.size());
+
+        for (int key = -100; key <= 100; key++) {
+            map.addTo(key, key);
+        }
+        assertEquals(201, map.size());
+        assertEquals(0L, map.get(0, -1L));
+        assertEquals(-100L, map.get(-100, -1L));
+        assertEquals(201, map.toMap().size());
+    }
+
+    // Mostly a narrow range so keys repeat, with zero, negatives and extremes
+    private static int randomKey(Random random) {
+        switch (random.nextInt(10)) {
+            case 0:
+                return 0;
+            case 1:
+                return random.nextInt();
+            case 2:
+                return random.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            default:
+                return random.nextInt(100_000) - 50_000;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongOpenHashSetTest {
+
+    @Test
+    void matchesHashSetOnRandomKeys() {
+        Random random = new Random(42);
+        // Small expected size: the table rehashes several times along the way
+        LongOpenHashSet set = new LongOpenHashSet(4);
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = randomKey(random);
+            assertEquals(expected.add(key), set.add(key), "add " + key);
+            assertEquals(expected.size(), set.size());
+
+            long probe = randomKey(random);
+            assertEquals(expected.contains(probe), set.contains(probe), "contains " + probe);
+        }
+        for (long key : expected) {
+            assertTrue(set.contains(key), "lost " + key);
+        }
+    }
+
+    @Test
+    void keepsEveryKeyAcrossTheRehashThresholds() {
+        LongOpenHashSet set = new LongOpenHashSet(4);
+        // Same low bits before mixing, added one by one past several doublings
+        for (long i = 1; i <= 4096; i++) {
+            assertTrue(set.add(i << 32));
+            assertFalse(set.add(i << 32));
+            for (long j = 1; j <= i; j += Math.max(1, i / 64)) {
+                assertTrue(set.contains(j << 32), "lost " + j + " after " + i + " keys");
+            }
+            assertFalse(set.contains((i + 1) << 32));
+        }
+        assertEquals(4096, set.size());
+    }
+
+    @Test
+    void tracksZeroApartFromTheFreeSlots() {
+        LongOpenHashSet set = new LongOpenHashSet();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0));
+
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+
+        for (long key = -100; key <= 100; key++) {
+            set.add(key);
+        }
+        assertEquals(201, set.size());
+        assertTrue(set.contains(0));
+        assertFalse(set.contains(Long.MIN_VALUE));
+    }
+
+    // Mostly a narrow range so keys repeat, with zero, negatives and extremes
+    private static long randomKey(Random random) {
+        switch (random.nextInt(10)) {
+            case 0:
+                return 0;
+            case 1:
+                return random.nextLong();
+            case 2:
+                return random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE;
+            default:
+                return random.nextInt(100_000) - 50_000;
+        }
+    }
+}
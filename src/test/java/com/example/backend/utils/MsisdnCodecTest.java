@@ -0,0 +1,74 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MsisdnCodecTest {
+
+    private final MsisdnCodec codec = new MsisdnCodec("216");
+
+    @Test
+    void roundTrips() {
+        String[] msisdns = {"21612345678", "12345678", "0", "00012", "216", "2160", "2160000",
+                "99999999999999999", "21699999999999999999", "21600000000000000000"};
+        for (String msisdn : msisdns) {
+            long code = codec.encode(msisdn);
+            assertTrue(code >= 0, msisdn);
+            assertEquals(msisdn, codec.decode(code));
+        }
+    }
+
+    @Test
+    void keepsLeadingZerosAndThePrefixApart() {
+        String[] lookAlikes = {"12", "012", "0012", "21612", "216012", "2160012", "216216", "216"};
+        Map<Long, String> seen = new HashMap<>();
+        for (String msisdn : lookAlikes) {
+            assertNull(seen.put(codec.encode(msisdn), msisdn), msisdn);
+        }
+    }
+
+    @Test
+    void randomNumbersGiveDistinctCodes() {
+        Random random = new Random(42);
+        Map<Long, String> seen = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder msisdn = new StringBuilder(random.nextBoolean() ? "216" : "");
+            int digits = 1 + random.nextInt(17);
+            for (int d = 0; d < digits; d++) {
+                msisdn.append((char) ('0' + random.nextInt(10)));
+            }
+            String value = msisdn.toString();
+            long code = codec.encode(value);
+            String previous = seen.put(code, value);
+            assertTrue(previous == null || previous.equals(value), previous + " and " + value);
+            assertEquals(value, codec.decode(code));
+        }
+    }
+
+    @Test
+    void rejectsWhatItCannotEncode() {
+        String[] invalid = {null, "", "+21612345678", "216 12345678", "12a4", "216123456789012345678",
+                "123456789012345678"};
+        for (String msisdn : invalid) {
+            assertEquals(MsisdnCodec.NOT_ENCODABLE, codec.encode(msisdn), String.valueOf(msisdn));
+        }
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(MsisdnCodec.NOT_ENCODABLE));
+    }
+
+    @Test
+    void worksWithoutACountryPrefix() {
+        for (MsisdnCodec noPrefix : new MsisdnCodec[]{new MsisdnCodec(""), new MsisdnCodec(null)}) {
+            assertEquals("21612345678", noPrefix.decode(noPrefix.encode("21612345678")));
+            assertEquals("0012", noPrefix.decode(noPrefix.encode("0012")));
+            assertEquals(MsisdnCodec.NOT_ENCODABLE, noPrefix.encode("216123456789012345"));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderedMergeTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void startExecutor() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void mergesInOrderAndKeepsTheSourceOrderOnTies() {
+        List<String> merged = new ArrayList<>();
+        OrderedMerge.<String>merge(Arrays.asList(rows("a1", "c1", "e1"), rows("b2", "c2"), rows(), rows("a4", "f4")),
+                Comparator.comparing(row -> row.charAt(0)), executor, 1, () -> false, merged::add);
+
+        assertEquals(Arrays.asList("a1", "a4", "b2", "c1", "c2", "e1", "f4"), merged);
+    }
+
+    @Test
+    void mergesStreamsLongerThanTheQueues() {
+        List<Integer> merged = new ArrayList<>();
+        OrderedMerge.<Integer>merge(Arrays.asList(range(0, 3, 3000), range(1, 3, 3000), range(2, 3, 3000)),
+                Comparator.naturalOrder(), executor, 16, () -> false, merged::add);
+
+        assertEquals(3000, merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            assertEquals(i, (int) merged.get(i));
+        }
+    }
+
+    @Test
+    void aSourceFailureStopsTheOtherSources() {
+        AtomicBoolean endlessStopped = new AtomicBoolean();
+        OrderedMerge.Source<Integer> endless = (onStatement, rows) -> {
+            try {
+                for (int i = 0; ; i++) {
+                    rows.accept(i);
+                }
+            } finally {
+                endlessStopped.set(true);
+            }
+        };
+        OrderedMerge.Source<Integer> failing = (onStatement, rows) -> {
+            rows.accept(0);
+            throw new IllegalStateException("partition failed");
+        };
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> OrderedMerge.merge(
+                Arrays.asList(endless, failing), Comparator.<Integer>naturalOrder(), executor, 4, () -> false, row -> { }));
+        assertEquals("partition failed", e.getMessage());
+        assertTrue(endlessStopped.get());
+    }
+
+    @Test
+    void cancellingWhileWaitingCancelsTheRunningStatements() {
+        // Both sources stand for queries that return no row until their statement is cancelled
+        AtomicInteger cancelledStatements = new AtomicInteger();
+        OrderedMerge.Source<Integer> slowQuery = (onStatement, rows) -> {
+            CountDownLatch statementCancelled = new CountDownLatch(1);
+            onStatement.accept(statement(() -> {
+                cancelledStatements.incrementAndGet();
+                statementCancelled.countDown();
+            }));
+            try {
+                if (!statementCancelled.await(10, TimeUnit.SECONDS)) {
+                    rows.accept(0);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        AtomicBoolean cancelled = new AtomicBoolean();
+        executor.execute(() -> {
+            sleep(300);
+            cancelled.set(true);
+        });
+
+        long start = System.currentTimeMillis();
+        assertThrows(CancellationException.class, () -> OrderedMerge.merge(Arrays.asList(slowQuery, slowQuery),
+                Comparator.<Integer>naturalOrder(), executor, 4, cancelled::get, row -> { }));
+
+        assertEquals(2, cancelledStatements.get());
+        assertTrue(System.currentTimeMillis() - start < 5000, "merge waited for the queries to finish");
+    }
+
+    @Test
+    void aSinkFailureStopsTheSources() {
+        AtomicInteger stopped = new AtomicInteger();
+        OrderedMerge.Source<Integer> endless = (onStatement, rows) -> {
+            try {
+                for (int i = 0; ; i++) {
+                    rows.accept(i);
+                }
+            } finally {
+                stopped.incrementAndGet();
+            }
+        };
+
+        assertThrows(CancellationException.class, () -> OrderedMerge.merge(Arrays.asList(endless, endless),
+                Comparator.<Integer>naturalOrder(), executor, 4, () -> false, row -> {
+                    if (row == 100) {
+                        throw new CancellationException("Job cancelled");
+                    }
+                }));
+        assertEquals(2, stopped.get());
+    }
+
+    private static OrderedMerge.Source<String> rows(String... rows) {
+        return (onStatement, consumer) -> {
+            for (String row : rows) {
+                consumer.accept(row);
+            }
+        };
+    }
+
+    private static OrderedMerge.Source<Integer> range(int first, int step, int end) {
+        return (onStatement, consumer) -> {
+            for (int i = first; i < end; i += step) {
+                consumer.accept(i);
+            }
+        };
+    }
+
+    private static Statement statement(Runnable onCancel) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if ("cancel".equals(method.getName())) {
+                        onCancel.run();
+                    }
+                    return null;
+                });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSummaryTest {
+
+    @Test
+    void exactCountsKeepTheLargest() {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("a", 5L);
+        counts.put("b", 9L);
+        counts.put("c", 1L);
+        counts.put("d", 7L);
+
+        SpaceSavingSummary<String> summary = SpaceSavingSummary.of(counts, 2);
+
+        assertEquals(2, summary.size());
+        assertEquals("b", summary.top(2).get(0).getItem());
+        assertEquals("d", summary.top(2).get(1).getItem());
+        assertEquals(0, summary.top(2).get(0).getError());
+        // "a" was dropped with 5, nothing missing can count more
+        assertEquals(5, summary.getFloor());
+        assertEquals(1, summary.top(1).size());
+        assertEquals(2, summary.top(10).size());
+    }
+
+    @Test
+    void mergedBoundsHoldTheTrueCounts() {
+        Random random = new Random(7);
+        List<Map<Integer, Long>> batches = new ArrayList<>();
+        Map<Integer, Long> totals = new HashMap<>();
+        for (int b = 0; b < 48; b++) {
+            Map<Integer, Long> batch = new HashMap<>();
+            for (int i = 0; i < 2000; i++) {
+                // Skewed items: a few heavy hitters over a long tail
+                int item = (int) Math.floor(Math.pow(random.nextDouble(), 3) * 5000);
+                batch.merge(item, 1L, Long::sum);
+                totals.merge(item, 1L, Long::sum);
+            }
+            batches.add(batch);
+        }
+
+        List<SpaceSavingSummary<Integer>> parts = new ArrayList<>();
+        for (Map<Integer, Long> batch : batches) {
+            parts.add(SpaceSavingSummary.of(batch, 100));
+        }
+        // Merged in two levels, as hours into days then days into a window
+        List<SpaceSavingSummary<Integer>> days = new ArrayList<>();
+        for (int d = 0; d < parts.size(); d += 24) {
+            days.add(SpaceSavingSummary.merge(parts.subList(d, d + 24), 100));
+        }
+        SpaceSavingSummary<Integer> window = SpaceSavingSummary.merge(days, 100);
+
+        Set<Integer> counted = new HashSet<>();
+        for (SpaceSavingSummary.Counter<Integer> counter : window.getCounters()) {
+            long actual = totals.get(counter.getItem());
+            assertTrue(counter.getGuaranteedCount() <= actual && actual <= counter.getCount(),
+                    counter.getItem() + ": " + actual + " outside [" + counter.getGuaranteedCount()
+                            + ", " + counter.getCount() + "]");
+            counted.add(counter.getItem());
+        }
+        for (Map.Entry<Integer, Long> total : totals.entrySet()) {
+            if (!counted.contains(total.getKey())) {
+                assertTrue(total.getValue() <= window.getFloor(), total.getKey() + " above the floor");
+            }
+        }
+
+        // The heaviest items are found
+        List<Map.Entry<Integer, Long>> exact = new ArrayList<>(totals.entrySet());
+        exact.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(counted.contains(exact.get(i).getKey()), "missing heavy item " + exact.get(i).getKey());
+        }
+    }
+
+    @Test
+    void anItemMissingFromAPartCountsThatPartsFloor() {
+        Map<String, Long> first = new HashMap<>();
+        first.put("a", 10L);
+        first.put("b", 4L);
+        Map<String, Long> second = new HashMap<>();
+        second.put("b", 6L);
+        second.put("c", 3L);
+
+        SpaceSavingSummary<String> merged = SpaceSavingSummary.merge(Arrays.asList(
+                SpaceSavingSummary.of(first, 1), SpaceSavingSummary.of(second, 1)), 2);
+
+        // first kept a (floor 4), second kept b (floor 3)
+        SpaceSavingSummary.Counter<String> a = merged.top(2).get(0);
+        SpaceSavingSummary.Counter<String> b = merged.top(2).get(1);
+        assertEquals("a", a.getItem());
+        assertEquals(13, a.getCount());
+        assertEquals(10, a.getGuaranteedCount());
+        assertEquals("b", b.getItem());
+        assertEquals(10, b.getCount());
+        assertEquals(6, b.getGuaranteedCount());
+        assertEquals(7, merged.getFloor());
+    }
+
+    @Test
+    void mergingOneSummaryWithinCapacityReturnsIt() {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("a", 1L);
+        SpaceSavingSummary<String> summary = SpaceSavingSummary.of(counts, 10);
+        assertSame(summary, SpaceSavingSummary.merge(Collections.singletonList(summary), 10));
+        assertEquals(0, SpaceSavingSummary.merge(Collections.<SpaceSavingSummary<String>>emptyList(), 10).size());
+        assertEquals(0, SpaceSavingSummary.<String>empty().getFloor());
+    }
+}